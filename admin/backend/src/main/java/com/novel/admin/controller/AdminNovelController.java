@@ -5,7 +5,10 @@ import com.novel.admin.dto.*;
 import com.novel.admin.service.AdminNovelService;
 import com.novel.admin.service.GraphDataService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/novels")
@@ -48,6 +51,20 @@ public class AdminNovelController {
         return graphDataService.getGraphData(id);
     }
 
+    /**
+     * 分页流式导出小说图谱数据（参数与游标语义同客户端后端 /agentic/graph/export）
+     */
+    @GetMapping("/{id}/graph/export")
+    public ResponseEntity<StreamingResponseBody> exportGraphData(
+            @PathVariable Long id,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String order) {
+        StreamingResponseBody body = out -> graphDataService.exportGraphData(id, types, cursor, limit, order, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     // ========== 新增：详细数据接口（合并为一个） ==========
 
     /**
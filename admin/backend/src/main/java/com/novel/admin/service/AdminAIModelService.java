@@ -18,6 +18,9 @@ import java.util.Map;
 @Slf4j
 public class AdminAIModelService {
 
+    /** 模型目录版本戳，主服务轮询到变化后重建模型/计价快照 */
+    private static final String CATALOG_VERSION_KEY = "model_catalog_version";
+
     private final AIModelMapper aiModelMapper;
     private final SystemAIConfigMapper configMapper;
 
@@ -47,6 +50,7 @@ public class AdminAIModelService {
      */
     public AIModel createModel(AIModel model) {
         aiModelMapper.insert(model);
+        bumpCatalogVersion();
         return model;
     }
 
@@ -54,14 +58,14 @@ public class AdminAIModelService {
      * 更新模型
      */
     public boolean updateModel(AIModel model) {
-        return aiModelMapper.updateById(model) > 0;
+        return bumpIfChanged(aiModelMapper.updateById(model) > 0);
     }
 
     /**
      * 删除模型
      */
     public boolean deleteModel(Long id) {
-        return aiModelMapper.deleteById(id) > 0;
+        return bumpIfChanged(aiModelMapper.deleteById(id) > 0);
     }
 
     /**
@@ -70,7 +74,7 @@ public class AdminAIModelService {
     @Transactional
     public boolean setDefaultModel(Long id) {
         aiModelMapper.clearDefaultModel();
-        return aiModelMapper.setDefaultModel(id) > 0;
+        return bumpIfChanged(aiModelMapper.setDefaultModel(id) > 0);
     }
 
     /**
@@ -80,7 +84,7 @@ public class AdminAIModelService {
         AIModel model = aiModelMapper.selectById(id);
         if (model == null) return false;
         model.setAvailable(!model.getAvailable());
-        return aiModelMapper.updateById(model) > 0;
+        return bumpIfChanged(aiModelMapper.updateById(model) > 0);
     }
 
     /**
@@ -101,7 +105,7 @@ public class AdminAIModelService {
      * 更新配置
      */
     public boolean updateConfig(String key, String value) {
-        return configMapper.updateValue(key, value) > 0;
+        return bumpIfChanged(configMapper.updateValue(key, value) > 0);
     }
 
     /**
@@ -112,6 +116,7 @@ public class AdminAIModelService {
         for (Map.Entry<String, String> entry : configs.entrySet()) {
             configMapper.updateValue(entry.getKey(), entry.getValue());
         }
+        bumpCatalogVersion();
     }
 
     /**
@@ -145,6 +150,7 @@ public class AdminAIModelService {
         if (baseUrl != null) {
             configMapper.updateValue(provider + "_base_url", baseUrl);
         }
+        bumpCatalogVersion();
     }
 
     /**
@@ -203,6 +209,21 @@ public class AdminAIModelService {
             int result = configMapper.upsertConfig(key, value, key + " 配置", false);
             log.info("更新配置 {} 结果: {}", key, result);
         }
+        bumpCatalogVersion();
+    }
+
+    /**
+     * 更新模型目录版本戳，通知主服务重建模型/计价快照
+     */
+    private void bumpCatalogVersion() {
+        configMapper.upsertConfig(CATALOG_VERSION_KEY, String.valueOf(System.currentTimeMillis()), "模型目录版本戳", false);
+    }
+
+    private boolean bumpIfChanged(boolean changed) {
+        if (changed) {
+            bumpCatalogVersion();
+        }
+        return changed;
     }
 
     private String getConfigOrDefault(String key, String defaultValue) {
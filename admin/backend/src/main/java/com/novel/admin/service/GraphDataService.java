@@ -4,9 +4,14 @@ import com.novel.admin.dto.GraphDataDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 @Service
@@ -55,4 +60,26 @@ public class GraphDataService {
             return null;
         }
     }
+
+    /**
+     * 分页导出图谱数据：原样转发客户端后端的流式导出响应，不在管理端反序列化
+     */
+    public void exportGraphData(Long novelId, String types, String cursor, Integer limit, String order,
+                                OutputStream out) throws IOException {
+        String url = UriComponentsBuilder.fromHttpUrl("http://localhost:8080/agentic/graph/export/" + novelId)
+            .queryParamIfPresent("types", java.util.Optional.ofNullable(types))
+            .queryParamIfPresent("cursor", java.util.Optional.ofNullable(cursor))
+            .queryParamIfPresent("limit", java.util.Optional.ofNullable(limit))
+            .queryParamIfPresent("order", java.util.Optional.ofNullable(order))
+            .toUriString();
+        try {
+            restTemplate.execute(url, HttpMethod.GET, null, response -> {
+                StreamUtils.copy(response.getBody(), out);
+                return null;
+            });
+        } catch (Exception e) {
+            logger.error("导出图谱数据异常: novelId={}, cursor={}", novelId, cursor, e);
+            throw e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+        }
+    }
 }
@@ -1,15 +1,15 @@
 package com.novel.agentic.controller;
 
 import com.novel.agentic.dto.ChapterGenerationRequest;
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.common.sse.SseSessionRegistry;
+import com.novel.exception.GenerationCancelledException;
 import com.novel.agentic.service.AgenticChapterWriter;
 import com.novel.dto.AIConfigRequest;
 import com.novel.service.ChapterService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
@@ -17,10 +17,6 @@ import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 代理式AI写作测试控制器
@@ -40,6 +36,12 @@ public class AgenticWritingController {
     @Autowired
     private ChapterService chapterService;
     
+    @Autowired
+    private GenerationExecutor generationExecutor;
+    
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
+    
     /**
      * 测试接口：使用代理式AI生成章节
      * 
@@ -61,15 +63,16 @@ public class AgenticWritingController {
             request.getNovelId(), request.getStartChapter(), request.getCount(), 
             request.getStylePromptFile() != null ? request.getStylePromptFile() : "默认");
         
-        // 创建SSE发射器并设置心跳
-        SseEmitter emitter = new SseEmitter(0L);
-        ScheduledExecutorService heartbeat = setupHeartbeat(emitter, request.getNovelId());
-        
-        // 捕获安全上下文用于异步执行
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // 创建SSE会话（心跳由注册表统一发送）
+        SseEmitter emitter = sseSessionRegistry.open("agentic-chapter", 0L);
+        emitter.onTimeout(() -> {
+            logger.warn("SSE连接超时: novelId={}", request.getNovelId());
+            emitter.complete();
+        });
+        emitter.onError(throwable -> logger.error("SSE连接错误", throwable));
         
-        // 异步执行章节生成
-        executeChapterGenerationAsync(request, emitter, heartbeat, authentication);
+        // 异步执行章节生成（安全上下文由执行器传递，连接超时/出错时取消）
+        executeChapterGenerationAsync(request, emitter);
         
         return emitter;
     }
@@ -142,58 +145,11 @@ public class AgenticWritingController {
         return startChapter;
     }
     
-    /**
-     * 设置SSE心跳机制
-     */
-    private ScheduledExecutorService setupHeartbeat(SseEmitter emitter, Long novelId) {
-        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "agentic-sse-heartbeat");
-            t.setDaemon(true);
-            return t;
-        });
-        
-        Runnable stopHeartbeat = () -> {
-            if (!heartbeat.isShutdown()) {
-                heartbeat.shutdownNow();
-            }
-        };
-        
-        // 每20秒发送一次心跳
-        heartbeat.scheduleAtFixedRate(
-            () -> safeSend(emitter, SseEmitter.event().name("keepalive").data("💓")),
-            0, 20, TimeUnit.SECONDS
-        );
-        
-        // 设置SSE事件处理器
-        emitter.onTimeout(() -> {
-            logger.warn("SSE连接超时: novelId={}", novelId);
-            stopHeartbeat.run();
-            emitter.complete();
-        });
-        emitter.onCompletion(stopHeartbeat);
-        emitter.onError(throwable -> {
-            logger.error("SSE连接错误", throwable);
-            stopHeartbeat.run();
-        });
-        
-        return heartbeat;
-    }
-    
     /**
      * 异步执行章节生成
      */
-    private void executeChapterGenerationAsync(
-            ChapterGenerationRequest request,
-            SseEmitter emitter,
-            ScheduledExecutorService heartbeat,
-            Authentication authentication) {
-        
-        CompletableFuture.runAsync(() -> {
-            // 设置异步线程的安全上下文
-            SecurityContext asyncContext = SecurityContextHolder.createEmptyContext();
-            asyncContext.setAuthentication(authentication);
-            SecurityContextHolder.setContext(asyncContext);
-            
+    private void executeChapterGenerationAsync(ChapterGenerationRequest request, SseEmitter emitter) {
+        generationExecutor.submitStream("agentic-chapter-" + request.getNovelId(), emitter, () -> {
             try {
                 // 根据数量选择生成方法
                 if (request.getCount() == 1) {
@@ -223,14 +179,13 @@ public class AgenticWritingController {
                 // 成功完成
                 emitter.complete();
                 
+            } catch (GenerationCancelledException e) {
+                // 客户端已断开，上游请求已中止，截断内容不保存
+                logger.info("🛑 代理式AI写作已取消: novelId={}, {}", request.getNovelId(), e.getMessage());
             } catch (Exception e) {
                 logger.error("代理式AI写作失败: novelId={}, chapter={}", 
                     request.getNovelId(), request.getStartChapter(), e);
                 handleGenerationError(emitter, e);
-            } finally {
-                // 清理资源
-                shutdownHeartbeat(heartbeat);
-                SecurityContextHolder.clearContext();
             }
         });
     }
@@ -249,15 +204,6 @@ public class AgenticWritingController {
         }
     }
     
-    /**
-     * 关闭心跳服务
-     */
-    private void shutdownHeartbeat(ScheduledExecutorService heartbeat) {
-        if (heartbeat != null && !heartbeat.isShutdown()) {
-            heartbeat.shutdownNow();
-        }
-    }
-    
     /**
      * 提取AI配置
      */
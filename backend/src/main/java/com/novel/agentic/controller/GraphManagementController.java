@@ -1,11 +1,16 @@
 package com.novel.agentic.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.agentic.service.graph.GraphExportService;
 import com.novel.agentic.service.graph.IGraphService;
 import com.novel.agentic.util.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Map;
 
@@ -21,6 +26,11 @@ public class GraphManagementController {
 
     @Autowired(required = false)
     private IGraphService graphService;
+
+    @Autowired(required = false)
+    private GraphExportService graphExportService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
     
     
 
@@ -101,6 +111,40 @@ public class GraphManagementController {
         }
     }
 
+    /**
+     * 分页流式导出图谱数据
+     *
+     * 按 角色状态 → 关系状态 → 开放任务 → 事件 的顺序，每个分区按 (章节, id) 键集分页；
+     * 响应中的 nextCursor 原样传回即可取下一页，为 null 表示导出完毕。首页附带各分区总数（totals）
+     *
+     * @param types 逗号分隔的分区（characterStates,relationshipStates,openQuests,events），默认全部
+     * @param order asc / desc（按章节），默认 asc
+     */
+    @GetMapping("/export/{novelId}")
+    public ResponseEntity<StreamingResponseBody> exportGraphData(
+            @PathVariable Long novelId,
+            @RequestParam(value = "types", required = false) String types,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "order", required = false) String order) {
+        if (graphExportService == null) {
+            return errorBody(CollectionUtils.mapOf("status", "error", "message", "图谱服务未启用"));
+        }
+        GraphExportService.ExportRequest request;
+        try {
+            request = graphExportService.prepare(novelId, types, cursor, limit, order);
+        } catch (IllegalArgumentException e) {
+            return errorBody(CollectionUtils.mapOf("status", "error", "message", e.getMessage()));
+        }
+        StreamingResponseBody body = out -> graphExportService.write(request, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> errorBody(Map<String, Object> error) {
+        StreamingResponseBody body = out -> objectMapper.writeValue(out, error);
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * 删除一条关系状态（CharacterState之间的摘要关系）
      */
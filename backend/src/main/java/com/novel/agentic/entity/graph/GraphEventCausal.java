@@ -0,0 +1,37 @@
+package com.novel.agentic.entity.graph;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 事件因果关系实体
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("graph_event_causal")
+public class GraphEventCausal {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    private Long novelId;
+    
+    /** 起点事件业务ID */
+    private String fromEventId;
+    
+    /** 终点事件业务ID */
+    private String toEventId;
+    
+    /** CAUSES/TRIGGERS/TRIGGERED_BY */
+    private String relationType;
+    
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,50 @@
+package com.novel.agentic.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.novel.agentic.entity.graph.GraphCharacterArc;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 人物成长弧线Mapper
+ */
+@Mapper
+public interface GraphCharacterArcMapper extends BaseMapper<GraphCharacterArc> {
+    
+    /**
+     * 查询未完成的人物成长弧线（进度未达总节点数或未记录进度，按优先级降序）
+     */
+    @Select("SELECT * FROM graph_character_arc WHERE novel_id = #{novelId} " +
+            "AND (progress IS NULL OR total_beats IS NULL OR progress < total_beats) " +
+            "ORDER BY priority DESC, last_updated_chapter DESC LIMIT #{limit}")
+    List<GraphCharacterArc> findActiveArcs(@Param("novelId") Long novelId, @Param("limit") Integer limit);
+    
+    /**
+     * 删除小说的所有人物成长弧线
+     */
+    @Delete("DELETE FROM graph_character_arc WHERE novel_id = #{novelId}")
+    int deleteByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除指定章节更新的人物成长弧线
+     */
+    @Delete("DELETE FROM graph_character_arc WHERE novel_id = #{novelId} AND last_updated_chapter = #{chapterNumber}")
+    int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 多行写入人物成长弧线，(novel_id, arc_id) 已存在时更新（空值不覆盖已有字段）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_character_arc (novel_id, arc_id, character_name, arc_name, pending_beat, next_goal, priority, progress, total_beats, last_updated_chapter, created_at, updated_at) VALUES " +
+            "<foreach collection='arcs' item='a' separator=','>" +
+            "(#{a.novelId}, #{a.arcId}, #{a.characterName}, #{a.arcName}, #{a.pendingBeat}, #{a.nextGoal}, #{a.priority}, #{a.progress}, #{a.totalBeats}, #{a.lastUpdatedChapter}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE character_name = COALESCE(VALUES(character_name), character_name), " +
+            "arc_name = COALESCE(VALUES(arc_name), arc_name), pending_beat = COALESCE(VALUES(pending_beat), pending_beat), " +
+            "next_goal = COALESCE(VALUES(next_goal), next_goal), priority = COALESCE(VALUES(priority), priority), " +
+            "progress = COALESCE(VALUES(progress), progress), total_beats = COALESCE(VALUES(total_beats), total_beats), " +
+            "last_updated_chapter = COALESCE(VALUES(last_updated_chapter), last_updated_chapter), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("arcs") List<GraphCharacterArc> arcs);
+}
@@ -3,7 +3,10 @@ package com.novel.agentic.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.novel.agentic.entity.graph.GraphCharacterState;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +27,12 @@ public interface GraphCharacterStateMapper extends BaseMapper<GraphCharacterStat
     @Select("SELECT * FROM graph_character_state WHERE novel_id = #{novelId} ORDER BY last_updated_chapter DESC LIMIT #{limit}")
     List<GraphCharacterState> findByNovelIdWithLimit(@Param("novelId") Long novelId, @Param("limit") Integer limit);
     
+    /**
+     * 查询小说的全部角色状态（不限条数，供内存分层整表加载）
+     */
+    @Select("SELECT * FROM graph_character_state WHERE novel_id = #{novelId} ORDER BY last_updated_chapter DESC")
+    List<GraphCharacterState> findByNovelId(@Param("novelId") Long novelId);
+    
     /**
      * 删除小说的所有角色状态
      */
@@ -47,4 +56,57 @@ public interface GraphCharacterStateMapper extends BaseMapper<GraphCharacterStat
      */
     @Select("SELECT MAX(last_updated_chapter) FROM graph_character_state WHERE novel_id = #{novelId}")
     Integer getMaxUpdatedChapter(@Param("novelId") Long novelId);
+
+    /**
+     * 按角色名批量查询
+     */
+    @Select("<script>" +
+            "SELECT * FROM graph_character_state WHERE novel_id = #{novelId} AND character_name IN " +
+            "<foreach collection='names' item='name' open='(' separator=',' close=')'>#{name}</foreach>" +
+            "</script>")
+    List<GraphCharacterState> findByNovelIdAndCharacterNames(@Param("novelId") Long novelId, @Param("names") Collection<String> names);
+
+    /**
+     * 多行写入角色状态，(novel_id, character_name) 已存在时更新（空值不覆盖已有字段；不涉及物品栏与角色信息）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_character_state (novel_id, character_name, location, realm, alive, affiliation, social_status, backers, tags, secrets, key_items, known_by, last_updated_chapter, created_at, updated_at) VALUES " +
+            "<foreach collection='states' item='s' separator=','>" +
+            "(#{s.novelId}, #{s.characterName}, #{s.location}, #{s.realm}, #{s.alive}, #{s.affiliation}, #{s.socialStatus}, #{s.backers}, #{s.tags}, #{s.secrets}, #{s.keyItems}, #{s.knownBy}, #{s.lastUpdatedChapter}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE location = COALESCE(VALUES(location), location), realm = COALESCE(VALUES(realm), realm), " +
+            "alive = COALESCE(VALUES(alive), alive), affiliation = COALESCE(VALUES(affiliation), affiliation), " +
+            "social_status = COALESCE(VALUES(social_status), social_status), backers = COALESCE(VALUES(backers), backers), " +
+            "tags = COALESCE(VALUES(tags), tags), secrets = COALESCE(VALUES(secrets), secrets), " +
+            "key_items = COALESCE(VALUES(key_items), key_items), known_by = COALESCE(VALUES(known_by), known_by), " +
+            "last_updated_chapter = COALESCE(VALUES(last_updated_chapter), last_updated_chapter), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("states") List<GraphCharacterState> states);
+
+    /**
+     * 统计小说的角色状态数
+     */
+    @Select("SELECT COUNT(*) FROM graph_character_state WHERE novel_id = #{novelId}")
+    int countByNovelId(@Param("novelId") Long novelId);
+
+    /**
+     * 按 (last_updated_chapter, id) 键集分页流式读取角色状态，逐行交给 handler（fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行流式返回）；
+     * 直接比较原始列以走 (novel_id, last_updated_chapter) 索引，章节为空的行按 MySQL 的 NULL 排序单独成段：升序在最前、降序在最后，
+     * afterChapter 为空表示上一页停在该段内
+     */
+    @Select("<script>" +
+            "SELECT * FROM graph_character_state WHERE novel_id = #{novelId}" +
+            "<if test='afterId != null'><choose>" +
+            "<when test='afterChapter == null and descending'> AND last_updated_chapter IS NULL AND id &lt; #{afterId}</when>" +
+            "<when test='afterChapter == null'> AND (last_updated_chapter IS NOT NULL OR id &gt; #{afterId})</when>" +
+            "<when test='descending'> AND (last_updated_chapter &lt; #{afterChapter} OR (last_updated_chapter = #{afterChapter} AND id &lt; #{afterId}) OR last_updated_chapter IS NULL)</when>" +
+            "<otherwise> AND (last_updated_chapter &gt; #{afterChapter} OR (last_updated_chapter = #{afterChapter} AND id &gt; #{afterId}))</otherwise>" +
+            "</choose></if>" +
+            "<choose><when test='descending'> ORDER BY last_updated_chapter DESC, id DESC</when><otherwise> ORDER BY last_updated_chapter, id</otherwise></choose>" +
+            " LIMIT #{limit}" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(GraphCharacterState.class)
+    void streamPage(@Param("novelId") Long novelId, @Param("afterChapter") Integer afterChapter, @Param("afterId") Long afterId,
+                    @Param("descending") boolean descending, @Param("limit") int limit, ResultHandler<GraphCharacterState> handler);
 }
@@ -0,0 +1,49 @@
+package com.novel.agentic.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.novel.agentic.entity.graph.GraphConflictArc;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 冲突弧线Mapper
+ */
+@Mapper
+public interface GraphConflictArcMapper extends BaseMapper<GraphConflictArc> {
+    
+    /**
+     * 查询未解决的冲突弧线（按紧迫度降序）
+     */
+    @Select("SELECT * FROM graph_conflict_arc WHERE novel_id = #{novelId} AND (stage IS NULL OR stage <> '解决') " +
+            "ORDER BY urgency DESC, last_updated_chapter DESC LIMIT #{limit}")
+    List<GraphConflictArc> findActiveArcs(@Param("novelId") Long novelId, @Param("limit") Integer limit);
+    
+    /**
+     * 删除小说的所有冲突弧线
+     */
+    @Delete("DELETE FROM graph_conflict_arc WHERE novel_id = #{novelId}")
+    int deleteByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除指定章节更新的冲突弧线
+     */
+    @Delete("DELETE FROM graph_conflict_arc WHERE novel_id = #{novelId} AND last_updated_chapter = #{chapterNumber}")
+    int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 多行写入冲突弧线，(novel_id, arc_id) 已存在时更新（空值不覆盖已有字段）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_conflict_arc (novel_id, arc_id, name, stage, urgency, next_action, protagonist, antagonist, trend, last_updated_chapter, created_at, updated_at) VALUES " +
+            "<foreach collection='arcs' item='a' separator=','>" +
+            "(#{a.novelId}, #{a.arcId}, #{a.name}, #{a.stage}, #{a.urgency}, #{a.nextAction}, #{a.protagonist}, #{a.antagonist}, #{a.trend}, #{a.lastUpdatedChapter}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE name = COALESCE(VALUES(name), name), stage = COALESCE(VALUES(stage), stage), " +
+            "urgency = COALESCE(VALUES(urgency), urgency), next_action = COALESCE(VALUES(next_action), next_action), " +
+            "protagonist = COALESCE(VALUES(protagonist), protagonist), antagonist = COALESCE(VALUES(antagonist), antagonist), " +
+            "trend = COALESCE(VALUES(trend), trend), " +
+            "last_updated_chapter = COALESCE(VALUES(last_updated_chapter), last_updated_chapter), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("arcs") List<GraphConflictArc> arcs);
+}
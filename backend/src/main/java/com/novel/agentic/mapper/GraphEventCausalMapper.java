@@ -0,0 +1,46 @@
+package com.novel.agentic.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.novel.agentic.entity.graph.GraphEventCausal;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 事件因果关系Mapper
+ */
+@Mapper
+public interface GraphEventCausalMapper extends BaseMapper<GraphEventCausal> {
+    
+    /**
+     * 查询小说的所有因果边
+     */
+    @Select("SELECT * FROM graph_event_causal WHERE novel_id = #{novelId}")
+    List<GraphEventCausal> findByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除小说的所有因果边
+     */
+    @Delete("DELETE FROM graph_event_causal WHERE novel_id = #{novelId}")
+    int deleteByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除与指定章节事件相连的因果边（须在删除事件之前执行）
+     */
+    @Delete("DELETE c FROM graph_event_causal c JOIN graph_event e ON e.novel_id = c.novel_id " +
+            "AND (e.event_id = c.from_event_id OR e.event_id = c.to_event_id) " +
+            "WHERE c.novel_id = #{novelId} AND e.chapter_number = #{chapterNumber}")
+    int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 多行写入因果边，(novel_id, from_event_id, to_event_id, relation_type) 已存在时忽略
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_event_causal (novel_id, from_event_id, to_event_id, relation_type, created_at) VALUES " +
+            "<foreach collection='edges' item='c' separator=','>" +
+            "(#{c.novelId}, #{c.fromEventId}, #{c.toEventId}, #{c.relationType}, NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE relation_type = VALUES(relation_type)" +
+            "</script>")
+    int upsertBatch(@Param("edges") List<GraphEventCausal> edges);
+}
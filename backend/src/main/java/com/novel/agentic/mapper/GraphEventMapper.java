@@ -3,7 +3,10 @@ package com.novel.agentic.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.novel.agentic.entity.graph.GraphEvent;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -47,4 +50,56 @@ public interface GraphEventMapper extends BaseMapper<GraphEvent> {
      */
     @Delete("DELETE FROM graph_event WHERE novel_id = #{novelId} AND chapter_number = #{chapterNumber}")
     int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 按业务ID批量查询
+     */
+    @Select("<script>" +
+            "SELECT * FROM graph_event WHERE novel_id = #{novelId} AND event_id IN " +
+            "<foreach collection='eventIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<GraphEvent> findByNovelIdAndEventIds(@Param("novelId") Long novelId, @Param("eventIds") Collection<String> eventIds);
+
+    /**
+     * 多行写入事件，(novel_id, event_id) 已存在时更新（空值不覆盖已有字段）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_event (novel_id, event_id, chapter_number, summary, description, location, realm, emotional_tone, tags, importance, created_at, updated_at) VALUES " +
+            "<foreach collection='events' item='e' separator=','>" +
+            "(#{e.novelId}, #{e.eventId}, #{e.chapterNumber}, #{e.summary}, #{e.description}, #{e.location}, #{e.realm}, #{e.emotionalTone}, #{e.tags}, #{e.importance}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE chapter_number = COALESCE(VALUES(chapter_number), chapter_number), " +
+            "summary = COALESCE(VALUES(summary), summary), description = COALESCE(VALUES(description), description), " +
+            "location = COALESCE(VALUES(location), location), realm = COALESCE(VALUES(realm), realm), " +
+            "emotional_tone = COALESCE(VALUES(emotional_tone), emotional_tone), tags = COALESCE(VALUES(tags), tags), " +
+            "importance = COALESCE(VALUES(importance), importance), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("events") List<GraphEvent> events);
+
+    /**
+     * 统计小说的事件数
+     */
+    @Select("SELECT COUNT(*) FROM graph_event WHERE novel_id = #{novelId}")
+    int countByNovelId(@Param("novelId") Long novelId);
+
+    /**
+     * 按 (chapter_number, id) 键集分页流式读取事件，逐行交给 handler（fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行流式返回）；
+     * 直接比较原始列以走 (novel_id, chapter_number) 索引，章节为空的行按 MySQL 的 NULL 排序单独成段：升序在最前、降序在最后，
+     * afterChapter 为空表示上一页停在该段内
+     */
+    @Select("<script>" +
+            "SELECT * FROM graph_event WHERE novel_id = #{novelId}" +
+            "<if test='afterId != null'><choose>" +
+            "<when test='afterChapter == null and descending'> AND chapter_number IS NULL AND id &lt; #{afterId}</when>" +
+            "<when test='afterChapter == null'> AND (chapter_number IS NOT NULL OR id &gt; #{afterId})</when>" +
+            "<when test='descending'> AND (chapter_number &lt; #{afterChapter} OR (chapter_number = #{afterChapter} AND id &lt; #{afterId}) OR chapter_number IS NULL)</when>" +
+            "<otherwise> AND (chapter_number &gt; #{afterChapter} OR (chapter_number = #{afterChapter} AND id &gt; #{afterId}))</otherwise>" +
+            "</choose></if>" +
+            "<choose><when test='descending'> ORDER BY chapter_number DESC, id DESC</when><otherwise> ORDER BY chapter_number, id</otherwise></choose>" +
+            " LIMIT #{limit}" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(GraphEvent.class)
+    void streamPage(@Param("novelId") Long novelId, @Param("afterChapter") Integer afterChapter, @Param("afterId") Long afterId,
+                    @Param("descending") boolean descending, @Param("limit") int limit, ResultHandler<GraphEvent> handler);
 }
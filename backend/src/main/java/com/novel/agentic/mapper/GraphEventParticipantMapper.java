@@ -0,0 +1,54 @@
+package com.novel.agentic.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.novel.agentic.entity.graph.GraphEventParticipant;
+import org.apache.ibatis.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 事件参与者Mapper（event_id 为 graph_event 主键）
+ */
+@Mapper
+public interface GraphEventParticipantMapper extends BaseMapper<GraphEventParticipant> {
+    
+    /**
+     * 查询小说所有事件的参与者
+     */
+    @Select("SELECT p.* FROM graph_event_participant p JOIN graph_event e ON e.id = p.event_id WHERE e.novel_id = #{novelId}")
+    List<GraphEventParticipant> findByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除小说所有事件的参与者（须在删除事件之前执行）
+     */
+    @Delete("DELETE p FROM graph_event_participant p JOIN graph_event e ON e.id = p.event_id WHERE e.novel_id = #{novelId}")
+    int deleteByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除指定章节事件的参与者（须在删除事件之前执行）
+     */
+    @Delete("DELETE p FROM graph_event_participant p JOIN graph_event e ON e.id = p.event_id " +
+            "WHERE e.novel_id = #{novelId} AND e.chapter_number = #{chapterNumber}")
+    int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 删除指定事件的参与者
+     */
+    @Delete("<script>" +
+            "DELETE FROM graph_event_participant WHERE event_id IN " +
+            "<foreach collection='eventIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+    /**
+     * 多行写入参与者，(event_id, character_name) 已存在时忽略
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO graph_event_participant (event_id, character_name) VALUES " +
+            "<foreach collection='participants' item='p' separator=','>" +
+            "(#{p.eventId}, #{p.characterName})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("participants") List<GraphEventParticipant> participants);
+}
@@ -41,4 +41,19 @@ public interface GraphForeshadowingMapper extends BaseMapper<GraphForeshadowing>
      */
     @Delete("DELETE FROM graph_foreshadowing WHERE novel_id = #{novelId} AND (introduced_chapter = #{chapterNumber} OR resolved_chapter = #{chapterNumber})")
     int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 多行写入伏笔，(novel_id, foreshadow_id) 已存在时更新（空值不覆盖已有字段）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_foreshadowing (novel_id, foreshadow_id, content, importance, status, introduced_chapter, planned_reveal_chapter, created_at, updated_at) VALUES " +
+            "<foreach collection='foreshadows' item='f' separator=','>" +
+            "(#{f.novelId}, #{f.foreshadowId}, #{f.content}, #{f.importance}, #{f.status}, #{f.introducedChapter}, #{f.plannedRevealChapter}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE content = COALESCE(VALUES(content), content), " +
+            "importance = COALESCE(VALUES(importance), importance), status = COALESCE(VALUES(status), status), " +
+            "introduced_chapter = COALESCE(VALUES(introduced_chapter), introduced_chapter), " +
+            "planned_reveal_chapter = COALESCE(VALUES(planned_reveal_chapter), planned_reveal_chapter), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("foreshadows") List<GraphForeshadowing> foreshadows);
 }
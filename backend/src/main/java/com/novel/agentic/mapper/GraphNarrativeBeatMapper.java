@@ -0,0 +1,46 @@
+package com.novel.agentic.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.novel.agentic.entity.graph.GraphNarrativeBeat;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 叙事节奏Mapper
+ */
+@Mapper
+public interface GraphNarrativeBeatMapper extends BaseMapper<GraphNarrativeBeat> {
+    
+    /**
+     * 查询小说的所有节奏节点（按章节升序）
+     */
+    @Select("SELECT * FROM graph_narrative_beat WHERE novel_id = #{novelId} ORDER BY chapter_number ASC")
+    List<GraphNarrativeBeat> findByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除小说的所有节奏节点
+     */
+    @Delete("DELETE FROM graph_narrative_beat WHERE novel_id = #{novelId}")
+    int deleteByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除指定章节的节奏节点
+     */
+    @Delete("DELETE FROM graph_narrative_beat WHERE novel_id = #{novelId} AND chapter_number = #{chapterNumber}")
+    int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 多行写入节奏节点，(novel_id, chapter_number) 已存在时覆盖（每章一个节奏节点）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_narrative_beat (novel_id, beat_id, chapter_number, beat_type, focus, sentiment, tension, pace_score, viewpoint, created_at, updated_at) VALUES " +
+            "<foreach collection='beats' item='b' separator=','>" +
+            "(#{b.novelId}, #{b.beatId}, #{b.chapterNumber}, #{b.beatType}, #{b.focus}, #{b.sentiment}, #{b.tension}, #{b.paceScore}, #{b.viewpoint}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE beat_id = VALUES(beat_id), beat_type = VALUES(beat_type), focus = VALUES(focus), " +
+            "sentiment = VALUES(sentiment), tension = VALUES(tension), pace_score = VALUES(pace_score), " +
+            "viewpoint = VALUES(viewpoint), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("beats") List<GraphNarrativeBeat> beats);
+}
@@ -3,6 +3,8 @@ package com.novel.agentic.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.novel.agentic.entity.graph.GraphOpenQuest;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -53,4 +55,31 @@ public interface GraphOpenQuestMapper extends BaseMapper<GraphOpenQuest> {
      */
     @Delete("DELETE FROM graph_open_quest WHERE novel_id = #{novelId} AND introduced_chapter = #{chapterNumber}")
     int deleteByIntroducedChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 统计小说的开放任务数（仅 OPEN 状态）
+     */
+    @Select("SELECT COUNT(*) FROM graph_open_quest WHERE novel_id = #{novelId} AND status = 'OPEN'")
+    int countByNovelId(@Param("novelId") Long novelId);
+
+    /**
+     * 按 (introduced_chapter, id) 键集分页流式读取 OPEN 状态的任务，逐行交给 handler（fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行流式返回）；
+     * 直接比较原始列以走 (novel_id, status, introduced_chapter) 索引，章节为空的行按 MySQL 的 NULL 排序单独成段：升序在最前、降序在最后，
+     * afterChapter 为空表示上一页停在该段内
+     */
+    @Select("<script>" +
+            "SELECT * FROM graph_open_quest WHERE novel_id = #{novelId} AND status = 'OPEN'" +
+            "<if test='afterId != null'><choose>" +
+            "<when test='afterChapter == null and descending'> AND introduced_chapter IS NULL AND id &lt; #{afterId}</when>" +
+            "<when test='afterChapter == null'> AND (introduced_chapter IS NOT NULL OR id &gt; #{afterId})</when>" +
+            "<when test='descending'> AND (introduced_chapter &lt; #{afterChapter} OR (introduced_chapter = #{afterChapter} AND id &lt; #{afterId}) OR introduced_chapter IS NULL)</when>" +
+            "<otherwise> AND (introduced_chapter &gt; #{afterChapter} OR (introduced_chapter = #{afterChapter} AND id &gt; #{afterId}))</otherwise>" +
+            "</choose></if>" +
+            "<choose><when test='descending'> ORDER BY introduced_chapter DESC, id DESC</when><otherwise> ORDER BY introduced_chapter, id</otherwise></choose>" +
+            " LIMIT #{limit}" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(GraphOpenQuest.class)
+    void streamPage(@Param("novelId") Long novelId, @Param("afterChapter") Integer afterChapter, @Param("afterId") Long afterId,
+                    @Param("descending") boolean descending, @Param("limit") int limit, ResultHandler<GraphOpenQuest> handler);
 }
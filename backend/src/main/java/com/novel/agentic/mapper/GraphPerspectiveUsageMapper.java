@@ -0,0 +1,45 @@
+package com.novel.agentic.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.novel.agentic.entity.graph.GraphPerspectiveUsage;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 视角使用Mapper
+ */
+@Mapper
+public interface GraphPerspectiveUsageMapper extends BaseMapper<GraphPerspectiveUsage> {
+    
+    /**
+     * 查询小说的所有视角使用记录（按章节升序）
+     */
+    @Select("SELECT * FROM graph_perspective_usage WHERE novel_id = #{novelId} ORDER BY chapter_number ASC")
+    List<GraphPerspectiveUsage> findByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除小说的所有视角使用记录
+     */
+    @Delete("DELETE FROM graph_perspective_usage WHERE novel_id = #{novelId}")
+    int deleteByNovelId(@Param("novelId") Long novelId);
+    
+    /**
+     * 删除指定章节的视角使用记录
+     */
+    @Delete("DELETE FROM graph_perspective_usage WHERE novel_id = #{novelId} AND chapter_number = #{chapterNumber}")
+    int deleteByNovelIdAndChapter(@Param("novelId") Long novelId, @Param("chapterNumber") Integer chapterNumber);
+
+    /**
+     * 多行写入视角使用记录，(novel_id, chapter_number) 已存在时覆盖（每章一条）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_perspective_usage (novel_id, perspective_id, chapter_number, character_name, mode, tone, purpose, created_at) VALUES " +
+            "<foreach collection='usages' item='u' separator=','>" +
+            "(#{u.novelId}, #{u.perspectiveId}, #{u.chapterNumber}, #{u.characterName}, #{u.mode}, #{u.tone}, #{u.purpose}, NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE perspective_id = VALUES(perspective_id), character_name = VALUES(character_name), " +
+            "mode = VALUES(mode), tone = VALUES(tone), purpose = VALUES(purpose)" +
+            "</script>")
+    int upsertBatch(@Param("usages") List<GraphPerspectiveUsage> usages);
+}
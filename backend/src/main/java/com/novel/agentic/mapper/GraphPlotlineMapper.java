@@ -35,4 +35,17 @@ public interface GraphPlotlineMapper extends BaseMapper<GraphPlotline> {
      */
     @Delete("DELETE FROM graph_plotline WHERE novel_id = #{novelId}")
     int deleteByNovelId(@Param("novelId") Long novelId);
+
+    /**
+     * 多行写入情节线，(novel_id, plotline_id) 已存在时更新（空值不覆盖已有字段）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_plotline (novel_id, plotline_id, name, priority, last_touched_chapter, created_at, updated_at) VALUES " +
+            "<foreach collection='plotlines' item='p' separator=','>" +
+            "(#{p.novelId}, #{p.plotlineId}, #{p.name}, #{p.priority}, #{p.lastTouchedChapter}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE name = COALESCE(VALUES(name), name), priority = COALESCE(VALUES(priority), priority), " +
+            "last_touched_chapter = COALESCE(VALUES(last_touched_chapter), last_touched_chapter), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("plotlines") List<GraphPlotline> plotlines);
 }
@@ -3,7 +3,10 @@ package com.novel.agentic.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.novel.agentic.entity.graph.GraphRelationshipState;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +27,12 @@ public interface GraphRelationshipStateMapper extends BaseMapper<GraphRelationsh
     @Select("SELECT * FROM graph_relationship_state WHERE novel_id = #{novelId} ORDER BY strength DESC, last_updated_chapter DESC LIMIT #{limit}")
     List<GraphRelationshipState> findByNovelIdWithLimit(@Param("novelId") Long novelId, @Param("limit") Integer limit);
     
+    /**
+     * 查询小说的全部关系状态（不限条数，供内存分层整表加载）
+     */
+    @Select("SELECT * FROM graph_relationship_state WHERE novel_id = #{novelId} ORDER BY strength DESC, last_updated_chapter DESC")
+    List<GraphRelationshipState> findByNovelId(@Param("novelId") Long novelId);
+    
     /**
      * 查询角色的所有关系
      */
@@ -53,4 +62,54 @@ public interface GraphRelationshipStateMapper extends BaseMapper<GraphRelationsh
      */
     @Delete("DELETE FROM graph_relationship_state WHERE novel_id = #{novelId} AND character_a = #{charA} AND character_b = #{charB}")
     int deleteByNovelIdAndCharacters(@Param("novelId") Long novelId, @Param("charA") String charA, @Param("charB") String charB);
+
+    /**
+     * 按角色对批量查询（角色对需已按字典序排列）
+     */
+    @Select("<script>" +
+            "SELECT * FROM graph_relationship_state WHERE novel_id = #{novelId} AND (character_a, character_b) IN " +
+            "<foreach collection='pairs' item='p' open='(' separator=',' close=')'>(#{p.characterA}, #{p.characterB})</foreach>" +
+            "</script>")
+    List<GraphRelationshipState> findByNovelIdAndPairs(@Param("novelId") Long novelId, @Param("pairs") Collection<GraphRelationshipState> pairs);
+
+    /**
+     * 多行写入关系状态，(novel_id, character_a, character_b) 已存在时更新（空值不覆盖已有字段）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_relationship_state (novel_id, character_a, character_b, type, strength, description, public_status, last_updated_chapter, created_at, updated_at) VALUES " +
+            "<foreach collection='relations' item='r' separator=','>" +
+            "(#{r.novelId}, #{r.characterA}, #{r.characterB}, #{r.type}, #{r.strength}, #{r.description}, #{r.publicStatus}, #{r.lastUpdatedChapter}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE type = COALESCE(VALUES(type), type), strength = COALESCE(VALUES(strength), strength), " +
+            "description = COALESCE(VALUES(description), description), public_status = COALESCE(VALUES(public_status), public_status), " +
+            "last_updated_chapter = COALESCE(VALUES(last_updated_chapter), last_updated_chapter), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("relations") List<GraphRelationshipState> relations);
+
+    /**
+     * 统计小说的关系状态数
+     */
+    @Select("SELECT COUNT(*) FROM graph_relationship_state WHERE novel_id = #{novelId}")
+    int countByNovelId(@Param("novelId") Long novelId);
+
+    /**
+     * 按 (last_updated_chapter, id) 键集分页流式读取关系状态，逐行交给 handler（fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行流式返回）；
+     * 直接比较原始列以走 (novel_id, last_updated_chapter) 索引，章节为空的行按 MySQL 的 NULL 排序单独成段：升序在最前、降序在最后，
+     * afterChapter 为空表示上一页停在该段内
+     */
+    @Select("<script>" +
+            "SELECT * FROM graph_relationship_state WHERE novel_id = #{novelId}" +
+            "<if test='afterId != null'><choose>" +
+            "<when test='afterChapter == null and descending'> AND last_updated_chapter IS NULL AND id &lt; #{afterId}</when>" +
+            "<when test='afterChapter == null'> AND (last_updated_chapter IS NOT NULL OR id &gt; #{afterId})</when>" +
+            "<when test='descending'> AND (last_updated_chapter &lt; #{afterChapter} OR (last_updated_chapter = #{afterChapter} AND id &lt; #{afterId}) OR last_updated_chapter IS NULL)</when>" +
+            "<otherwise> AND (last_updated_chapter &gt; #{afterChapter} OR (last_updated_chapter = #{afterChapter} AND id &gt; #{afterId}))</otherwise>" +
+            "</choose></if>" +
+            "<choose><when test='descending'> ORDER BY last_updated_chapter DESC, id DESC</when><otherwise> ORDER BY last_updated_chapter, id</otherwise></choose>" +
+            " LIMIT #{limit}" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(GraphRelationshipState.class)
+    void streamPage(@Param("novelId") Long novelId, @Param("afterChapter") Integer afterChapter, @Param("afterId") Long afterId,
+                    @Param("descending") boolean descending, @Param("limit") int limit, ResultHandler<GraphRelationshipState> handler);
 }
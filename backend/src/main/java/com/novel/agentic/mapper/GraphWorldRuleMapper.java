@@ -35,4 +35,19 @@ public interface GraphWorldRuleMapper extends BaseMapper<GraphWorldRule> {
      */
     @Delete("DELETE FROM graph_world_rule WHERE novel_id = #{novelId}")
     int deleteByNovelId(@Param("novelId") Long novelId);
+
+    /**
+     * 多行写入世界规则，(novel_id, rule_id) 已存在时更新（空值不覆盖已有字段）
+     */
+    @Insert("<script>" +
+            "INSERT INTO graph_world_rule (novel_id, rule_id, name, content, constraint_text, category, scope, importance, introduced_at, created_at, updated_at) VALUES " +
+            "<foreach collection='rules' item='r' separator=','>" +
+            "(#{r.novelId}, #{r.ruleId}, #{r.name}, #{r.content}, #{r.constraintText}, #{r.category}, #{r.scope}, #{r.importance}, #{r.introducedAt}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE name = COALESCE(VALUES(name), name), content = COALESCE(VALUES(content), content), " +
+            "constraint_text = COALESCE(VALUES(constraint_text), constraint_text), category = COALESCE(VALUES(category), category), " +
+            "scope = COALESCE(VALUES(scope), scope), importance = COALESCE(VALUES(importance), importance), " +
+            "introduced_at = COALESCE(VALUES(introduced_at), introduced_at), updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("rules") List<GraphWorldRule> rules);
 }
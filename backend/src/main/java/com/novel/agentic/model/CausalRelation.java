@@ -0,0 +1,27 @@
+package com.novel.agentic.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一条事件因果关系（批量写入因果边用）
+ */
+@Data
+@AllArgsConstructor
+public class CausalRelation {
+
+    /**
+     * 原因事件ID
+     */
+    private String fromEventId;
+
+    /**
+     * 结果事件ID
+     */
+    private String toEventId;
+
+    /**
+     * 关系类型（CAUSES/TRIGGERS 等，缺省为 CAUSES）
+     */
+    private String type;
+}
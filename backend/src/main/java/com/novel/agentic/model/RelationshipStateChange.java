@@ -0,0 +1,28 @@
+package com.novel.agentic.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.Map;
+
+/**
+ * 一条关系状态变化（批量写入关系账本用）
+ */
+@Data
+@AllArgsConstructor
+public class RelationshipStateChange {
+
+    /**
+     * 关系一方（无需按字典序排列）
+     */
+    private String characterA;
+
+    /**
+     * 关系另一方
+     */
+    private String characterB;
+
+    /**
+     * 变化内容（type/strength/description/publicStatus，缺省字段沿用已有值）
+     */
+    private Map<String, Object> data;
+}
@@ -1,5 +1,6 @@
 package com.novel.agentic.model;
 
+import com.novel.ai.token.TokenCounter;
 import lombok.Data;
 import lombok.Builder;
 
@@ -11,6 +12,8 @@ import lombok.Builder;
 @Data
 @Builder
 public class TokenBudget {
+
+    private static final String TRUNCATION_MARK = "\n...(内容过长已截断)";
     
     /**
      * 系统提示词最大token (网文规则)
@@ -37,13 +40,19 @@ public class TokenBudget {
     private Integer maxEventDescription = 400;
     
     /**
-     * 历史事件总数限制
+     * 历史事件、伏笔、最近概要、人物档案共用的 token 预算（按得分/token 打包）
+     */
+    @Builder.Default
+    private Integer maxPackedContext = 6000;
+    
+    /**
+     * 历史事件总数上限（安全上限，实际条数由 maxPackedContext 决定）
      */
     @Builder.Default
     private Integer maxEvents = 20;
     
     /**
-     * 伏笔总数限制
+     * 伏笔总数上限（安全上限，实际条数由 maxPackedContext 决定）
      */
     @Builder.Default
     private Integer maxForeshadows = 12;
@@ -73,45 +82,26 @@ public class TokenBudget {
     private Boolean enableSmartTruncation = true;
     
     /**
-     * 估算文本token数（粗略估计：中文1字≈1.5token）
+     * 文本token数（由 TokenCounter 的分词器计数，长文本按内容哈希缓存）
      */
     public static int estimateTokens(String text) {
-        if (text == null || text.isEmpty()) {
-            return 0;
-        }
-        
-        // 中文字符
-        int chineseChars = text.replaceAll("[^\u4e00-\u9fa5]", "").length();
-        // 英文单词（粗略）
-        int englishWords = text.split("\\s+").length - chineseChars;
-        
-        return (int) (chineseChars * 1.5 + englishWords * 1.3);
+        return TokenCounter.shared().count(text);
     }
     
     /**
-     * 智能截断文本以符合预算
+     * 智能截断文本以符合预算（保留开头，截断标记计入预算）
      */
     public String truncate(String text, int maxTokens) {
         if (!enableSmartTruncation || text == null) {
             return text;
         }
         
-        int estimatedTokens = estimateTokens(text);
-        
-        if (estimatedTokens <= maxTokens) {
+        TokenCounter counter = TokenCounter.shared();
+        if (counter.count(text) <= maxTokens) {
             return text;
         }
         
-        // 按比例截断，保留重要开头
-        double ratio = (double) maxTokens / estimatedTokens;
-        int targetLength = (int) (text.length() * ratio * 0.9); // 留10%余量
-        
-        if (targetLength < text.length()) {
-            return text.substring(0, targetLength) + "\n...(内容过长已截断)";
-        }
-        
-        return text;
+        int available = Math.max(0, maxTokens - counter.count(TRUNCATION_MARK));
+        return counter.truncate(text, available) + TRUNCATION_MARK;
     }
 }
-
-
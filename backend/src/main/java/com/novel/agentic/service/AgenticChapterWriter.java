@@ -15,14 +15,19 @@ import com.novel.service.ChapterService;
 import com.novel.service.ChapterSummaryService;
 import com.novel.repository.NovelRepository;
 import com.novel.repository.VolumeChapterOutlineRepository;
+import com.novel.agentic.service.tools.ToolCallScope;
 import com.novel.agentic.service.tools.ToolRegistry;
+import com.novel.agentic.service.performance.ContextBundleStore;
+import com.novel.agentic.service.performance.ContextPrefetcher;
+import com.novel.ai.execution.CancellationToken;
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.exception.GenerationCancelledException;
+import com.novel.exception.GenerationRejectedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -31,6 +36,9 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 代理式章节写作服务
@@ -63,6 +71,12 @@ public class AgenticChapterWriter {
     @Autowired
     private ToolRegistry toolRegistry;
 
+    @Autowired
+    private ContextPrefetcher contextPrefetcher;
+
+    @Autowired
+    private ContextBundleStore contextBundleStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -81,6 +95,9 @@ public class AgenticChapterWriter {
     @Autowired(required = false)
     private CoreStateExtractor coreStateExtractor;
 
+    @Autowired(required = false)
+    private ChapterDigestService chapterDigestService;
+
     @Autowired
     private PlotReasoningService plotReasoningService;
 
@@ -90,6 +107,15 @@ public class AgenticChapterWriter {
     @Autowired
     private com.novel.service.AIConfigService aiConfigService;
 
+    @Autowired
+    private GenerationExecutor generationExecutor;
+
+    /**
+     * 批量流水线中等待上一章概要/图谱就绪的最长时间，超时后以现有数据继续
+     */
+    @Value("${generation.chapter-pipeline.barrier-timeout-ms:180000}")
+    private long barrierTimeoutMs;
+
 
 
     /**
@@ -104,6 +130,45 @@ public class AgenticChapterWriter {
             Long promptTemplateId,
             Map<String, String> referenceContents,
             SseEmitter emitter) throws Exception {
+        return writeChapter(novelId, chapterNumber, userAdjustment, aiConfig, stylePromptFile,
+                promptTemplateId, referenceContents, emitter, null, false).chapter;
+    }
+
+    /**
+     * 生成单章并返回其后续阶段（概要、图谱抽取）的完成信号
+     *
+     * @param upstream  上一章的阶段，非空时只在需要概要/图谱数据处等待其就绪
+     * @param pipelined 为 true 时概要也转入后台，由下一章按需等待
+     */
+    private ChapterStages writeChapter(
+            Long novelId,
+            Integer chapterNumber,
+            String userAdjustment,
+            AIConfigRequest aiConfig,
+            String stylePromptFile,
+            Long promptTemplateId,
+            Map<String, String> referenceContents,
+            SseEmitter emitter,
+            ChapterStages upstream,
+            boolean pipelined) throws Exception {
+        // 每章独立的工具调用作用域：章内重复查询复用结果，上一章写入后的数据不会被带入下一章
+        try (ToolCallScope.Registration ignored = ToolCallScope.open("chapter-" + novelId + "-" + chapterNumber)) {
+            return doWriteChapter(novelId, chapterNumber, userAdjustment, aiConfig, stylePromptFile,
+                    promptTemplateId, referenceContents, emitter, upstream, pipelined);
+        }
+    }
+
+    private ChapterStages doWriteChapter(
+            Long novelId,
+            Integer chapterNumber,
+            String userAdjustment,
+            AIConfigRequest aiConfig,
+            String stylePromptFile,
+            Long promptTemplateId,
+            Map<String, String> referenceContents,
+            SseEmitter emitter,
+            ChapterStages upstream,
+            boolean pipelined) throws Exception {
 
         Novel novel = novelRepository.selectById(novelId);
         if (novel == null) {
@@ -146,21 +211,24 @@ public class AgenticChapterWriter {
             cleanupChapterMetadata(novelId, chapterNumber, emitter);
         }
 
-        // 收集上下文
+        // 收集上下文：优先使用上一章完成后预构建的上下文包（批量流水线按阶段屏障现场构建）
         sendEvent(emitter, "phase", "📥 收集写作上下文中...");
-        WritingContext context = buildDirectWritingContext(novelId, chapterNumber, userAdjustment, referenceContents);
+        ContextBundleStore.Bundle bundle = upstream == null ? contextBundleStore.take(novelId, chapterNumber) : null;
+        WritingContext context;
+        if (bundle != null) {
+            context = refreshSettingSources(novelId, chapterNumber, bundle.getContext().toBuilder())
+                    .userAdjustment(userAdjustment)
+                    .referenceContents(referenceContents != null && !referenceContents.isEmpty() ? referenceContents : null)
+                    .build();
+            logger.info("✅ 使用预构建上下文包（构建耗时{}ms已提前完成）", bundle.getBuildMs());
+        } else {
+            context = buildDirectWritingContext(novelId, chapterNumber, userAdjustment, referenceContents, upstream);
 
-        // 图谱健康检查（仅日志）
-        checkGraphHealth(novelId, chapterNumber, context);
+            // 图谱健康检查（仅日志）
+            checkGraphHealth(novelId, chapterNumber, context);
 
-        // 上下文优化
-        if (contextOptimizer != null) {
-            try {
-                context = contextOptimizer.optimize(context);
-                logger.info("✅ 上下文优化完成");
-            } catch (Exception e) {
-                logger.warn("⚠️ 上下文优化失败，继续使用原始上下文: {}", e.getMessage());
-            }
+            // 上下文优化
+            context = optimizeContext(context);
         }
 
         // 优先查询预生成章纲
@@ -256,19 +324,127 @@ public class AgenticChapterWriter {
 
         // 保存章节
         sendEvent(emitter, "phase", "💾 保存中...");
-        Chapter chapter = saveChapter(novel, chapterNumber, generatedContent, generationContextSnapshot, aiConfig);
+        boolean useDigest = chapterDigestService != null && chapterDigestService.isEnabled();
+        Chapter chapter = saveChapter(novel, chapterNumber, generatedContent, generationContextSnapshot, aiConfig,
+                !pipelined && !useDigest);
+
+        CompletableFuture<Void> summaryReady = CompletableFuture.completedFuture(null);
+        List<CompletableFuture<Void>> graphStages = new ArrayList<>();
+        if (useDigest && chapter != null) {
+            // 概要、核心状态、实体合并为一次调用；失败的部分在阶段内回退到分步抽取
+            CompletableFuture<Void> digestReady = runStage("chapter-digest-" + novel.getId() + "-" + chapterNumber, () -> {
+                try {
+                    sendEvent(emitter, "phase", "🧾 章节摘要与抽取中...");
+                    ChapterDigestService.Result result = chapterDigestService.digestAndSave(chapter, finalAiConfig);
+                    sendEvent(emitter, "extraction", result.isComplete()
+                            ? "✅ 章节摘要与抽取完成"
+                            : "✅ 章节摘要与抽取完成（部分内容已回退分步抽取）");
+                } catch (Exception e) {
+                    logger.error("章节合并抽取失败（不阻塞章节保存）", e);
+                    sendEvent(emitter, "extraction", "⚠️ 章节抽取失败: " + e.getMessage());
+                }
+            });
+            // 非流水线模式保持原语义：概要就绪后才返回
+            if (!pipelined) {
+                digestReady.join();
+            }
+            summaryReady = digestReady;
+            graphStages.add(digestReady);
+        } else {
+            // 流水线模式：概要在后台生成，下一章读取概要前等待
+            if (pipelined && chapter != null) {
+                summaryReady = runStage("chapter-summary-" + novel.getId() + "-" + chapterNumber,
+                        () -> generateSummary(chapter, finalAiConfig));
+            }
+            graphStages.addAll(startExtractionStages(emitter, novel, chapterNumber, chapter, generatedContent, finalAiConfig));
+        }
+
+        sendEvent(emitter, "complete", "✅ 生成完成！共 " + generatedContent.length() + " 字");
+        logger.info("✅ 章节生成完成: 第{}章, 字数{}", chapterNumber, generatedContent.length());
 
-        // 🔐 捕获当前线程的 SecurityContext，以便在异步线程中使用
-        SecurityContext securityContext = SecurityContextHolder.getContext();
-        Authentication authentication = securityContext.getAuthentication();
+        CompletableFuture<Void> graphReady = CompletableFuture.allOf(graphStages.toArray(new CompletableFuture[0]));
+        ChapterStages stages = new ChapterStages(chapter, chapterNumber, summaryReady, graphReady);
+        // 批量流水线中下一章紧接着现场构建，只在单章生成后预构建
+        if (!pipelined && chapter != null) {
+            prepareNextContext(novelId, stages);
+        }
+        return stages;
+    }
+
+    /**
+     * 本章概要与图谱阶段完成后，在后台预构建并优化下一章的上下文包
+     */
+    private void prepareNextContext(Long novelId, ChapterStages stages) {
+        if (!contextBundleStore.isEnabled()) {
+            return;
+        }
+        Integer nextChapter = stages.chapterNumber + 1;
+        CompletableFuture.allOf(stages.summaryReady, stages.graphReady).whenComplete((ignored, error) ->
+                runStage("context-bundle-" + novelId + "-" + nextChapter, () -> {
+                    try (ToolCallScope.Registration ignoredScope = ToolCallScope.open("context-bundle-" + novelId + "-" + nextChapter)) {
+                        // 先取版本号：构建期间发生编辑时该包在保存或取用时作废
+                        long editVersion = contextBundleStore.editVersion(novelId);
+                        long graphVersion = contextBundleStore.graphVersion(novelId);
+                        long startedAt = System.currentTimeMillis();
+                        WritingContext context = buildDirectWritingContext(novelId, nextChapter, null, null, null);
+                        checkGraphHealth(novelId, nextChapter, context);
+                        context = optimizeContext(context);
+                        contextBundleStore.put(new ContextBundleStore.Bundle(novelId, nextChapter, context,
+                                editVersion, graphVersion, System.currentTimeMillis() - startedAt));
+                    } catch (Exception e) {
+                        logger.warn("⚠️ 预构建第{}章上下文失败（下次写作时现场构建）: {}", nextChapter, e.getMessage());
+                    }
+                }));
+    }
+
+    /**
+     * 上下文优化；失败时返回原始上下文
+     */
+    private WritingContext optimizeContext(WritingContext context) {
+        if (contextOptimizer == null) {
+            return context;
+        }
+        try {
+            WritingContext optimized = contextOptimizer.optimize(context);
+            logger.info("✅ 上下文优化完成");
+            return optimized;
+        } catch (Exception e) {
+            logger.warn("⚠️ 上下文优化失败，继续使用原始上下文: {}", e.getMessage());
+            return context;
+        }
+    }
+
+    /**
+     * 重新读取核心设定与卷蓝图（编辑入口分散在多个服务中，取用上下文包时直接重读这两个单行来源）
+     */
+    private WritingContext.WritingContextBuilder refreshSettingSources(Long novelId, Integer chapterNumber,
+                                                                       WritingContext.WritingContextBuilder contextBuilder) {
+        ContextPrefetcher.Batch prefetch = contextPrefetcher.batch("bundle-refresh-" + novelId + "-" + chapterNumber);
+        Map<String, Object> outlineArgs = new HashMap<>();
+        outlineArgs.put("novelId", novelId);
+        prefetch.add("outline", () -> toolRegistry.executeTool("getOutline", outlineArgs));
+        Map<String, Object> blueprintArgs = new HashMap<>();
+        blueprintArgs.put("novelId", novelId);
+        blueprintArgs.put("chapterNumber", chapterNumber);
+        prefetch.add("volumeBlueprint", () -> toolRegistry.executeTool("getVolumeBlueprint", blueprintArgs));
+        Map<String, ContextPrefetcher.SourceResult> prefetched = prefetch.await();
+
+        // 重读失败时保留包内的旧值
+        applyOutline(contextBuilder, prefetchedValue(prefetched, "outline"));
+        applyVolumeBlueprint(contextBuilder, prefetchedValue(prefetched, "volumeBlueprint"));
+        return contextBuilder;
+    }
 
-        // 异步抽取核心状态并入图
+    /**
+     * 分步抽取：核心状态与结构化实体各自一次调用（合并抽取未启用时使用）
+     */
+    private List<CompletableFuture<Void>> startExtractionStages(SseEmitter emitter, Novel novel, Integer chapterNumber,
+                                                                Chapter chapter, String generatedContent,
+                                                                AIConfigRequest finalAiConfig) {
+        // 异步抽取核心状态并入图（SecurityContext 由执行器传递）
+        List<CompletableFuture<Void>> graphStages = new ArrayList<>();
         if (coreStateExtractor != null) {
-            CompletableFuture.runAsync(() -> {
-                // 🔐 在异步线程中设置 SecurityContext
-                SecurityContext asyncContext = SecurityContextHolder.createEmptyContext();
-                asyncContext.setAuthentication(authentication);
-                SecurityContextHolder.setContext(asyncContext);
+            graphStages.add(runStage("core-state-" + novel.getId() + "-" + chapterNumber, () -> {
                 try {
                     sendEvent(emitter, "phase", "🔍 抽取核心状态中...");
                     coreStateExtractor.extractAndSaveCoreState(
@@ -282,19 +458,12 @@ public class AgenticChapterWriter {
                 } catch (Exception e) {
                     logger.error("核心状态抽取失败（不阻塞章节保存）", e);
                     sendEvent(emitter, "extraction", "⚠️ 核心状态抽取失败: " + e.getMessage());
-                } finally {
-                    // 🔐 清理异步线程的 SecurityContext
-                    SecurityContextHolder.clearContext();
                 }
-            });
+            }));
         }
         // 异步抽取结构化实体并入图
         if (entityExtractionService != null) {
-            CompletableFuture.runAsync(() -> {
-                // 🔐 在异步线程中设置 SecurityContext
-                SecurityContext asyncContext = SecurityContextHolder.createEmptyContext();
-                asyncContext.setAuthentication(authentication);
-                SecurityContextHolder.setContext(asyncContext);
+            graphStages.add(runStage("entity-extraction-" + novel.getId() + "-" + chapterNumber, () -> {
                 try {
                     sendEvent(emitter, "phase", "🔎 抽取结构化实体中...");
                     entityExtractionService.extractAndSave(
@@ -308,18 +477,32 @@ public class AgenticChapterWriter {
                 } catch (Exception e) {
                     logger.error("实体抽取失败（不阻塞章节保存）", e);
                     sendEvent(emitter, "extraction", "⚠️ 实体抽取失败: " + e.getMessage());
-                } finally {
-                    // 🔐 清理异步线程的 SecurityContext
-                    SecurityContextHolder.clearContext();
                 }
-            });
+            }));
         }
+        return graphStages;
+    }
 
-
-        sendEvent(emitter, "complete", "✅ 生成完成！共 " + generatedContent.length() + " 字");
-        logger.info("✅ 章节生成完成: 第{}章, 字数{}", chapterNumber, generatedContent.length());
-
-        return chapter;
+    /**
+     * 在后台执行器上运行章节后续阶段，返回其完成信号（成功或失败都视为完成）；
+     * 执行器已满时在当前线程执行，保证屏障不会悬空
+     */
+    private CompletableFuture<Void> runStage(String name, Runnable stage) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Runnable tracked = () -> {
+            try {
+                stage.run();
+            } finally {
+                done.complete(null);
+            }
+        };
+        try {
+            generationExecutor.submitBackground(name, tracked);
+        } catch (GenerationRejectedException e) {
+            logger.warn("⚠️ 后台队列已满，在当前线程执行: {}", name);
+            tracked.run();
+        }
+        return done;
     }
 
     /**
@@ -352,30 +535,39 @@ public class AgenticChapterWriter {
         }
 
         List<Chapter> chapters = new ArrayList<>();
+        long batchStartedAt = System.currentTimeMillis();
+        // 上一章的后续阶段：本章只在读取概要/图谱前等待它们
+        ChapterStages upstream = null;
 
         for (int i = 0; i < count; i++) {
             Integer currentChapter = startChapter + i;
 
+            // 客户端已断开：不再开始新章节
+            if (CancellationToken.isCurrentCancelled()) {
+                logger.info("🛑 客户端已断开，停止批量生成，已完成{}章", chapters.size());
+                throw new GenerationCancelledException("批量生成已取消（已完成 " + chapters.size() + " 章）");
+            }
+
             sendEvent(emitter, "chapter_start", "开始生成第 " + currentChapter + " 章 (" + (i + 1) + "/" + count + ")");
 
             try {
-                Chapter chapter = generateChapter(novelId, currentChapter, null, aiConfig, stylePromptFile, promptTemplateId, referenceContents, emitter);
-                chapters.add(chapter);
-
-                // 🔧 验证章节是否正确保存
-                Chapter verifyChapter = chapterService.getChapterByNovelAndNumber(novelId, currentChapter);
-                if (verifyChapter == null || verifyChapter.getContent() == null || verifyChapter.getContent().isEmpty()) {
+                // 章节间无需固定休眠：上游调用由 ProviderConcurrencyLimiter 按供应商限流并处理 429 退避
+                ChapterStages stages = writeChapter(novelId, currentChapter, null, aiConfig, stylePromptFile,
+                        promptTemplateId, referenceContents, emitter, upstream, true);
+                Chapter chapter = stages.chapter;
+                if (chapter == null || chapter.getContent() == null || chapter.getContent().isEmpty()) {
                     logger.error("⚠️ 章节{}保存验证失败，内容为空或未保存", currentChapter);
                 } else {
-                    logger.info("✅ 章节{}保存验证通过，字数: {}", currentChapter, verifyChapter.getContent().length());
-                }
-
-                // 章节间短暂休息，避免API限流
-                if (i < count - 1) {
-                    Thread.sleep(2000);
+                    chapters.add(chapter);
                 }
+                upstream = stages;
 
+            } catch (GenerationCancelledException e) {
+                throw e;
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    throw new GenerationCancelledException("批量生成已取消（已完成 " + chapters.size() + " 章）");
+                }
                 logger.error("生成第{}章失败", currentChapter, e);
                 sendEvent(emitter, "error", "第 " + currentChapter + " 章生成失败: " + e.getMessage());
 
@@ -387,8 +579,22 @@ public class AgenticChapterWriter {
             }
         }
 
-        sendEvent(emitter, "batch_complete", "批量生成完成！共生成 " + chapters.size() + " 章");
-        logger.info("✅ 批量生成完成: 成功{}章", chapters.size());
+        // 最后一章的概要与图谱入库后批次才算完成
+        if (upstream != null) {
+            sendEvent(emitter, "phase", "⏳ 等待最后一章的概要与图谱抽取完成...");
+            upstream.awaitSummary(barrierTimeoutMs);
+            upstream.awaitGraph(barrierTimeoutMs);
+            if (upstream.chapter != null) {
+                prepareNextContext(novelId, upstream);
+            }
+        }
+
+        long elapsedMs = Math.max(1L, System.currentTimeMillis() - batchStartedAt);
+        double chaptersPerHour = chapters.size() * 3_600_000d / elapsedMs;
+        sendEvent(emitter, "batch_complete", String.format("批量生成完成！共生成 %d 章，耗时 %d 秒，约 %.1f 章/小时",
+                chapters.size(), elapsedMs / 1000, chaptersPerHour));
+        logger.info("✅ 批量生成完成: 成功{}章, 耗时{}ms, 吞吐 {} 章/小时",
+                chapters.size(), elapsedMs, String.format("%.1f", chaptersPerHour));
 
         return chapters;
     }
@@ -399,6 +605,15 @@ public class AgenticChapterWriter {
      * 对外公开，便于重写/编辑等场景复用同一套上下文来源。
      */
     public WritingContext buildDirectWritingContext(Long novelId, Integer chapterNumber, String userAdjustment, Map<String, String> referenceContents) {
+        return buildDirectWritingContext(novelId, chapterNumber, userAdjustment, referenceContents, null);
+    }
+
+    /**
+     * 构建写作上下文；upstream 非空时（批量流水线），不依赖上一章的来源立即开始预取，
+     * 概要与图谱来源分别在上一章概要、图谱抽取就绪后再提交
+     */
+    private WritingContext buildDirectWritingContext(Long novelId, Integer chapterNumber, String userAdjustment,
+                                                     Map<String, String> referenceContents, ChapterStages upstream) {
         WritingContext.WritingContextBuilder contextBuilder = WritingContext.builder();
         contextBuilder.userAdjustment(userAdjustment);
         if (referenceContents != null && !referenceContents.isEmpty()) {
@@ -406,112 +621,122 @@ public class AgenticChapterWriter {
         }
 
         try {
-            // 1. 获取核心设定（替代大纲）
+            // 各来源互不依赖：先全部并发提交，再按顺序写入上下文
+            boolean hasPrevious = chapterNumber > 1;
+            ContextPrefetcher.Batch prefetch = contextPrefetcher.batch("direct-" + novelId + "-" + chapterNumber);
+
             Map<String, Object> outlineArgs = new HashMap<>();
             outlineArgs.put("novelId", novelId);
-            Object outlineResult = toolRegistry.executeTool("getOutline", outlineArgs);
-            if (outlineResult instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> outlineMap = (Map<String, Object>) outlineResult;
-                Object core = outlineMap.get("coreSettings");
-                if (core instanceof String && org.apache.commons.lang3.StringUtils.isNotBlank((String) core)) {
-                    contextBuilder.coreSettings((String) core);
-                    logger.info("✅ 已加载核心设定");
-                }
-            } else if (outlineResult instanceof String) {
-                contextBuilder.coreSettings((String) outlineResult);
-                logger.info("✅ 已加载核心设定（字符串）");
-            }
+            prefetch.add("outline", () -> toolRegistry.executeTool("getOutline", outlineArgs));
 
-            // 2. 获取卷蓝图
             Map<String, Object> blueprintArgs = new HashMap<>();
             blueprintArgs.put("novelId", novelId);
             blueprintArgs.put("chapterNumber", chapterNumber);
-            Object blueprintResult = toolRegistry.executeTool("getVolumeBlueprint", blueprintArgs);
-            if (blueprintResult instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> blueprintMap = (Map<String, Object>) blueprintResult;
-                contextBuilder.volumeBlueprint(blueprintMap);
-
-                // 详细日志：检查卷蓝图内容
-                Object blueprint = blueprintMap.get("blueprint");
-                logger.info("✅ 已加载卷蓝图: volumeId={}, volumeTitle={}, blueprint={}",
-                        blueprintMap.get("volumeId"),
-                        blueprintMap.get("volumeTitle"),
-                        blueprint != null ? (blueprint.toString().length() > 100 ?
-                                blueprint.toString().substring(0, 100) + "..." : blueprint.toString()) : "NULL");
-
-                if (blueprint == null || "暂无蓝图".equals(blueprint)) {
-                    logger.warn("⚠️ 卷蓝图为空或未生成！请先为卷{}生成蓝图", blueprintMap.get("volumeId"));
+            prefetch.add("volumeBlueprint", () -> toolRegistry.executeTool("getVolumeBlueprint", blueprintArgs));
+
+            if (hasPrevious) {
+                prefetch.add("recentChapters", () -> chapterService.getRecentChapters(novelId, chapterNumber, 1));
+            }
+
+            // 概要依赖上一章的概要阶段
+            ContextPrefetcher.Batch summaryPrefetch = prefetch;
+            if (upstream != null) {
+                upstream.awaitSummary(barrierTimeoutMs);
+                summaryPrefetch = contextPrefetcher.batch("direct-summary-" + novelId + "-" + chapterNumber);
+            }
+            if (hasPrevious) {
+                // 概要窗口增量维护：相邻章节只补查首尾差异
+                summaryPrefetch.add("summaries", () -> contextBundleStore.recentSummaries(novelId, chapterNumber - 1, 30,
+                        (from, to) -> chapterSummaryService.getSummariesInRange(novelId, from, to)));
+            }
+
+            // 图谱来源依赖上一章的抽取入图
+            ContextPrefetcher.Batch graphPrefetch = summaryPrefetch;
+            if (upstream != null) {
+                upstream.awaitGraph(barrierTimeoutMs);
+                graphPrefetch = contextPrefetcher.batch("direct-graph-" + novelId + "-" + chapterNumber);
+            }
+            if (hasPrevious) {
+                Map<String, Object> characterArgs = new HashMap<>();
+                characterArgs.put("novelId", novelId);
+                characterArgs.put("limit", 200);
+                graphPrefetch.add("characterProfiles", () -> toolRegistry.executeTool("getCharacterProfiles", characterArgs));
+
+                if (graphService != null) {
+                    graphPrefetch.add("events", () -> graphService.getRelevantEvents(novelId, chapterNumber, 10));
+                    graphPrefetch.add("foreshadows", () -> graphService.getUnresolvedForeshadows(novelId, chapterNumber, 10));
                 }
             }
+            if (graphService != null) {
+                graphPrefetch.add("characterStates", () -> graphService.getCharacterStates(novelId, 200));
+                graphPrefetch.add("relationships", () -> graphService.getTopRelationships(novelId, 200));
+            }
+
+            Map<String, ContextPrefetcher.SourceResult> prefetched = new LinkedHashMap<>(prefetch.await());
+            if (summaryPrefetch != prefetch) {
+                prefetched.putAll(summaryPrefetch.await());
+            }
+            if (graphPrefetch != summaryPrefetch) {
+                prefetched.putAll(graphPrefetch.await());
+            }
+
+            // 1. 获取核心设定（替代大纲）
+            applyOutline(contextBuilder, prefetchedValue(prefetched, "outline"));
+
+            // 2. 获取卷蓝图
+            applyVolumeBlueprint(contextBuilder, prefetchedValue(prefetched, "volumeBlueprint"));
 
             // 3. 获取最近1章完整内容
-            if (chapterNumber > 1) {
-                List<Chapter> recentChapters = chapterService.getRecentChapters(novelId, chapterNumber, 1);
-                if (recentChapters != null && !recentChapters.isEmpty()) {
-                    List<Map<String, Object>> recentFullChapters = new ArrayList<>();
-                    for (Chapter chapter : recentChapters) {
-                        Map<String, Object> chapterData = new HashMap<>();
-                        chapterData.put("chapterNumber", chapter.getChapterNumber());
-                        chapterData.put("title", chapter.getTitle());
-                        chapterData.put("content", chapter.getContent());
-                        recentFullChapters.add(chapterData);
-                        logger.info("✅ 已加载前一章完整内容: 第{}章 ({}字)",
-                                chapter.getChapterNumber(),
-                                chapter.getContent() != null ? chapter.getContent().length() : 0);
-                    }
-                    contextBuilder.recentFullChapters(recentFullChapters);
+            @SuppressWarnings("unchecked")
+            List<Chapter> recentChapters = (List<Chapter>) prefetchedValue(prefetched, "recentChapters");
+            if (recentChapters != null && !recentChapters.isEmpty()) {
+                List<Map<String, Object>> recentFullChapters = new ArrayList<>();
+                for (Chapter chapter : recentChapters) {
+                    Map<String, Object> chapterData = new HashMap<>();
+                    chapterData.put("chapterNumber", chapter.getChapterNumber());
+                    chapterData.put("title", chapter.getTitle());
+                    chapterData.put("content", chapter.getContent());
+                    recentFullChapters.add(chapterData);
+                    logger.info("✅ 已加载前一章完整内容: 第{}章 ({}字)",
+                            chapter.getChapterNumber(),
+                            chapter.getContent() != null ? chapter.getContent().length() : 0);
                 }
+                contextBuilder.recentFullChapters(recentFullChapters);
             }
 
             // 4. 获取前30章概要
-            if (chapterNumber > 1) {
-                List<Map<String, Object>> summaries = chapterSummaryService.getRecentSummaries(novelId, chapterNumber - 1, 30);
-                if (summaries != null && !summaries.isEmpty()) {
-                    contextBuilder.recentSummaries(summaries);
-                    logger.info("✅ 已加载最近{}章概要", summaries.size());
-                }
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> summaries = (List<Map<String, Object>>) prefetchedValue(prefetched, "summaries");
+            if (summaries != null && !summaries.isEmpty()) {
+                contextBuilder.recentSummaries(summaries);
+                logger.info("✅ 已加载最近{}章概要", summaries.size());
             }
 
             // 5. 获取图谱数据（角色档案）
-            if (chapterNumber > 1) {
-                Map<String, Object> characterArgs = new HashMap<>();
-                characterArgs.put("novelId", novelId);
-                characterArgs.put("limit", 200);
-                Object characterResult = toolRegistry.executeTool("getCharacterProfiles", characterArgs);
-                if (characterResult instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> characters = (List<Map<String, Object>>) characterResult;
-                    contextBuilder.characterProfiles(characters);
-                    logger.info("✅ 已加载{}个角色档案", characters.size());
-                }
+            Object characterResult = prefetchedValue(prefetched, "characterProfiles");
+            if (characterResult instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> characters = (List<Map<String, Object>>) characterResult;
+                contextBuilder.characterProfiles(characters);
+                logger.info("✅ 已加载{}个角色档案", characters.size());
             }
 
             // 6. 获取图谱数据（相关事件）
-            if (chapterNumber > 1 && graphService != null) {
-                try {
-                    List<com.novel.agentic.model.GraphEntity> events = graphService.getRelevantEvents(novelId, chapterNumber, 10);
-                    if (events != null && !events.isEmpty()) {
-                        contextBuilder.relevantEvents(events);
-                        logger.info("✅ 已加载{}个历史事件", events.size());
-                    }
-                } catch (Exception e) {
-                    logger.warn("⚠️ 获取历史事件失败: {}", e.getMessage());
-                }
+            @SuppressWarnings("unchecked")
+            List<com.novel.agentic.model.GraphEntity> events =
+                    (List<com.novel.agentic.model.GraphEntity>) prefetchedValue(prefetched, "events");
+            if (events != null && !events.isEmpty()) {
+                contextBuilder.relevantEvents(events);
+                logger.info("✅ 已加载{}个历史事件", events.size());
             }
 
             // 7. 获取未解决的伏笔
-            if (chapterNumber > 1 && graphService != null) {
-                try {
-                    List<com.novel.agentic.model.GraphEntity> foreshadows = graphService.getUnresolvedForeshadows(novelId, chapterNumber, 10);
-                    if (foreshadows != null && !foreshadows.isEmpty()) {
-                        contextBuilder.unresolvedForeshadows(foreshadows);
-                        logger.info("✅ 已加载{}个待回收伏笔", foreshadows.size());
-                    }
-                } catch (Exception e) {
-                    logger.warn("⚠️ 获取伏笔失败: {}", e.getMessage());
-                }
+            @SuppressWarnings("unchecked")
+            List<com.novel.agentic.model.GraphEntity> foreshadows =
+                    (List<com.novel.agentic.model.GraphEntity>) prefetchedValue(prefetched, "foreshadows");
+            if (foreshadows != null && !foreshadows.isEmpty()) {
+                contextBuilder.unresolvedForeshadows(foreshadows);
+                logger.info("✅ 已加载{}个待回收伏笔", foreshadows.size());
             }
 
             if (ENABLE_ADVANCED_GRAPH_QUERIES) {
@@ -525,23 +750,21 @@ public class AgenticChapterWriter {
             java.util.List<java.util.Map<String, Object>> __relationships = null;
             java.util.List<java.util.Map<String, Object>> __openQuests = null;
             if (graphService != null) {
-                try {
-                    __charStates = graphService.getCharacterStates(novelId, 200);
-                    if (__charStates != null && !__charStates.isEmpty()) {
-                        contextBuilder.characterStates(__charStates);
-                        logger.info("✅ 已加载{}个角色状态", __charStates.size());
-                    }
-                } catch (Exception e) {
-                    logger.warn("⚠️ 获取角色状态失败: {}", e.getMessage());
+                @SuppressWarnings("unchecked")
+                java.util.List<java.util.Map<String, Object>> charStates =
+                        (java.util.List<java.util.Map<String, Object>>) prefetchedValue(prefetched, "characterStates");
+                __charStates = charStates;
+                if (__charStates != null && !__charStates.isEmpty()) {
+                    contextBuilder.characterStates(__charStates);
+                    logger.info("✅ 已加载{}个角色状态", __charStates.size());
                 }
-                try {
-                    __relationships = graphService.getTopRelationships(novelId, 200);
-                    if (__relationships != null && !__relationships.isEmpty()) {
-                        contextBuilder.relationshipStates(__relationships);
-                        logger.info("✅ 已加载{}条关系状态", __relationships.size());
-                    }
-                } catch (Exception e) {
-                    logger.warn("⚠️ 获取关系状态失败: {}", e.getMessage());
+                @SuppressWarnings("unchecked")
+                java.util.List<java.util.Map<String, Object>> relationships =
+                        (java.util.List<java.util.Map<String, Object>>) prefetchedValue(prefetched, "relationships");
+                __relationships = relationships;
+                if (__relationships != null && !__relationships.isEmpty()) {
+                    contextBuilder.relationshipStates(__relationships);
+                    logger.info("✅ 已加载{}条关系状态", __relationships.size());
                 }
                 // 🔕 注释掉未决任务：剧情按章纲发展，未决任务容易干扰AI写作
                 // try {
@@ -592,10 +815,55 @@ public class AgenticChapterWriter {
         return contextBuilder.build();
     }
 
+    private void applyOutline(WritingContext.WritingContextBuilder contextBuilder, Object outlineResult) {
+        if (outlineResult instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> outlineMap = (Map<String, Object>) outlineResult;
+            Object core = outlineMap.get("coreSettings");
+            if (core instanceof String && org.apache.commons.lang3.StringUtils.isNotBlank((String) core)) {
+                contextBuilder.coreSettings((String) core);
+                logger.info("✅ 已加载核心设定");
+            }
+        } else if (outlineResult instanceof String) {
+            contextBuilder.coreSettings((String) outlineResult);
+            logger.info("✅ 已加载核心设定（字符串）");
+        }
+    }
+
+    private void applyVolumeBlueprint(WritingContext.WritingContextBuilder contextBuilder, Object blueprintResult) {
+        if (!(blueprintResult instanceof Map)) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> blueprintMap = (Map<String, Object>) blueprintResult;
+        contextBuilder.volumeBlueprint(blueprintMap);
+
+        // 详细日志：检查卷蓝图内容
+        Object blueprint = blueprintMap.get("blueprint");
+        logger.info("✅ 已加载卷蓝图: volumeId={}, volumeTitle={}, blueprint={}",
+                blueprintMap.get("volumeId"),
+                blueprintMap.get("volumeTitle"),
+                blueprint != null ? (blueprint.toString().length() > 100 ?
+                        blueprint.toString().substring(0, 100) + "..." : blueprint.toString()) : "NULL");
+
+        if (blueprint == null || "暂无蓝图".equals(blueprint)) {
+            logger.warn("⚠️ 卷蓝图为空或未生成！请先为卷{}生成蓝图", blueprintMap.get("volumeId"));
+        }
+    }
+
+    /**
+     * 取预取结果；来源超时或失败时返回 null（失败原因已由预取器记录）
+     */
+    private Object prefetchedValue(Map<String, ContextPrefetcher.SourceResult> prefetched, String source) {
+        ContextPrefetcher.SourceResult result = prefetched.get(source);
+        return result != null ? result.getValue() : null;
+    }
+
     /**
      * 保存章节
      */
-    private Chapter saveChapter(Novel novel, Integer chapterNumber, String content, String generationContext, AIConfigRequest aiConfig) {
+    private Chapter saveChapter(Novel novel, Integer chapterNumber, String content, String generationContext,
+                                AIConfigRequest aiConfig, boolean summarizeInline) {
         Chapter existing = chapterService.getChapterByNovelAndNumber(novel.getId(), chapterNumber);
         Chapter persisted;
         if (existing == null) {
@@ -614,20 +882,27 @@ public class AgenticChapterWriter {
             persisted = chapterService.updateChapterInternal(existing.getId(), update);
         }
 
-        if (persisted != null) {
-            try {
-                chapterSummaryService.generateOrUpdateSummary(persisted, aiConfig);
-                logger.info("✅ 章节概括已生成: novelId={}, chapter={}", novel.getId(), chapterNumber);
-            } catch (Exception e) {
-                logger.error("❌ 章节概括生成失败: novelId={}, chapter={}, 错误: {}",
-                        novel.getId(), chapterNumber, e.getMessage(), e);
-                // 概括生成失败不应阻止章节保存，但必须记录错误供后续排查
-            }
+        if (persisted != null && summarizeInline) {
+            generateSummary(persisted, aiConfig);
         }
 
         return persisted;
     }
 
+    /**
+     * 生成章节概括；失败只记录日志
+     */
+    private void generateSummary(Chapter chapter, AIConfigRequest aiConfig) {
+        try {
+            chapterSummaryService.generateOrUpdateSummary(chapter, aiConfig);
+            logger.info("✅ 章节概括已生成: novelId={}, chapter={}", chapter.getNovelId(), chapter.getChapterNumber());
+        } catch (Exception e) {
+            logger.error("❌ 章节概括生成失败: novelId={}, chapter={}, 错误: {}",
+                    chapter.getNovelId(), chapter.getChapterNumber(), e.getMessage(), e);
+            // 概括生成失败不应阻止章节保存，但必须记录错误供后续排查
+        }
+    }
+
     /**
      * 发送决策过程
      */
@@ -981,5 +1256,47 @@ public class AgenticChapterWriter {
         return trimmed;
     }
 
+    /**
+     * 单章的后续阶段：概要就绪、图谱抽取就绪（成功或失败都视为完成）
+     */
+    private static final class ChapterStages {
+        private final Chapter chapter;
+        private final Integer chapterNumber;
+        private final CompletableFuture<Void> summaryReady;
+        private final CompletableFuture<Void> graphReady;
+
+        ChapterStages(Chapter chapter, Integer chapterNumber,
+                      CompletableFuture<Void> summaryReady, CompletableFuture<Void> graphReady) {
+            this.chapter = chapter;
+            this.chapterNumber = chapterNumber;
+            this.summaryReady = summaryReady;
+            this.graphReady = graphReady;
+        }
+
+        void awaitSummary(long timeoutMs) {
+            await(summaryReady, "概要", timeoutMs);
+        }
+
+        void awaitGraph(long timeoutMs) {
+            await(graphReady, "图谱抽取", timeoutMs);
+        }
 
+        private void await(CompletableFuture<Void> stage, String label, long timeoutMs) {
+            if (stage.isDone()) {
+                return;
+            }
+            long startedAt = System.currentTimeMillis();
+            try {
+                stage.get(timeoutMs, TimeUnit.MILLISECONDS);
+                logger.info("⏳ 已等待第{}章{}就绪: {}ms", chapterNumber, label, System.currentTimeMillis() - startedAt);
+            } catch (TimeoutException e) {
+                logger.warn("⚠️ 等待第{}章{}超时（{}ms），以现有数据继续", chapterNumber, label, timeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenerationCancelledException("等待第" + chapterNumber + "章" + label + "时任务已取消");
+            } catch (ExecutionException e) {
+                logger.warn("⚠️ 第{}章{}失败，以现有数据继续: {}", chapterNumber, label, e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,433 @@
+package com.novel.agentic.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.agentic.service.graph.EntityExtractionService;
+import com.novel.agentic.service.graph.IGraphService;
+import com.novel.domain.entity.Chapter;
+import com.novel.dto.AIConfigRequest;
+import com.novel.service.AIWritingService;
+import com.novel.service.ChapterSummaryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 章节合并抽取（章节摘要 + 核心状态 + 图谱实体，一次调用）
+ *
+ * 解决问题：章节保存后，概要、核心状态、实体抽取各自把整章正文发给模型，
+ * 同一章的输入 token 付三次，并同时占用三个供应商并发名额
+ *
+ * 策略：
+ * 1. 一次调用返回 summary / summarySignals / coreState / entities 四部分的结构化 JSON
+ * 2. 按约定结构逐段校验，合格的段落分别交给 ChapterSummaryService、CoreStateExtractor、EntityExtractionService 入库
+ * 3. 调用失败或某段校验不通过时，只对该段回退到原有的单独抽取路径
+ */
+@Service
+public class ChapterDigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChapterDigestService.class);
+
+    static final String SECTION_SUMMARY = "summary";
+    static final String SECTION_CORE_STATE = "coreState";
+    static final String SECTION_ENTITIES = "entities";
+
+    // entities 中应为对象数组的字段
+    private static final List<String> ENTITY_OBJECT_LISTS = Arrays.asList(
+        "events", "plotlines", "worldRules", "causalRelations", "characterRelations", "conflictArcs", "characterArcs");
+    // entities 中应为单个对象的字段
+    private static final List<String> ENTITY_OBJECTS = Arrays.asList("narrativeBeat", "perspectiveUsage");
+
+    @Value("${generation.chapter-digest.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private AIWritingService aiWritingService;
+
+    @Autowired
+    private ChapterSummaryService chapterSummaryService;
+
+    @Autowired
+    private CoreStateExtractor coreStateExtractor;
+
+    @Autowired
+    private EntityExtractionService entityExtractionService;
+
+    @Autowired(required = false)
+    private IGraphService graphService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 合并抽取结果：各段是否由合并调用完成（未完成的段已回退到原路径）
+     */
+    public static final class Result {
+        private boolean summaryApplied;
+        private boolean coreStateApplied;
+        private boolean entitiesApplied;
+
+        public boolean isSummaryApplied() {
+            return summaryApplied;
+        }
+
+        public boolean isCoreStateApplied() {
+            return coreStateApplied;
+        }
+
+        public boolean isEntitiesApplied() {
+            return entitiesApplied;
+        }
+
+        public boolean isComplete() {
+            return summaryApplied && coreStateApplied && entitiesApplied;
+        }
+    }
+
+    /**
+     * 对已保存的章节执行合并抽取并入库；失败的段落回退到原有抽取路径
+     */
+    public Result digestAndSave(Chapter chapter, AIConfigRequest aiConfig) {
+        Result result = new Result();
+        if (chapter == null || chapter.getNovelId() == null || chapter.getChapterNumber() == null) {
+            return result;
+        }
+        Long novelId = chapter.getNovelId();
+        Integer chapterNumber = chapter.getChapterNumber();
+        String content = chapter.getContent();
+        boolean includeGraph = graphService != null;
+
+        if (content != null && !content.trim().isEmpty() && aiConfig != null && aiConfig.isValid()) {
+            try {
+                long start = System.currentTimeMillis();
+                String response = callAIForDigest(buildDigestPrompt(novelId, chapterNumber, chapter.getTitle(), content, includeGraph),
+                    aiConfig, includeGraph);
+                JsonNode root = parseResponse(response);
+                Map<String, List<String>> errors = validate(root, includeGraph);
+                logger.info("🧾 章节合并抽取返回: novelId={}, chapter={}, 耗时={}ms, 校验问题={}",
+                    novelId, chapterNumber, System.currentTimeMillis() - start, errors);
+                applySections(novelId, chapterNumber, root, errors, includeGraph, result);
+            } catch (Exception e) {
+                logger.warn("⚠️ 章节合并抽取失败，回退到分步抽取: novelId={}, chapter={}, 错误: {}",
+                    novelId, chapterNumber, e.getMessage());
+            }
+        }
+
+        fallback(chapter, aiConfig, includeGraph, result);
+        record(result);
+        return result;
+    }
+
+    private void applySections(Long novelId, Integer chapterNumber, JsonNode root, Map<String, List<String>> errors,
+                               boolean includeGraph, Result result) {
+        if (errors.get(SECTION_SUMMARY).isEmpty()) {
+            try {
+                Map<String, String> signals = new LinkedHashMap<>();
+                root.path("summarySignals").fields().forEachRemaining(field -> {
+                    String value = field.getValue().asText("").trim();
+                    if (!value.isEmpty()) {
+                        signals.put(field.getKey(), value);
+                    }
+                });
+                chapterSummaryService.saveDigestSummary(novelId, chapterNumber, root.path(SECTION_SUMMARY).asText().trim(), signals);
+                result.summaryApplied = true;
+            } catch (Exception e) {
+                logger.warn("⚠️ 合并抽取概要入库失败: novelId={}, chapter={}, 错误: {}", novelId, chapterNumber, e.getMessage());
+            }
+        }
+        if (!includeGraph) {
+            return;
+        }
+        if (errors.get(SECTION_CORE_STATE).isEmpty()) {
+            try {
+                coreStateExtractor.applyCoreState(novelId, chapterNumber, root.path(SECTION_CORE_STATE));
+                result.coreStateApplied = true;
+            } catch (Exception e) {
+                logger.warn("⚠️ 合并抽取核心状态入库失败: novelId={}, chapter={}, 错误: {}", novelId, chapterNumber, e.getMessage());
+            }
+        }
+        if (errors.get(SECTION_ENTITIES).isEmpty()) {
+            try {
+                Map<String, Object> extracted = objectMapper.convertValue(root.path(SECTION_ENTITIES),
+                    new TypeReference<LinkedHashMap<String, Object>>() {});
+                extracted.values().removeIf(Objects::isNull);
+                int count = entityExtractionService.applyExtracted(novelId, chapterNumber, extracted);
+                logger.info("✅ 合并抽取实体入图: novelId={}, chapter={}, count={}", novelId, chapterNumber, count);
+                result.entitiesApplied = true;
+            } catch (Exception e) {
+                logger.warn("⚠️ 合并抽取实体入图失败: novelId={}, chapter={}, 错误: {}", novelId, chapterNumber, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 未由合并调用完成的段落，回退到原有的单独抽取
+     */
+    private void fallback(Chapter chapter, AIConfigRequest aiConfig, boolean includeGraph, Result result) {
+        Long novelId = chapter.getNovelId();
+        Integer chapterNumber = chapter.getChapterNumber();
+        if (!result.summaryApplied) {
+            logger.info("↩️ 概要回退到单独生成: novelId={}, chapter={}", novelId, chapterNumber);
+            chapterSummaryService.generateOrUpdateSummary(chapter, aiConfig);
+        }
+        if (!includeGraph) {
+            return;
+        }
+        if (!result.coreStateApplied) {
+            logger.info("↩️ 核心状态回退到单独抽取: novelId={}, chapter={}", novelId, chapterNumber);
+            coreStateExtractor.extractAndSaveCoreState(novelId, chapterNumber, chapter.getContent(), chapter.getTitle(), aiConfig);
+        }
+        if (!result.entitiesApplied) {
+            logger.info("↩️ 实体回退到单独抽取: novelId={}, chapter={}", novelId, chapterNumber);
+            try {
+                entityExtractionService.extractAndSave(novelId, chapterNumber, chapter.getTitle(), chapter.getContent(), aiConfig);
+            } catch (Exception e) {
+                logger.error("❌ 实体回退抽取失败: novelId={}, chapter={}", novelId, chapterNumber, e);
+            }
+        }
+    }
+
+    /**
+     * 只有解析成功且各段都通过校验的响应才写入响应缓存，残缺结果在重跑时会重新请求
+     */
+    private String callAIForDigest(String prompt, AIConfigRequest aiConfig, boolean includeGraph) throws Exception {
+        List<Map<String, String>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content",
+            "你是小说章节分析器。严格返回一个JSON对象，不含任何解释或markdown标记。"));
+        messages.add(Map.of("role", "user", "content", prompt));
+        return aiWritingService.generateContentWithMessages(messages, "chapter_digest", aiConfig,
+            response -> isComplete(response, includeGraph));
+    }
+
+    private boolean isComplete(String response, boolean includeGraph) {
+        try {
+            return validate(parseResponse(response), includeGraph).values().stream().allMatch(List::isEmpty);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private JsonNode parseResponse(String response) throws Exception {
+        if (response == null) {
+            throw new IllegalStateException("AI返回内容为空");
+        }
+        String s = response.replaceAll("(?s)<think>.*?</think>", "")
+            .replace("```json", "").replace("```JSON", "").replace("```", "").trim();
+        int start = s.indexOf('{');
+        int end = s.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            throw new IllegalStateException("AI返回内容不含JSON对象");
+        }
+        // 移除对象/数组末尾拖尾逗号
+        return objectMapper.readTree(s.substring(start, end + 1).replaceAll(",\\s*([}\\]])", "$1"));
+    }
+
+    /**
+     * 按约定结构逐段校验，返回 段名 → 问题列表（列表为空表示该段可用）
+     */
+    static Map<String, List<String>> validate(JsonNode root, boolean includeGraph) {
+        Map<String, List<String>> errors = new LinkedHashMap<>();
+        errors.put(SECTION_SUMMARY, new ArrayList<>());
+        errors.put(SECTION_CORE_STATE, new ArrayList<>());
+        errors.put(SECTION_ENTITIES, new ArrayList<>());
+        if (root == null || !root.isObject()) {
+            errors.values().forEach(list -> list.add("根节点不是对象"));
+            return errors;
+        }
+
+        List<String> summaryErrors = errors.get(SECTION_SUMMARY);
+        JsonNode summary = root.path(SECTION_SUMMARY);
+        if (!summary.isTextual() || summary.asText().trim().isEmpty()) {
+            summaryErrors.add("summary 缺失或为空");
+        }
+        JsonNode signals = root.path("summarySignals");
+        if (!isAbsent(signals)) {
+            if (!signals.isObject()) {
+                summaryErrors.add("summarySignals 不是对象");
+            } else {
+                signals.fields().forEachRemaining(field -> {
+                    if (!field.getValue().isValueNode()) {
+                        summaryErrors.add("summarySignals." + field.getKey() + " 不是标量");
+                    }
+                });
+            }
+        }
+
+        if (!includeGraph) {
+            return errors;
+        }
+
+        List<String> coreErrors = errors.get(SECTION_CORE_STATE);
+        JsonNode core = root.path(SECTION_CORE_STATE);
+        if (!core.isObject()) {
+            coreErrors.add("coreState 缺失或不是对象");
+        } else {
+            JsonNode protagonist = core.path("protagonist");
+            if (!isAbsent(protagonist)) {
+                if (!protagonist.isObject()) {
+                    coreErrors.add("coreState.protagonist 不是对象");
+                } else if (!isAbsent(protagonist.path("inventory")) && !protagonist.path("inventory").isArray()) {
+                    coreErrors.add("coreState.protagonist.inventory 不是数组");
+                }
+            }
+            checkObjectList(core, "keyCharacters", "coreState", coreErrors);
+            JsonNode quests = core.path("questProgress");
+            if (!isAbsent(quests) && !quests.isObject()) {
+                coreErrors.add("coreState.questProgress 不是对象");
+            }
+        }
+
+        List<String> entityErrors = errors.get(SECTION_ENTITIES);
+        JsonNode entities = root.path(SECTION_ENTITIES);
+        if (!entities.isObject()) {
+            entityErrors.add("entities 缺失或不是对象");
+            return errors;
+        }
+        for (String field : ENTITY_OBJECT_LISTS) {
+            checkObjectList(entities, field, "entities", entityErrors);
+            // id 在入图时按字符串读取
+            for (JsonNode item : entities.path(field)) {
+                JsonNode id = item.path("id");
+                if (!isAbsent(id) && !id.isTextual()) {
+                    entityErrors.add("entities." + field + "[].id 不是字符串");
+                    break;
+                }
+            }
+        }
+        for (String field : ENTITY_OBJECTS) {
+            JsonNode node = entities.path(field);
+            if (!isAbsent(node) && !node.isObject()) {
+                entityErrors.add("entities." + field + " 不是对象");
+            } else if (node.isObject() && !isAbsent(node.path("id")) && !node.path("id").isTextual()) {
+                entityErrors.add("entities." + field + ".id 不是字符串");
+            }
+        }
+        for (JsonNode relation : entities.path("causalRelations")) {
+            if (!relation.path("from").isTextual() || !relation.path("to").isTextual()) {
+                entityErrors.add("entities.causalRelations[] 缺少 from/to");
+                break;
+            }
+        }
+        for (JsonNode relation : entities.path("characterRelations")) {
+            if (!relation.path("from").isTextual() || !relation.path("to").isTextual()) {
+                entityErrors.add("entities.characterRelations[] 缺少 from/to");
+                break;
+            }
+            JsonNode strength = relation.path("strength");
+            if (!isAbsent(strength) && !strength.isNumber()) {
+                entityErrors.add("entities.characterRelations[].strength 不是数字");
+                break;
+            }
+        }
+        return errors;
+    }
+
+    private static void checkObjectList(JsonNode parent, String field, String prefix, List<String> errors) {
+        JsonNode node = parent.path(field);
+        if (isAbsent(node)) {
+            return;
+        }
+        if (!node.isArray()) {
+            errors.add(prefix + "." + field + " 不是数组");
+            return;
+        }
+        for (JsonNode item : node) {
+            if (!item.isObject()) {
+                errors.add(prefix + "." + field + " 含非对象元素");
+                return;
+            }
+        }
+    }
+
+    private static boolean isAbsent(JsonNode node) {
+        return node == null || node.isMissingNode() || node.isNull();
+    }
+
+    private void record(Result result) {
+        if (meterRegistry == null) {
+            return;
+        }
+        String outcome = result.isComplete() ? "full"
+            : (result.summaryApplied || result.coreStateApplied || result.entitiesApplied) ? "partial" : "fallback";
+        Counter.builder("agentic.chapter.digest")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * 合并抽取提示词：章节正文只出现一次，四个部分共用
+     */
+    private String buildDigestPrompt(Long novelId, Integer chapterNumber, String title, String content, boolean includeGraph) {
+        StringBuilder sb = new StringBuilder();
+        if (includeGraph) {
+            sb.append(coreStateExtractor.buildKnownStateSection(novelId, chapterNumber));
+        }
+
+        sb.append("请一次性完成本章的剧情摘要").append(includeGraph ? "、核心状态抽取与图谱实体抽取" : "")
+            .append("，输出严格JSON（无多余文字）：\n\n")
+            .append("{\n")
+            .append("  \"summary\": \"150-250字剧情摘要\",\n")
+            .append("  \"summarySignals\": {\"loc\": \"当前位置\", \"realm\": \"境界变动\", \"item\": \"关键物品变动\", \"foreshadow\": \"埋/回收/无\", \"deaths\": \"死亡角色\", \"relChange\": \"关系变动\"}");
+        if (includeGraph) {
+            sb.append(",\n")
+                .append("  \"coreState\": {\n")
+                .append("    \"protagonist\": {\"name\": \"主角名\", \"location\": \"具体地点\", \"realm\": \"境界/实力\", \"inventory\": [\"关键物品\"], \"alive\": true, \"characterInfo\": \"仅正文明确出现的系统数值，否则留空\"},\n")
+                .append("    \"keyCharacters\": [{\"name\": \"优先复用已有角色名（含括号标记）\", \"location\": \"所在地\", \"relation\": \"与主角的身份,情感关系\", \"characterInfo\": \"\"}],\n")
+                .append("    \"questProgress\": {\"任务简称\": \"触发线索/推进/受阻/完成\"}\n")
+                .append("  },\n")
+                .append("  \"entities\": {\n")
+                .append("    \"events\": [{\"id\": \"event_").append(chapterNumber).append("_1\", \"summary\": \"30字内\", \"description\": \"\", \"location\": \"\", \"participants\": [], \"onSceneParticipants\": [], \"mentionedOnlyParticipants\": [], \"emotionalTone\": \"positive/negative/neutral/tense\", \"tags\": [], \"importance\": 0.8}],\n")
+                .append("    \"plotlines\": [{\"id\": \"plotline_主线\", \"name\": \"\", \"priority\": 1.0}],\n")
+                .append("    \"worldRules\": [{\"id\": \"rule_xxx\", \"name\": \"\", \"content\": \"\", \"constraint\": \"\", \"category\": \"power_system/world_setting/character_constraint\", \"importance\": 0.9}],\n")
+                .append("    \"causalRelations\": [{\"from\": \"event_").append(chapterNumber).append("_1\", \"to\": \"event_").append(chapterNumber).append("_2\", \"type\": \"CAUSES\", \"description\": \"\"}],\n")
+                .append("    \"characterRelations\": [{\"from\": \"角色A\", \"to\": \"角色B\", \"type\": \"CONFLICT/COOPERATION/ROMANCE/MENTORSHIP/RIVALRY/FAMILY/SUBORDINATE\", \"strength\": 0.8, \"description\": \"\"}],\n")
+                .append("    \"narrativeBeat\": {\"id\": \"beat_").append(chapterNumber).append("\", \"beatType\": \"CONFLICT/CLIMAX/PLOT/CHARACTER/RELIEF\", \"focus\": \"\", \"tension\": 0.7, \"sentiment\": \"\", \"paceScore\": 0.6, \"viewpoint\": \"\"},\n")
+                .append("    \"conflictArcs\": [{\"id\": \"conflict_arc_").append(chapterNumber).append("\", \"name\": \"\", \"stage\": \"酝酿/爆发/僵持/解决\", \"urgency\": 0.8, \"nextAction\": \"\", \"protagonist\": \"\", \"antagonist\": \"\", \"trend\": \"UP/FLAT/DOWN\"}],\n")
+                .append("    \"characterArcs\": [{\"id\": \"character_arc_").append(chapterNumber).append("\", \"characterName\": \"\", \"arcName\": \"\", \"pendingBeat\": \"\", \"nextGoal\": \"\", \"priority\": 0.7, \"progress\": 2, \"totalBeats\": 5}],\n")
+                .append("    \"perspectiveUsage\": {\"id\": \"perspective_").append(chapterNumber).append("\", \"characterName\": \"\", \"mode\": \"第一人称/第三人称/全知\", \"tone\": \"\", \"purpose\": \"\"}\n")
+                .append("  }\n");
+        } else {
+            sb.append("\n");
+        }
+        sb.append("}\n\n")
+            .append("【summary 要求】\n")
+            .append("- 一段成文，高信息密度：关键的“行为→后果”、本章新增情报、关系/立场变化（若无写“无”）、促使读下一章的悬念。\n")
+            .append("- 不分点、不加标题，不剧透下一章；summarySignals 各项若无则写“无”。\n");
+        if (includeGraph) {
+            sb.append("\n【coreState 要求】\n")
+                .append("- keyCharacters 只收录本章真实出场、有姓名或固定称谓、后续会持续影响剧情的角色，最多3个；已有角色必须复用完全相同的名字。\n")
+                .append("- relation 同时写身份和情感，用逗号分隔；characterInfo 只记录正文明确出现的系统数值，严禁脑补。\n")
+                .append("- questProgress 的 key 用简短稳定的短语（不带 Q- 前缀），推进已有任务时复用原 key；本章完成必须写“完成”或“解决”。\n")
+                .append("- location 必须具体；inventory 只记录武器/宝物/线索物等关键物品。\n")
+                .append("\n【entities 要求】\n")
+                .append("- events 只抽对后续剧情有长期影响的关键事件，每章最多2-3个，importance>=0.7，必须有 location。\n")
+                .append("- 不抽取伏笔；worldRules 只抽新引入的设定；conflictArcs/characterArcs 只列本章推进的弧线。\n")
+                .append("- characterRelations 记录本章重要角色之间的关系（含稳定关系），strength 0-1。\n")
+                .append("- 同一角色在所有字段中使用同一个标准名称；只被提到、不在场的角色不要放入 onSceneParticipants。\n")
+                .append("- 某项不存在时返回空数组或空对象；所有 id 均为字符串。\n");
+        }
+        sb.append("\n---\n")
+            .append("章节标题：").append(title).append("\n")
+            .append("章节号：第").append(chapterNumber).append("章\n")
+            .append("章节内容：\n")
+            .append(content).append("\n")
+            .append("---\n")
+            .append("请输出JSON：");
+        return sb.toString();
+    }
+}
@@ -74,26 +74,8 @@ public class CoreStateExtractor {
             JsonNode root = objectMapper.readTree(extractedJson);
             logger.info("✅ JSON解析成功");
 
-            // 3. 冲突检测（location/realm变化合理性）
-            List<String> conflicts = detectConflicts(novelId, chapterNumber, root);
-            if (!conflicts.isEmpty()) {
-                logger.warn("⚠️ 检测到状态冲突，但仍继续入库（冲突：{}）", String.join("; ", conflicts));
-                // 未来可选：触发用户确认或AI补写桥段
-            }
-
-            // 4. 保存主角状态
-            logger.info("💾 开始保存主角状态...");
-            JsonNode protagonist = root.path("protagonist");
-            saveProtagonistState(novelId, chapterNumber, protagonist);
-
-            // 5. 保存关键配角状态（Top3）+ 关系
-            logger.info("💾 开始保存关键配角状态...");
-            String protagonistName = protagonist.path("name").asText("");
-            saveKeyCharactersState(novelId, chapterNumber, root.path("keyCharacters"), protagonistName);
-
-            // 6. 更新任务推进（自动创建或更新OpenQuest）
-            logger.info("💾 开始更新任务推进...");
-            updateQuestProgress(novelId, chapterNumber, root.path("questProgress"));
+            // 3. 入库
+            applyCoreState(novelId, chapterNumber, root);
 
             logger.info("✅ 核心状态抽取完成: novelId={}, chapter={}", novelId, chapterNumber);
 
@@ -102,6 +84,38 @@ public class CoreStateExtractor {
             // 不抛异常，避免阻塞章节保存
         }
     }
+
+    /**
+     * 将已解析的核心状态（protagonist/keyCharacters/questProgress）写入图谱
+     *
+     * 供章节合并抽取（ChapterDigestService）复用；图谱服务不可用时直接返回
+     */
+    public void applyCoreState(Long novelId, Integer chapterNumber, JsonNode root) {
+        if (graphService == null || root == null) {
+            return;
+        }
+
+        // 冲突检测（location/realm变化合理性）
+        List<String> conflicts = detectConflicts(novelId, chapterNumber, root);
+        if (!conflicts.isEmpty()) {
+            logger.warn("⚠️ 检测到状态冲突，但仍继续入库（冲突：{}）", String.join("; ", conflicts));
+            // 未来可选：触发用户确认或AI补写桥段
+        }
+
+        // 保存主角状态
+        logger.info("💾 开始保存主角状态...");
+        JsonNode protagonist = root.path("protagonist");
+        saveProtagonistState(novelId, chapterNumber, protagonist);
+
+        // 保存关键配角状态（Top3）+ 关系
+        logger.info("💾 开始保存关键配角状态...");
+        String protagonistName = protagonist.path("name").asText("");
+        saveKeyCharactersState(novelId, chapterNumber, root.path("keyCharacters"), protagonistName);
+
+        // 更新任务推进（自动创建或更新OpenQuest）
+        logger.info("💾 开始更新任务推进...");
+        updateQuestProgress(novelId, chapterNumber, root.path("questProgress"));
+    }
     
     /**
      * 调用AI抽取轻量JSON（主角+Top3配角+任务）
@@ -114,23 +128,29 @@ public class CoreStateExtractor {
             "你是信息抽取器。严格返回JSON，不含任何解释或markdown标记。"));
         messages.add(Map.of("role", "user", "content", prompt));
 
-        String result = aiWritingService.generateContentWithMessages(messages, "core_state_extraction", aiConfig);
+        String result = aiWritingService.generateContentWithMessages(messages, "core_state_extraction", aiConfig,
+            response -> isJsonObject(stripCodeFence(response)));
+        return result != null ? stripCodeFence(result) : null;
+    }
 
-        // 清理可能的markdown代码块标记
-        if (result != null) {
-            result = result.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
-        }
+    // 清理可能的markdown代码块标记
+    private static String stripCodeFence(String text) {
+        return text.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
+    }
 
-        return result;
+    private boolean isJsonObject(String json) {
+        try {
+            return objectMapper.readTree(json).isObject();
+        } catch (Exception e) {
+            return false;
+        }
     }
     
     /**
-     * 构建抽取提示词（极简、只抽主角+Top3+任务），并注入已有图谱记忆
+     * 已有角色状态与未决任务提示段，帮助AI做“更新”而不是“新建”（图谱不可用或无数据时为空）
      */
-    private String buildExtractionPrompt(Long novelId, String content, String title, Integer chapterNumber) {
+    String buildKnownStateSection(Long novelId, Integer chapterNumber) {
         StringBuilder sb = new StringBuilder();
-
-        // 注入已有角色状态与未决任务，帮助AI做“更新”而不是“新建”
         if (graphService != null && novelId != null) {
             try {
                 java.util.List<java.util.Map<String, Object>> __charStates = graphService.getCharacterStates(novelId, 200);
@@ -228,6 +248,14 @@ public class CoreStateExtractor {
                 logger.warn("构建核心状态抽取上下文失败（忽略）: {}", e.getMessage());
             }
         }
+        return sb.toString();
+    }
+
+    /**
+     * 构建抽取提示词（极简、只抽主角+Top3+任务），并注入已有图谱记忆
+     */
+    private String buildExtractionPrompt(Long novelId, String content, String title, Integer chapterNumber) {
+        StringBuilder sb = new StringBuilder(buildKnownStateSection(novelId, chapterNumber));
 
         sb.append("从本章抽取核心状态信息，输出严格JSON（无多余文字）：\n\n")
             .append("{\n")
@@ -8,13 +8,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +33,16 @@ public class StoryContextOptimizer {
     private static final double DEFAULT_MIN_IMPORTANCE = 0.35;
     private static final int EARLY_CHAPTER_THRESHOLD = 5;
     private static final int MIN_GRAPH_SIGNAL_COUNT = 3;
+    // 打包前的数量上限：最近概要取最后 10 条，人物档案取前 5 个
+    private static final int MAX_RECENT_SUMMARIES = 10;
+    private static final int MAX_CHARACTER_PROFILES = 5;
+    // 每条目的列表符号、章节号等固定开销
+    private static final int ITEM_OVERHEAD_TOKENS = 6;
+
+    static final String SECTION_EVENTS = "events";
+    static final String SECTION_FORESHADOWS = "foreshadows";
+    static final String SECTION_SUMMARIES = "summaries";
+    static final String SECTION_PROFILES = "profiles";
 
     private final TokenBudget defaultBudget = TokenBudget.builder().build();
 
@@ -61,10 +74,39 @@ public class StoryContextOptimizer {
             return original;
         }
 
-        List<GraphEntity> filteredEvents = filterEntities(original.getRelevantEvents(),
+        List<GraphEntity> eventCandidates = filterEntities(original.getRelevantEvents(),
             defaultBudget.getMaxEvents(), DEFAULT_MIN_IMPORTANCE, true);
-        List<GraphEntity> filteredForeshadows = filterEntities(original.getUnresolvedForeshadows(),
+        List<GraphEntity> foreshadowCandidates = filterEntities(original.getUnresolvedForeshadows(),
             defaultBudget.getMaxForeshadows(), DEFAULT_MIN_IMPORTANCE, false);
+        List<Map<String, Object>> summaryCandidates = limitRecentSummaries(original.getRecentSummaries(), MAX_RECENT_SUMMARIES);
+        List<Map<String, Object>> profileCandidates = collectCharacterProfiles(original.getCharacterProfiles());
+
+        // 事件、伏笔、概要、人物档案共用一个 token 预算，按 得分/token 打包
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < eventCandidates.size(); i++) {
+            GraphEntity event = eventCandidates.get(i);
+            candidates.add(new Candidate(SECTION_EVENTS, i, resolveScore(event), entityTokens(event)));
+        }
+        for (int i = 0; i < foreshadowCandidates.size(); i++) {
+            GraphEntity foreshadow = foreshadowCandidates.get(i);
+            candidates.add(new Candidate(SECTION_FORESHADOWS, i, resolveScore(foreshadow), entityTokens(foreshadow)));
+        }
+        for (int i = 0; i < summaryCandidates.size(); i++) {
+            // 概要按时间正序，越近越重要
+            int age = summaryCandidates.size() - 1 - i;
+            candidates.add(new Candidate(SECTION_SUMMARIES, i, recencyScore(age), mapTokens(summaryCandidates.get(i))));
+        }
+        for (int i = 0; i < profileCandidates.size(); i++) {
+            Map<String, Object> profile = profileCandidates.get(i);
+            candidates.add(new Candidate(SECTION_PROFILES, i, profileScore(profile, i), mapTokens(profile)));
+        }
+        Set<Candidate> packed = pack(candidates, defaultBudget.getMaxPackedContext());
+
+        List<GraphEntity> filteredEvents = selected(eventCandidates, SECTION_EVENTS, packed);
+        List<GraphEntity> filteredForeshadows = selected(foreshadowCandidates, SECTION_FORESHADOWS, packed);
+        List<Map<String, Object>> packedSummaries = selected(summaryCandidates, SECTION_SUMMARIES, packed);
+        List<Map<String, Object>> packedProfiles = selected(profileCandidates, SECTION_PROFILES, packed);
+        reportPacking(candidates, packed);
         List<GraphEntity> filteredConflicts = filterEntities(original.getConflictArcs(), 3, DEFAULT_MIN_IMPORTANCE, false);
         List<GraphEntity> filteredCharacterArcs = filterEntities(original.getCharacterArcs(), 3, DEFAULT_MIN_IMPORTANCE, false);
         List<GraphEntity> filteredPlotlines = filterEntities(original.getPlotlineStatus(), 4, DEFAULT_MIN_IMPORTANCE, false);
@@ -72,8 +114,6 @@ public class StoryContextOptimizer {
         Map<String, Object> coreSummary = buildCoreSummary(filteredEvents, filteredConflicts,
             filteredForeshadows, filteredCharacterArcs, filteredPlotlines, original.getChapterPlan());
 
-        List<Map<String, Object>> characterProfiles = collectCharacterProfiles(original.getCharacterProfiles());
-
         WritingContext optimized = WritingContext.builder()
             .novelInfo(original.getNovelInfo())
             .coreSettings(original.getCoreSettings())
@@ -88,13 +128,13 @@ public class StoryContextOptimizer {
             .characterArcs(filteredCharacterArcs)
             .perspectiveHistory(original.getPerspectiveHistory())
             .recentFullChapters(limitRecentChapters(original.getRecentFullChapters(), defaultBudget.getMaxFullChapters()))
-            .recentSummaries(limitRecentSummaries(original.getRecentSummaries(), 10))
+            .recentSummaries(packedSummaries)
             .innovationIdeas(original.getInnovationIdeas())
             .foreshadowPlan(original.getForeshadowPlan())
             .chapterIntent(original.getChapterIntent())
             .coreNarrativeSummary(coreSummary)
             .prioritizedEvents(filteredEvents)
-            .characterProfiles(original.getCharacterProfiles())
+            .characterProfiles(packedProfiles)
             .characterStates(original.getCharacterStates())
             .relationshipStates(original.getRelationshipStates())
             .openQuests(original.getOpenQuests())
@@ -103,8 +143,9 @@ public class StoryContextOptimizer {
             .thoughts(original.getThoughts())
             .build();
 
-        logger.info("🧩 上下文优化完成: events={}, foreshadows={}, conflicts={}"
-                , filteredEvents.size(), filteredForeshadows.size(), filteredConflicts.size());
+        logger.info("🧩 上下文优化完成: events={}, foreshadows={}, summaries={}, profiles={}, conflicts={}"
+                , filteredEvents.size(), filteredForeshadows.size(), packedSummaries.size(), packedProfiles.size(),
+                filteredConflicts.size());
 
         return optimized;
     }
@@ -169,15 +210,6 @@ public class StoryContextOptimizer {
             .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> limitRecentSummaries(List<Map<String, Object>> summaries, int max) {
-        if (summaries == null || summaries.isEmpty()) {
-            return Collections.emptyList();
-        }
-        return summaries.stream()
-            .skip(Math.max(0, summaries.size() - max))
-            .collect(Collectors.toList());
-    }
-
     private List<GraphEntity> filterEntities(List<GraphEntity> entities, int limit, double minScore, boolean truncateDescription) {
         if (entities == null || entities.isEmpty()) {
             return Collections.emptyList();
@@ -222,6 +254,154 @@ public class StoryContextOptimizer {
             .build();
     }
 
+    /**
+     * 打包：按 得分/token 从高到低贪心装入；若单个最高分条目比贪心结果总分更高则只取它
+     */
+    static Set<Candidate> pack(List<Candidate> candidates, int budget) {
+        List<Candidate> ordered = new ArrayList<>(candidates);
+        ordered.sort(Comparator.comparingDouble(Candidate::density).reversed());
+
+        Set<Candidate> greedy = new LinkedHashSet<>();
+        double greedyScore = 0;
+        int used = 0;
+        for (Candidate candidate : ordered) {
+            if (used + candidate.tokens <= budget) {
+                greedy.add(candidate);
+                used += candidate.tokens;
+                greedyScore += candidate.score;
+            }
+        }
+
+        Candidate best = null;
+        for (Candidate candidate : candidates) {
+            if (candidate.tokens <= budget && (best == null || candidate.score > best.score)) {
+                best = candidate;
+            }
+        }
+        if (best != null && best.score > greedyScore) {
+            return Collections.singleton(best);
+        }
+        return greedy;
+    }
+
+    private <T> List<T> selected(List<T> items, String section, Set<Candidate> packed) {
+        boolean[] keep = new boolean[items.size()];
+        for (Candidate candidate : packed) {
+            if (candidate.section.equals(section)) {
+                keep[candidate.index] = true;
+            }
+        }
+        // 保持原有顺序（事件按得分、概要按时间）
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (keep[i]) {
+                result.add(items.get(i));
+            }
+        }
+        return result;
+    }
+
+    private void reportPacking(List<Candidate> candidates, Set<Candidate> packed) {
+        Map<String, int[]> usage = new LinkedHashMap<>();
+        for (String section : Arrays.asList(SECTION_EVENTS, SECTION_FORESHADOWS, SECTION_SUMMARIES, SECTION_PROFILES)) {
+            usage.put(section, new int[3]);
+        }
+        int total = 0;
+        for (Candidate candidate : candidates) {
+            usage.get(candidate.section)[1]++;
+        }
+        for (Candidate candidate : packed) {
+            int[] stat = usage.get(candidate.section);
+            stat[0]++;
+            stat[2] += candidate.tokens;
+            total += candidate.tokens;
+        }
+        StringBuilder detail = new StringBuilder();
+        usage.forEach((section, stat) -> detail.append(section).append('=').append(stat[0]).append('/').append(stat[1])
+            .append("条 ").append(stat[2]).append("tok; "));
+        logger.info("🧮 上下文打包: {}合计 {}/{} tokens", detail, total, defaultBudget.getMaxPackedContext());
+    }
+
+    private int entityTokens(GraphEntity entity) {
+        return ITEM_OVERHEAD_TOKENS + mapTokens(entity.getProperties());
+    }
+
+    /**
+     * 条目会进入提示词的文本部分的 token 数（数值类评分字段不计）
+     */
+    private int mapTokens(Map<String, Object> values) {
+        if (values == null || values.isEmpty()) {
+            return ITEM_OVERHEAD_TOKENS;
+        }
+        StringBuilder text = new StringBuilder();
+        values.forEach((key, value) -> {
+            if (value != null && !(value instanceof Number) && !(value instanceof Boolean)) {
+                text.append(value).append(' ');
+            }
+        });
+        return ITEM_OVERHEAD_TOKENS + TokenBudget.estimateTokens(text.toString());
+    }
+
+    private double recencyScore(int age) {
+        return Math.max(0.2, Math.pow(0.9, age));
+    }
+
+    private double profileScore(Map<String, Object> profile, int order) {
+        Object importance = profile.get("importanceScore");
+        if (importance == null) {
+            importance = profile.get("importance");
+        }
+        if (importance instanceof Number) {
+            return ((Number) importance).doubleValue();
+        }
+        if (importance instanceof String) {
+            return mapImportance((String) importance);
+        }
+        // 档案按出场频次排序返回，靠前的更重要
+        return Math.max(0.3, 0.8 * Math.pow(0.9, order));
+    }
+
+    private List<Map<String, Object>> limitRecentSummaries(List<Map<String, Object>> summaries, int max) {
+        if (summaries == null || summaries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return summaries.stream()
+            .skip(Math.max(0, summaries.size() - max))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    private List<Map<String, Object>> collectCharacterProfiles(List<Map<String, Object>> profiles) {
+        if (profiles == null || profiles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return profiles.stream()
+            .filter(Objects::nonNull)
+            .limit(MAX_CHARACTER_PROFILES)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 打包候选：所属区块、区块内下标、得分、token 成本
+     */
+    static final class Candidate {
+        final String section;
+        final int index;
+        final double score;
+        final int tokens;
+
+        Candidate(String section, int index, double score, int tokens) {
+            this.section = section;
+            this.index = index;
+            this.score = score;
+            this.tokens = Math.max(1, tokens);
+        }
+
+        double density() {
+            return score / tokens;
+        }
+    }
+
     private double resolveScore(GraphEntity entity) {
         if (entity == null) {
             return 0.0;
@@ -341,16 +521,6 @@ public class StoryContextOptimizer {
         return summary;
     }
 
-    private List<Map<String, Object>> collectCharacterProfiles(List<Map<String, Object>> profiles) {
-        if (profiles == null || profiles.isEmpty()) {
-            return Collections.emptyList();
-        }
-        return profiles.stream()
-            .filter(Objects::nonNull)
-            .limit(5)
-            .collect(Collectors.toList());
-    }
-
     private String formatEventHighlight(GraphEntity entity) {
         if (entity == null || entity.getProperties() == null) {
             return null;
@@ -3,7 +3,11 @@ package com.novel.agentic.service;
 import com.novel.agentic.model.GraphEntity;
 import com.novel.agentic.model.WritingContext;
 import com.novel.agentic.model.TokenBudget;
+import com.novel.ai.prompt.PromptLayout;
+import com.novel.ai.prompt.PromptLayout.Stability;
 import com.novel.domain.entity.Novel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,9 +29,15 @@ public class StructuredMessageBuilder {
     @Autowired
     private PromptAssembler promptAssembler;
 
+    @Autowired
+    private PromptLayout promptLayout;
+
     @Autowired(required = false)
     private com.novel.agentic.service.graph.IGraphService graphService;
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
 
 
     /**
@@ -102,7 +112,8 @@ public class StructuredMessageBuilder {
             String stylePromptFile,
             Long promptTemplateId
     ) {
-        List<Map<String, String>> messages = new ArrayList<>();
+        // 按稳定层级排列：小说级/卷级内容在前构成可缓存前缀，逐章变化的内容在后
+        PromptLayout.Builder layout = promptLayout.builder("intent", novel != null ? novel.getId() : null);
 
         // Message 1: System - 基础写作规则 + 风格
         String systemPrompt = buildSystemPrompt(null, chapterNumber, stylePromptFile, promptTemplateId);
@@ -112,13 +123,13 @@ public class StructuredMessageBuilder {
         }
         logger.info("系统提示词长度: {}字 (使用: {})", systemPrompt.length(),
             stylePromptFile != null ? stylePromptFile : "默认");
-        messages.add(createMessage("user", systemPrompt));
+        layout.add(Stability.NOVEL, "user", systemPrompt);
 
 
 
         // Message 2: 小说基础信息
         String basicInfo = buildBasicInfo(novel, chapterNumber);
-        messages.add(createMessage("system", basicInfo));
+        layout.add(Stability.NOVEL, "system", basicInfo);
 
         // Message 3: 整体大纲（仅做参考，禁止开天眼）
         // 原“核心设定”消息暂时改为输出整体大纲，帮助AI理解全局走向，但不能提前写后面章节内容
@@ -133,36 +144,42 @@ public class StructuredMessageBuilder {
             sb.append("- 不能提前写后面章节才会出现的设定、角色发展、伏笔回收或重大反转；\n");
             sb.append("- 不能凭大纲“开天眼”，一次性剧透或跳跃推进剧情。\n\n");
             sb.append(outline).append("\n");
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.NOVEL, "system", sb.toString());
             logger.info("已添加整体大纲 ({}字)", outline.length());
         } else if (context != null && StringUtils.isNotBlank(context.getCoreSettings())) {
             String core = context.getCoreSettings();
             StringBuilder sb = new StringBuilder();
             sb.append("【核心设定】\n");
             sb.append(core).append("\n");
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.NOVEL, "system", sb.toString());
             logger.info("已添加核心设定作为整体大纲 ({}字)", core.length());
         }
 
-        // Message 4: 卷蓝图（如果有）
+        // Message 4: 卷蓝图（如果有）；卷内进度逐章变化，单独成条放在章节级
         if (context != null) {
             String volumeBlueprint = buildVolumeBlueprintMessage(context);
             if (StringUtils.isNotBlank(volumeBlueprint)) {
-                messages.add(createMessage("system", volumeBlueprint));
+                layout.add(Stability.VOLUME, "system", volumeBlueprint);
                 logger.info("已添加卷蓝图");
             }
+            String volumeProgress = buildVolumeProgressMessage(context);
+            if (StringUtils.isNotBlank(volumeProgress)) {
+                layout.add(Stability.CHAPTER, "system", volumeProgress);
+            }
         }
 
         // Message 5: 最近章节完整内容和概要
         if (context != null) {
-            addRecentChapterMessages(context, messages);
+            List<Map<String, String>> recentMessages = new ArrayList<>();
+            addRecentChapterMessages(context, recentMessages);
+            recentMessages.forEach(msg -> layout.add(Stability.CHAPTER, msg.get("role"), msg.get("content")));
         }
 
         // Message 6: 角色档案（如果有）
         if (context != null) {
             String characters = buildWorldAndCharacters(context);
             if (StringUtils.isNotBlank(characters)) {
-                messages.add(createMessage("system", characters));
+                layout.add(Stability.CHAPTER, "system", characters);
                 logger.info("已添加角色信息");
             }
         }
@@ -179,7 +196,7 @@ public class StructuredMessageBuilder {
         if (context != null) {
             String characterMindmap = buildCharacterMindmap(context);
             if (StringUtils.isNotBlank(characterMindmap)) {
-                messages.add(createMessage("system", characterMindmap));
+                layout.add(Stability.CHAPTER, "system", characterMindmap);
                 logger.info("已添加人物思维导图");
             }
         }
@@ -188,7 +205,7 @@ public class StructuredMessageBuilder {
         if (context != null) {
             String graphContext = buildGraphContextForDirectWriting(context);
             if (StringUtils.isNotBlank(graphContext)) {
-                messages.add(createMessage("system", graphContext));
+                layout.add(Stability.CHAPTER, "system", graphContext);
                 logger.info("已添加图谱上下文");
             }
         }
@@ -218,7 +235,7 @@ public class StructuredMessageBuilder {
                 intentMsg.append("\n");
             }
         }
-        messages.add(createMessage("user", intentMsg.toString()));
+        layout.add(Stability.CHAPTER, "user", intentMsg.toString());
 
 //        //开篇提速
 //        String openingBooster = buildOpeningBooster(chapterNumber);
@@ -231,10 +248,11 @@ public class StructuredMessageBuilder {
         StringBuilder taskDesc = new StringBuilder();
         taskDesc.append("请开始创作第").append(chapterNumber).append("章。 \n");
 //        taskDesc.append("遵循上面的指令,按照前面的上下文信息开始写作,保证逻辑通畅,衔接上一章剧情;如果上一章结尾和【本章创作方向】有出入 还要衔接上章为主 在慢慢按【本章创作方向】去编写;同时需要考虑逻辑性; 不能机械降神 不能引入超脱剧本的支线和设定 按照现有剧情设定去推理。");
-        messages.add(createMessage("user",taskDesc.toString()));
-        //字数限制
+        layout.add(Stability.CHAPTER, "user", taskDesc.toString());
+
+        // 字数限制：硬约束紧跟任务说明，作为最后一条 user 消息（不为前缀缓存前移）
         String wordCountLimit = buildWordCountLimitSimple(novel);
-        messages.add(createMessage("user", wordCountLimit));
+        layout.add(Stability.CHAPTER, "user", wordCountLimit);
 
         // 作者本次特别构思 / 用户调整指令（放在最底部）
         if (context != null && StringUtils.isNotBlank(context.getUserAdjustment())) {
@@ -244,7 +262,7 @@ public class StructuredMessageBuilder {
                 StringBuilder ua = new StringBuilder();
                 ua.append("【作者本次特别构思 / 临时要求】\n");
                 ua.append(context.getUserAdjustment()).append("\n\n");
-                messages.add(createMessage("system", ua.toString()));
+                layout.add(Stability.REQUEST, "system", ua.toString());
                 logger.info("已添加用户调整指令（放在最底部）");
             } else {
                 logger.info("用户调整指令为'开始'，跳过不添加");
@@ -255,31 +273,49 @@ public class StructuredMessageBuilder {
         if (context != null && context.getReferenceContents() != null && !context.getReferenceContents().isEmpty()) {
             String refMessage = buildUserReferenceMessage(context.getReferenceContents());
             if (StringUtils.isNotBlank(refMessage)) {
-                messages.add(createMessage("system", refMessage));
+                layout.add(Stability.REQUEST, "system", refMessage);
                 logger.info("已添加用户关联素材（{}项）", context.getReferenceContents().size());
             }
         }
 
+        List<Map<String, String>> messages = layout.build();
         logger.info("意图驱动写作消息构建完成: 共{}条消息", messages.size());
 
-        // 详细日志
+        // 详细日志（含各消息 token 用量）
+        reportTokenUsage("intent", messages);
+
+        return messages;
+    }
+
+
+
+
+
+    /**
+     * 按消息输出摘要与 token 用量，并汇总整份提示词的 token 数
+     */
+    private void reportTokenUsage(String prompt, List<Map<String, String>> messages) {
+        int total = 0;
         for (int i = 0; i < messages.size(); i++) {
             Map<String, String> msg = messages.get(i);
             String role = msg.get("role");
             String content = msg.get("content");
+            int tokens = TokenBudget.estimateTokens(content);
+            total += tokens;
             String preview = content != null && content.length() > 80
                 ? content.substring(0, 80).replaceAll("\n", " ") + "..."
                 : (content != null ? content.replaceAll("\n", " ") : "null");
-            logger.info("  [Message {}] role={}, 内容摘要: {}", i + 1, role, preview);
+            logger.info("  [Message {}] role={}, tokens={}, 内容摘要: {}", i + 1, role, tokens, preview);
+        }
+        logger.info("📏 提示词token用量: prompt={}, 消息数={}, 合计={} tokens", prompt, messages.size(), total);
+        if (meterRegistry != null) {
+            DistributionSummary.builder("agentic.prompt.tokens")
+                .tag("prompt", prompt)
+                .register(meterRegistry)
+                .record(total);
         }
-
-        return messages;
     }
 
-
-
-
-
     /**
      * 构建简化的字数限制
      * 基于小说配置的每章目标字数（novels.words_per_chapter），若无配置则回退到 2500 字
@@ -340,7 +376,7 @@ public class StructuredMessageBuilder {
         // Message 5: 卷蓝图
         String volume = buildVolumeBlueprintMessage(context);
         if (StringUtils.isNotBlank(volume)) {
-            messages.add(createMessage("system", volume));
+            messages.add(createMessage("system", volume + buildVolumeProgressMessage(context)));
         }
 
         // Message 6: 图谱上下文（事件、伏笔、节奏）
@@ -367,16 +403,8 @@ public class StructuredMessageBuilder {
 
         logger.info("结构化消息构建完成: 共{}条消息", messages.size());
 
-        // 详细日志：输出每条消息的摘要
-        for (int i = 0; i < messages.size(); i++) {
-            Map<String, String> msg = messages.get(i);
-            String role = msg.get("role");
-            String content = msg.get("content");
-            String preview = content != null && content.length() > 80
-                ? content.substring(0, 80).replaceAll("\n", " ") + "..."
-                : (content != null ? content.replaceAll("\n", " ") : "null");
-            logger.info("  [Message {}] role={}, 内容摘要: {}", i + 1, role, preview);
-        }
+        // 详细日志：输出每条消息的摘要与 token 用量
+        reportTokenUsage("legacy", messages);
 
         return messages;
     }
@@ -438,14 +466,20 @@ public class StructuredMessageBuilder {
             sb.append("蓝图摘要：").append(blueprint).append("\n");
         }
 
-        Object progress = volume.get("progressDescription");
-        if (progress != null) {
-            sb.append("当前位置：").append(progress).append("\n");
-        }
-
         return sb.toString();
     }
 
+    /**
+     * 卷内进度（逐章变化，与卷蓝图分开，保证卷蓝图在同卷内逐字节一致）
+     */
+    private String buildVolumeProgressMessage(WritingContext context) {
+        Map<String, Object> volume = context.getVolumeBlueprint();
+        if (volume == null || volume.get("progressDescription") == null) {
+            return "";
+        }
+        return "【本卷进度】\n当前位置：" + volume.get("progressDescription") + "\n";
+    }
+
     /**
      * Message 6: 角色档案（已精简，移除世界规则）
      */
@@ -0,0 +1,363 @@
+package com.novel.agentic.service.graph;
+
+import com.novel.agentic.model.CausalRelation;
+import com.novel.agentic.model.GraphEntity;
+import com.novel.agentic.model.RelationshipStateChange;
+import com.novel.agentic.service.performance.GraphQueryCache;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带缓存的图谱服务（装饰 {@link MySQLGraphService}）
+ *
+ * 查询结果按 小说 + 图谱版本号 + 参数 缓存于 {@link GraphQueryCache}；
+ * 所有写入方法在委托完成后递增该小说的版本号，旧结果随即失效；处于事务中时事务结束后再递增一次。
+ * 返回值为缓存内容的浅拷贝，调用方可以自由排序或裁剪列表。
+ * 统计、全量导出等管理类查询不走缓存。
+ */
+@Service
+@Primary
+public class CachingGraphService implements IGraphService {
+
+    private final MySQLGraphService delegate;
+    private final GraphQueryCache cache;
+
+    public CachingGraphService(MySQLGraphService delegate, GraphQueryCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    // =============================
+    // 查询（缓存）
+    // =============================
+
+    @Override
+    public List<GraphEntity> getRelevantEvents(Long novelId, Integer chapterNumber, Integer limit) {
+        return copy(cache.getOrLoad("relevantEvents", novelId,
+            () -> delegate.getRelevantEvents(novelId, chapterNumber, limit), chapterNumber, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getUnresolvedForeshadows(Long novelId, Integer chapterNumber, Integer limit) {
+        return copy(cache.getOrLoad("unresolvedForeshadows", novelId,
+            () -> delegate.getUnresolvedForeshadows(novelId, chapterNumber, limit), chapterNumber, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getPlotlineStatus(Long novelId, Integer chapterNumber, Integer limit) {
+        return copy(cache.getOrLoad("plotlineStatus", novelId,
+            () -> delegate.getPlotlineStatus(novelId, chapterNumber, limit), chapterNumber, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getWorldRules(Long novelId, Integer chapterNumber, Integer limit) {
+        return copy(cache.getOrLoad("worldRules", novelId,
+            () -> delegate.getWorldRules(novelId, chapterNumber, limit), chapterNumber, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getCharacterRelationships(Long novelId, String characterName, Integer limit) {
+        return copy(cache.getOrLoad("characterRelationships", novelId,
+            () -> delegate.getCharacterRelationships(novelId, characterName, limit), characterName, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getEventsByCharacter(Long novelId, String characterName, Integer chapterNumber, Integer limit) {
+        return copy(cache.getOrLoad("eventsByCharacter", novelId,
+            () -> delegate.getEventsByCharacter(novelId, characterName, chapterNumber, limit),
+            characterName, chapterNumber, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getEventsByCausality(Long novelId, String eventId, Integer depth) {
+        return copy(cache.getOrLoad("eventsByCausality", novelId,
+            () -> delegate.getEventsByCausality(novelId, eventId, depth), eventId, depth));
+    }
+
+    @Override
+    public List<GraphEntity> getConflictHistory(Long novelId, String protagonistName, String antagonistName, Integer limit) {
+        return copy(cache.getOrLoad("conflictHistory", novelId,
+            () -> delegate.getConflictHistory(novelId, protagonistName, antagonistName, limit),
+            protagonistName, antagonistName, limit));
+    }
+
+    @Override
+    public Map<String, Object> getNarrativeRhythmStatus(Long novelId, Integer chapterNumber, Integer window) {
+        Map<String, Object> status = cache.getOrLoad("narrativeRhythm", novelId,
+            () -> delegate.getNarrativeRhythmStatus(novelId, chapterNumber, window), chapterNumber, window);
+        return status != null ? new LinkedHashMap<>(status) : null;
+    }
+
+    @Override
+    public List<GraphEntity> getActiveConflictArcs(Long novelId, Integer chapterNumber, Integer limit) {
+        return copy(cache.getOrLoad("activeConflictArcs", novelId,
+            () -> delegate.getActiveConflictArcs(novelId, chapterNumber, limit), chapterNumber, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getCharacterArcStatus(Long novelId, Integer chapterNumber, Integer limit) {
+        return copy(cache.getOrLoad("characterArcStatus", novelId,
+            () -> delegate.getCharacterArcStatus(novelId, chapterNumber, limit), chapterNumber, limit));
+    }
+
+    @Override
+    public List<GraphEntity> getPerspectiveHistory(Long novelId, Integer chapterNumber, Integer window) {
+        return copy(cache.getOrLoad("perspectiveHistory", novelId,
+            () -> delegate.getPerspectiveHistory(novelId, chapterNumber, window), chapterNumber, window));
+    }
+
+    @Override
+    public List<Map<String, Object>> getCharacterStates(Long novelId, Integer limit) {
+        return copy(cache.getOrLoad("characterStates", novelId,
+            () -> delegate.getCharacterStates(novelId, limit), limit));
+    }
+
+    @Override
+    public List<Map<String, Object>> getTopRelationships(Long novelId, Integer limit) {
+        return copy(cache.getOrLoad("topRelationships", novelId,
+            () -> delegate.getTopRelationships(novelId, limit), limit));
+    }
+
+    @Override
+    public List<Map<String, Object>> getOpenQuests(Long novelId, Integer currentChapter) {
+        return copy(cache.getOrLoad("openQuests", novelId,
+            () -> delegate.getOpenQuests(novelId, currentChapter), currentChapter));
+    }
+
+    @Override
+    public List<GraphEntity> getCharacterProfiles(Long novelId, Integer limit) {
+        return copy(cache.getOrLoad("characterProfiles", novelId,
+            () -> delegate.getCharacterProfiles(novelId, limit), limit));
+    }
+
+    // =============================
+    // 管理类查询（不缓存）
+    // =============================
+
+    @Override
+    public Map<String, Object> getGraphStatistics(Long novelId) {
+        return delegate.getGraphStatistics(novelId);
+    }
+
+    @Override
+    public Map<String, Object> getAllGraphData(Long novelId) {
+        return delegate.getAllGraphData(novelId);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public String getServiceType() {
+        return delegate.getServiceType();
+    }
+
+    // =============================
+    // 写入（完成后递增图谱版本）
+    // =============================
+
+    @Override
+    public void addEntity(Long novelId, GraphEntity entity) {
+        try {
+            delegate.addEntity(novelId, entity);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void addEntities(Long novelId, List<GraphEntity> entities) {
+        try {
+            delegate.addEntities(novelId, entities);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void addRelationship(Long novelId, String fromEntityId, String relationshipType, String toEntityId,
+                                Map<String, Object> properties) {
+        try {
+            delegate.addRelationship(novelId, fromEntityId, relationshipType, toEntityId, properties);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void addCausalRelations(Long novelId, List<CausalRelation> relations) {
+        try {
+            delegate.addCausalRelations(novelId, relations);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertCharacterState(Long novelId, String characterName, String location, String realm,
+                                     Boolean alive, Integer chapterNumber) {
+        try {
+            delegate.upsertCharacterState(novelId, characterName, location, realm, alive, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertCharacterStateWithInfo(Long novelId, String characterName, String location, String realm,
+                                             Boolean alive, String characterInfo, Integer chapterNumber) {
+        try {
+            delegate.upsertCharacterStateWithInfo(novelId, characterName, location, realm, alive, characterInfo, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertCharacterStateComplete(Long novelId, String characterName, Map<String, Object> stateData,
+                                             Integer chapterNumber) {
+        try {
+            delegate.upsertCharacterStateComplete(novelId, characterName, stateData, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void updateCharacterInventory(Long novelId, String characterName, List<String> items, Integer chapterNumber) {
+        try {
+            delegate.updateCharacterInventory(novelId, characterName, items, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertRelationshipState(Long novelId, String characterA, String characterB, String type,
+                                        Double strength, Integer chapterNumber) {
+        try {
+            delegate.upsertRelationshipState(novelId, characterA, characterB, type, strength, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertRelationshipStateComplete(Long novelId, String characterA, String characterB,
+                                                Map<String, Object> relationData, Integer chapterNumber) {
+        try {
+            delegate.upsertRelationshipStateComplete(novelId, characterA, characterB, relationData, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertCharacterStatesComplete(Long novelId, Map<String, Map<String, Object>> states, Integer chapterNumber) {
+        try {
+            delegate.upsertCharacterStatesComplete(novelId, states, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertRelationshipStatesComplete(Long novelId, List<RelationshipStateChange> changes, Integer chapterNumber) {
+        try {
+            delegate.upsertRelationshipStatesComplete(novelId, changes, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void upsertOpenQuest(Long novelId, String questId, String description, String status,
+                                Integer introducedChapter, Integer dueByChapter, Integer lastUpdatedChapter) {
+        try {
+            delegate.upsertOpenQuest(novelId, questId, description, status, introducedChapter, dueByChapter, lastUpdatedChapter);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void resolveOpenQuest(Long novelId, String questId, Integer resolvedChapter) {
+        try {
+            delegate.resolveOpenQuest(novelId, questId, resolvedChapter);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void addSummarySignals(Long novelId, Integer chapterNumber, Map<String, String> signals) {
+        try {
+            delegate.addSummarySignals(novelId, chapterNumber, signals);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void deleteRelationshipState(Long novelId, String characterA, String characterB) {
+        try {
+            delegate.deleteRelationshipState(novelId, characterA, characterB);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void deleteCharacterState(Long novelId, String characterName) {
+        try {
+            delegate.deleteCharacterState(novelId, characterName);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void deleteOpenQuest(Long novelId, String questId) {
+        try {
+            delegate.deleteOpenQuest(novelId, questId);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void clearGraph(Long novelId) {
+        try {
+            delegate.clearGraph(novelId);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    @Override
+    public void deleteChapterEntities(Long novelId, Integer chapterNumber) {
+        try {
+            delegate.deleteChapterEntities(novelId, chapterNumber);
+        } finally {
+            cache.bumpVersion(novelId);
+        }
+    }
+
+    /**
+     * 缓存统计（命中率等）
+     */
+    public Map<String, Object> getCacheStats() {
+        return cache.getStats();
+    }
+
+    private static <T> List<T> copy(List<T> cached) {
+        return cached != null ? new ArrayList<>(cached) : null;
+    }
+}
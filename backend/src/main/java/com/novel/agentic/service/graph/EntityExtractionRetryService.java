@@ -1,5 +1,6 @@
 package com.novel.agentic.service.graph;
 
+import com.novel.ai.client.ProviderConcurrencyLimiter;
 import com.novel.dto.AIConfigRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,13 +84,17 @@ public class EntityExtractionRetryService {
                 return;
             }
             
-            entityExtractionService.extractAndSave(
-                failed.novelId, 
-                failed.chapterNumber, 
-                failed.chapterTitle, 
-                failed.content,
-                failed.aiConfig
-            );
+            // 后台重试，有交互请求排队时让行
+            try (ProviderConcurrencyLimiter.PriorityScope ignored =
+                     ProviderConcurrencyLimiter.withPriority(ProviderConcurrencyLimiter.Priority.BACKGROUND)) {
+                entityExtractionService.extractAndSave(
+                    failed.novelId, 
+                    failed.chapterNumber, 
+                    failed.chapterTitle, 
+                    failed.content,
+                    failed.aiConfig
+                );
+            }
             
             // 成功后移除记录
             String key = failed.novelId + "_" + failed.chapterNumber;
@@ -2,7 +2,9 @@ package com.novel.agentic.service.graph;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.agentic.model.CausalRelation;
 import com.novel.agentic.model.GraphEntity;
+import com.novel.agentic.model.RelationshipStateChange;
 import com.novel.domain.entity.Chapter;
 import com.novel.dto.AIConfigRequest;
 import com.novel.service.AIWritingService;
@@ -69,37 +71,49 @@ public class EntityExtractionService {
             // 2. 解析AI返回的实体
             Map<String, Object> extracted = parseExtractedEntities(aiResponse);
             
-            // 3. 转换为GraphEntity并入图
-            List<GraphEntity> entities = convertToGraphEntities(extracted, novelId, chapterNumber);
+            // 3. 入图
+            int count = applyExtracted(novelId, chapterNumber, extracted);
             
-            logger.info("✅ 抽取到{}个实体", entities.size());
-            
-            // 4. 批量入图
-            graphService.addEntities(novelId, entities);
-            
-            // 🆕 5. 添加因果关系
-            if (extracted.containsKey("causalRelations")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> causalRelations = (List<Map<String, Object>>) extracted.get("causalRelations");
-                addCausalRelations(novelId, causalRelations);
-                logger.info("✅ 添加了{}个因果关系", causalRelations.size());
-            }
-            
-            // 🆕 6. 添加角色关系
-            if (extracted.containsKey("characterRelations")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> characterRelations = (List<Map<String, Object>>) extracted.get("characterRelations");
-                addCharacterRelations(novelId, characterRelations);
-                logger.info("✅ 添加了{}个角色关系", characterRelations.size());
-            }
-            
-            logger.info("🎉 实体抽取完成: novelId={}, chapter={}, count={}", novelId, chapterNumber, entities.size());
+            logger.info("🎉 实体抽取完成: novelId={}, chapter={}, count={}", novelId, chapterNumber, count);
             
         } catch (Exception e) {
             logger.error("❌ 实体抽取失败: chapter={}", chapterNumber, e);
         }
     }
 
+    /**
+     * 将已解析的抽取结果（events/worldRules/causalRelations/characterRelations 等）写入图谱
+     *
+     * 供章节合并抽取（ChapterDigestService）复用，返回入图实体数
+     */
+    public int applyExtracted(Long novelId, Integer chapterNumber, Map<String, Object> extracted) {
+        // 转换为GraphEntity
+        List<GraphEntity> entities = convertToGraphEntities(extracted, novelId, chapterNumber);
+        
+        logger.info("✅ 抽取到{}个实体", entities.size());
+        
+        // 批量入图
+        graphService.addEntities(novelId, entities);
+        
+        // 🆕 添加因果关系
+        if (extracted.get("causalRelations") instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> causalRelations = (List<Map<String, Object>>) extracted.get("causalRelations");
+            addCausalRelations(novelId, causalRelations);
+            logger.info("✅ 添加了{}个因果关系", causalRelations.size());
+        }
+        
+        // 🆕 添加角色关系
+        if (extracted.get("characterRelations") instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> characterRelations = (List<Map<String, Object>>) extracted.get("characterRelations");
+            addCharacterRelations(novelId, characterRelations);
+            logger.info("✅ 添加了{}个角色关系", characterRelations.size());
+        }
+
+        return entities.size();
+    }
+
     /**
      * 批量抽取实体：将多章正文一次性送入AI，返回成功处理的章节号
      */
@@ -552,7 +566,7 @@ public class EntityExtractionService {
     }
     
     /**
-     * 调用AI进行抽取
+     * 调用AI进行抽取（只有能解析出 JSON 对象的响应才会写入响应缓存）
      */
     private String callAIForExtraction(String prompt, AIConfigRequest aiConfig) throws Exception {
         List<Map<String, String>> messages = new ArrayList<>();
@@ -565,9 +579,22 @@ public class EntityExtractionService {
         return aiWritingService.generateContentWithMessages(
             messages, 
             "entity_extraction", 
-            aiConfig
+            aiConfig,
+            this::isStrictJsonObject
         );
     }
+
+    private boolean isStrictJsonObject(String aiResponse) {
+        String s = sanitizeToStrictJson(aiResponse);
+        if (s == null || s.isEmpty()) {
+            return false;
+        }
+        try {
+            return objectMapper.readTree(s).isObject();
+        } catch (Exception e) {
+            return false;
+        }
+    }
     
     /**
      * 解析AI返回的实体
@@ -786,24 +813,24 @@ public class EntityExtractionService {
      * 将AI抽取的事件因果关系添加到Neo4j图谱中
      */
     private void addCausalRelations(Long novelId, List<Map<String, Object>> causalRelations) {
+        List<CausalRelation> relations = new ArrayList<>();
         for (Map<String, Object> relation : causalRelations) {
-            try {
-                String fromEventId = (String) relation.get("from");
-                String toEventId = (String) relation.get("to");
-                String type = (String) relation.getOrDefault("type", "CAUSES");
-                String description = (String) relation.getOrDefault("description", "");
-                
-                Map<String, Object> properties = new HashMap<>();
-                properties.put("description", description);
-                properties.put("type", type);
-                
-                graphService.addRelationship(novelId, fromEventId, type, toEventId, properties);
-                
-                logger.debug("✅ 添加因果关系: {} -[{}]-> {}", fromEventId, type, toEventId);
-                
-            } catch (Exception e) {
-                logger.error("❌ 添加因果关系失败", e);
+            if (relation == null || !(relation.get("from") instanceof String) || !(relation.get("to") instanceof String)) {
+                continue;
             }
+            Object type = relation.get("type");
+            relations.add(new CausalRelation((String) relation.get("from"), (String) relation.get("to"),
+                type instanceof String ? (String) type : "CAUSES"));
+        }
+        if (relations.isEmpty()) {
+            return;
+        }
+        try {
+            // 同一章的因果边一次写入，事件图快照只补丁一次
+            graphService.addCausalRelations(novelId, relations);
+            logger.debug("✅ 添加因果关系: {}条", relations.size());
+        } catch (Exception e) {
+            logger.error("❌ 添加因果关系失败", e);
         }
     }
     
@@ -1056,9 +1083,10 @@ public class EntityExtractionService {
     }
     
     /**
-     * 应用角色状态变化
+     * 应用角色状态变化（整章一次批量写入，批量失败时退回逐条写入）
      */
     private void applyCharacterStateChanges(Long novelId, Integer chapterNumber, List<Map<String, Object>> changes) {
+        Map<String, Map<String, Object>> states = new LinkedHashMap<>();
         for (Map<String, Object> change : changes) {
             try {
                 String name = (String) change.get("name");
@@ -1066,19 +1094,36 @@ public class EntityExtractionService {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> changeData = (Map<String, Object>) change.get("changes");
                 String reason = (String) change.get("reason");
+                if (name == null) {
+                    continue;
+                }
                 
                 logger.info("📝 应用角色状态变化: {} - {} ({})", name, changeType, reason);
                 
-                // 合并变化数据
+                // 合并变化数据；同一角色多次变化时后者覆盖前者
                 Map<String, Object> finalData = mergeCharacterStateChanges(novelId, name, changeData, changeType);
-                
-                // 更新到图谱
-                graphService.upsertCharacterStateComplete(novelId, name, finalData, chapterNumber);
+                states.computeIfAbsent(name, k -> new HashMap<>()).putAll(finalData);
                 
             } catch (Exception e) {
                 logger.error("❌ 应用角色状态变化失败", e);
             }
         }
+        if (states.isEmpty()) {
+            return;
+        }
+        
+        try {
+            graphService.upsertCharacterStatesComplete(novelId, states, chapterNumber);
+        } catch (Exception e) {
+            logger.warn("⚠️ 批量写入角色状态失败，改为逐条写入: {}", e.getMessage());
+            states.forEach((name, data) -> {
+                try {
+                    graphService.upsertCharacterStateComplete(novelId, name, data, chapterNumber);
+                } catch (Exception ex) {
+                    logger.error("❌ 应用角色状态变化失败: {}", name, ex);
+                }
+            });
+        }
     }
     
     /**
@@ -1120,9 +1165,10 @@ public class EntityExtractionService {
     }
     
     /**
-     * 应用关系变化
+     * 应用关系变化（整章一次批量写入，批量失败时退回逐条写入）
      */
     private void applyRelationshipChanges(Long novelId, Integer chapterNumber, List<Map<String, Object>> changes) {
+        List<RelationshipStateChange> relations = new ArrayList<>();
         for (Map<String, Object> change : changes) {
             try {
                 String from = (String) change.get("from");
@@ -1131,15 +1177,33 @@ public class EntityExtractionService {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> changeData = (Map<String, Object>) change.get("changes");
                 String reason = (String) change.get("reason");
+                if (from == null || to == null) {
+                    continue;
+                }
                 
                 logger.info("🤝 应用关系变化: {} ↔ {} - {} ({})", from, to, changeType, reason);
-                
-                // 更新到图谱
-                graphService.upsertRelationshipStateComplete(novelId, from, to, changeData, chapterNumber);
+                relations.add(new RelationshipStateChange(from, to, changeData != null ? changeData : new HashMap<>()));
                 
             } catch (Exception e) {
                 logger.error("❌ 应用关系变化失败", e);
             }
         }
+        if (relations.isEmpty()) {
+            return;
+        }
+        
+        try {
+            graphService.upsertRelationshipStatesComplete(novelId, relations, chapterNumber);
+        } catch (Exception e) {
+            logger.warn("⚠️ 批量写入关系状态失败，改为逐条写入: {}", e.getMessage());
+            for (RelationshipStateChange relation : relations) {
+                try {
+                    graphService.upsertRelationshipStateComplete(novelId, relation.getCharacterA(),
+                        relation.getCharacterB(), relation.getData(), chapterNumber);
+                } catch (Exception ex) {
+                    logger.error("❌ 应用关系变化失败: {} ↔ {}", relation.getCharacterA(), relation.getCharacterB(), ex);
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,434 @@
+package com.novel.agentic.service.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 小说事件图快照（不可变）
+ *
+ * 解决问题：因果链、角色参与事件、冲突历史都是图遍历，逐层回表查询 MySQL 时延随深度和度数线性增长
+ *
+ * 策略：
+ * 1. 事件业务ID、角色名各自驻留为连续整数编号，事件属性按编号存入基本类型数组
+ * 2. 因果边（按无向处理，与原 Neo4j 查询一致）、事件→角色、角色→事件三组邻接均为 CSR 压缩数组，
+ *    角色→事件按章节升序排列
+ * 3. 写入时通过 {@link #toBuilder()} 在内存中补丁生成新快照，不重新查库
+ */
+public final class EventGraphSnapshot {
+
+    private static final Set<String> CONFLICT_TONES = new LinkedHashSet<>(
+        Arrays.asList("tense", "negative", "conflict", "confrontation", "紧张", "负面", "冲突", "对抗"));
+    private static final String[] CONFLICT_TAGS = {"冲突", "战斗", "对抗", "对峙", "conflict"};
+
+    private final Long novelId;
+
+    // 事件：编号 -> 属性
+    private final String[] eventIds;
+    private final Map<String, Integer> eventIndex;
+    private final int[] chapters;
+    private final double[] importance;
+    private final String[] summaries;
+    private final String[] tones;
+    private final String[] tags;
+    private final boolean[] present;
+
+    // 角色：编号 -> 名称
+    private final String[] names;
+    private final Map<String, Integer> nameIndex;
+
+    // 因果邻接（无向）
+    private final int[] causalOffsets;
+    private final int[] causalTargets;
+
+    // 事件 -> 参与角色
+    private final int[] eventOffsets;
+    private final int[] eventNames;
+
+    // 角色 -> 参与事件（按章节升序）
+    private final int[] nameOffsets;
+    private final int[] nameEvents;
+
+    private EventGraphSnapshot(Builder b) {
+        int n = b.eventIds.size();
+        this.novelId = b.novelId;
+        this.eventIds = b.eventIds.toArray(new String[0]);
+        this.eventIndex = new HashMap<>(b.eventIndex);
+        this.chapters = new int[n];
+        this.importance = new double[n];
+        this.summaries = new String[n];
+        this.tones = new String[n];
+        this.tags = new String[n];
+        this.present = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Node node = b.nodes.get(i);
+            chapters[i] = node.chapter;
+            importance[i] = node.importance;
+            summaries[i] = node.summary;
+            tones[i] = node.tone;
+            tags[i] = node.tags;
+            present[i] = node.present;
+        }
+        this.names = b.names.toArray(new String[0]);
+        this.nameIndex = new HashMap<>(b.nameIndex);
+
+        // 因果边：每条无向边在两端各记一次
+        this.causalOffsets = new int[n + 1];
+        for (long edge : b.edges) {
+            causalOffsets[(int) (edge >>> 32) + 1]++;
+            causalOffsets[(int) edge + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            causalOffsets[i + 1] += causalOffsets[i];
+        }
+        this.causalTargets = new int[causalOffsets[n]];
+        int[] cursor = Arrays.copyOf(causalOffsets, n);
+        for (long edge : b.edges) {
+            int from = (int) (edge >>> 32);
+            int to = (int) edge;
+            causalTargets[cursor[from]++] = to;
+            causalTargets[cursor[to]++] = from;
+        }
+
+        // 事件 -> 角色
+        this.eventOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Set<Integer> members = b.participants.get(i);
+            eventOffsets[i + 1] = eventOffsets[i] + (members != null ? members.size() : 0);
+        }
+        this.eventNames = new int[eventOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            Set<Integer> members = b.participants.get(i);
+            if (members != null) {
+                int k = eventOffsets[i];
+                for (int name : members) {
+                    eventNames[k++] = name;
+                }
+            }
+        }
+
+        // 角色 -> 事件：按章节顺序遍历事件填充，各角色的区段天然有序
+        int m = names.length;
+        this.nameOffsets = new int[m + 1];
+        for (int name : eventNames) {
+            nameOffsets[name + 1]++;
+        }
+        for (int i = 0; i < m; i++) {
+            nameOffsets[i + 1] += nameOffsets[i];
+        }
+        this.nameEvents = new int[nameOffsets[m]];
+        int[] nameCursor = Arrays.copyOf(nameOffsets, m);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> chapters[x] != chapters[y] ? Integer.compare(chapters[x], chapters[y]) : Integer.compare(x, y));
+        for (int event : order) {
+            for (int k = eventOffsets[event]; k < eventOffsets[event + 1]; k++) {
+                nameEvents[nameCursor[eventNames[k]]++] = event;
+            }
+        }
+    }
+
+    public static Builder builder(Long novelId) {
+        return new Builder(novelId);
+    }
+
+    /**
+     * 以当前快照为基础的构建器（用于增量补丁）
+     */
+    public Builder toBuilder() {
+        Builder b = new Builder(novelId);
+        for (String name : names) {
+            b.internName(name);
+        }
+        for (int i = 0; i < eventIds.length; i++) {
+            Node node = b.node(eventIds[i]);
+            node.chapter = chapters[i];
+            node.importance = importance[i];
+            node.summary = summaries[i];
+            node.tone = tones[i];
+            node.tags = tags[i];
+            node.present = present[i];
+        }
+        for (int i = 0; i < eventIds.length; i++) {
+            for (int k = causalOffsets[i]; k < causalOffsets[i + 1]; k++) {
+                if (causalTargets[k] > i) {
+                    b.edges.add(pack(i, causalTargets[k]));
+                }
+            }
+            if (eventOffsets[i + 1] > eventOffsets[i]) {
+                Set<Integer> members = new LinkedHashSet<>();
+                for (int k = eventOffsets[i]; k < eventOffsets[i + 1]; k++) {
+                    members.add(eventNames[k]);
+                }
+                b.participants.set(i, members);
+            }
+        }
+        return b;
+    }
+
+    /**
+     * 一跳因果关联
+     */
+    public static final class Hop {
+        private final int event;
+        private final int distance;
+
+        Hop(int event, int distance) {
+            this.event = event;
+            this.distance = distance;
+        }
+
+        public int getEvent() {
+            return event;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * 从指定事件出发沿因果边广度优先遍历，返回 depth 步内的事件（不含起点），按距离升序
+     */
+    public List<Hop> causalChain(String eventId, int depth) {
+        Integer start = eventId != null ? eventIndex.get(eventId) : null;
+        if (start == null || depth <= 0 || causalOffsets[start + 1] == causalOffsets[start]) {
+            return Collections.emptyList();
+        }
+        int n = eventIds.length;
+        int[] distance = new int[n];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        distance[start] = 0;
+        queue[tail++] = start;
+        List<Hop> hops = new ArrayList<>();
+        while (head < tail) {
+            int current = queue[head++];
+            if (distance[current] >= depth) {
+                continue;
+            }
+            for (int k = causalOffsets[current]; k < causalOffsets[current + 1]; k++) {
+                int next = causalTargets[k];
+                if (distance[next] < 0) {
+                    distance[next] = distance[current] + 1;
+                    queue[tail++] = next;
+                    if (present[next]) {
+                        hops.add(new Hop(next, distance[next]));
+                    }
+                }
+            }
+        }
+        return hops;
+    }
+
+    /**
+     * 角色参与的事件编号，按章节升序
+     */
+    public int[] eventsOf(String name) {
+        Integer index = name != null ? nameIndex.get(name) : null;
+        if (index == null) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(nameEvents, nameOffsets[index], nameOffsets[index + 1]);
+    }
+
+    /**
+     * 角色是否参与了指定事件
+     */
+    public boolean participates(int event, String name) {
+        Integer index = name != null ? nameIndex.get(name) : null;
+        if (index == null) {
+            return false;
+        }
+        for (int k = eventOffsets[event]; k < eventOffsets[event + 1]; k++) {
+            if (eventNames[k] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 事件是否带有冲突性质（情绪基调或标签）
+     */
+    public boolean isConflict(int event) {
+        return isConflict(tones[event], tags[event]);
+    }
+
+    static boolean isConflict(String tone, String tags) {
+        if (tone != null && CONFLICT_TONES.contains(tone.trim().toLowerCase())) {
+            return true;
+        }
+        if (tags != null) {
+            for (String tag : CONFLICT_TAGS) {
+                if (tags.contains(tag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public Long getNovelId() {
+        return novelId;
+    }
+
+    public int eventCount() {
+        return eventIds.length;
+    }
+
+    public int causalEdgeCount() {
+        return causalTargets.length / 2;
+    }
+
+    public int participantCount() {
+        return eventNames.length;
+    }
+
+    /**
+     * 事件是否已写入（仅被因果边引用的事件为占位节点）
+     */
+    public boolean isPresent(int event) {
+        return present[event];
+    }
+
+    public String eventId(int event) {
+        return eventIds[event];
+    }
+
+    public int chapter(int event) {
+        return chapters[event];
+    }
+
+    public double importance(int event) {
+        return importance[event];
+    }
+
+    public String summary(int event) {
+        return summaries[event];
+    }
+
+    private static long pack(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        return ((long) low << 32) | (high & 0xffffffffL);
+    }
+
+    private static final class Node {
+        int chapter;
+        double importance = 0.5;
+        String summary;
+        String tone;
+        String tags;
+        boolean present;
+    }
+
+    /**
+     * 快照构建器；同一事件多次写入时空值不覆盖已有属性（与表的 upsert 语义一致）
+     */
+    public static final class Builder {
+        private final Long novelId;
+        private final List<String> eventIds = new ArrayList<>();
+        private final Map<String, Integer> eventIndex = new HashMap<>();
+        private final List<Node> nodes = new ArrayList<>();
+        private final List<Set<Integer>> participants = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> nameIndex = new HashMap<>();
+        private final Set<Long> edges = new LinkedHashSet<>();
+
+        private Builder(Long novelId) {
+            this.novelId = novelId;
+        }
+
+        public Builder event(String eventId, Integer chapterNumber, Double importance,
+                             String summary, String emotionalTone, String tags) {
+            if (eventId == null) {
+                return this;
+            }
+            Node node = node(eventId);
+            node.present = true;
+            if (chapterNumber != null) {
+                node.chapter = chapterNumber;
+            }
+            if (importance != null) {
+                node.importance = importance;
+            }
+            if (summary != null) {
+                node.summary = summary;
+            }
+            if (emotionalTone != null) {
+                node.tone = emotionalTone;
+            }
+            if (tags != null) {
+                node.tags = tags;
+            }
+            return this;
+        }
+
+        /**
+         * 替换事件的参与角色
+         */
+        public Builder participants(String eventId, Collection<String> characterNames) {
+            if (eventId == null || characterNames == null) {
+                return this;
+            }
+            node(eventId);
+            int event = eventIndex.get(eventId);
+            Set<Integer> members = new LinkedHashSet<>();
+            for (String name : characterNames) {
+                if (name != null && !name.trim().isEmpty()) {
+                    members.add(internName(name.trim()));
+                }
+            }
+            participants.set(event, members.isEmpty() ? null : members);
+            return this;
+        }
+
+        public Builder causal(String fromEventId, String toEventId) {
+            if (fromEventId == null || toEventId == null || fromEventId.equals(toEventId)) {
+                return this;
+            }
+            node(fromEventId);
+            node(toEventId);
+            edges.add(pack(eventIndex.get(fromEventId), eventIndex.get(toEventId)));
+            return this;
+        }
+
+        public EventGraphSnapshot build() {
+            return new EventGraphSnapshot(this);
+        }
+
+        private Node node(String eventId) {
+            Integer index = eventIndex.get(eventId);
+            if (index != null) {
+                return nodes.get(index);
+            }
+            eventIndex.put(eventId, eventIds.size());
+            eventIds.add(eventId);
+            Node node = new Node();
+            nodes.add(node);
+            participants.add(null);
+            return node;
+        }
+
+        private int internName(String name) {
+            Integer index = nameIndex.get(name);
+            if (index != null) {
+                return index;
+            }
+            nameIndex.put(name, names.size());
+            names.add(name);
+            return names.size() - 1;
+        }
+    }
+}
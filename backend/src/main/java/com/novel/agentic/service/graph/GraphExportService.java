@@ -0,0 +1,431 @@
+package com.novel.agentic.service.graph;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.agentic.entity.graph.GraphCharacterState;
+import com.novel.agentic.entity.graph.GraphEvent;
+import com.novel.agentic.entity.graph.GraphOpenQuest;
+import com.novel.agentic.entity.graph.GraphRelationshipState;
+import com.novel.agentic.mapper.GraphCharacterStateMapper;
+import com.novel.agentic.mapper.GraphEventMapper;
+import com.novel.agentic.mapper.GraphOpenQuestMapper;
+import com.novel.agentic.mapper.GraphRelationshipStateMapper;
+import org.apache.ibatis.session.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 图谱数据流式导出
+ *
+ * 解决问题：图谱管理页一次性加载全部事件、角色与任务并组装成 Map 后再序列化，长篇小说响应体巨大、堆占用陡增
+ *
+ * 策略：
+ * 1. 按分区（角色状态、关系状态、OPEN 状态的任务、事件）依次导出，每个分区按 (章节, id) 键集分页，游标形如 events:12:3456；
+ *    章节为空的行单独成段（升序在最前、降序在最后），段内游标形如 events::3456
+ * 2. 行由 MyBatis ResultHandler 逐行交出，直接写入 Jackson JsonGenerator，不在内存中组装整页数据
+ * 3. 一页最多 limit 行，可跨分区；首页附带各分区总数，nextCursor 为空表示导出完毕
+ */
+@Service
+public class GraphExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphExportService.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private GraphCharacterStateMapper characterStateMapper;
+
+    @Autowired
+    private GraphRelationshipStateMapper relationshipStateMapper;
+
+    @Autowired
+    private GraphOpenQuestMapper openQuestMapper;
+
+    @Autowired
+    private GraphEventMapper eventMapper;
+
+    @Value("${graph.export.default-page-size:500}")
+    private int defaultPageSize = 500;
+
+    @Value("${graph.export.max-page-size:5000}")
+    private int maxPageSize = 5000;
+
+    private final Map<Section, SectionSource<?>> sources = new EnumMap<>(Section.class);
+
+    /**
+     * 导出分区（顺序即导出顺序）
+     */
+    public enum Section {
+        CHARACTER_STATES("characterStates"),
+        RELATIONSHIP_STATES("relationshipStates"),
+        OPEN_QUESTS("openQuests"),
+        EVENTS("events");
+
+        private final String key;
+
+        Section(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public static Section of(String key) {
+            for (Section section : values()) {
+                if (section.key.equalsIgnoreCase(key.trim())) {
+                    return section;
+                }
+            }
+            throw new IllegalArgumentException("未知的图谱分区: " + key);
+        }
+    }
+
+    /**
+     * 键集游标：分区 + 上一页最后一行的 (章节, id)，章节为空时留空；只有分区时表示从该分区开头导出
+     */
+    public static final class Cursor {
+        private final Section section;
+        private final Integer chapter;
+        private final Long id;
+
+        Cursor(Section section, Integer chapter, Long id) {
+            this.section = section;
+            this.chapter = chapter;
+            this.id = id;
+        }
+
+        public static Cursor parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            String[] parts = value.trim().split(":");
+            if (parts.length != 1 && parts.length != 3) {
+                throw new IllegalArgumentException("无效的导出游标: " + value);
+            }
+            Section section = Section.of(parts[0]);
+            if (parts.length == 1) {
+                return new Cursor(section, null, null);
+            }
+            try {
+                Integer chapter = parts[1].isEmpty() ? null : Integer.parseInt(parts[1]);
+                return new Cursor(section, chapter, Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的导出游标: " + value);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return id == null ? section.key : section.key + ":" + (chapter != null ? chapter : "") + ":" + id;
+        }
+    }
+
+    /**
+     * 校验后的导出请求
+     */
+    public static final class ExportRequest {
+        private final Long novelId;
+        private final List<Section> sections;
+        private final Cursor cursor;
+        private final int limit;
+        private final boolean descending;
+
+        ExportRequest(Long novelId, List<Section> sections, Cursor cursor, int limit, boolean descending) {
+            this.novelId = novelId;
+            this.sections = sections;
+            this.cursor = cursor;
+            this.limit = limit;
+            this.descending = descending;
+        }
+    }
+
+    /**
+     * 分区的分页查询（与各 Mapper 的 streamPage 签名一致）
+     */
+    @FunctionalInterface
+    interface PageQuery<T> {
+        void stream(Long novelId, Integer afterChapter, Long afterId, boolean descending, int limit, ResultHandler<T> handler);
+    }
+
+    @FunctionalInterface
+    interface RowWriter<T> {
+        void write(JsonGenerator json, T row) throws IOException;
+    }
+
+    private static final class SectionSource<T> {
+        final PageQuery<T> query;
+        final Function<T, Integer> chapter;
+        final Function<T, Long> id;
+        final RowWriter<T> writer;
+        final Function<Long, Integer> counter;
+
+        SectionSource(PageQuery<T> query, Function<T, Integer> chapter, Function<T, Long> id,
+                      RowWriter<T> writer, Function<Long, Integer> counter) {
+            this.query = query;
+            this.chapter = chapter;
+            this.id = id;
+            this.writer = writer;
+            this.counter = counter;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        register(Section.CHARACTER_STATES, characterStateMapper::streamPage,
+            GraphCharacterState::getLastUpdatedChapter, GraphCharacterState::getId,
+            this::writeCharacterState, characterStateMapper::countByNovelId);
+        register(Section.RELATIONSHIP_STATES, relationshipStateMapper::streamPage,
+            GraphRelationshipState::getLastUpdatedChapter, GraphRelationshipState::getId,
+            this::writeRelationshipState, relationshipStateMapper::countByNovelId);
+        register(Section.OPEN_QUESTS, openQuestMapper::streamPage,
+            GraphOpenQuest::getIntroducedChapter, GraphOpenQuest::getId,
+            this::writeOpenQuest, openQuestMapper::countByNovelId);
+        register(Section.EVENTS, eventMapper::streamPage,
+            GraphEvent::getChapterNumber, GraphEvent::getId,
+            this::writeEvent, eventMapper::countByNovelId);
+    }
+
+    <T> void register(Section section, PageQuery<T> query, Function<T, Integer> chapter, Function<T, Long> id,
+                      RowWriter<T> writer, Function<Long, Integer> counter) {
+        sources.put(section, new SectionSource<>(query, chapter, id, writer, counter));
+    }
+
+    /**
+     * 校验导出参数；参数非法时抛出 IllegalArgumentException（在开始写响应之前）
+     *
+     * @param types 逗号分隔的分区，空表示全部
+     * @param cursor 上一页返回的 nextCursor，空表示第一页
+     * @param limit 每页行数，空时取默认值，超过上限时截断
+     * @param order asc / desc（按章节）
+     */
+    public ExportRequest prepare(Long novelId, String types, String cursor, Integer limit, String order) {
+        if (novelId == null) {
+            throw new IllegalArgumentException("缺少必需参数: novelId");
+        }
+        List<Section> sections = new ArrayList<>();
+        if (types == null || types.trim().isEmpty()) {
+            for (Section section : Section.values()) {
+                sections.add(section);
+            }
+        } else {
+            for (String type : types.split(",")) {
+                if (!type.trim().isEmpty()) {
+                    Section section = Section.of(type);
+                    if (!sections.contains(section)) {
+                        sections.add(section);
+                    }
+                }
+            }
+            sections.sort(null);
+        }
+        Cursor parsed = Cursor.parse(cursor);
+        if (parsed != null) {
+            if (!sections.contains(parsed.section)) {
+                throw new IllegalArgumentException("游标分区不在导出范围内: " + cursor);
+            }
+            sections = new ArrayList<>(sections.subList(sections.indexOf(parsed.section), sections.size()));
+        }
+        int pageSize = limit != null && limit > 0 ? Math.min(limit, Math.max(1, maxPageSize)) : defaultPageSize;
+        boolean descending = "desc".equalsIgnoreCase(order);
+        return new ExportRequest(novelId, sections, parsed, pageSize, descending);
+    }
+
+    /**
+     * 按请求把一页数据流式写入 out
+     */
+    public void write(ExportRequest request, OutputStream out) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        int written = 0;
+        String nextCursor = null;
+
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartObject();
+        json.writeStringField("status", "success");
+        json.writeNumberField("novelId", request.novelId);
+        json.writeStringField("order", request.descending ? "desc" : "asc");
+        if (request.cursor == null) {
+            json.writeObjectFieldStart("totals");
+            for (Section section : request.sections) {
+                json.writeNumberField(section.key, source(section).counter.apply(request.novelId));
+            }
+            json.writeEndObject();
+        }
+
+        json.writeObjectFieldStart("data");
+        for (Section section : request.sections) {
+            if (written >= request.limit) {
+                nextCursor = section.key;
+                break;
+            }
+            Cursor from = request.cursor != null && request.cursor.section == section ? request.cursor : null;
+            SectionPage page = writeSection(json, section, source(section), request, from, request.limit - written);
+            written += page.written;
+            if (page.more) {
+                // 本页已写满：从本页最后一行之后继续；本页未写入该分区任何行时沿用原游标
+                nextCursor = page.id != null
+                    ? new Cursor(section, page.chapter, page.id).toString()
+                    : (from != null ? from.toString() : section.key);
+                break;
+            }
+        }
+        json.writeEndObject();
+
+        json.writeNumberField("count", written);
+        if (nextCursor != null) {
+            json.writeStringField("nextCursor", nextCursor);
+        } else {
+            json.writeNullField("nextCursor");
+        }
+        json.writeEndObject();
+        json.flush();
+
+        logger.info("📤 图谱导出: novelId={}, sections={}, cursor={}, {}行, next={}, {}ms",
+            request.novelId, request.sections.size(), request.cursor, written, nextCursor,
+            System.currentTimeMillis() - startedAt);
+    }
+
+    private static final class SectionPage {
+        int written;
+        boolean more;
+        Integer chapter;
+        Long id;
+    }
+
+    /**
+     * 写出一个分区的数组；多取一行用于判断该分区是否还有剩余
+     */
+    private <T> SectionPage writeSection(JsonGenerator json, Section section, SectionSource<T> source,
+                                         ExportRequest request, Cursor from, int remaining) throws IOException {
+        SectionPage page = new SectionPage();
+        json.writeArrayFieldStart(section.key);
+        try {
+            source.query.stream(request.novelId, from != null ? from.chapter : null, from != null ? from.id : null,
+                request.descending, remaining + 1, context -> {
+                    T row = context.getResultObject();
+                    if (page.written >= remaining) {
+                        page.more = true;
+                        context.stop();
+                        return;
+                    }
+                    try {
+                        source.writer.write(json, row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    page.written++;
+                    page.chapter = source.chapter.apply(row);
+                    page.id = source.id.apply(row);
+                });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.writeEndArray();
+        return page;
+    }
+
+    private SectionSource<?> source(Section section) {
+        SectionSource<?> source = sources.get(section);
+        if (source == null) {
+            throw new IllegalStateException("图谱分区未注册: " + section);
+        }
+        return source;
+    }
+
+    private static Integer chapterKey(Integer chapter) {
+        return chapter != null ? chapter : 0;
+    }
+
+    // =============================
+    // 行格式（与 getAllGraphData 的字段保持一致）
+    // =============================
+
+    private void writeCharacterState(JsonGenerator json, GraphCharacterState state) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", state.getCharacterName());
+        json.writeStringField("location", state.getLocation() != null ? state.getLocation() : "");
+        json.writeStringField("realm", state.getRealm() != null ? state.getRealm() : "");
+        json.writeBooleanField("alive", state.getAlive() != null ? state.getAlive() : true);
+        json.writeStringField("characterInfo", state.getCharacterInfo() != null ? state.getCharacterInfo() : "");
+        json.writeNumberField("lastChapter", chapterKey(state.getLastUpdatedChapter()));
+        writeJsonArray(json, "inventory", state.getInventory());
+        json.writeEndObject();
+    }
+
+    private void writeRelationshipState(JsonGenerator json, GraphRelationshipState rel) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("a", rel.getCharacterA());
+        json.writeStringField("b", rel.getCharacterB());
+        json.writeStringField("type", rel.getType() != null ? rel.getType() : "");
+        json.writeNumberField("strength", rel.getStrength() != null ? rel.getStrength() : 0.5);
+        json.writeNumberField("lastChapter", chapterKey(rel.getLastUpdatedChapter()));
+        json.writeEndObject();
+    }
+
+    private void writeOpenQuest(JsonGenerator json, GraphOpenQuest quest) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", quest.getQuestId());
+        json.writeStringField("description", quest.getDescription() != null ? quest.getDescription() : "");
+        json.writeStringField("status", quest.getStatus() != null ? quest.getStatus() : "OPEN");
+        json.writeNumberField("introduced", chapterKey(quest.getIntroducedChapter()));
+        json.writeNumberField("due", chapterKey(quest.getDueByChapter()));
+        json.writeNumberField("lastUpdated", chapterKey(quest.getLastUpdatedChapter()));
+        json.writeEndObject();
+    }
+
+    private void writeEvent(JsonGenerator json, GraphEvent event) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", event.getEventId());
+        json.writeStringField("summary", event.getSummary());
+        if (event.getChapterNumber() != null) {
+            json.writeNumberField("chapter", event.getChapterNumber());
+        } else {
+            json.writeNullField("chapter");
+        }
+        if (event.getImportance() != null) {
+            json.writeNumberField("importance", event.getImportance());
+        } else {
+            json.writeNullField("importance");
+        }
+        json.writeStringField("emotionalTone", event.getEmotionalTone());
+        writeJsonArray(json, "tags", event.getTags());
+        json.writeStringField("description", event.getDescription());
+        json.writeStringField("location", event.getLocation());
+        json.writeEndObject();
+    }
+
+    /**
+     * 库中以 JSON 字符串保存的数组字段；无法解析时输出空数组
+     */
+    private void writeJsonArray(JsonGenerator json, String field, String raw) throws IOException {
+        json.writeFieldName(field);
+        if (raw != null && !raw.isEmpty()) {
+            try {
+                JsonNode node = objectMapper.readTree(raw);
+                if (node != null && node.isArray()) {
+                    json.writeTree(node);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.debug("图谱导出跳过无法解析的数组字段: {}={}", field, raw);
+            }
+        }
+        json.writeStartArray();
+        json.writeEndArray();
+    }
+}
@@ -1,6 +1,8 @@
 package com.novel.agentic.service.graph;
 
+import com.novel.agentic.model.CausalRelation;
 import com.novel.agentic.model.GraphEntity;
+import com.novel.agentic.model.RelationshipStateChange;
 
 import java.util.List;
 import java.util.Map;
@@ -159,7 +161,7 @@ public interface IGraphService {
     void addEntity(Long novelId, GraphEntity entity);
     
     /**
-     * 批量添加实体
+     * 批量添加实体（按类型分组，每组一条多行写入）
      * 
      * @param novelId 小说ID
      * @param entities 实体列表
@@ -177,6 +179,14 @@ public interface IGraphService {
      */
     void addRelationship(Long novelId, String fromEntityId, String relationshipType, String toEntityId, Map<String, Object> properties);
 
+    /**
+     * 批量添加同一章的事件因果关系（多行写入，事件图快照只补丁一次）
+     *
+     * @param novelId 小说ID
+     * @param relations 因果关系列表
+     */
+    void addCausalRelations(Long novelId, List<CausalRelation> relations);
+
     // 🆕 核心记忆账本写入（受控管道，不接受AI自由写入）
     void upsertCharacterState(Long novelId, String characterName, String location, String realm, Boolean alive, Integer chapterNumber);
     void upsertCharacterStateWithInfo(Long novelId, String characterName, String location, String realm, Boolean alive, String characterInfo, Integer chapterNumber);
@@ -184,6 +194,18 @@ public interface IGraphService {
     void updateCharacterInventory(Long novelId, String characterName, List<String> items, Integer chapterNumber);
     void upsertRelationshipState(Long novelId, String characterA, String characterB, String type, Double strength, Integer chapterNumber);
     void upsertRelationshipStateComplete(Long novelId, String characterA, String characterB, Map<String, Object> relationData, Integer chapterNumber);
+
+    /**
+     * 批量写入同一章的角色状态，语义与逐条调用 upsertCharacterStateComplete 相同
+     *
+     * @param states 角色名 -> 状态数据（按写入顺序）
+     */
+    void upsertCharacterStatesComplete(Long novelId, Map<String, Map<String, Object>> states, Integer chapterNumber);
+
+    /**
+     * 批量写入同一章的关系状态，语义与按顺序逐条调用 upsertRelationshipStateComplete 相同
+     */
+    void upsertRelationshipStatesComplete(Long novelId, List<RelationshipStateChange> changes, Integer chapterNumber);
     void upsertOpenQuest(Long novelId, String questId, String description, String status, Integer introducedChapter, Integer dueByChapter, Integer lastUpdatedChapter);
     void resolveOpenQuest(Long novelId, String questId, Integer resolvedChapter);
     void addSummarySignals(Long novelId, Integer chapterNumber, Map<String, String> signals);
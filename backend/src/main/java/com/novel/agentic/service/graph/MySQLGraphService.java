@@ -5,27 +5,47 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.novel.agentic.entity.graph.*;
 import com.novel.agentic.mapper.*;
+import com.novel.agentic.model.CausalRelation;
 import com.novel.agentic.model.GraphEntity;
+import com.novel.agentic.model.RelationshipStateChange;
+import com.novel.agentic.service.graph.NovelGraphTables.Segment;
+import com.novel.agentic.service.performance.EventGraphIndex;
+import com.novel.agentic.service.performance.GraphMemoryTier;
+import com.novel.agentic.service.performance.NarrativeLedgerIndex;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Primary;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * MySQL 图数据库服务实现
  * 
- * 替代Neo4j实现，使用MySQL关系型数据库存储图谱数据
+ * 替代Neo4j实现，使用MySQL关系型数据库存储图谱数据；
+ * 业务代码通过 {@link CachingGraphService}（@Primary）访问
+ *
+ * 批量写入（实体、角色状态、关系状态）按表分组，每组一条多行 INSERT ... ON DUPLICATE KEY UPDATE，
+ * 依赖各表 (novel_id, 业务ID) 唯一键；空值不覆盖已有字段，与逐条 updateById 的语义一致
+ *
+ * 因果链、角色事件、冲突历史在 {@link EventGraphSnapshot} 上遍历，快照由 {@link EventGraphIndex} 缓存并随写入增量补丁；
+ * 其余读取优先由 {@link GraphMemoryTier} 中按表加载的 {@link NovelGraphTables} 在内存中完成，写入后按表失效；
+ * 叙事节奏与视角查询在 {@link NarrativeLedger} 的窗口聚合上完成，账本由 {@link NarrativeLedgerIndex} 缓存并随每章入库增量更新
  */
 @Service
-@Primary
 public class MySQLGraphService implements IGraphService {
     
     private static final Logger logger = LoggerFactory.getLogger(MySQLGraphService.class);
+    private static final int MAX_CAUSAL_DEPTH = 6;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     @Autowired
@@ -49,6 +69,44 @@ public class MySQLGraphService implements IGraphService {
     @Autowired
     private GraphWorldRuleMapper worldRuleMapper;
     
+    @Autowired
+    private GraphEventParticipantMapper participantMapper;
+    
+    @Autowired
+    private GraphEventCausalMapper causalMapper;
+    
+    @Autowired
+    private GraphNarrativeBeatMapper narrativeBeatMapper;
+    
+    @Autowired
+    private GraphPerspectiveUsageMapper perspectiveUsageMapper;
+    
+    @Autowired
+    private GraphConflictArcMapper conflictArcMapper;
+    
+    @Autowired
+    private GraphCharacterArcMapper characterArcMapper;
+    
+    @Autowired(required = false)
+    private EventGraphIndex eventGraphIndex;
+    
+    @Autowired(required = false)
+    private GraphMemoryTier memoryTier;
+    
+    @Autowired(required = false)
+    private NarrativeLedgerIndex narrativeLedgerIndex;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // 关闭后批量写入退化为逐条 SELECT + INSERT/UPDATE（用于对比往返次数）
+    @Value("${graph.batch.enabled:true}")
+    private boolean batchEnabled = true;
+
+    // 单条多行写入语句的最大行数
+    @Value("${graph.batch.max-rows:200}")
+    private int batchMaxRows = 200;
+    
     // =============================
     // 查询方法实现
     // =============================
@@ -61,7 +119,10 @@ public class MySQLGraphService implements IGraphService {
             return Collections.emptyList();
         }
         
-        List<GraphEvent> events = eventMapper.findRelevantEvents(novelId, chapterNumber, limit);
+        NovelGraphTables.Events table = eventTable(novelId);
+        List<GraphEvent> events = table != null
+            ? table.relevant(chapterNumber, limit)
+            : eventMapper.findRelevantEvents(novelId, chapterNumber, limit);
         
         return events.stream().map(event -> {
             Map<String, Object> props = new HashMap<>();
@@ -85,7 +146,11 @@ public class MySQLGraphService implements IGraphService {
     public List<GraphEntity> getUnresolvedForeshadows(Long novelId, Integer chapterNumber, Integer limit) {
         logger.info("🔍 MySQL查询未回收伏笔: novelId={}, chapter={}, limit={}", novelId, chapterNumber, limit);
         
-        List<GraphForeshadowing> foreshadows = foreshadowingMapper.findUnresolvedForeshadows(novelId, chapterNumber, limit);
+        NovelGraphTables.Foreshadows table = table(novelId, Segment.FORESHADOWS,
+            () -> NovelGraphTables.Foreshadows.of(foreshadowingMapper.findByNovelId(novelId)));
+        List<GraphForeshadowing> foreshadows = table != null
+            ? table.unresolved(chapterNumber, limit)
+            : foreshadowingMapper.findUnresolvedForeshadows(novelId, chapterNumber, limit);
         
         return foreshadows.stream().map(f -> {
             double importanceScore = mapImportance(f.getImportance(), 0.6);
@@ -113,7 +178,11 @@ public class MySQLGraphService implements IGraphService {
     public List<GraphEntity> getPlotlineStatus(Long novelId, Integer chapterNumber, Integer limit) {
         logger.info("🔍 MySQL查询情节线状态: novelId={}, chapter={}, limit={}", novelId, chapterNumber, limit);
         
-        List<GraphPlotline> plotlines = plotlineMapper.findIdlePlotlines(novelId, chapterNumber, limit);
+        NovelGraphTables.Plotlines table = table(novelId, Segment.PLOTLINES,
+            () -> NovelGraphTables.Plotlines.of(plotlineMapper.findByNovelId(novelId)));
+        List<GraphPlotline> plotlines = table != null
+            ? table.idle(chapterNumber, limit)
+            : plotlineMapper.findIdlePlotlines(novelId, chapterNumber, limit);
         
         return plotlines.stream().map(p -> {
             int lastTouched = p.getLastTouchedChapter() != null ? p.getLastTouchedChapter() : 0;
@@ -142,7 +211,11 @@ public class MySQLGraphService implements IGraphService {
     public List<GraphEntity> getWorldRules(Long novelId, Integer chapterNumber, Integer limit) {
         logger.info("🔍 MySQL查询世界规则: novelId={}, chapter={}, limit={}", novelId, chapterNumber, limit);
         
-        List<GraphWorldRule> rules = worldRuleMapper.findApplicableRules(novelId, chapterNumber, limit);
+        NovelGraphTables.WorldRules table = table(novelId, Segment.WORLD_RULES,
+            () -> NovelGraphTables.WorldRules.of(worldRuleMapper.findByNovelId(novelId)));
+        List<GraphWorldRule> rules = table != null
+            ? table.applicable(chapterNumber, limit)
+            : worldRuleMapper.findApplicableRules(novelId, chapterNumber, limit);
         
         return rules.stream().map(r -> {
             Map<String, Object> props = new HashMap<>();
@@ -167,7 +240,10 @@ public class MySQLGraphService implements IGraphService {
     public List<GraphEntity> getCharacterRelationships(Long novelId, String characterName, Integer limit) {
         logger.info("🔍 MySQL查询角色关系网: novelId={}, character={}", novelId, characterName);
         
-        List<GraphRelationshipState> relationships = relationshipStateMapper.findByCharacterName(novelId, characterName, limit);
+        NovelGraphTables.Relationships table = relationshipTable(novelId);
+        List<GraphRelationshipState> relationships = table != null
+            ? table.ofCharacter(characterName, limit)
+            : relationshipStateMapper.findByCharacterName(novelId, characterName, limit);
         
         return relationships.stream().map(r -> {
             String targetName = r.getCharacterA().equals(characterName) ? r.getCharacterB() : r.getCharacterA();
@@ -192,46 +268,355 @@ public class MySQLGraphService implements IGraphService {
     @Override
     public List<GraphEntity> getEventsByCharacter(Long novelId, String characterName, Integer chapterNumber, Integer limit) {
         logger.info("🔍 MySQL按角色查询事件: novelId={}, character={}", novelId, characterName);
-        // 简化实现：返回空列表（需要事件参与者关联表支持）
-        return Collections.emptyList();
+        EventGraphSnapshot graph = eventGraph(novelId);
+        long startedAt = System.nanoTime();
+        
+        // 评分：重要性 × 10 + 章节邻近度
+        List<double[]> scored = new ArrayList<>();
+        for (int event : graph.eventsOf(characterName)) {
+            int chapter = graph.chapter(event);
+            if (!graph.isPresent(event) || (chapterNumber != null && chapter >= chapterNumber)) {
+                continue;
+            }
+            double proximity = chapterNumber != null ? 1.0 / (chapterNumber - chapter + 1) : 0.0;
+            scored.add(new double[]{event, graph.importance(event) * 10 + proximity});
+        }
+        scored.sort((x, y) -> Double.compare(y[1], x[1]));
+        
+        List<GraphEntity> result = new ArrayList<>();
+        for (double[] item : scored.subList(0, Math.min(scored.size(), limit != null ? limit : 8))) {
+            int event = (int) item[0];
+            Map<String, Object> props = new HashMap<>();
+            props.put("description", graph.summary(event) != null ? graph.summary(event) : "");
+            props.put("character", characterName);
+            result.add(GraphEntity.builder()
+                .type("Event")
+                .id(graph.eventId(event))
+                .chapterNumber(graph.chapter(event))
+                .relevanceScore(graph.importance(event))
+                .properties(props)
+                .source("第" + graph.chapter(event) + "章")
+                .build());
+        }
+        logger.debug("角色事件查询: character={}, 命中{}个, {}µs", characterName, result.size(),
+            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+        return result;
     }
     
     @Override
     public List<GraphEntity> getEventsByCausality(Long novelId, String eventId, Integer depth) {
-        logger.info("🔍 MySQL按因果链查询: novelId={}, eventId={}", novelId, eventId);
-        // 简化实现：返回空列表（需要因果关系表支持）
-        return Collections.emptyList();
+        logger.info("🔍 MySQL按因果链查询: novelId={}, eventId={}, depth={}", novelId, eventId, depth);
+        EventGraphSnapshot graph = eventGraph(novelId);
+        long startedAt = System.nanoTime();
+        int maxDepth = depth != null && depth > 0 ? Math.min(depth, MAX_CAUSAL_DEPTH) : 3;
+        
+        List<GraphEntity> result = new ArrayList<>();
+        for (EventGraphSnapshot.Hop hop : graph.causalChain(eventId, maxDepth)) {
+            int event = hop.getEvent();
+            Map<String, Object> props = new HashMap<>();
+            props.put("description", graph.summary(event) != null ? graph.summary(event) : "");
+            props.put("causalDistance", hop.getDistance());
+            result.add(GraphEntity.builder()
+                .type("Event")
+                .id(graph.eventId(event))
+                .chapterNumber(graph.chapter(event))
+                .relevanceScore(1.0 / (hop.getDistance() + 1))
+                .properties(props)
+                .source("因果链")
+                .build());
+        }
+        logger.debug("因果链查询: eventId={}, depth={}, 命中{}个, {}µs", eventId, maxDepth, result.size(),
+            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+        return result;
     }
     
     @Override
     public List<GraphEntity> getConflictHistory(Long novelId, String protagonistName, String antagonistName, Integer limit) {
         logger.info("🔍 MySQL查询冲突历史: novelId={}, protagonist={}, antagonist={}", novelId, protagonistName, antagonistName);
-        // 简化实现：返回空列表
-        return Collections.emptyList();
+        EventGraphSnapshot graph = eventGraph(novelId);
+        long startedAt = System.nanoTime();
+        
+        // 双方共同参与且带冲突性质的事件；超出数量时保留最近的，按章节升序返回
+        List<Integer> conflicts = new ArrayList<>();
+        for (int event : graph.eventsOf(protagonistName)) {
+            if (graph.isPresent(event) && graph.isConflict(event)
+                && (antagonistName == null || graph.participates(event, antagonistName))) {
+                conflicts.add(event);
+            }
+        }
+        int max = limit != null ? limit : 10;
+        List<GraphEntity> result = new ArrayList<>();
+        for (int event : conflicts.subList(Math.max(0, conflicts.size() - max), conflicts.size())) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("description", graph.summary(event) != null ? graph.summary(event) : "");
+            props.put("conflictType", "protagonist_antagonist");
+            props.put("participants", antagonistName != null
+                ? Arrays.asList(protagonistName, antagonistName) : Collections.singletonList(protagonistName));
+            result.add(GraphEntity.builder()
+                .type("Event")
+                .id(graph.eventId(event))
+                .chapterNumber(graph.chapter(event))
+                .relevanceScore(1.0)
+                .properties(props)
+                .source("第" + graph.chapter(event) + "章")
+                .build());
+        }
+        logger.debug("冲突历史查询: {} vs {}, 命中{}个, {}µs", protagonistName, antagonistName, result.size(),
+            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+        return result;
+    }
+    
+    /**
+     * 内存分层中的表镜像；内存分层未启用时返回 null，由调用方直接查库
+     */
+    private <T extends NovelGraphTables.Table> T table(Long novelId, Segment segment, Supplier<T> loader) {
+        return memoryTier != null && memoryTier.isEnabled() ? memoryTier.get(novelId, segment, loader) : null;
+    }
+    
+    private NovelGraphTables.Events eventTable(Long novelId) {
+        return table(novelId, Segment.EVENTS, () -> NovelGraphTables.Events.of(eventMapper.findByNovelId(novelId)));
+    }
+    
+    private NovelGraphTables.Relationships relationshipTable(Long novelId) {
+        return table(novelId, Segment.RELATIONSHIPS,
+            () -> NovelGraphTables.Relationships.of(relationshipStateMapper.findByNovelId(novelId)));
+    }
+    
+    /**
+     * 写入完成后失效内存分层中对应的表
+     */
+    private void touched(Long novelId, Segment... segments) {
+        if (memoryTier != null) {
+            memoryTier.invalidate(novelId, segments);
+        }
+    }
+    
+    /**
+     * 小说的事件图快照（优先取缓存）
+     */
+    private EventGraphSnapshot eventGraph(Long novelId) {
+        return eventGraphIndex != null
+            ? eventGraphIndex.get(novelId, () -> loadEventGraph(novelId))
+            : loadEventGraph(novelId);
+    }
+    
+    private EventGraphSnapshot loadEventGraph(Long novelId) {
+        EventGraphSnapshot.Builder builder = EventGraphSnapshot.builder(novelId);
+        Map<Long, String> businessIds = new HashMap<>();
+        for (GraphEvent event : eventMapper.findByNovelId(novelId)) {
+            businessIds.put(event.getId(), event.getEventId());
+            builder.event(event.getEventId(), event.getChapterNumber(), event.getImportance(),
+                event.getSummary(), event.getEmotionalTone(), event.getTags());
+        }
+        Map<String, List<String>> participants = new LinkedHashMap<>();
+        for (GraphEventParticipant participant : participantMapper.findByNovelId(novelId)) {
+            String eventId = businessIds.get(participant.getEventId());
+            if (eventId != null) {
+                participants.computeIfAbsent(eventId, k -> new ArrayList<>()).add(participant.getCharacterName());
+            }
+        }
+        participants.forEach(builder::participants);
+        for (GraphEventCausal edge : causalMapper.findByNovelId(novelId)) {
+            builder.causal(edge.getFromEventId(), edge.getToEventId());
+        }
+        return builder.build();
     }
     
     @Override
     public Map<String, Object> getNarrativeRhythmStatus(Long novelId, Integer chapterNumber, Integer window) {
+        logger.info("🔍 MySQL查询叙事节奏: novelId={}, chapter={}, window={}", novelId, chapterNumber, window);
+        
+        NarrativeLedger.Rhythm rhythm = narrativeLedger(novelId)
+            .rhythm(chapterNumber != null ? chapterNumber : Integer.MAX_VALUE, window != null ? window : 6);
+        
+        List<GraphEntity> recentBeats = new ArrayList<>();
+        List<Map<String, Object>> tensionCurve = new ArrayList<>();
+        for (GraphNarrativeBeat beat : rhythm.getBeats()) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("beatType", beat.getBeatType());
+            props.put("focus", beat.getFocus());
+            props.put("sentiment", beat.getSentiment());
+            props.put("tension", beat.getTension());
+            props.put("paceScore", beat.getPaceScore());
+            props.put("viewpoint", beat.getViewpoint());
+            recentBeats.add(GraphEntity.builder()
+                .type("NarrativeBeat")
+                .id(beat.getBeatId())
+                .chapterNumber(beat.getChapterNumber())
+                .properties(props)
+                .source("第" + beat.getChapterNumber() + "章")
+                .build());
+            
+            Map<String, Object> point = new HashMap<>();
+            point.put("chapter", beat.getChapterNumber());
+            point.put("tension", beat.getTension() != null ? beat.getTension() : 0.5);
+            tensionCurve.add(point);
+        }
+        
+        Map<String, Integer> beatCounts = new LinkedHashMap<>();
+        rhythm.getCounts().forEach((kind, count) -> beatCounts.put(kind.name(), count));
+        double plotRatio = rhythm.ratio(NarrativeLedger.BeatKind.PLOT);
+        double characterRatio = rhythm.ratio(NarrativeLedger.BeatKind.CHARACTER);
+        boolean conflictFatigue = rhythm.getConsecutiveConflict() >= 3;
+        
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("conflictRatio", rhythm.ratio(NarrativeLedger.BeatKind.CONFLICT, NarrativeLedger.BeatKind.CLIMAX));
+        metrics.put("plotRatio", plotRatio);
+        metrics.put("characterRatio", characterRatio);
+        metrics.put("reliefRatio", rhythm.ratio(NarrativeLedger.BeatKind.RELIEF));
+        metrics.put("beatCounts", beatCounts);
+        metrics.put("consecutiveConflict", rhythm.getConsecutiveConflict());
+        metrics.put("conflictFatigue", conflictFatigue);
+        metrics.put("averageTension", rhythm.getAverageTension());
+        metrics.put("averagePace", rhythm.getAveragePace());
+        metrics.put("tensionCurve", tensionCurve);
+        
+        List<String> recommendations = new ArrayList<>();
+        if (rhythm.getTotal() == 0) {
+            recommendations.add("尚无节奏记录，参考卷蓝图规划章节节奏。");
+        } else {
+            if (conflictFatigue) {
+                recommendations.add("连续高强度冲突，建议安排人物或日常缓冲。");
+            }
+            if (plotRatio < 0.3) {
+                recommendations.add("主线推进偏低，适当推进剧情。");
+            }
+            if (characterRatio < 0.2) {
+                recommendations.add("人物描写不足，可增加角色内心或互动。");
+            }
+            if (rhythm.getTotal() >= 3 && rhythm.getAverageTension() < 0.4) {
+                recommendations.add("近期张力偏低，可安排冲突升级或悬念。");
+            }
+        }
+        
         Map<String, Object> status = new HashMap<>();
-        status.put("recentBeats", Collections.emptyList());
-        status.put("metrics", new HashMap<>());
-        status.put("recommendations", Arrays.asList("尚无节奏记录，参考卷蓝图规划章节节奏。"));
+        status.put("recentBeats", recentBeats);
+        status.put("metrics", metrics);
+        status.put("recommendations", recommendations);
         return status;
     }
     
     @Override
     public List<GraphEntity> getActiveConflictArcs(Long novelId, Integer chapterNumber, Integer limit) {
-        return Collections.emptyList();
+        logger.info("🔍 MySQL查询冲突弧线: novelId={}, chapter={}, limit={}", novelId, chapterNumber, limit);
+        
+        List<GraphConflictArc> arcs = conflictArcMapper.findActiveArcs(novelId, limit != null ? limit : 5);
+        
+        return arcs.stream().map(a -> {
+            Map<String, Object> props = new HashMap<>();
+            props.put("name", a.getName() != null ? a.getName() : "未命名冲突");
+            props.put("stage", a.getStage() != null ? a.getStage() : "酝酿");
+            props.put("urgency", a.getUrgency() != null ? a.getUrgency() : 0.5);
+            props.put("nextAction", a.getNextAction());
+            props.put("protagonist", a.getProtagonist());
+            props.put("antagonist", a.getAntagonist());
+            props.put("trend", a.getTrend());
+            
+            return GraphEntity.builder()
+                .type("ConflictArc")
+                .id(a.getArcId())
+                .chapterNumber(a.getLastUpdatedChapter())
+                .relevanceScore(a.getUrgency())
+                .properties(props)
+                .source("第" + a.getLastUpdatedChapter() + "章")
+                .build();
+        }).collect(Collectors.toList());
     }
     
     @Override
     public List<GraphEntity> getCharacterArcStatus(Long novelId, Integer chapterNumber, Integer limit) {
-        return Collections.emptyList();
+        logger.info("🔍 MySQL查询人物成长: novelId={}, chapter={}, limit={}", novelId, chapterNumber, limit);
+        
+        List<GraphCharacterArc> arcs = characterArcMapper.findActiveArcs(novelId, limit != null ? limit : 5);
+        
+        return arcs.stream().map(a -> {
+            Map<String, Object> props = new HashMap<>();
+            props.put("characterName", a.getCharacterName());
+            props.put("arcName", a.getArcName() != null ? a.getArcName() : "未命名成长线");
+            props.put("pendingBeat", a.getPendingBeat());
+            props.put("nextGoal", a.getNextGoal());
+            props.put("priority", a.getPriority() != null ? a.getPriority() : 0.5);
+            props.put("progress", a.getProgress());
+            props.put("totalBeats", a.getTotalBeats());
+            
+            return GraphEntity.builder()
+                .type("CharacterArc")
+                .id(a.getArcId())
+                .chapterNumber(a.getLastUpdatedChapter())
+                .relevanceScore(a.getPriority())
+                .properties(props)
+                .source("第" + a.getLastUpdatedChapter() + "章")
+                .build();
+        }).collect(Collectors.toList());
     }
     
     @Override
     public List<GraphEntity> getPerspectiveHistory(Long novelId, Integer chapterNumber, Integer window) {
-        return Collections.emptyList();
+        logger.info("🔍 MySQL查询视角历史: novelId={}, chapter={}, window={}", novelId, chapterNumber, window);
+        
+        List<GraphPerspectiveUsage> usages = narrativeLedger(novelId)
+            .perspectives(chapterNumber != null ? chapterNumber : Integer.MAX_VALUE, window != null ? window : 5);
+        
+        List<GraphEntity> history = new ArrayList<>();
+        for (GraphPerspectiveUsage usage : usages) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("characterName", usage.getCharacterName());
+            props.put("mode", usage.getMode());
+            props.put("tone", usage.getTone());
+            props.put("purpose", usage.getPurpose());
+            history.add(GraphEntity.builder()
+                .type("PerspectiveUsage")
+                .id(usage.getPerspectiveId())
+                .chapterNumber(usage.getChapterNumber())
+                .properties(props)
+                .source("第" + usage.getChapterNumber() + "章")
+                .build());
+        }
+        
+        if (usages.size() >= 3) {
+            String lastCharacter = usages.get(usages.size() - 1).getCharacterName();
+            boolean allSame = usages.stream().allMatch(u -> Objects.equals(u.getCharacterName(), lastCharacter));
+            if (allSame) {
+                Map<String, Object> props = new HashMap<>();
+                props.put("recommendation", "连续多章使用" + lastCharacter + "视角，建议尝试其他视角。");
+                history.add(0, GraphEntity.builder()
+                    .type("PerspectiveRecommendation")
+                    .id("perspective_summary")
+                    .properties(props)
+                    .build());
+            }
+        }
+        
+        return history;
+    }
+    
+    /**
+     * 小说的叙事节奏账本（优先取缓存）
+     */
+    private NarrativeLedger narrativeLedger(Long novelId) {
+        return narrativeLedgerIndex != null
+            ? narrativeLedgerIndex.get(novelId, () -> loadNarrativeLedger(novelId))
+            : loadNarrativeLedger(novelId);
+    }
+    
+    private NarrativeLedger loadNarrativeLedger(Long novelId) {
+        NarrativeLedger ledger = new NarrativeLedger();
+        narrativeBeatMapper.findByNovelId(novelId).forEach(ledger::putBeat);
+        perspectiveUsageMapper.findByNovelId(novelId).forEach(ledger::putPerspective);
+        return ledger;
+    }
+    
+    /**
+     * 节奏节点与视角记录写入后增量更新账本
+     */
+    private void patchNarrativeLedger(Long novelId, List<GraphNarrativeBeat> beats, List<GraphPerspectiveUsage> usages) {
+        if (narrativeLedgerIndex == null || (beats.isEmpty() && usages.isEmpty())) {
+            return;
+        }
+        narrativeLedgerIndex.apply(novelId, ledger -> {
+            beats.forEach(ledger::putBeat);
+            usages.forEach(ledger::putPerspective);
+        });
     }
     
     // =============================
@@ -259,15 +644,85 @@ public class MySQLGraphService implements IGraphService {
             case "WorldRule":
                 addWorldRuleEntity(novelId, entity, props);
                 break;
+            case "NarrativeBeat":
+                addNarrativeEntities(novelId, toNarrativeBeat(novelId, entity, props), null);
+                break;
+            case "PerspectiveUsage":
+                addNarrativeEntities(novelId, null, toPerspectiveUsage(novelId, entity, props));
+                break;
+            case "ConflictArc":
+                conflictArcMapper.upsertBatch(Collections.singletonList(toConflictArc(novelId, entity, props)));
+                break;
+            case "CharacterArc":
+                characterArcMapper.upsertBatch(Collections.singletonList(toCharacterArc(novelId, entity, props)));
+                break;
             default:
                 logger.warn("未知实体类型: {}", type);
         }
+        touched(novelId, Segment.EVENTS, Segment.FORESHADOWS, Segment.PLOTLINES, Segment.WORLD_RULES);
     }
     
     private void addEventEntity(Long novelId, GraphEntity entity, Map<String, Object> props) {
         GraphEvent existing = eventMapper.findByNovelIdAndEventId(novelId, entity.getId());
+        GraphEvent event = toEvent(novelId, entity, props);
+        
+        if (existing != null) {
+            event.setId(existing.getId());
+            eventMapper.updateById(event);
+        } else {
+            eventMapper.insert(event);
+        }
         
-        GraphEvent event = GraphEvent.builder()
+        List<String> participants = participantsOf(props);
+        if (participants != null && event.getId() != null) {
+            participantMapper.deleteByEventIds(Collections.singletonList(event.getId()));
+            if (!participants.isEmpty()) {
+                participantMapper.insertBatch(participants.stream()
+                    .map(name -> GraphEventParticipant.builder().eventId(event.getId()).characterName(name).build())
+                    .collect(Collectors.toList()));
+            }
+        }
+        patchEventGraph(novelId, Collections.singletonList(event), Collections.singletonMap(event.getEventId(), participants));
+    }
+    
+    /**
+     * 事件的参与角色（participants 与 onSceneParticipants 合并去重）；两者都未给出时返回 null，表示不改动已有参与者
+     */
+    private List<String> participantsOf(Map<String, Object> props) {
+        if (!(props.get("participants") instanceof Collection) && !(props.get("onSceneParticipants") instanceof Collection)) {
+            return null;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String key : new String[]{"participants", "onSceneParticipants"}) {
+            if (props.get(key) instanceof Collection) {
+                for (Object name : (Collection<?>) props.get(key)) {
+                    if (name != null && !String.valueOf(name).trim().isEmpty()) {
+                        names.add(String.valueOf(name).trim());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+    
+    /**
+     * 事件与参与者写入后补丁事件图快照
+     */
+    private void patchEventGraph(Long novelId, List<GraphEvent> events, Map<String, List<String>> participants) {
+        if (eventGraphIndex == null || events.isEmpty()) {
+            return;
+        }
+        eventGraphIndex.patch(novelId, builder -> {
+            for (GraphEvent event : events) {
+                builder.event(event.getEventId(), event.getChapterNumber(), event.getImportance(),
+                    event.getSummary(), event.getEmotionalTone(), event.getTags());
+                builder.participants(event.getEventId(), participants.get(event.getEventId()));
+            }
+        });
+    }
+    
+    private GraphEvent toEvent(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphEvent.builder()
             .novelId(novelId)
             .eventId(entity.getId())
             .chapterNumber(entity.getChapterNumber())
@@ -279,19 +734,22 @@ public class MySQLGraphService implements IGraphService {
             .tags(toJsonArray(props.get("tags")))
             .importance(getDoubleProp(props, "importance", 0.5))
             .build();
+    }
+    
+    private void addForeshadowEntity(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        GraphForeshadowing existing = foreshadowingMapper.findByNovelIdAndForeshadowId(novelId, entity.getId());
+        GraphForeshadowing foreshadow = toForeshadow(novelId, entity, props);
         
         if (existing != null) {
-            event.setId(existing.getId());
-            eventMapper.updateById(event);
+            foreshadow.setId(existing.getId());
+            foreshadowingMapper.updateById(foreshadow);
         } else {
-            eventMapper.insert(event);
+            foreshadowingMapper.insert(foreshadow);
         }
     }
     
-    private void addForeshadowEntity(Long novelId, GraphEntity entity, Map<String, Object> props) {
-        GraphForeshadowing existing = foreshadowingMapper.findByNovelIdAndForeshadowId(novelId, entity.getId());
-        
-        GraphForeshadowing foreshadow = GraphForeshadowing.builder()
+    private GraphForeshadowing toForeshadow(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphForeshadowing.builder()
             .novelId(novelId)
             .foreshadowId(entity.getId())
             .content(getStringProp(props, "content", getStringProp(props, "description", "")))
@@ -300,38 +758,44 @@ public class MySQLGraphService implements IGraphService {
             .introducedChapter(entity.getChapterNumber())
             .plannedRevealChapter(getIntProp(props, "plannedRevealChapter", null))
             .build();
+    }
+    
+    private void addPlotlineEntity(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        GraphPlotline existing = plotlineMapper.findByNovelIdAndPlotlineId(novelId, entity.getId());
+        GraphPlotline plotline = toPlotline(novelId, entity, props);
         
         if (existing != null) {
-            foreshadow.setId(existing.getId());
-            foreshadowingMapper.updateById(foreshadow);
+            plotline.setId(existing.getId());
+            plotlineMapper.updateById(plotline);
         } else {
-            foreshadowingMapper.insert(foreshadow);
+            plotlineMapper.insert(plotline);
         }
     }
     
-    private void addPlotlineEntity(Long novelId, GraphEntity entity, Map<String, Object> props) {
-        GraphPlotline existing = plotlineMapper.findByNovelIdAndPlotlineId(novelId, entity.getId());
-        
-        GraphPlotline plotline = GraphPlotline.builder()
+    private GraphPlotline toPlotline(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphPlotline.builder()
             .novelId(novelId)
             .plotlineId(entity.getId())
             .name(getStringProp(props, "name", "未命名情节线"))
             .priority(getDoubleProp(props, "priority", 0.5))
             .lastTouchedChapter(entity.getChapterNumber())
             .build();
+    }
+    
+    private void addWorldRuleEntity(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        GraphWorldRule existing = worldRuleMapper.findByNovelIdAndRuleId(novelId, entity.getId());
+        GraphWorldRule rule = toWorldRule(novelId, entity, props);
         
         if (existing != null) {
-            plotline.setId(existing.getId());
-            plotlineMapper.updateById(plotline);
+            rule.setId(existing.getId());
+            worldRuleMapper.updateById(rule);
         } else {
-            plotlineMapper.insert(plotline);
+            worldRuleMapper.insert(rule);
         }
     }
     
-    private void addWorldRuleEntity(Long novelId, GraphEntity entity, Map<String, Object> props) {
-        GraphWorldRule existing = worldRuleMapper.findByNovelIdAndRuleId(novelId, entity.getId());
-        
-        GraphWorldRule rule = GraphWorldRule.builder()
+    private GraphWorldRule toWorldRule(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphWorldRule.builder()
             .novelId(novelId)
             .ruleId(entity.getId())
             .name(getStringProp(props, "name", "未命名规则"))
@@ -342,19 +806,172 @@ public class MySQLGraphService implements IGraphService {
             .importance(getDoubleProp(props, "importance", 0.5))
             .introducedAt(entity.getChapterNumber())
             .build();
-        
-        if (existing != null) {
-            rule.setId(existing.getId());
-            worldRuleMapper.updateById(rule);
-        } else {
-            worldRuleMapper.insert(rule);
-        }
+    }
+    
+    private void addNarrativeEntities(Long novelId, GraphNarrativeBeat beat, GraphPerspectiveUsage usage) {
+        List<GraphNarrativeBeat> beats = beat != null && beat.getChapterNumber() != null
+            ? Collections.singletonList(beat) : Collections.emptyList();
+        List<GraphPerspectiveUsage> usages = usage != null && usage.getChapterNumber() != null
+            ? Collections.singletonList(usage) : Collections.emptyList();
+        upsertInChunks(beats, narrativeBeatMapper::upsertBatch);
+        upsertInChunks(usages, perspectiveUsageMapper::upsertBatch);
+        patchNarrativeLedger(novelId, beats, usages);
+    }
+    
+    private GraphNarrativeBeat toNarrativeBeat(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphNarrativeBeat.builder()
+            .novelId(novelId)
+            .beatId(entity.getId())
+            .chapterNumber(entity.getChapterNumber())
+            .beatType(NarrativeLedger.normalizeBeatType(getStringProp(props, "beatType", null)))
+            .focus(getStringProp(props, "focus", null))
+            .sentiment(getStringProp(props, "sentiment", null))
+            .tension(getDoubleProp(props, "tension", 0.5))
+            .paceScore(getDoubleProp(props, "paceScore", 0.5))
+            .viewpoint(getStringProp(props, "viewpoint", null))
+            .build();
+    }
+    
+    private GraphPerspectiveUsage toPerspectiveUsage(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphPerspectiveUsage.builder()
+            .novelId(novelId)
+            .perspectiveId(entity.getId())
+            .chapterNumber(entity.getChapterNumber())
+            .characterName(getStringProp(props, "characterName", null))
+            .mode(getStringProp(props, "mode", "第三人称"))
+            .tone(getStringProp(props, "tone", null))
+            .purpose(getStringProp(props, "purpose", null))
+            .build();
+    }
+    
+    private GraphConflictArc toConflictArc(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphConflictArc.builder()
+            .novelId(novelId)
+            .arcId(entity.getId())
+            .name(getStringProp(props, "name", null))
+            .stage(getStringProp(props, "stage", null))
+            .urgency(getDoubleProp(props, "urgency", null))
+            .nextAction(getStringProp(props, "nextAction", null))
+            .protagonist(getStringProp(props, "protagonist", null))
+            .antagonist(getStringProp(props, "antagonist", null))
+            .trend(getStringProp(props, "trend", null))
+            .lastUpdatedChapter(entity.getChapterNumber())
+            .build();
+    }
+    
+    private GraphCharacterArc toCharacterArc(Long novelId, GraphEntity entity, Map<String, Object> props) {
+        return GraphCharacterArc.builder()
+            .novelId(novelId)
+            .arcId(entity.getId())
+            .characterName(getStringProp(props, "characterName", null))
+            .arcName(getStringProp(props, "arcName", null))
+            .pendingBeat(getStringProp(props, "pendingBeat", null))
+            .nextGoal(getStringProp(props, "nextGoal", null))
+            .priority(getDoubleProp(props, "priority", null))
+            .progress(getIntProp(props, "progress", null))
+            .totalBeats(getIntProp(props, "totalBeats", null))
+            .lastUpdatedChapter(entity.getChapterNumber())
+            .build();
     }
     
     @Override
     @Transactional
     public void addEntities(Long novelId, List<GraphEntity> entities) {
-        entities.forEach(entity -> addEntity(novelId, entity));
+        if (entities == null || entities.isEmpty()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        if (!batchEnabled) {
+            entities.forEach(entity -> addEntity(novelId, entity));
+            recordIngest("entities", "row", novelId, entities.size(), entities.size() * 2, startedAt);
+            return;
+        }
+
+        List<GraphEvent> events = new ArrayList<>();
+        Map<String, List<String>> participants = new HashMap<>();
+        List<GraphForeshadowing> foreshadows = new ArrayList<>();
+        List<GraphPlotline> plotlines = new ArrayList<>();
+        List<GraphWorldRule> rules = new ArrayList<>();
+        List<GraphNarrativeBeat> beats = new ArrayList<>();
+        List<GraphPerspectiveUsage> perspectives = new ArrayList<>();
+        List<GraphConflictArc> conflictArcs = new ArrayList<>();
+        List<GraphCharacterArc> characterArcs = new ArrayList<>();
+        for (GraphEntity entity : entities) {
+            Map<String, Object> props = entity.getProperties() != null ? entity.getProperties() : new HashMap<>();
+            String type = entity.getType() != null ? entity.getType() : "";
+            switch (type) {
+                case "Event":
+                    events.add(toEvent(novelId, entity, props));
+                    List<String> names = participantsOf(props);
+                    if (names != null) {
+                        participants.put(entity.getId(), names);
+                    }
+                    break;
+                case "Foreshadow":
+                    foreshadows.add(toForeshadow(novelId, entity, props));
+                    break;
+                case "Plotline":
+                    plotlines.add(toPlotline(novelId, entity, props));
+                    break;
+                case "WorldRule":
+                    rules.add(toWorldRule(novelId, entity, props));
+                    break;
+                case "NarrativeBeat":
+                    if (entity.getChapterNumber() != null) {
+                        beats.add(toNarrativeBeat(novelId, entity, props));
+                    }
+                    break;
+                case "PerspectiveUsage":
+                    if (entity.getChapterNumber() != null) {
+                        perspectives.add(toPerspectiveUsage(novelId, entity, props));
+                    }
+                    break;
+                case "ConflictArc":
+                    conflictArcs.add(toConflictArc(novelId, entity, props));
+                    break;
+                case "CharacterArc":
+                    characterArcs.add(toCharacterArc(novelId, entity, props));
+                    break;
+                default:
+                    logger.warn("未知实体类型: {}", type);
+            }
+        }
+
+        int statements = upsertInChunks(events, eventMapper::upsertBatch)
+            + upsertInChunks(foreshadows, foreshadowingMapper::upsertBatch)
+            + upsertInChunks(plotlines, plotlineMapper::upsertBatch)
+            + upsertInChunks(rules, worldRuleMapper::upsertBatch)
+            + upsertInChunks(beats, narrativeBeatMapper::upsertBatch)
+            + upsertInChunks(perspectives, perspectiveUsageMapper::upsertBatch)
+            + upsertInChunks(conflictArcs, conflictArcMapper::upsertBatch)
+            + upsertInChunks(characterArcs, characterArcMapper::upsertBatch)
+            + replaceParticipants(novelId, participants);
+        recordIngest("entities", "batch", novelId, entities.size(), statements, startedAt);
+        touched(novelId, Segment.EVENTS, Segment.FORESHADOWS, Segment.PLOTLINES, Segment.WORLD_RULES);
+        patchEventGraph(novelId, events, participants);
+        patchNarrativeLedger(novelId, beats, perspectives);
+    }
+    
+    /**
+     * 整批替换事件参与者：按业务ID查回事件主键，删除旧参与者后多行写入；返回执行的语句数
+     */
+    private int replaceParticipants(Long novelId, Map<String, List<String>> participants) {
+        if (participants.isEmpty()) {
+            return 0;
+        }
+        List<GraphEvent> stored = eventMapper.findByNovelIdAndEventIds(novelId, participants.keySet());
+        List<Long> ids = stored.stream().map(GraphEvent::getId).collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return 1;
+        }
+        List<GraphEventParticipant> rows = new ArrayList<>();
+        for (GraphEvent event : stored) {
+            for (String name : participants.getOrDefault(event.getEventId(), Collections.emptyList())) {
+                rows.add(GraphEventParticipant.builder().eventId(event.getId()).characterName(name).build());
+            }
+        }
+        participantMapper.deleteByEventIds(ids);
+        return 2 + upsertInChunks(rows, participantMapper::insertBatch);
     }
     
     @Override
@@ -383,6 +1000,49 @@ public class MySQLGraphService implements IGraphService {
             } else {
                 relationshipStateMapper.insert(rel);
             }
+            touched(novelId, Segment.RELATIONSHIPS);
+        } else if (fromEntityId != null && toEntityId != null) {
+            // 事件因果关系（CAUSES/TRIGGERS/TRIGGERED_BY 等）
+            causalMapper.upsertBatch(Collections.singletonList(GraphEventCausal.builder()
+                .novelId(novelId)
+                .fromEventId(fromEntityId)
+                .toEventId(toEntityId)
+                .relationType(relationshipType != null ? relationshipType.toUpperCase() : "CAUSES")
+                .build()));
+            if (eventGraphIndex != null) {
+                eventGraphIndex.patch(novelId, builder -> builder.causal(fromEntityId, toEntityId));
+            }
+        }
+    }
+    
+    @Override
+    @Transactional
+    public void addCausalRelations(Long novelId, List<CausalRelation> relations) {
+        if (relations == null || relations.isEmpty()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        if (!batchEnabled) {
+            relations.forEach(relation -> addRelationship(novelId, relation.getFromEventId(),
+                relation.getType(), relation.getToEventId(), null));
+            recordIngest("causal_relations", "row", novelId, relations.size(), relations.size(), startedAt);
+            return;
+        }
+        List<GraphEventCausal> edges = relations.stream()
+            .filter(relation -> relation != null && relation.getFromEventId() != null && relation.getToEventId() != null)
+            .map(relation -> GraphEventCausal.builder()
+                .novelId(novelId)
+                .fromEventId(relation.getFromEventId())
+                .toEventId(relation.getToEventId())
+                .relationType(relation.getType() != null ? relation.getType().toUpperCase() : "CAUSES")
+                .build())
+            .collect(Collectors.toList());
+        int statements = upsertInChunks(edges, causalMapper::upsertBatch);
+        recordIngest("causal_relations", "batch", novelId, edges.size(), statements, startedAt);
+        // 整章因果边合并为一次补丁，事务提交后应用
+        if (eventGraphIndex != null && !edges.isEmpty()) {
+            eventGraphIndex.patch(novelId, builder ->
+                edges.forEach(edge -> builder.causal(edge.getFromEventId(), edge.getToEventId())));
         }
     }
     
@@ -424,6 +1084,7 @@ public class MySQLGraphService implements IGraphService {
             characterStateMapper.insert(state);
         }
         
+        touched(novelId, Segment.CHARACTER_STATES);
         logger.info("🧭 upsertCharacterState: {}@{} loc={}, realm={}, alive={}", characterName, chapterNumber, location, realm, alive);
     }
     
@@ -432,11 +1093,70 @@ public class MySQLGraphService implements IGraphService {
     public void upsertCharacterStateComplete(Long novelId, String characterName, Map<String, Object> stateData, Integer chapterNumber) {
         GraphCharacterState existing = characterStateMapper.findByNovelIdAndCharacterName(novelId, characterName);
         
-        if (existing != null && existing.getLastUpdatedChapter() != null && chapterNumber < existing.getLastUpdatedChapter()) {
+        if (isOlderThan(existing, chapterNumber)) {
             return;
         }
         
-        GraphCharacterState state = GraphCharacterState.builder()
+        GraphCharacterState state = toCharacterState(novelId, characterName, stateData, chapterNumber, existing);
+        
+        if (existing != null) {
+            state.setId(existing.getId());
+            characterStateMapper.updateById(state);
+        } else {
+            characterStateMapper.insert(state);
+        }
+        touched(novelId, Segment.CHARACTER_STATES);
+    }
+    
+    @Override
+    @Transactional
+    public void upsertCharacterStatesComplete(Long novelId, Map<String, Map<String, Object>> states, Integer chapterNumber) {
+        if (states == null || states.isEmpty()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        if (!batchEnabled) {
+            states.forEach((name, data) -> upsertCharacterStateComplete(novelId, name, data, chapterNumber));
+            recordIngest("character_states", "row", novelId, states.size(), states.size() * 2, startedAt);
+            return;
+        }
+
+        // 一次查出已有状态，在内存中合并后整批写回
+        int statements = 0;
+        Map<String, GraphCharacterState> existing = new HashMap<>();
+        List<String> names = new ArrayList<>(states.keySet());
+        int size = Math.max(1, batchMaxRows);
+        for (int from = 0; from < names.size(); from += size) {
+            List<String> chunk = names.subList(from, Math.min(names.size(), from + size));
+            for (GraphCharacterState state : characterStateMapper.findByNovelIdAndCharacterNames(novelId, chunk)) {
+                existing.put(state.getCharacterName(), state);
+            }
+            statements++;
+        }
+
+        List<GraphCharacterState> rows = new ArrayList<>();
+        states.forEach((name, data) -> {
+            GraphCharacterState current = existing.get(name);
+            if (!isOlderThan(current, chapterNumber)) {
+                rows.add(toCharacterState(novelId, name, data, chapterNumber, current));
+            }
+        });
+        statements += upsertInChunks(rows, characterStateMapper::upsertBatch);
+        recordIngest("character_states", "batch", novelId, states.size(), statements, startedAt);
+        touched(novelId, Segment.CHARACTER_STATES);
+    }
+    
+    /**
+     * 已有状态来自更晚的章节时不回写旧章节的状态
+     */
+    private boolean isOlderThan(GraphCharacterState existing, Integer chapterNumber) {
+        return existing != null && existing.getLastUpdatedChapter() != null
+            && chapterNumber != null && chapterNumber < existing.getLastUpdatedChapter();
+    }
+    
+    private GraphCharacterState toCharacterState(Long novelId, String characterName, Map<String, Object> stateData,
+                                                 Integer chapterNumber, GraphCharacterState existing) {
+        return GraphCharacterState.builder()
             .novelId(novelId)
             .characterName(characterName)
             .location(getStringProp(stateData, "location", existing != null ? existing.getLocation() : null))
@@ -451,13 +1171,6 @@ public class MySQLGraphService implements IGraphService {
             .knownBy(toJsonArray(stateData.get("knownBy")))
             .lastUpdatedChapter(chapterNumber)
             .build();
-        
-        if (existing != null) {
-            state.setId(existing.getId());
-            characterStateMapper.updateById(state);
-        } else {
-            characterStateMapper.insert(state);
-        }
     }
     
     @Override
@@ -469,6 +1182,7 @@ public class MySQLGraphService implements IGraphService {
             existing.setInventory(toJsonArray(items));
             existing.setLastUpdatedChapter(chapterNumber);
             characterStateMapper.updateById(existing);
+            touched(novelId, Segment.CHARACTER_STATES);
         }
         
         logger.info("💼 updateInventory: {} 持有{}件物品", characterName, items != null ? items.size() : 0);
@@ -498,6 +1212,7 @@ public class MySQLGraphService implements IGraphService {
             relationshipStateMapper.insert(rel);
         }
         
+        touched(novelId, Segment.RELATIONSHIPS);
         logger.info("🤝 upsertRelationshipState: {}—{} type={} strength={}", characterA, characterB, type, strength);
     }
     
@@ -508,8 +1223,76 @@ public class MySQLGraphService implements IGraphService {
         String b = characterA.compareTo(characterB) < 0 ? characterB : characterA;
         
         GraphRelationshipState existing = relationshipStateMapper.findByNovelIdAndCharacters(novelId, a, b);
+        GraphRelationshipState rel = toRelationshipState(novelId, a, b, relationData, chapterNumber, existing);
         
-        GraphRelationshipState rel = GraphRelationshipState.builder()
+        if (existing != null) {
+            rel.setId(existing.getId());
+            relationshipStateMapper.updateById(rel);
+        } else {
+            relationshipStateMapper.insert(rel);
+        }
+        touched(novelId, Segment.RELATIONSHIPS);
+    }
+    
+    @Override
+    @Transactional
+    public void upsertRelationshipStatesComplete(Long novelId, List<RelationshipStateChange> changes, Integer chapterNumber) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        if (!batchEnabled) {
+            changes.forEach(change -> upsertRelationshipStateComplete(novelId, change.getCharacterA(),
+                change.getCharacterB(), change.getData(), chapterNumber));
+            recordIngest("relationship_states", "row", novelId, changes.size(), changes.size() * 2, startedAt);
+            return;
+        }
+
+        // 角色对按字典序归一，同一对在本批内多次出现时以前一次结果为基础合并（与逐条调用一致）
+        Map<String, GraphRelationshipState> pairs = new LinkedHashMap<>();
+        for (RelationshipStateChange change : changes) {
+            String[] pair = orderedPair(change);
+            pairs.putIfAbsent(pairKey(pair[0], pair[1]),
+                GraphRelationshipState.builder().characterA(pair[0]).characterB(pair[1]).build());
+        }
+
+        int statements = 0;
+        Map<String, GraphRelationshipState> existing = new HashMap<>();
+        List<GraphRelationshipState> keys = new ArrayList<>(pairs.values());
+        int size = Math.max(1, batchMaxRows);
+        for (int from = 0; from < keys.size(); from += size) {
+            List<GraphRelationshipState> chunk = keys.subList(from, Math.min(keys.size(), from + size));
+            for (GraphRelationshipState rel : relationshipStateMapper.findByNovelIdAndPairs(novelId, chunk)) {
+                existing.put(pairKey(rel.getCharacterA(), rel.getCharacterB()), rel);
+            }
+            statements++;
+        }
+
+        Map<String, GraphRelationshipState> merged = new LinkedHashMap<>();
+        for (RelationshipStateChange change : changes) {
+            String[] pair = orderedPair(change);
+            String key = pairKey(pair[0], pair[1]);
+            GraphRelationshipState current = merged.containsKey(key) ? merged.get(key) : existing.get(key);
+            merged.put(key, toRelationshipState(novelId, pair[0], pair[1], change.getData(), chapterNumber, current));
+        }
+        statements += upsertInChunks(new ArrayList<>(merged.values()), relationshipStateMapper::upsertBatch);
+        recordIngest("relationship_states", "batch", novelId, changes.size(), statements, startedAt);
+        touched(novelId, Segment.RELATIONSHIPS);
+    }
+    
+    private static String[] orderedPair(RelationshipStateChange change) {
+        String from = change.getCharacterA();
+        String to = change.getCharacterB();
+        return from.compareTo(to) < 0 ? new String[]{from, to} : new String[]{to, from};
+    }
+    
+    private static String pairKey(String a, String b) {
+        return a + "->" + b;
+    }
+    
+    private GraphRelationshipState toRelationshipState(Long novelId, String a, String b, Map<String, Object> relationData,
+                                                       Integer chapterNumber, GraphRelationshipState existing) {
+        return GraphRelationshipState.builder()
             .novelId(novelId)
             .characterA(a)
             .characterB(b)
@@ -519,13 +1302,6 @@ public class MySQLGraphService implements IGraphService {
             .publicStatus(getStringProp(relationData, "publicStatus", existing != null ? existing.getPublicStatus() : ""))
             .lastUpdatedChapter(chapterNumber)
             .build();
-        
-        if (existing != null) {
-            rel.setId(existing.getId());
-            relationshipStateMapper.updateById(rel);
-        } else {
-            relationshipStateMapper.insert(rel);
-        }
     }
     
     @Override
@@ -550,6 +1326,7 @@ public class MySQLGraphService implements IGraphService {
             openQuestMapper.insert(quest);
         }
         
+        touched(novelId, Segment.OPEN_QUESTS);
         logger.info("📌 upsertOpenQuest: {} status={}", questId, status);
     }
     
@@ -563,6 +1340,7 @@ public class MySQLGraphService implements IGraphService {
             existing.setResolvedChapter(resolvedChapter);
             existing.setLastUpdatedChapter(resolvedChapter);
             openQuestMapper.updateById(existing);
+            touched(novelId, Segment.OPEN_QUESTS);
         }
         
         logger.info("✅ resolveOpenQuest: {}@{}", questId, resolvedChapter);
@@ -585,6 +1363,7 @@ public class MySQLGraphService implements IGraphService {
         String b = characterA.compareTo(characterB) < 0 ? characterB : characterA;
         
         relationshipStateMapper.deleteByNovelIdAndCharacters(novelId, a, b);
+        touched(novelId, Segment.RELATIONSHIPS);
         logger.info("🗑️ deleteRelationshipState: {}—{}", characterA, characterB);
     }
     
@@ -594,6 +1373,7 @@ public class MySQLGraphService implements IGraphService {
         GraphCharacterState existing = characterStateMapper.findByNovelIdAndCharacterName(novelId, characterName);
         if (existing != null) {
             characterStateMapper.deleteById(existing.getId());
+            touched(novelId, Segment.CHARACTER_STATES);
         }
         logger.info("🗑️ deleteCharacterState: {}", characterName);
     }
@@ -602,6 +1382,7 @@ public class MySQLGraphService implements IGraphService {
     @Transactional
     public void deleteOpenQuest(Long novelId, String questId) {
         openQuestMapper.deleteByNovelIdAndQuestId(novelId, questId);
+        touched(novelId, Segment.OPEN_QUESTS);
         logger.info("🗑️ deleteOpenQuest: {}", questId);
     }
     
@@ -611,7 +1392,11 @@ public class MySQLGraphService implements IGraphService {
     
     @Override
     public List<Map<String, Object>> getCharacterStates(Long novelId, Integer limit) {
-        List<GraphCharacterState> states = characterStateMapper.findByNovelIdWithLimit(novelId, limit != null ? limit : 5);
+        NovelGraphTables.CharacterStates table = table(novelId, Segment.CHARACTER_STATES,
+            () -> NovelGraphTables.CharacterStates.of(characterStateMapper.findByNovelId(novelId)));
+        List<GraphCharacterState> states = table != null
+            ? table.recent(limit != null ? limit : 5)
+            : characterStateMapper.findByNovelIdWithLimit(novelId, limit != null ? limit : 5);
         
         return states.stream().map(state -> {
             Map<String, Object> map = new HashMap<>();
@@ -628,7 +1413,10 @@ public class MySQLGraphService implements IGraphService {
     
     @Override
     public List<Map<String, Object>> getTopRelationships(Long novelId, Integer limit) {
-        List<GraphRelationshipState> relationships = relationshipStateMapper.findByNovelIdWithLimit(novelId, limit != null ? limit : 5);
+        NovelGraphTables.Relationships table = relationshipTable(novelId);
+        List<GraphRelationshipState> relationships = table != null
+            ? table.top(limit != null ? limit : 5)
+            : relationshipStateMapper.findByNovelIdWithLimit(novelId, limit != null ? limit : 5);
         
         return relationships.stream().map(rel -> {
             Map<String, Object> map = new HashMap<>();
@@ -643,7 +1431,11 @@ public class MySQLGraphService implements IGraphService {
     
     @Override
     public List<Map<String, Object>> getOpenQuests(Long novelId, Integer currentChapter) {
-        List<GraphOpenQuest> quests = openQuestMapper.findOpenQuests(novelId, currentChapter != null ? currentChapter : 999);
+        NovelGraphTables.OpenQuests table = table(novelId, Segment.OPEN_QUESTS,
+            () -> NovelGraphTables.OpenQuests.of(openQuestMapper.findByNovelId(novelId)));
+        List<GraphOpenQuest> quests = table != null
+            ? table.open(currentChapter != null ? currentChapter : 999)
+            : openQuestMapper.findOpenQuests(novelId, currentChapter != null ? currentChapter : 999);
         
         return quests.stream().map(quest -> {
             Map<String, Object> map = new HashMap<>();
@@ -688,10 +1480,23 @@ public class MySQLGraphService implements IGraphService {
         characterStateMapper.deleteByNovelId(novelId);
         relationshipStateMapper.deleteByNovelId(novelId);
         openQuestMapper.deleteByNovelId(novelId);
+        participantMapper.deleteByNovelId(novelId);
+        causalMapper.deleteByNovelId(novelId);
         eventMapper.deleteByNovelId(novelId);
         foreshadowingMapper.deleteByNovelId(novelId);
         plotlineMapper.deleteByNovelId(novelId);
         worldRuleMapper.deleteByNovelId(novelId);
+        narrativeBeatMapper.deleteByNovelId(novelId);
+        perspectiveUsageMapper.deleteByNovelId(novelId);
+        conflictArcMapper.deleteByNovelId(novelId);
+        characterArcMapper.deleteByNovelId(novelId);
+        if (eventGraphIndex != null) {
+            eventGraphIndex.invalidate(novelId);
+        }
+        if (narrativeLedgerIndex != null) {
+            narrativeLedgerIndex.invalidate(novelId);
+        }
+        touched(novelId, Segment.values());
         
         logger.info("✅ MySQL已清空小说{}的图谱", novelId);
     }
@@ -709,13 +1514,26 @@ public class MySQLGraphService implements IGraphService {
             return;
         }
         
-        // 删除该章节的数据
+        // 删除该章节的数据（参与者与因果边依赖事件表关联，先于事件删除）
+        participantMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
+        causalMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
         eventMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
         foreshadowingMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
         characterStateMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
         relationshipStateMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
         openQuestMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
         openQuestMapper.deleteByIntroducedChapter(novelId, chapterNumber);
+        narrativeBeatMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
+        perspectiveUsageMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
+        conflictArcMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
+        characterArcMapper.deleteByNovelIdAndChapter(novelId, chapterNumber);
+        if (eventGraphIndex != null) {
+            eventGraphIndex.invalidate(novelId);
+        }
+        if (narrativeLedgerIndex != null) {
+            narrativeLedgerIndex.apply(novelId, ledger -> ledger.removeChapter(chapterNumber));
+        }
+        touched(novelId, Segment.values());
         
         logger.info("✅ MySQL章节数据清理完成");
     }
@@ -742,7 +1560,8 @@ public class MySQLGraphService implements IGraphService {
         result.put("totalOpenQuests", openQuests.size());
         
         // 事件
-        List<GraphEvent> events = eventMapper.findByNovelId(novelId);
+        NovelGraphTables.Events eventTable = eventTable(novelId);
+        List<GraphEvent> events = eventTable != null ? eventTable.all() : eventMapper.findByNovelId(novelId);
         List<Map<String, Object>> eventMaps = events.stream().map(event -> {
             Map<String, Object> map = new HashMap<>();
             map.put("id", event.getEventId());
@@ -785,6 +1604,41 @@ public class MySQLGraphService implements IGraphService {
         }
     }
     
+    /**
+     * 按最大行数分段执行多行写入，返回执行的语句数
+     */
+    private <T> int upsertInChunks(List<T> rows, Function<List<T>, Integer> writer) {
+        int statements = 0;
+        int size = Math.max(1, batchMaxRows);
+        for (int from = 0; from < rows.size(); from += size) {
+            writer.apply(rows.subList(from, Math.min(rows.size(), from + size)));
+            statements++;
+        }
+        return statements;
+    }
+    
+    /**
+     * 记录一次写入的耗时与语句数；逐条写入每行约需 SELECT + INSERT/UPDATE 两次往返
+     */
+    private void recordIngest(String op, String mode, Long novelId, int rows, int statements, long startedAt) {
+        long elapsedNanos = System.nanoTime() - startedAt;
+        logger.info("📦 图谱写入[{}/{}]: novelId={}, {}行, {}条语句（逐条写入约{}条）, {}ms",
+            op, mode, novelId, rows, statements, rows * 2, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder("graph.ingest.latency")
+            .tag("op", op)
+            .tag("mode", mode)
+            .register(meterRegistry)
+            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("graph.ingest.statements")
+            .tag("op", op)
+            .tag("mode", mode)
+            .register(meterRegistry)
+            .record(statements);
+    }
+    
     private String getStringProp(Map<String, Object> props, String key, String defaultValue) {
         if (props == null || !props.containsKey(key) || props.get(key) == null) {
             return defaultValue;
@@ -0,0 +1,361 @@
+package com.novel.agentic.service.graph;
+
+import com.novel.agentic.entity.graph.GraphNarrativeBeat;
+import com.novel.agentic.entity.graph.GraphPerspectiveUsage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 叙事节奏与视角账本（单部小说，可变，方法间同步）
+ *
+ * 以章节号为下标保存每章的节奏节点与视角记录，并用树状数组维护「有记录的章节数」、各节奏类型计数、
+ * 张力与节奏分之和：每章入库或删除时 O(log n) 更新，任意窗口的类型分布与均值 O(log n) 得出，
+ * 窗口内的节点列表、张力曲线与视角记录 O(窗口) 得出，无需回扫历史
+ *
+ * 窗口语义：当前章之前最近的 window 个有记录的章节
+ */
+public final class NarrativeLedger {
+
+    /**
+     * 归一化后的节奏类型
+     */
+    public enum BeatKind {
+        CONFLICT, CLIMAX, PLOT, CHARACTER, RELIEF, OTHER
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double DEFAULT_SCORE = 0.5;
+
+    private GraphNarrativeBeat[] beats = new GraphNarrativeBeat[INITIAL_CAPACITY];
+    private BeatKind[] kinds = new BeatKind[INITIAL_CAPACITY];
+    private GraphPerspectiveUsage[] perspectives = new GraphPerspectiveUsage[INITIAL_CAPACITY];
+
+    private Fenwick beatPresence;
+    private Fenwick[] kindCounts;
+    private Fenwick tensionSum;
+    private Fenwick paceSum;
+    private Fenwick perspectivePresence;
+
+    public NarrativeLedger() {
+        rebuild();
+    }
+
+    /**
+     * 写入（或覆盖）某章的节奏节点
+     */
+    public synchronized void putBeat(GraphNarrativeBeat beat) {
+        Integer chapter = beat != null ? beat.getChapterNumber() : null;
+        if (chapter == null || chapter <= 0) {
+            return;
+        }
+        ensureCapacity(chapter);
+        removeBeat(chapter);
+        beats[chapter] = beat;
+        kinds[chapter] = kindOf(beat.getBeatType());
+        addBeat(chapter, 1);
+    }
+
+    /**
+     * 写入（或覆盖）某章的视角记录
+     */
+    public synchronized void putPerspective(GraphPerspectiveUsage usage) {
+        Integer chapter = usage != null ? usage.getChapterNumber() : null;
+        if (chapter == null || chapter <= 0) {
+            return;
+        }
+        ensureCapacity(chapter);
+        if (perspectives[chapter] == null) {
+            perspectivePresence.add(chapter, 1);
+        }
+        perspectives[chapter] = usage;
+    }
+
+    /**
+     * 删除某章的节奏节点与视角记录
+     */
+    public synchronized void removeChapter(int chapter) {
+        if (chapter <= 0 || chapter >= beats.length) {
+            return;
+        }
+        removeBeat(chapter);
+        if (perspectives[chapter] != null) {
+            perspectives[chapter] = null;
+            perspectivePresence.add(chapter, -1);
+        }
+    }
+
+    /**
+     * 当前章之前最近 window 个节奏节点的统计
+     */
+    public synchronized Rhythm rhythm(int chapterNumber, int window) {
+        int to = Math.min(chapterNumber - 1, beats.length - 1);
+        if (to < 1 || window <= 0) {
+            return new Rhythm(Collections.emptyList(), new EnumMap<>(BeatKind.class), 0, 0, 0);
+        }
+        int from = windowStart(beatPresence, to, window);
+        int total = (int) Math.round(beatPresence.range(from, to));
+
+        Map<BeatKind, Integer> counts = new EnumMap<>(BeatKind.class);
+        for (BeatKind kind : BeatKind.values()) {
+            int count = (int) Math.round(kindCounts[kind.ordinal()].range(from, to));
+            if (count > 0) {
+                counts.put(kind, count);
+            }
+        }
+        List<GraphNarrativeBeat> recent = new ArrayList<>(total);
+        int consecutiveConflict = 0;
+        for (int chapter = from; chapter <= to; chapter++) {
+            if (beats[chapter] != null) {
+                recent.add(beats[chapter]);
+                consecutiveConflict = isConflict(kinds[chapter]) ? consecutiveConflict + 1 : 0;
+            }
+        }
+        double averageTension = total == 0 ? 0 : tensionSum.range(from, to) / total;
+        double averagePace = total == 0 ? 0 : paceSum.range(from, to) / total;
+        return new Rhythm(recent, counts, consecutiveConflict, averageTension, averagePace);
+    }
+
+    /**
+     * 当前章之前最近 window 条视角记录（按章节升序）
+     */
+    public synchronized List<GraphPerspectiveUsage> perspectives(int chapterNumber, int window) {
+        int to = Math.min(chapterNumber - 1, perspectives.length - 1);
+        if (to < 1 || window <= 0) {
+            return new ArrayList<>();
+        }
+        List<GraphPerspectiveUsage> result = new ArrayList<>();
+        for (int chapter = windowStart(perspectivePresence, to, window); chapter <= to; chapter++) {
+            if (perspectives[chapter] != null) {
+                result.add(perspectives[chapter]);
+            }
+        }
+        return result;
+    }
+
+    public static boolean isConflict(BeatKind kind) {
+        return kind == BeatKind.CONFLICT || kind == BeatKind.CLIMAX;
+    }
+
+    /**
+     * 节奏类型归一化：中英文描述统一为 CONFLICT/CLIMAX/PLOT/CHARACTER/RELIEF，其余保留大写原值
+     */
+    public static String normalizeBeatType(String rawType) {
+        if (rawType == null) {
+            return "UNKNOWN";
+        }
+        String normalized = rawType.trim().toUpperCase(Locale.ROOT);
+        if (normalized.contains("CONFLICT") || normalized.contains("冲突") || normalized.contains("战")) {
+            return "CONFLICT";
+        }
+        if (normalized.contains("CLIMAX") || normalized.contains("高潮") || normalized.contains("爆发")) {
+            return "CLIMAX";
+        }
+        if (normalized.contains("PLOT") || normalized.contains("ADV") || normalized.contains("主线") || normalized.contains("推进")) {
+            return "PLOT";
+        }
+        if (normalized.contains("CHAR") || normalized.contains("人物") || normalized.contains("情") || normalized.contains("EMOTION")) {
+            return "CHARACTER";
+        }
+        if (normalized.contains("RELIEF") || normalized.contains("缓冲") || normalized.contains("日常") || normalized.contains("轻松")) {
+            return "RELIEF";
+        }
+        return normalized.isEmpty() ? "UNKNOWN" : normalized;
+    }
+
+    public static BeatKind kindOf(String beatType) {
+        String normalized = normalizeBeatType(beatType);
+        for (BeatKind kind : BeatKind.values()) {
+            if (kind.name().equals(normalized)) {
+                return kind;
+            }
+        }
+        return BeatKind.OTHER;
+    }
+
+    /**
+     * 窗口统计结果
+     */
+    public static final class Rhythm {
+        private final List<GraphNarrativeBeat> beats;
+        private final Map<BeatKind, Integer> counts;
+        private final int consecutiveConflict;
+        private final double averageTension;
+        private final double averagePace;
+
+        Rhythm(List<GraphNarrativeBeat> beats, Map<BeatKind, Integer> counts, int consecutiveConflict,
+               double averageTension, double averagePace) {
+            this.beats = beats;
+            this.counts = counts;
+            this.consecutiveConflict = consecutiveConflict;
+            this.averageTension = averageTension;
+            this.averagePace = averagePace;
+        }
+
+        /**
+         * 窗口内的节奏节点（按章节升序）
+         */
+        public List<GraphNarrativeBeat> getBeats() {
+            return beats;
+        }
+
+        public int getTotal() {
+            return beats.size();
+        }
+
+        public int count(BeatKind kind) {
+            return counts.getOrDefault(kind, 0);
+        }
+
+        public Map<BeatKind, Integer> getCounts() {
+            return counts;
+        }
+
+        public double ratio(BeatKind... kinds) {
+            if (beats.isEmpty()) {
+                return 0.0;
+            }
+            int sum = 0;
+            for (BeatKind kind : kinds) {
+                sum += count(kind);
+            }
+            return (double) sum / beats.size();
+        }
+
+        /**
+         * 窗口末尾连续冲突/高潮章节数
+         */
+        public int getConsecutiveConflict() {
+            return consecutiveConflict;
+        }
+
+        public double getAverageTension() {
+            return averageTension;
+        }
+
+        public double getAveragePace() {
+            return averagePace;
+        }
+    }
+
+    // =============================
+    // 内部实现
+    // =============================
+
+    private void addBeat(int chapter, int sign) {
+        GraphNarrativeBeat beat = beats[chapter];
+        beatPresence.add(chapter, sign);
+        kindCounts[kinds[chapter].ordinal()].add(chapter, sign);
+        tensionSum.add(chapter, sign * score(beat.getTension()));
+        paceSum.add(chapter, sign * score(beat.getPaceScore()));
+    }
+
+    private void removeBeat(int chapter) {
+        if (beats[chapter] != null) {
+            addBeat(chapter, -1);
+            beats[chapter] = null;
+            kinds[chapter] = null;
+        }
+    }
+
+    private static double score(Double value) {
+        return value != null ? value : DEFAULT_SCORE;
+    }
+
+    /**
+     * [1, to] 中最近 window 个有记录章节的起始章
+     */
+    private static int windowStart(Fenwick presence, int to, int window) {
+        int total = (int) Math.round(presence.prefix(to));
+        return total <= window ? 1 : presence.search(total - window + 1);
+    }
+
+    private void ensureCapacity(int chapter) {
+        if (chapter < beats.length) {
+            return;
+        }
+        int capacity = Math.max(beats.length * 2, chapter + 1);
+        GraphNarrativeBeat[] oldBeats = beats;
+        BeatKind[] oldKinds = kinds;
+        GraphPerspectiveUsage[] oldPerspectives = perspectives;
+        beats = new GraphNarrativeBeat[capacity];
+        kinds = new BeatKind[capacity];
+        perspectives = new GraphPerspectiveUsage[capacity];
+        System.arraycopy(oldBeats, 0, beats, 0, oldBeats.length);
+        System.arraycopy(oldKinds, 0, kinds, 0, oldKinds.length);
+        System.arraycopy(oldPerspectives, 0, perspectives, 0, oldPerspectives.length);
+        rebuild();
+    }
+
+    /**
+     * 按当前数组容量重建全部树状数组
+     */
+    private void rebuild() {
+        int capacity = beats.length;
+        beatPresence = new Fenwick(capacity);
+        tensionSum = new Fenwick(capacity);
+        paceSum = new Fenwick(capacity);
+        perspectivePresence = new Fenwick(capacity);
+        kindCounts = new Fenwick[BeatKind.values().length];
+        for (int i = 0; i < kindCounts.length; i++) {
+            kindCounts[i] = new Fenwick(capacity);
+        }
+        for (int chapter = 1; chapter < capacity; chapter++) {
+            if (beats[chapter] != null) {
+                addBeat(chapter, 1);
+            }
+            if (perspectives[chapter] != null) {
+                perspectivePresence.add(chapter, 1);
+            }
+        }
+    }
+
+    /**
+     * 树状数组（下标从 1 开始）
+     */
+    private static final class Fenwick {
+        private final double[] tree;
+
+        Fenwick(int capacity) {
+            this.tree = new double[capacity];
+        }
+
+        void add(int index, double delta) {
+            for (int i = index; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        double prefix(int index) {
+            double sum = 0;
+            for (int i = Math.min(index, tree.length - 1); i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        double range(int from, int to) {
+            return from > to ? 0 : prefix(to) - prefix(from - 1);
+        }
+
+        /**
+         * 前缀和首次达到 target 的下标（值均为 0/1 时即第 target 个有记录的位置）
+         */
+        int search(double target) {
+            int position = 0;
+            double remaining = target - 0.5;
+            for (int step = Integer.highestOneBit(Math.max(1, tree.length - 1)); step > 0; step >>= 1) {
+                int next = position + step;
+                if (next < tree.length && tree[next] < remaining) {
+                    position = next;
+                    remaining -= tree[next];
+                }
+            }
+            return position + 1;
+        }
+    }
+}
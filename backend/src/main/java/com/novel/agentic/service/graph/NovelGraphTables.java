@@ -0,0 +1,487 @@
+package com.novel.agentic.service.graph;
+
+import com.novel.agentic.entity.graph.GraphCharacterState;
+import com.novel.agentic.entity.graph.GraphEvent;
+import com.novel.agentic.entity.graph.GraphForeshadowing;
+import com.novel.agentic.entity.graph.GraphOpenQuest;
+import com.novel.agentic.entity.graph.GraphPlotline;
+import com.novel.agentic.entity.graph.GraphRelationshipState;
+import com.novel.agentic.entity.graph.GraphWorldRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 小说图谱表的内存镜像（按表加载，不可变）
+ *
+ * 每张表的行按查询所用的章节列升序排列，并保留对应的 int 章节索引，
+ * 「某章之前 / 之后」的过滤用二分查找定位区段，再按 Mapper 中 SQL 的排序规则取前 N 条：
+ * MySQL 中 NULL 在升序时排最前、降序时排最后，这里保持一致
+ *
+ * 返回的实体在各次查询间共享，调用方只读使用
+ */
+public final class NovelGraphTables {
+
+    private NovelGraphTables() {
+    }
+
+    /**
+     * 图谱表（内存分层以表为单位加载与失效）
+     */
+    public enum Segment {
+        EVENTS, FORESHADOWS, PLOTLINES, WORLD_RULES, CHARACTER_STATES, RELATIONSHIPS, OPEN_QUESTS
+    }
+
+    // 每行对象头、字段与数组槽位的粗略开销；字符串另按长度计
+    private static final long ROW_OVERHEAD = 96;
+    private static final long STRING_OVERHEAD = 40;
+
+    /**
+     * 一张表的内存镜像
+     */
+    public abstract static class Table {
+        private final long estimatedBytes;
+
+        Table(long estimatedBytes) {
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        /**
+         * 估算的堆占用（字节）
+         */
+        public long estimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public abstract int size();
+    }
+
+    // =============================
+    // 事件
+    // =============================
+
+    public static final class Events extends Table {
+        private final GraphEvent[] rows;
+        private final int[] chapters;
+
+        private Events(GraphEvent[] rows, int[] chapters, long bytes) {
+            super(bytes);
+            this.rows = rows;
+            this.chapters = chapters;
+        }
+
+        public static Events of(List<GraphEvent> events) {
+            GraphEvent[] rows = sortedBy(events, GraphEvent::getChapterNumber, new GraphEvent[0]);
+            long bytes = 0;
+            for (GraphEvent e : rows) {
+                bytes += rowBytes(e.getEventId(), e.getSummary(), e.getDescription(), e.getLocation(),
+                    e.getRealm(), e.getEmotionalTone(), e.getTags());
+            }
+            return new Events(rows, keys(rows, GraphEvent::getChapterNumber), bytes);
+        }
+
+        /**
+         * 同 findRelevantEvents：chapter_number &lt; 当前章，按重要性、章节降序
+         */
+        public List<GraphEvent> relevant(int chapterNumber, int limit) {
+            List<GraphEvent> candidates = slice(rows, firstNonNull(chapters), lowerBound(chapters, chapterNumber));
+            return top(candidates, Comparator
+                .comparing(GraphEvent::getImportance, nullsLastDesc())
+                .thenComparing(GraphEvent::getChapterNumber, nullsLastDesc()), limit);
+        }
+
+        /**
+         * 同 findByNovelId：按章节降序
+         */
+        public List<GraphEvent> all() {
+            List<GraphEvent> result = new ArrayList<>(Arrays.asList(rows));
+            Collections.reverse(result);
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // =============================
+    // 伏笔
+    // =============================
+
+    public static final class Foreshadows extends Table {
+        private final GraphForeshadowing[] rows;
+        private final int[] introduced;
+
+        private Foreshadows(GraphForeshadowing[] rows, int[] introduced, long bytes) {
+            super(bytes);
+            this.rows = rows;
+            this.introduced = introduced;
+        }
+
+        public static Foreshadows of(List<GraphForeshadowing> foreshadows) {
+            GraphForeshadowing[] rows = sortedBy(foreshadows, GraphForeshadowing::getIntroducedChapter, new GraphForeshadowing[0]);
+            long bytes = 0;
+            for (GraphForeshadowing f : rows) {
+                bytes += rowBytes(f.getForeshadowId(), f.getContent(), f.getImportance(), f.getStatus());
+            }
+            return new Foreshadows(rows, keys(rows, GraphForeshadowing::getIntroducedChapter), bytes);
+        }
+
+        /**
+         * 同 findUnresolvedForeshadows：当前章之前埋下、未揭晓、计划揭晓不晚于 10 章后；按重要度降序、埋设越早越靠前
+         */
+        public List<GraphForeshadowing> unresolved(int chapterNumber, int limit) {
+            List<GraphForeshadowing> candidates = new ArrayList<>();
+            for (GraphForeshadowing f : slice(rows, firstNonNull(introduced), lowerBound(introduced, chapterNumber))) {
+                if (f.getStatus() != null && !"REVEALED".equals(f.getStatus())
+                    && (f.getPlannedRevealChapter() == null || f.getPlannedRevealChapter() <= chapterNumber + 10)) {
+                    candidates.add(f);
+                }
+            }
+            return top(candidates, Comparator
+                .comparingInt((GraphForeshadowing f) -> importanceRank(f.getImportance())).reversed()
+                .thenComparing(GraphForeshadowing::getIntroducedChapter), limit);
+        }
+
+        private static int importanceRank(String importance) {
+            if ("high".equals(importance)) {
+                return 3;
+            }
+            return "medium".equals(importance) ? 2 : 1;
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // =============================
+    // 情节线
+    // =============================
+
+    public static final class Plotlines extends Table {
+        private final GraphPlotline[] rows;
+        private final int[] lastTouched;
+
+        private Plotlines(GraphPlotline[] rows, int[] lastTouched, long bytes) {
+            super(bytes);
+            this.rows = rows;
+            this.lastTouched = lastTouched;
+        }
+
+        public static Plotlines of(List<GraphPlotline> plotlines) {
+            // last_touched_chapter 为空按 0 处理（与 SQL 中的 COALESCE 一致）
+            List<GraphPlotline> sorted = new ArrayList<>(plotlines);
+            sorted.sort(Comparator.comparingInt(Plotlines::touched));
+            GraphPlotline[] rows = sorted.toArray(new GraphPlotline[0]);
+            int[] keys = new int[rows.length];
+            long bytes = 0;
+            for (int i = 0; i < rows.length; i++) {
+                keys[i] = touched(rows[i]);
+                bytes += rowBytes(rows[i].getPlotlineId(), rows[i].getName());
+            }
+            return new Plotlines(rows, keys, bytes);
+        }
+
+        /**
+         * 同 findIdlePlotlines：超过 5 章未推进，按优先级降序、闲置越久越靠前
+         */
+        public List<GraphPlotline> idle(int chapterNumber, int limit) {
+            List<GraphPlotline> candidates = slice(rows, 0, lowerBound(lastTouched, chapterNumber - 5));
+            return top(candidates, Comparator
+                .comparing(GraphPlotline::getPriority, nullsLastDesc())
+                .thenComparingInt(Plotlines::touched), limit);
+        }
+
+        private static int touched(GraphPlotline p) {
+            return p.getLastTouchedChapter() != null ? p.getLastTouchedChapter() : 0;
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // =============================
+    // 世界规则
+    // =============================
+
+    public static final class WorldRules extends Table {
+        private final GraphWorldRule[] rows;
+
+        private WorldRules(GraphWorldRule[] rows, long bytes) {
+            super(bytes);
+            this.rows = rows;
+        }
+
+        public static WorldRules of(List<GraphWorldRule> rules) {
+            GraphWorldRule[] rows = rules.toArray(new GraphWorldRule[0]);
+            long bytes = 0;
+            for (GraphWorldRule r : rows) {
+                bytes += rowBytes(r.getRuleId(), r.getName(), r.getContent(), r.getConstraintText(), r.getCategory(), r.getScope());
+            }
+            return new WorldRules(rows, bytes);
+        }
+
+        /**
+         * 同 findApplicableRules：全局规则或已生效的规则，按类别权重、重要性降序
+         */
+        public List<GraphWorldRule> applicable(int chapterNumber, int limit) {
+            List<GraphWorldRule> candidates = new ArrayList<>();
+            for (GraphWorldRule r : rows) {
+                if ("global".equals(r.getScope()) || r.getApplicableChapter() == null || r.getApplicableChapter() <= chapterNumber) {
+                    candidates.add(r);
+                }
+            }
+            return top(candidates, Comparator
+                .comparingInt((GraphWorldRule r) -> categoryWeight(r.getCategory())).reversed()
+                .thenComparing(GraphWorldRule::getImportance, nullsLastDesc()), limit);
+        }
+
+        private static int categoryWeight(String category) {
+            if (category == null) {
+                return 5;
+            }
+            switch (category) {
+                case "power_system":
+                    return 10;
+                case "world_setting":
+                    return 8;
+                case "character_constraint":
+                    return 6;
+                default:
+                    return 5;
+            }
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // =============================
+    // 角色状态
+    // =============================
+
+    public static final class CharacterStates extends Table {
+        private final GraphCharacterState[] rows;
+
+        private CharacterStates(GraphCharacterState[] rows, long bytes) {
+            super(bytes);
+            this.rows = rows;
+        }
+
+        public static CharacterStates of(List<GraphCharacterState> states) {
+            GraphCharacterState[] rows = states.toArray(new GraphCharacterState[0]);
+            // 同 findByNovelIdWithLimit：按最后更新章节降序
+            Arrays.sort(rows, Comparator.comparing(GraphCharacterState::getLastUpdatedChapter, nullsLastDesc()));
+            long bytes = 0;
+            for (GraphCharacterState s : rows) {
+                bytes += rowBytes(s.getCharacterName(), s.getLocation(), s.getRealm(), s.getAffiliation(),
+                    s.getSocialStatus(), s.getBackers(), s.getTags(), s.getSecrets(), s.getKeyItems(),
+                    s.getKnownBy(), s.getInventory(), s.getCharacterInfo());
+            }
+            return new CharacterStates(rows, bytes);
+        }
+
+        public List<GraphCharacterState> recent(int limit) {
+            return slice(rows, 0, Math.min(rows.length, Math.max(0, limit)));
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // =============================
+    // 关系状态
+    // =============================
+
+    public static final class Relationships extends Table {
+        private final GraphRelationshipState[] rows;
+        // 角色名 -> 相关关系在 rows 中的下标（rows 已按强度降序）
+        private final Map<String, int[]> byCharacter;
+
+        private Relationships(GraphRelationshipState[] rows, Map<String, int[]> byCharacter, long bytes) {
+            super(bytes);
+            this.rows = rows;
+            this.byCharacter = byCharacter;
+        }
+
+        public static Relationships of(List<GraphRelationshipState> relations) {
+            GraphRelationshipState[] rows = relations.toArray(new GraphRelationshipState[0]);
+            // 同 findByNovelIdWithLimit：按强度、最后更新章节降序
+            Arrays.sort(rows, Comparator
+                .comparing(GraphRelationshipState::getStrength, nullsLastDesc())
+                .thenComparing(GraphRelationshipState::getLastUpdatedChapter, nullsLastDesc()));
+            Map<String, List<Integer>> index = new HashMap<>();
+            long bytes = 0;
+            for (int i = 0; i < rows.length; i++) {
+                GraphRelationshipState r = rows[i];
+                index.computeIfAbsent(r.getCharacterA(), k -> new ArrayList<>()).add(i);
+                if (!Objects.equals(r.getCharacterB(), r.getCharacterA())) {
+                    index.computeIfAbsent(r.getCharacterB(), k -> new ArrayList<>()).add(i);
+                }
+                bytes += rowBytes(r.getCharacterA(), r.getCharacterB(), r.getType(), r.getDescription(), r.getPublicStatus());
+            }
+            Map<String, int[]> byCharacter = new HashMap<>();
+            index.forEach((name, positions) -> byCharacter.put(name, positions.stream().mapToInt(Integer::intValue).toArray()));
+            return new Relationships(rows, byCharacter, bytes);
+        }
+
+        public List<GraphRelationshipState> top(int limit) {
+            return slice(rows, 0, Math.min(rows.length, Math.max(0, limit)));
+        }
+
+        /**
+         * 同 findByCharacterName：与该角色相关的关系，按强度降序
+         */
+        public List<GraphRelationshipState> ofCharacter(String characterName, int limit) {
+            int[] positions = characterName != null ? byCharacter.get(characterName) : null;
+            if (positions == null) {
+                return new ArrayList<>();
+            }
+            List<GraphRelationshipState> result = new ArrayList<>();
+            for (int i = 0; i < positions.length && result.size() < limit; i++) {
+                result.add(rows[positions[i]]);
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // =============================
+    // 开放任务
+    // =============================
+
+    public static final class OpenQuests extends Table {
+        private final GraphOpenQuest[] open;
+
+        private OpenQuests(GraphOpenQuest[] open, long bytes) {
+            super(bytes);
+            this.open = open;
+        }
+
+        public static OpenQuests of(List<GraphOpenQuest> quests) {
+            List<GraphOpenQuest> open = new ArrayList<>();
+            long bytes = 0;
+            for (GraphOpenQuest q : quests) {
+                if ("OPEN".equals(q.getStatus())) {
+                    open.add(q);
+                    bytes += rowBytes(q.getQuestId(), q.getDescription(), q.getStatus());
+                }
+            }
+            // 同 findOpenQuests：按截止章升序（未设截止排最前）、最后更新章节降序
+            open.sort(Comparator
+                .comparing(GraphOpenQuest::getDueByChapter, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                .thenComparing(GraphOpenQuest::getLastUpdatedChapter, nullsLastDesc()));
+            return new OpenQuests(open.toArray(new GraphOpenQuest[0]), bytes);
+        }
+
+        public List<GraphOpenQuest> open(int currentChapter) {
+            List<GraphOpenQuest> result = new ArrayList<>();
+            for (GraphOpenQuest q : open) {
+                if (q.getDueByChapter() == null || q.getDueByChapter() >= currentChapter) {
+                    result.add(q);
+                    if (result.size() >= 10) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return open.length;
+        }
+    }
+
+    // =============================
+    // 辅助方法
+    // =============================
+
+    private static <T extends Comparable<? super T>> Comparator<T> nullsLastDesc() {
+        return Comparator.nullsLast(Comparator.<T>reverseOrder());
+    }
+
+    /**
+     * 按整数列升序排序（空值排最前）
+     */
+    private static <T> T[] sortedBy(List<T> rows, Function<T, Integer> key, T[] type) {
+        T[] sorted = rows.toArray(type);
+        Arrays.sort(sorted, Comparator.comparing(key, Comparator.nullsFirst(Comparator.<Integer>naturalOrder())));
+        return sorted;
+    }
+
+    /**
+     * 升序整数列的索引；空值记为 Integer.MIN_VALUE
+     */
+    private static <T> int[] keys(T[] rows, Function<T, Integer> key) {
+        int[] keys = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            Integer value = key.apply(rows[i]);
+            keys[i] = value != null ? value : Integer.MIN_VALUE;
+        }
+        return keys;
+    }
+
+    /**
+     * 第一个非空键的位置（空值在 SQL 比较中不满足任何条件）
+     */
+    private static int firstNonNull(int[] keys) {
+        return lowerBound(keys, Integer.MIN_VALUE + 1);
+    }
+
+    /**
+     * 第一个 &gt;= value 的位置
+     */
+    static int lowerBound(int[] keys, int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static <T> List<T> slice(T[] rows, int from, int to) {
+        return from < to ? new ArrayList<>(Arrays.asList(rows).subList(from, to)) : new ArrayList<>();
+    }
+
+    private static <T> List<T> top(List<T> candidates, Comparator<T> order, int limit) {
+        candidates.sort(order);
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, Math.max(0, limit))) : candidates;
+    }
+
+    private static long rowBytes(String... values) {
+        long bytes = ROW_OVERHEAD;
+        for (String value : values) {
+            if (value != null) {
+                bytes += STRING_OVERHEAD + 2L * value.length();
+            }
+        }
+        return bytes;
+    }
+}
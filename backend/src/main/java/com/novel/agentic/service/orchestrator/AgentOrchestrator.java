@@ -4,17 +4,24 @@ import org.apache.commons.lang3.StringUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.novel.agentic.model.*;
 import com.novel.agentic.service.PromptAssembler;
+import com.novel.agentic.service.performance.ContextPrefetcher;
 import com.novel.agentic.service.tools.Tool;
+import com.novel.agentic.service.tools.ToolCallScope;
 import com.novel.agentic.service.tools.ToolRegistry;
 import com.novel.dto.AIConfigRequest;
 import com.novel.service.AIWritingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -35,6 +42,7 @@ public class AgentOrchestrator {
     private static final Logger logger = LoggerFactory.getLogger(AgentOrchestrator.class);
     
     private static final Integer MAX_STEPS = 8; // 最大决策步数
+    private static final String WRITE_ACTION = "WRITE";
     private static final int THINKING_OUTLINE_TOKENS = 2200;
     private static final int THINKING_BLUEPRINT_TOKENS = 1600;
     private static final int THINKING_CORE_SUMMARY_TOKENS = 1200;
@@ -54,6 +62,28 @@ public class AgentOrchestrator {
 
     @Autowired
     private PromptAssembler promptAssembler;
+
+    @Autowired
+    private ContextPrefetcher contextPrefetcher;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // 每步最多并发执行的工具数
+    @Value("${generation.react.max-actions-per-step:4}")
+    private int maxActionsPerStep;
+
+    // 单步工具执行超时（部分工具内部会调用模型）
+    @Value("${generation.react.tool-timeout-ms:60000}")
+    private long toolTimeoutMs;
+
+    // 决策阶段耗时上限（毫秒），超出后不再发起新的决策
+    @Value("${generation.react.decision-budget-ms:90000}")
+    private long decisionBudgetMs;
+
+    // 决策阶段估算 token 上限（提示词 + 回复）
+    @Value("${generation.react.decision-token-budget:60000}")
+    private int decisionTokenBudget;
     
     /**
      * 执行ReAct决策循环（新架构：决策层看全局，写作层看章纲）
@@ -69,6 +99,17 @@ public class AgentOrchestrator {
             Integer chapterNumber,
             String userAdjustment,
             AIConfigRequest aiConfig) throws Exception {
+        // 预取、决策步骤与兜底查询共享同一工具调用作用域，重复的只读查询只执行一次
+        try (ToolCallScope.Registration ignored = ToolCallScope.join("react-" + novelId + "-" + chapterNumber)) {
+            return runReActLoop(novelId, chapterNumber, userAdjustment, aiConfig);
+        }
+    }
+
+    private WritingContext runReActLoop(
+            Long novelId,
+            Integer chapterNumber,
+            String userAdjustment,
+            AIConfigRequest aiConfig) throws Exception {
         
         logger.info("🧠 开始决策循环（新架构）: novelId={}, chapter={}", novelId, chapterNumber);
         
@@ -88,12 +129,16 @@ public class AgentOrchestrator {
 
         // 预取核心上下文：大纲、卷蓝图、20-30章摘要、前1章完整内容
         Set<String> executedTools = new HashSet<>();
-        prefetchCoreContextEnhanced(novelId, chapterNumber, contextBuilder, executedTools);
+        ContextPrefetcher.Batch prefetch = contextPrefetcher.batch("orchestrator-" + novelId + "-" + chapterNumber);
+        prefetchCoreContextEnhanced(novelId, chapterNumber, prefetch);
 
         boolean earlyPhase = isEarlyChapter(chapterNumber);
         
         // 强制预加载图谱数据（不依赖AI决策）
-        prefetchGraphData(novelId, chapterNumber, contextBuilder, executedTools, earlyPhase);
+        prefetchGraphData(novelId, chapterNumber, prefetch, earlyPhase);
+
+        // 以上来源并发执行，统一等待后按声明顺序写入上下文
+        applyPrefetched(prefetch.await(), contextBuilder, executedTools);
 
         // 移除创意信号预加载，让决策层根据实际需要调用
         // seedCreativeSignals(novelId, chapterNumber, userAdjustment, contextBuilder, executedTools, aiConfig);
@@ -106,10 +151,17 @@ public class AgentOrchestrator {
         }
 
         int maxSteps = earlyPhase ? Math.min(MAX_STEPS, 3) : MAX_STEPS;
+        DecisionBudget budget = new DecisionBudget(decisionBudgetMs, decisionTokenBudget);
         
-        // ReAct循环
+        // ReAct循环：每步一次决策调用，可同时请求多个工具并发执行；
+        // 对工具结果的评估并入下一步决策（不再单独调用反思）
         for (int step = 1; step <= maxSteps; step++) {
             logger.info("📍 Step {}/{}", step, maxSteps);
+
+            if (budget.exhausted()) {
+                logger.warn("⏱️ 决策预算已用尽（{}），提前结束决策循环", budget.describe());
+                break;
+            }
             
             // 1. THOUGHT: 让AI思考下一步
             AgentThought thought = AgentThought.builder()
@@ -127,72 +179,68 @@ public class AgentOrchestrator {
 
             // 调用AI获取决策
             String aiResponse = callAIForDecision(thinkingPrompt, aiConfig);
+            budget.recordCall(thinkingPrompt, aiResponse);
             logger.info("💭 AI思考: {}", aiResponse);
             
             // 解析AI的决策
             AgentDecision decision = parseAIDecision(aiResponse);
             thought.setReasoning(decision.getReasoning());
-            thought.setAction(decision.getAction());
-            thought.setActionArgs(decision.getActionArgs());
+            thought.setAction(decision.describeActions());
+            thought.setActionArgs(decision.describeArgs());
+
+            // 上一步工具结果的评估随本次决策返回
+            if (StringUtils.isNotBlank(decision.getReflection()) && !thoughts.isEmpty()) {
+                AgentThought previous = thoughts.get(thoughts.size() - 1);
+                previous.setReflection(decision.getReflection());
+                logger.info("🤔 AI反思（Step {}）: {}", previous.getStepNumber(), decision.getReflection());
+            }
 
-            logger.info("🎯 决策输出: action={}, args={}, reasoning= {}",
-                decision.getAction(),
-                shorten(decision.getActionArgs(), 120),
+            logger.info("🎯 决策输出: actions={}, args={}, reasoning= {}",
+                thought.getAction(),
+                shorten(thought.getActionArgs(), 120),
                 shorten(decision.getReasoning(), 180));
-            
-            // 2. ACTION: 执行工具
-            if ("WRITE".equals(decision.getAction())) {
-                // AI认为信息充足，可以开始写作
+
+            List<ToolCall> requested = decision.getActions().stream()
+                .filter(call -> !WRITE_ACTION.equals(call.getAction()))
+                .collect(Collectors.toList());
+
+            // 2. ACTION: 仅 WRITE，信息充足
+            if (requested.isEmpty()) {
                 thought.setGoalAchieved(true);
                 thought.setObservation("信息收集完成，准备写作");
                 thoughts.add(thought);
                 logger.info("✅ AI决定：信息充足，开始写作");
                 break;
-            } else {
-                // 执行具体工具
-                try {
-                    Map<String, Object> args = parseToolArgs(decision.getActionArgs(), novelId, chapterNumber);
-                    args = enrichToolArgs(decision.getAction(), args, snapshot, userAdjustment);
-
-                    Object result;
-                    try {
-                        result = toolRegistry.executeTool(decision.getAction(), args);
-                    } catch (IllegalArgumentException missingTool) {
-                        String instruction = decision.getAction();
-                        logger.warn("AI请求不存在的工具，将作为用户指示提示: {}", instruction);
-                        thought.setObservation("AI请求用户指示: " + instruction);
-                        thought.setGoalAchieved(false);
-                        executedTools.add(instruction);
-                        thoughts.add(thought);
-                        break;
-                    }
-
-                    // 3. OBSERVATION: 记录结果
-                    String resultJson = objectMapper.writeValueAsString(result);
-                    thought.setObservation(resultJson);
-                    thought.setGoalAchieved(false);
-
-                    executedTools.add(decision.getAction());
-
-                    // 将结果存入上下文
-                    storeToolResult(decision.getAction(), result, contextBuilder);
+            }
 
-                    logger.info("✅ 工具执行成功: {} -> {}", decision.getAction(),
-                        resultJson.length() > 200 ? resultJson.substring(0, 200) + "..." : resultJson);
+            // 请求的工具全部不存在：视为用户指示，结束决策
+            if (requested.stream().allMatch(call -> toolRegistry.getTool(call.getAction()) == null)) {
+                List<String> unknownTools = requested.stream()
+                    .map(ToolCall::getAction).distinct().collect(Collectors.toList());
+                String instruction = String.join(", ", unknownTools);
+                logger.warn("AI请求不存在的工具，将作为用户指示提示: {}", instruction);
+                thought.setObservation("AI请求用户指示: " + instruction);
+                thought.setGoalAchieved(false);
+                executedTools.addAll(unknownTools);
+                thoughts.add(thought);
+                break;
+            }
 
-                    // 🆕 REFLECTION: AI反思结果质量
-                    String reflection = reflectOnResult(decision.getAction(), resultJson, aiConfig);
-                    thought.setReflection(reflection);
-                    logger.info("🤔 AI反思: {}", reflection);
+            // 3. OBSERVATION: 并发执行本步工具并记录结果
+            StepResult stepResult = executeStep("react-" + novelId + "-" + chapterNumber + "-step" + step,
+                requested, novelId, chapterNumber, snapshot, userAdjustment, contextBuilder, executedTools);
+            budget.recordTools(stepResult.executed);
+            thought.setObservation(stepResult.observation);
+            thought.setGoalAchieved(false);
+            thoughts.add(thought);
 
-                } catch (Exception e) {
-                    thought.setObservation("工具执行失败: " + e.getMessage());
-                    logger.error("❌ 工具执行失败: {}", decision.getAction(), e);
-                }
+            // 决策同时给出了 WRITE：工具结果入上下文后直接写作
+            if (decision.requestsWrite()) {
+                logger.info("✅ AI决定：本步工具执行后开始写作");
+                thought.setGoalAchieved(true);
+                break;
             }
             
-            thoughts.add(thought);
-            
             // 检查是否完成必查工具
             if (executedTools.containsAll(requiredTools) && step >= 3) {
                 logger.info("✅ 必查工具已完成，可以考虑结束决策");
@@ -239,6 +287,7 @@ public class AgentOrchestrator {
         WritingContext context = contextBuilder.build();
         context.setChapterIntent(deriveChapterIntent(context));
         
+        budget.report(novelId, chapterNumber, thoughts.size());
         logger.info("🎉 ReAct决策循环完成: 共{}步, 执行工具{}", thoughts.size(), executedTools);
         return context;
     }
@@ -333,8 +382,13 @@ public class AgentOrchestrator {
                 prompt.append("  思考: ").append(thought.getReasoning()).append("\n");
                 prompt.append("  行动: ").append(thought.getAction()).append("\n");
                 String obs = thought.getObservation();
-                prompt.append("  结果: ").append(obs != null && obs.length() > 150 ? 
-                    obs.substring(0, 150) + "..." : obs).append("\n");
+                // 最近一步给出更完整的结果，供本次决策同时完成评估
+                int obsLimit = thought == previousThoughts.get(previousThoughts.size() - 1) ? 500 : 150;
+                prompt.append("  结果: ").append(obs != null && obs.length() > obsLimit ?
+                    obs.substring(0, obsLimit) + "..." : obs).append("\n");
+                if (StringUtils.isNotBlank(thought.getReflection())) {
+                    prompt.append("  评估: ").append(thought.getReflection()).append("\n");
+                }
             }
             prompt.append("\n");
         }
@@ -342,16 +396,23 @@ public class AgentOrchestrator {
         prompt.append("【决策格式】\n");
         prompt.append("请按以下JSON格式回复：\n");
         prompt.append("{\n");
-        prompt.append("  \"reasoning\": \"你的思考过程（为什么需要这个信息/为什么现在可以写作）\",\n");
-        prompt.append("  \"action\": \"工具名称或WRITE（表示开始写作）\",\n");
-        prompt.append("  \"args\": \"工具参数（如果是WRITE则为空）\"\n");
-        prompt.append("}\n\n");
+        if (!previousThoughts.isEmpty()) {
+            prompt.append("  \"reflection\": \"对上一步工具结果的简短评估（是否有用、是否仍缺信息，不超过100字）\",\n");
+        }
+        prompt.append("  \"reasoning\": \"你的思考过程（为什么需要这些信息/为什么现在可以写作）\",\n");
+        prompt.append("  \"actions\": [\n");
+        prompt.append("    {\"action\": \"工具名称\", \"args\": \"工具参数\"}\n");
+        prompt.append("  ]\n");
+        prompt.append("}\n");
+        prompt.append("actions 中可一次列出最多").append(maxActionsPerStep)
+              .append("个互不依赖的工具（将并发执行）；信息充足时 actions 只填 {\"action\": \"WRITE\"}；")
+              .append("工具之后追加 WRITE 表示拿到结果即开始写作。\n\n");
         
         prompt.append("【决策要求】\n");
         prompt.append("1. 先复盘已持有的核心素材，确认是否足够写作\n");
         prompt.append("2. 只有当节奏或剧情信息缺失时，才调用额外工具\n");
         prompt.append("3. 必须先调用标记为'必须调用'的工具\n");
-        prompt.append("4. 避免重复调用已执行的工具\n");
+        prompt.append("4. 避免重复调用已执行的工具；需要的工具尽量在同一步一次请求\n");
         prompt.append("5. 优先级：节奏校准 > 主线冲突/人物工具 > 图谱补充工具\n\n");
         
         // 🆕 根据章节类型推荐工具
@@ -468,49 +529,6 @@ public class AgentOrchestrator {
         return hint.toString();
     }
     
-    /**
-     * 反思工具结果质量
-     * 
-     * 让AI评估获取的信息是否有用、是否还需要更多信息
-     */
-    private String reflectOnResult(String toolName, String resultJson, AIConfigRequest aiConfig) {
-        try {
-            StringBuilder reflectionPrompt = new StringBuilder();
-            reflectionPrompt.append("你刚刚调用了工具【").append(toolName).append("】，返回结果如下：\n\n");
-            
-            // 截取结果（避免太长）
-            String truncatedResult = resultJson.length() > 500 ? 
-                resultJson.substring(0, 500) + "...（结果已截断）" : resultJson;
-            reflectionPrompt.append(truncatedResult).append("\n\n");
-            
-            reflectionPrompt.append("请简短评估（1-2句话）：\n");
-            reflectionPrompt.append("1. 这个结果是否有用？\n");
-            reflectionPrompt.append("2. 是否还需要更多信息来完成写作？\n");
-            reflectionPrompt.append("3. 如果结果为空或无用，下一步应该怎么办？\n\n");
-            reflectionPrompt.append("请用简短的文字回复（不超过100字）：");
-            
-            List<Map<String, String>> messages = new ArrayList<>();
-            Map<String, String> userMessage = new HashMap<>();
-            userMessage.put("role", "user");
-            userMessage.put("content", reflectionPrompt.toString());
-            messages.add(userMessage);
-            
-            StringBuilder reflection = new StringBuilder();
-            aiWritingService.streamGenerateContentWithMessages(
-                messages, 
-                "agent_reflection", 
-                aiConfig, 
-                chunk -> reflection.append(chunk)
-            );
-            
-            return reflection.toString();
-            
-        } catch (Exception e) {
-            logger.error("反思失败", e);
-            return "反思失败：" + e.getMessage();
-        }
-    }
-
     private Map<String, Object> deriveChapterIntent(WritingContext context) {
         Map<String, Object> intent = new HashMap<>();
 
@@ -639,8 +657,7 @@ public class AgentOrchestrator {
      */
     private void prefetchCoreContextEnhanced(Long novelId,
                                               Integer chapterNumber,
-                                              WritingContext.WritingContextBuilder contextBuilder,
-                                              Set<String> executedTools) {
+                                              ContextPrefetcher.Batch prefetch) {
         logger.info("📥 开始预加载核心上下文（增强版）");
         
         // 1. 大纲
@@ -648,7 +665,7 @@ public class AgentOrchestrator {
             Map<String, Object> params = new HashMap<>();
             params.put("novelId", novelId);
             return params;
-        }, novelId, contextBuilder, executedTools);
+        }, prefetch);
 
         // 2. 卷蓝图
         prefetchTool("getVolumeBlueprint", () -> {
@@ -656,7 +673,7 @@ public class AgentOrchestrator {
             params.put("novelId", novelId);
             params.put("chapterNumber", chapterNumber);
             return params;
-        }, novelId, contextBuilder, executedTools);
+        }, prefetch);
 
         // 3. 最近章节（getRecentChapters会返回前1章完整 + 20-30章摘要）
         prefetchTool("getRecentChapters", () -> {
@@ -667,9 +684,9 @@ public class AgentOrchestrator {
             params.put("summaryLimit", 30);
             logger.info("🔍 准备查询最近章节: novelId={}, currentChapter={}, summaryLimit=30", novelId, chapterNumber);
             return params;
-        }, novelId, contextBuilder, executedTools);
+        }, prefetch);
         
-        logger.info("✅ 核心上下文预加载完成");
+        logger.info("✅ 核心上下文预加载已提交");
     }
     
     /**
@@ -680,7 +697,9 @@ public class AgentOrchestrator {
                                      Integer chapterNumber,
                                      WritingContext.WritingContextBuilder contextBuilder,
                                      Set<String> executedTools) {
-        prefetchCoreContextEnhanced(novelId, chapterNumber, contextBuilder, executedTools);
+        ContextPrefetcher.Batch prefetch = contextPrefetcher.batch("orchestrator-core-" + novelId + "-" + chapterNumber);
+        prefetchCoreContextEnhanced(novelId, chapterNumber, prefetch);
+        applyPrefetched(prefetch.await(), contextBuilder, executedTools);
     }
     
     /**
@@ -689,8 +708,7 @@ public class AgentOrchestrator {
      */
     private void prefetchGraphData(Long novelId,
                                    Integer chapterNumber,
-                                   WritingContext.WritingContextBuilder contextBuilder,
-                                   Set<String> executedTools,
+                                   ContextPrefetcher.Batch prefetch,
                                    boolean earlyPhase) {
         logger.info("📊 开始强制预加载图谱数据: novelId={}, chapter={}, earlyPhase={}", novelId, chapterNumber, earlyPhase);
         
@@ -701,7 +719,7 @@ public class AgentOrchestrator {
             params.put("chapterNumber", chapterNumber);
             params.put("limit", 10);
             return params;
-        }, novelId, contextBuilder, executedTools);
+        }, prefetch);
         
         // 2. 未解决的伏笔（中后期）
         if (!earlyPhase) {
@@ -710,7 +728,7 @@ public class AgentOrchestrator {
                 params.put("novelId", novelId);
                 params.put("chapterNumber", chapterNumber);
                 return params;
-            }, novelId, contextBuilder, executedTools);
+            }, prefetch);
         }
         
         // 3. 世界规则（所有章节）
@@ -718,7 +736,7 @@ public class AgentOrchestrator {
             Map<String, Object> params = new HashMap<>();
             params.put("novelId", novelId);
             return params;
-        }, novelId, contextBuilder, executedTools);
+        }, prefetch);
         
         // 4. 叙事节奏（中后期必查）
         if (!earlyPhase) {
@@ -727,7 +745,7 @@ public class AgentOrchestrator {
                 params.put("novelId", novelId);
                 params.put("chapterNumber", chapterNumber);
                 return params;
-            }, novelId, contextBuilder, executedTools);
+            }, prefetch);
         }
         
         // 5. 情节线状态（中后期）
@@ -737,7 +755,7 @@ public class AgentOrchestrator {
                 params.put("novelId", novelId);
                 params.put("chapterNumber", chapterNumber);
                 return params;
-            }, novelId, contextBuilder, executedTools);
+            }, prefetch);
         }
         
         // 6. 冲突弧线状态（中后期）
@@ -747,7 +765,7 @@ public class AgentOrchestrator {
                 params.put("novelId", novelId);
                 params.put("chapterNumber", chapterNumber);
                 return params;
-            }, novelId, contextBuilder, executedTools);
+            }, prefetch);
         }
         
         // 7. 人物成长弧线（中后期）
@@ -757,25 +775,39 @@ public class AgentOrchestrator {
                 params.put("novelId", novelId);
                 params.put("chapterNumber", chapterNumber);
                 return params;
-            }, novelId, contextBuilder, executedTools);
+            }, prefetch);
         }
         
-        logger.info("✅ 图谱数据预加载完成");
+        logger.info("✅ 图谱数据预加载已提交");
     }
 
+    /**
+     * 将预取工具加入并发批次（参数在调用线程中构建，工具在预取线程池中执行）
+     */
     private void prefetchTool(String toolName,
                               Supplier<Map<String, Object>> argsSupplier,
-                              Long novelId,
-                              WritingContext.WritingContextBuilder contextBuilder,
-                              Set<String> executedTools) {
-        try {
-            Tool tool = toolRegistry.getTool(toolName);
-            if (tool == null) {
-                logger.warn("⚠️ 核心上下文工具不存在: {}", toolName);
-                return;
+                              ContextPrefetcher.Batch prefetch) {
+        if (toolRegistry.getTool(toolName) == null) {
+            logger.warn("⚠️ 核心上下文工具不存在: {}", toolName);
+            return;
+        }
+        Map<String, Object> args = argsSupplier.get();
+        prefetch.add(toolName, () -> toolRegistry.executeTool(toolName, args));
+    }
+
+    /**
+     * 按声明顺序写入预取结果；超时或失败的来源跳过，留给决策循环按需再查
+     */
+    private void applyPrefetched(Map<String, ContextPrefetcher.SourceResult> results,
+                                 WritingContext.WritingContextBuilder contextBuilder,
+                                 Set<String> executedTools) {
+        for (ContextPrefetcher.SourceResult prefetched : results.values()) {
+            String toolName = prefetched.getSource();
+            if (!prefetched.isOk()) {
+                logger.error("❌ 预取核心上下文失败: {} ({})", toolName, prefetched.getOutcome(), prefetched.getError());
+                continue;
             }
-            Map<String, Object> args = argsSupplier.get();
-            Object result = tool.execute(args);
+            Object result = prefetched.getValue();
             storeToolResult(toolName, result, contextBuilder);
             executedTools.add(toolName);
             
@@ -801,9 +833,7 @@ public class AgentOrchestrator {
                 }
             }
             
-            logger.info("📥 已预取核心上下文: {}", toolName);
-        } catch (Exception e) {
-            logger.error("❌ 预取核心上下文失败: {}", toolName, e);
+            logger.info("📥 已预取核心上下文: {} ({}ms)", toolName, prefetched.getElapsedMs());
         }
     }
 
@@ -1101,11 +1131,34 @@ public class AgentOrchestrator {
                 String jsonStr = aiResponse.substring(jsonStart, jsonEnd);
                 @SuppressWarnings("unchecked")
                 Map<String, Object> decisionMap = objectMapper.readValue(jsonStr, Map.class);
+
+                List<ToolCall> actions = new ArrayList<>();
+                Object actionList = decisionMap.get("actions");
+                if (actionList instanceof List) {
+                    for (Object item : (List<?>) actionList) {
+                        if (item instanceof Map) {
+                            Map<?, ?> call = (Map<?, ?>) item;
+                            Object action = call.get("action");
+                            if (action != null && StringUtils.isNotBlank(action.toString())) {
+                                actions.add(new ToolCall(action.toString().trim(), argsToString(call.get("args"))));
+                            }
+                        } else if (item != null && StringUtils.isNotBlank(item.toString())) {
+                            actions.add(new ToolCall(item.toString().trim(), ""));
+                        }
+                    }
+                }
+                // 兼容单动作格式
+                if (actions.isEmpty() && decisionMap.get("action") != null) {
+                    actions.add(new ToolCall(decisionMap.get("action").toString().trim(), argsToString(decisionMap.get("args"))));
+                }
+                if (actions.isEmpty()) {
+                    actions.add(new ToolCall(WRITE_ACTION, ""));
+                }
                 
                 return AgentDecision.builder()
                     .reasoning((String) decisionMap.get("reasoning"))
-                    .action((String) decisionMap.get("action"))
-                    .actionArgs(decisionMap.get("args") != null ? decisionMap.get("args").toString() : "")
+                    .reflection(decisionMap.get("reflection") != null ? decisionMap.get("reflection").toString() : null)
+                    .actions(actions)
                     .build();
             }
         } catch (Exception e) {
@@ -1115,11 +1168,118 @@ public class AgentOrchestrator {
         // 兜底：直接开始写作
         return AgentDecision.builder()
             .reasoning("解析失败，使用默认策略")
-            .action("WRITE")
-            .actionArgs("")
+            .actions(Collections.singletonList(new ToolCall(WRITE_ACTION, "")))
             .build();
     }
+
+    /**
+     * 工具参数统一转为字符串（对象参数序列化为JSON，交由 parseToolArgs 解析）
+     */
+    private String argsToString(Object args) {
+        if (args == null) {
+            return "";
+        }
+        if (args instanceof Map) {
+            try {
+                return objectMapper.writeValueAsString(args);
+            } catch (Exception e) {
+                return args.toString();
+            }
+        }
+        return args.toString();
+    }
     
+    /**
+     * 并发执行一步内请求的工具，按请求顺序写入上下文
+     *
+     * 1. 同名同参数的调用只执行一次；同名不同参数各自执行，结果以“工具名#序号”区分
+     * 2. 不存在的工具、重复调用与超出每步上限的调用不执行，但会写入观察，让下一步决策知道
+     * 3. 批次截止时间取本步工具超时的最大值（调用模型的工具超时更长）
+     */
+    StepResult executeStep(String batchName,
+                           List<ToolCall> requested,
+                           Long novelId,
+                           Integer chapterNumber,
+                           WritingContext snapshot,
+                           String userAdjustment,
+                           WritingContext.WritingContextBuilder contextBuilder,
+                           Set<String> executedTools) {
+        Map<String, ToolCall> planned = new LinkedHashMap<>();
+        Map<String, Integer> perAction = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        List<String> skipped = new ArrayList<>();
+        long deadlineMs = toolTimeoutMs;
+        for (ToolCall call : requested) {
+            String action = call.getAction();
+            if (!seen.add(action + "|" + StringUtils.trimToEmpty(call.getArgs()))) {
+                skipped.add(describeCall(call) + ": 与本步已有调用重复，已合并");
+                continue;
+            }
+            Tool tool = toolRegistry.getTool(action);
+            if (tool == null) {
+                logger.warn("AI请求不存在的工具，已跳过: {}", action);
+                skipped.add(action + ": 工具不存在，未执行");
+                continue;
+            }
+            if (planned.size() >= maxActionsPerStep) {
+                skipped.add(describeCall(call) + ": 超出每步最多 " + maxActionsPerStep + " 个工具的限制，未执行，如仍需要请在下一步重新请求");
+                continue;
+            }
+            int index = perAction.merge(action, 1, Integer::sum);
+            planned.put(index == 1 ? action : action + "#" + index, call);
+            deadlineMs = Math.max(deadlineMs, timeoutFor(tool));
+        }
+
+        ContextPrefetcher.Batch batch = contextPrefetcher.batch(batchName, deadlineMs);
+        for (Map.Entry<String, ToolCall> entry : planned.entrySet()) {
+            ToolCall call = entry.getValue();
+            Map<String, Object> args = parseToolArgs(call.getArgs(), novelId, chapterNumber);
+            Map<String, Object> enriched = enrichToolArgs(call.getAction(), args, snapshot, userAdjustment);
+            batch.add(entry.getKey(), timeoutFor(toolRegistry.getTool(call.getAction())),
+                () -> toolRegistry.executeTool(call.getAction(), enriched));
+        }
+        Map<String, ContextPrefetcher.SourceResult> results = batch.await();
+
+        StringBuilder observation = new StringBuilder();
+        for (Map.Entry<String, ToolCall> entry : planned.entrySet()) {
+            ToolCall call = entry.getValue();
+            String toolName = call.getAction();
+            String label = perAction.get(toolName) > 1 ? describeCall(call) : toolName;
+            ContextPrefetcher.SourceResult result = results.get(entry.getKey());
+            if (observation.length() > 0) {
+                observation.append("\n");
+            }
+            if (result == null || !result.isOk()) {
+                String reason = result == null ? "无结果"
+                    : result.getError() != null ? result.getError().getMessage() : result.getOutcome().name();
+                observation.append(label).append(": 工具执行失败: ").append(reason);
+                logger.error("❌ 工具执行失败: {} ({})", label, reason);
+                continue;
+            }
+            String resultJson = safeJson(result.getValue());
+            observation.append(label).append(": ").append(resultJson);
+            executedTools.add(toolName);
+            storeToolResult(toolName, result.getValue(), contextBuilder);
+            logger.info("✅ 工具执行成功: {} -> {}", label,
+                resultJson != null && resultJson.length() > 200 ? resultJson.substring(0, 200) + "..." : resultJson);
+        }
+        for (String note : skipped) {
+            if (observation.length() > 0) {
+                observation.append("\n");
+            }
+            observation.append(note);
+        }
+        return new StepResult(observation.toString(), results.size());
+    }
+
+    private long timeoutFor(Tool tool) {
+        return tool != null && tool.getTimeoutMs() > 0 ? tool.getTimeoutMs() : toolTimeoutMs;
+    }
+
+    private static String describeCall(ToolCall call) {
+        return StringUtils.isBlank(call.getArgs()) ? call.getAction() : call.getAction() + "(" + call.getArgs().trim() + ")";
+    }
+
     /**
      * 解析工具参数
      */
@@ -1401,8 +1561,96 @@ public class AgentOrchestrator {
     @lombok.Builder
     private static class AgentDecision {
         private String reasoning;
+        private String reflection;
+        private List<ToolCall> actions;
+
+        boolean requestsWrite() {
+            return actions.stream().anyMatch(call -> WRITE_ACTION.equals(call.getAction()));
+        }
+
+        String describeActions() {
+            return actions.stream().map(ToolCall::getAction).collect(Collectors.joining(","));
+        }
+
+        String describeArgs() {
+            return actions.stream()
+                .filter(call -> StringUtils.isNotBlank(call.getArgs()))
+                .map(call -> call.getAction() + "=" + call.getArgs())
+                .collect(Collectors.joining("; "));
+        }
+    }
+
+    /**
+     * 单个工具调用请求
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    static class ToolCall {
         private String action;
-        private String actionArgs;
+        private String args;
+    }
+
+    /**
+     * 单步工具执行结果：观察文本与实际执行的工具数
+     */
+    @lombok.AllArgsConstructor
+    static class StepResult {
+        final String observation;
+        final int executed;
+    }
+
+    /**
+     * 决策阶段预算与统计：耗时、LLM 调用次数、估算 token、工具调用次数
+     */
+    private class DecisionBudget {
+        private final long startedAt = System.currentTimeMillis();
+        private final long maxMs;
+        private final int maxTokens;
+        private int llmCalls;
+        private int toolCalls;
+        private int tokens;
+
+        DecisionBudget(long maxMs, int maxTokens) {
+            this.maxMs = maxMs;
+            this.maxTokens = maxTokens;
+        }
+
+        void recordCall(String prompt, String response) {
+            llmCalls++;
+            tokens += TokenBudget.estimateTokens(prompt) + TokenBudget.estimateTokens(response);
+        }
+
+        void recordTools(int count) {
+            toolCalls += count;
+        }
+
+        boolean exhausted() {
+            return (maxMs > 0 && elapsedMs() >= maxMs) || (maxTokens > 0 && tokens >= maxTokens);
+        }
+
+        long elapsedMs() {
+            return System.currentTimeMillis() - startedAt;
+        }
+
+        String describe() {
+            return "耗时 " + elapsedMs() + "/" + maxMs + "ms, token " + tokens + "/" + maxTokens;
+        }
+
+        void report(Long novelId, Integer chapterNumber, int steps) {
+            logger.info("📊 决策阶段统计: novelId={}, chapter={}, 步数={}, LLM调用={}, 工具调用={}, 估算token={}, 耗时={}ms",
+                novelId, chapterNumber, steps, llmCalls, toolCalls, tokens, elapsedMs());
+            if (meterRegistry != null) {
+                Timer.builder("agentic.decision.duration")
+                    .register(meterRegistry)
+                    .record(elapsedMs(), TimeUnit.MILLISECONDS);
+                DistributionSummary.builder("agentic.decision.llm_calls")
+                    .register(meterRegistry)
+                    .record(llmCalls);
+                DistributionSummary.builder("agentic.decision.tokens")
+                    .register(meterRegistry)
+                    .record(tokens);
+            }
+        }
     }
 }
 
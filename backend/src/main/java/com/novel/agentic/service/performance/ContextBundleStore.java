@@ -0,0 +1,313 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.model.WritingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * 下一章上下文包
+ *
+ * 解决问题：每次写章都从零重建 WritingContext（大纲、卷蓝图、上一章全文、30 章概要、图谱查询，再整体优化），
+ * 而第 N 章保存并完成抽取后，第 N+1 章的输入几乎已全部确定
+ *
+ * 策略：
+ * 1. 第 N 章后续阶段完成后在后台构建并优化第 N+1 章上下文，按小说保存一份
+ * 2. 每部小说维护编辑版本号：章节、概要的任何写入都递增；包内记录构建前的编辑版本与图谱版本，
+ *    取用时任一版本变化或超过有效期即作废，回退到现场构建
+ * 3. 最近概要窗口增量维护：相邻章节的窗口只差首尾各一章，只补查缺失的章节；
+ *    窗口内任一章概要被改写时丢弃窗口
+ * 4. 写入处于事务中时，事务结束后再递增一次版本号并丢弃窗口（与 GraphMemoryTier 相同），
+ *    避免提交前开始的后台构建读到旧正文后仍被取用
+ */
+@Component
+public class ContextBundleStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContextBundleStore.class);
+
+    @Value("${generation.context-bundle.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${generation.context-bundle.ttl-ms:1800000}")
+    private long ttlMs = 1_800_000L;
+
+    @Value("${generation.context-bundle.max-novels:256}")
+    private int maxNovels = 256;
+
+    @Autowired(required = false)
+    private GraphQueryCache graphQueryCache;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // novelId -> 编辑版本号
+    private final Map<Long, AtomicLong> editVersions = new ConcurrentHashMap<>();
+
+    // novelId -> 下一章上下文包（访问顺序 LRU）
+    private final LinkedHashMap<Long, Bundle> bundles = new LinkedHashMap<>(64, 0.75f, true);
+
+    // novelId -> 最近概要窗口（访问顺序 LRU）
+    private final LinkedHashMap<Long, SummaryWindow> windows = new LinkedHashMap<>(64, 0.75f, true);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 预构建好的上下文（已优化，不含本次请求的用户调整与关联素材）
+     */
+    public static class Bundle {
+        private final Long novelId;
+        private final Integer chapterNumber;
+        private final WritingContext context;
+        private final long editVersion;
+        private final long graphVersion;
+        private final long builtAt;
+        private final long buildMs;
+
+        public Bundle(Long novelId, Integer chapterNumber, WritingContext context,
+                      long editVersion, long graphVersion, long buildMs) {
+            this.novelId = novelId;
+            this.chapterNumber = chapterNumber;
+            this.context = context;
+            this.editVersion = editVersion;
+            this.graphVersion = graphVersion;
+            this.builtAt = System.currentTimeMillis();
+            this.buildMs = buildMs;
+        }
+
+        public Integer getChapterNumber() {
+            return chapterNumber;
+        }
+
+        public WritingContext getContext() {
+            return context;
+        }
+
+        public long getBuildMs() {
+            return buildMs;
+        }
+    }
+
+    private static final class SummaryWindow {
+        final int start;
+        final int end;
+        final List<Map<String, Object>> summaries;
+
+        SummaryWindow(int start, int end, List<Map<String, Object>> summaries) {
+            this.start = start;
+            this.end = end;
+            this.summaries = summaries;
+        }
+    }
+
+    /**
+     * 当前编辑版本号
+     */
+    public long editVersion(Long novelId) {
+        AtomicLong version = editVersions.get(novelId);
+        return version != null ? version.get() : 0L;
+    }
+
+    /**
+     * 当前图谱版本号（图谱缓存未启用时恒为 0，图谱变化只能靠有效期兜底）
+     */
+    public long graphVersion(Long novelId) {
+        return graphQueryCache != null ? graphQueryCache.version(novelId) : 0L;
+    }
+
+    /**
+     * 章节正文发生写入（保存、改写、删除）
+     */
+    public void onChapterChanged(Long novelId, Integer chapterNumber) {
+        if (novelId == null) {
+            return;
+        }
+        afterCompletion(() -> bumpEditVersion(novelId));
+        bumpEditVersion(novelId);
+        logger.debug("上下文包失效（章节写入）: novelId={}, chapter={}", novelId, chapterNumber);
+    }
+
+    /**
+     * 章节概要发生写入；落在已缓存窗口内时丢弃窗口
+     */
+    public void onSummaryChanged(Long novelId, Integer chapterNumber) {
+        if (novelId == null) {
+            return;
+        }
+        afterCompletion(() -> dropSummaryWindow(novelId, chapterNumber));
+        dropSummaryWindow(novelId, chapterNumber);
+        logger.debug("上下文包失效（概要写入）: novelId={}, chapter={}", novelId, chapterNumber);
+    }
+
+    private void bumpEditVersion(Long novelId) {
+        editVersions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private void dropSummaryWindow(Long novelId, Integer chapterNumber) {
+        synchronized (windows) {
+            // 与窗口回写在同一把锁内递增版本号，避免比对后、回写前的写入被漏掉
+            bumpEditVersion(novelId);
+            SummaryWindow window = windows.get(novelId);
+            if (window != null && (chapterNumber == null || chapterNumber <= window.end)) {
+                windows.remove(novelId);
+            }
+        }
+    }
+
+    /**
+     * 处于事务中时登记事务结束后再执行一次的失效动作
+     */
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 保存预构建的上下文包；构建期间发生编辑时直接丢弃
+     */
+    public void put(Bundle bundle) {
+        if (!enabled || bundle == null || bundle.novelId == null) {
+            return;
+        }
+        if (bundle.editVersion != editVersion(bundle.novelId)) {
+            record("discarded");
+            logger.info("🗂️ 上下文包构建期间发生编辑，丢弃: novelId={}, chapter={}", bundle.novelId, bundle.chapterNumber);
+            return;
+        }
+        synchronized (bundles) {
+            bundles.put(bundle.novelId, bundle);
+            while (bundles.size() > Math.max(1, maxNovels)) {
+                bundles.remove(bundles.keySet().iterator().next());
+            }
+        }
+        logger.info("🗂️ 已预构建第{}章上下文包: novelId={}, 耗时{}ms", bundle.chapterNumber, bundle.novelId, bundle.buildMs);
+    }
+
+    /**
+     * 取出指定章节的上下文包（一次性）；不存在、章节不符、已过期或已被编辑作废时返回 null
+     */
+    public Bundle take(Long novelId, Integer chapterNumber) {
+        if (!enabled || novelId == null || chapterNumber == null) {
+            return null;
+        }
+        Bundle bundle;
+        synchronized (bundles) {
+            bundle = bundles.remove(novelId);
+        }
+        String outcome;
+        if (bundle == null) {
+            outcome = "miss";
+        } else if (!chapterNumber.equals(bundle.chapterNumber)) {
+            outcome = "other_chapter";
+        } else if (System.currentTimeMillis() - bundle.builtAt > ttlMs) {
+            outcome = "expired";
+        } else if (bundle.editVersion != editVersion(novelId) || bundle.graphVersion != graphVersion(novelId)) {
+            outcome = "stale";
+        } else {
+            outcome = "hit";
+        }
+        record(outcome);
+        if (!"hit".equals(outcome)) {
+            if (bundle != null) {
+                logger.info("🗂️ 第{}章上下文包不可用（{}），现场构建: novelId={}", chapterNumber, outcome, novelId);
+            }
+            return null;
+        }
+        logger.info("🗂️ 命中第{}章预构建上下文包: novelId={}, 已存在{}ms",
+            chapterNumber, novelId, System.currentTimeMillis() - bundle.builtAt);
+        return bundle;
+    }
+
+    /**
+     * 最近 limit 章概要，范围与 ChapterSummaryService.getRecentSummaries 一致：[currentChapter - limit, currentChapter - 1]
+     *
+     * 与已缓存窗口重叠时只通过 rangeLoader 补查缺失区间，否则整段查询
+     *
+     * @param rangeLoader (起始章, 结束章) -> 该区间已有的概要（含 chapterNumber、summary）
+     */
+    public List<Map<String, Object>> recentSummaries(Long novelId, int currentChapter, int limit,
+                                                     BiFunction<Integer, Integer, List<Map<String, Object>>> rangeLoader) {
+        int start = Math.max(1, currentChapter - limit);
+        int end = currentChapter - 1;
+        if (end < start) {
+            return new ArrayList<>();
+        }
+        if (!enabled || novelId == null) {
+            return rangeLoader.apply(start, end);
+        }
+
+        long version = editVersion(novelId);
+        SummaryWindow cached;
+        synchronized (windows) {
+            cached = windows.get(novelId);
+        }
+
+        List<Map<String, Object>> merged = new ArrayList<>();
+        if (cached != null && cached.start <= end && cached.end >= start) {
+            for (Map<String, Object> summary : cached.summaries) {
+                int chapter = chapterOf(summary);
+                if (chapter >= start && chapter <= end) {
+                    merged.add(summary);
+                }
+            }
+            if (start < cached.start) {
+                merged.addAll(rangeLoader.apply(start, cached.start - 1));
+            }
+            if (end > cached.end) {
+                merged.addAll(rangeLoader.apply(cached.end + 1, end));
+            }
+            merged.sort(Comparator.comparingInt(ContextBundleStore::chapterOf));
+            record("window_incremental");
+        } else {
+            merged.addAll(rangeLoader.apply(start, end));
+            record("window_full");
+        }
+
+        // 加载期间有概要写入时不回写窗口，避免缓存到旧数据
+        synchronized (windows) {
+            if (version == editVersion(novelId)) {
+                windows.put(novelId, new SummaryWindow(start, end, new ArrayList<>(merged)));
+                while (windows.size() > Math.max(1, maxNovels)) {
+                    windows.remove(windows.keySet().iterator().next());
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static int chapterOf(Map<String, Object> summary) {
+        Object value = summary.get("chapterNumber");
+        return value instanceof Number ? ((Number) value).intValue() : Integer.MIN_VALUE;
+    }
+
+    private void record(String outcome) {
+        if (meterRegistry != null) {
+            Counter.builder("agentic.context.bundle")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.service.tools.ToolCallScope;
+import com.novel.ai.execution.CancellationToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 写作上下文并发预取
+ *
+ * 解决问题：大纲、卷蓝图、最近章节、概要、事件、伏笔、世界规则等上下文来源
+ * 互不依赖却逐个串行读取，上下文准备耗时等于各来源耗时之和
+ *
+ * 策略：
+ * 1. 同一批次的来源在有界线程池上并发执行，整体受一个总截止时间约束
+ * 2. 每个来源可单独设置超时，超时或失败的来源返回空结果，其余来源照常使用
+ * 3. 结果由调用线程按声明顺序取回并写入上下文（WritingContext 构建器非线程安全）
+ * 4. 记录每个来源的耗时与结果，慢来源在日志与指标中可见
+ * 5. 线程池满时在调用线程执行；当前生成任务被取消时放弃整个批次
+ */
+@Component
+public class ContextPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContextPrefetcher.class);
+
+    @Value("${generation.context-prefetch.threads:16}")
+    private int threads;
+
+    @Value("${generation.context-prefetch.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${generation.context-prefetch.deadline-ms:8000}")
+    private long deadlineMs;
+
+    @Value("${generation.context-prefetch.source-timeout-ms:5000}")
+    private long sourceTimeoutMs;
+
+    @Value("${generation.context-prefetch.slow-source-ms:1000}")
+    private long slowSourceMs;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    // 预取线程标记：来源已受超时与取消约束，在其上执行的工具无需再切换线程
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+            threads, threads,
+            60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(() -> {
+                    WORKER.set(Boolean.TRUE);
+                    r.run();
+                }, "context-prefetch-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        logger.info("上下文预取线程池初始化完成: threads={}, queueCapacity={}, deadlineMs={}, sourceTimeoutMs={}",
+            threads, queueCapacity, deadlineMs, sourceTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 当前线程是否为预取线程
+     */
+    public static boolean isWorkerThread() {
+        return WORKER.get();
+    }
+
+    /**
+     * 开始一个预取批次（使用默认总截止时间与来源超时）
+     */
+    public Batch batch(String name) {
+        return new Batch(name, deadlineMs);
+    }
+
+    /**
+     * 开始一个预取批次，指定总截止时间（来源需显式传入超时，否则仍受默认来源超时约束）
+     */
+    public Batch batch(String name, long deadlineMs) {
+        return new Batch(name, deadlineMs);
+    }
+
+    /**
+     * 预取来源的结果状态
+     */
+    public enum Outcome {
+        OK, TIMEOUT, ERROR, CANCELLED
+    }
+
+    /**
+     * 单个来源的执行结果
+     */
+    public static final class SourceResult {
+        private final String source;
+        private final Outcome outcome;
+        private final Object value;
+        private final long elapsedMs;
+        private final Throwable error;
+
+        SourceResult(String source, Outcome outcome, Object value, long elapsedMs, Throwable error) {
+            this.source = source;
+            this.outcome = outcome;
+            this.value = value;
+            this.elapsedMs = elapsedMs;
+            this.error = error;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public boolean isOk() {
+            return outcome == Outcome.OK;
+        }
+
+        /**
+         * 来源返回值；超时、失败或取消时为 null
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    /**
+     * 一次并发预取：先 {@link #add} 全部来源（立即开始执行），再 {@link #await} 按声明顺序取回
+     */
+    public final class Batch {
+
+        private final String name;
+        private final long startedAt = System.nanoTime();
+        private final long deadlineAt;
+        private final List<Source> sources = new ArrayList<>();
+
+        private Batch(String name, long deadlineMs) {
+            this.name = name;
+            this.deadlineAt = startedAt + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        }
+
+        /**
+         * 添加来源（使用默认来源超时）
+         */
+        public Batch add(String source, Callable<?> loader) {
+            return add(source, sourceTimeoutMs, loader);
+        }
+
+        /**
+         * 添加来源并立即提交执行
+         */
+        public Batch add(String source, long timeoutMs, Callable<?> loader) {
+            Source entry = new Source(source, timeoutMs, SecurityContextHolder.getContext(), loader);
+            sources.add(entry);
+            try {
+                executor.execute(entry.task);
+            } catch (RejectedExecutionException e) {
+                // 线程池已满：在调用线程执行，退化为串行但不丢来源
+                logger.warn("⚠️ 上下文预取线程池已满，在调用线程执行: {}", source);
+                entry.task.run();
+            }
+            return this;
+        }
+
+        /**
+         * 等待所有来源完成或超时，按添加顺序返回结果（来源名 → 结果）
+         */
+        public Map<String, SourceResult> await() {
+            Map<String, SourceResult> results = new LinkedHashMap<>();
+            try (CancellationToken.Registration ignored = CancellationToken.registerCurrent(this::cancelAll)) {
+                for (Source source : sources) {
+                    SourceResult result = source.await(deadlineAt);
+                    results.put(source.name, result);
+                    record(result);
+                }
+            }
+            report(results);
+            return results;
+        }
+
+        private void cancelAll() {
+            for (Source source : sources) {
+                source.task.cancel(true);
+            }
+        }
+
+        private void report(Map<String, SourceResult> results) {
+            long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            long sumMs = 0;
+            StringBuilder detail = new StringBuilder();
+            for (SourceResult result : results.values()) {
+                sumMs += result.getElapsedMs();
+                if (detail.length() > 0) {
+                    detail.append(", ");
+                }
+                detail.append(result.getSource()).append('=').append(result.getElapsedMs()).append("ms");
+                if (!result.isOk()) {
+                    detail.append('(').append(result.getOutcome()).append(')');
+                }
+                if (result.isOk() && result.getElapsedMs() >= slowSourceMs) {
+                    logger.warn("🐢 上下文来源较慢: {} / {} 耗时 {}ms", name, result.getSource(), result.getElapsedMs());
+                }
+            }
+            logger.info("⚡ 上下文预取完成: {} | 总耗时 {}ms（串行合计 {}ms）| {}", name, totalMs, sumMs, detail);
+        }
+
+        private void record(SourceResult result) {
+            if (!result.isOk()) {
+                if (result.getOutcome() == Outcome.ERROR) {
+                    logger.warn("⚠️ 上下文来源失败: {} / {}: {}", name, result.getSource(),
+                        result.getError() != null ? result.getError().getMessage() : "unknown");
+                } else {
+                    logger.warn("⚠️ 上下文来源{}: {} / {}（{}ms），以空结果继续",
+                        result.getOutcome() == Outcome.TIMEOUT ? "超时" : "已取消",
+                        name, result.getSource(), result.getElapsedMs());
+                }
+            }
+            if (meterRegistry != null) {
+                Timer.builder("agentic.context.prefetch")
+                    .tag("source", result.getSource())
+                    .tag("outcome", result.getOutcome().name().toLowerCase())
+                    .register(meterRegistry)
+                    .record(result.getElapsedMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static final class Source {
+        private final String name;
+        private final long submittedAt = System.nanoTime();
+        private final long timeoutNanos;
+        private final FutureTask<Object> task;
+        private volatile long finishedAt;
+
+        Source(String name, long timeoutMs, SecurityContext context, Callable<?> loader) {
+            this.name = name;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            Thread submitter = Thread.currentThread();
+            ToolCallScope scope = ToolCallScope.current();
+            CancellationToken token = CancellationToken.current();
+            this.task = new FutureTask<>(() -> {
+                // 在线程池中执行时恢复提交方的 SecurityContext、取消令牌与工具调用作用域（调用线程内联执行时无需切换）
+                boolean pooled = Thread.currentThread() != submitter;
+                if (pooled) {
+                    SecurityContextHolder.setContext(context);
+                }
+                try (CancellationToken.Registration ignoredToken = pooled && token != null ? CancellationToken.bind(token) : () -> { };
+                     ToolCallScope.Registration ignoredScope = ToolCallScope.bind(pooled ? scope : null)) {
+                    return loader.call();
+                } finally {
+                    finishedAt = System.nanoTime();
+                    if (pooled) {
+                        SecurityContextHolder.clearContext();
+                    }
+                }
+            });
+        }
+
+        SourceResult await(long batchDeadlineAt) {
+            // 来源超时从提交时刻起算，且不超过批次总截止时间
+            long deadline = Math.min(submittedAt + timeoutNanos, batchDeadlineAt);
+            try {
+                long waitNanos = Math.max(0L, deadline - System.nanoTime());
+                Object value = task.get(waitNanos, TimeUnit.NANOSECONDS);
+                return new SourceResult(name, Outcome.OK, value, elapsedMs(), null);
+            } catch (TimeoutException e) {
+                task.cancel(true);
+                return new SourceResult(name, Outcome.TIMEOUT, null, elapsedMs(), null);
+            } catch (CancellationException e) {
+                return new SourceResult(name, Outcome.CANCELLED, null, elapsedMs(), null);
+            } catch (ExecutionException e) {
+                return new SourceResult(name, Outcome.ERROR, null, elapsedMs(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(true);
+                return new SourceResult(name, Outcome.CANCELLED, null, elapsedMs(), null);
+            }
+        }
+
+        private long elapsedMs() {
+            long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(Math.max(0L, end - submittedAt));
+        }
+    }
+}
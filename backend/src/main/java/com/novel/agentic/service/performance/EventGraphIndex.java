@@ -0,0 +1,239 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.service.graph.EventGraphSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 事件图快照索引
+ *
+ * 解决问题：因果链、角色事件、冲突历史查询需要整部小说的事件邻接关系，逐次从 MySQL 加载代价高
+ *
+ * 策略：
+ * 1. 每部小说首次查询时从库中加载一份 {@link EventGraphSnapshot}，按访问顺序 LRU 淘汰
+ * 2. 每章写入事件、参与者、因果边后，在已缓存的快照上补丁生成新快照，无需重新查库；
+ *    事务内的写入先按小说收集，提交后合并为一次补丁（一次复制 + 一次重建），回滚或状态未知时丢弃快照；
+ *    补丁时递增版本号，加载期间发生写入时不回写加载结果
+ * 3. 删除类写入丢弃快照，事务结束后再丢弃一次（与 GraphMemoryTier 相同），
+ *    避免事务未提交期间被并发加载回填旧数据；有效期从加载时算起，补丁不续期，兜底其他写入路径
+ */
+@Component
+public class EventGraphIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventGraphIndex.class);
+
+    @Value("${graph.event-index.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${graph.event-index.ttl-ms:1800000}")
+    private long ttlMs = 1_800_000L;
+
+    @Value("${graph.event-index.max-novels:128}")
+    private int maxNovels = 128;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // novelId -> 事件图写入版本号
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // novelId -> 快照（访问顺序 LRU）
+    private final LinkedHashMap<Long, Entry> snapshots = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static final class Entry {
+        final EventGraphSnapshot snapshot;
+        final long version;
+        final long loadedAt;
+
+        Entry(EventGraphSnapshot snapshot, long version, long loadedAt) {
+            this.snapshot = snapshot;
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * 获取小说的事件图快照，缓存不可用时用 loader 从库中加载
+     */
+    public EventGraphSnapshot get(Long novelId, Supplier<EventGraphSnapshot> loader) {
+        if (!enabled || novelId == null) {
+            return loader.get();
+        }
+        // 当前事务已写入该小说但未提交：直接查库（能看到本事务的写入），不读也不回写缓存
+        Map<Long, List<Consumer<EventGraphSnapshot.Builder>>> pending = pendingChanges(false);
+        if (pending != null && pending.containsKey(novelId)) {
+            record("bypass");
+            return loader.get();
+        }
+        long version = version(novelId);
+        Entry entry;
+        synchronized (snapshots) {
+            entry = snapshots.get(novelId);
+        }
+        String outcome;
+        if (entry == null) {
+            outcome = "miss";
+        } else if (entry.version != version) {
+            outcome = "stale";
+        } else if (System.currentTimeMillis() - entry.loadedAt > ttlMs) {
+            outcome = "expired";
+        } else {
+            record("hit");
+            return entry.snapshot;
+        }
+        record(outcome);
+
+        long startedAt = System.currentTimeMillis();
+        EventGraphSnapshot snapshot = loader.get();
+        logger.info("🕸️ 加载事件图快照({}): novelId={}, {}个事件, {}条因果边, {}条参与关系, {}ms",
+            outcome, novelId, snapshot.eventCount(), snapshot.causalEdgeCount(), snapshot.participantCount(),
+            System.currentTimeMillis() - startedAt);
+        if (version == version(novelId)) {
+            synchronized (snapshots) {
+                snapshots.put(novelId, new Entry(snapshot, version, startedAt));
+                while (snapshots.size() > Math.max(1, maxNovels)) {
+                    snapshots.remove(snapshots.keySet().iterator().next());
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 事件图发生增量写入：事务内登记到提交后统一补丁，无事务时立即补丁
+     */
+    public void patch(Long novelId, Consumer<EventGraphSnapshot.Builder> change) {
+        if (novelId == null) {
+            return;
+        }
+        Map<Long, List<Consumer<EventGraphSnapshot.Builder>>> pending = pendingChanges(true);
+        if (pending != null) {
+            pending.computeIfAbsent(novelId, id -> new ArrayList<>()).add(change);
+            return;
+        }
+        apply(novelId, Collections.singletonList(change));
+    }
+
+    /**
+     * 事件图发生删除类写入
+     */
+    public void invalidate(Long novelId) {
+        if (novelId == null) {
+            return;
+        }
+        drop(novelId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(novelId);
+                }
+            });
+        }
+        logger.debug("事件图快照失效: novelId={}", novelId);
+    }
+
+    /**
+     * 在已缓存的快照上一次性应用全部变更；未缓存时只递增版本号
+     */
+    private void apply(Long novelId, List<Consumer<EventGraphSnapshot.Builder>> changes) {
+        long version = versions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+        Entry entry;
+        synchronized (snapshots) {
+            entry = snapshots.get(novelId);
+        }
+        if (entry == null) {
+            return;
+        }
+        EventGraphSnapshot.Builder builder = entry.snapshot.toBuilder();
+        changes.forEach(change -> change.accept(builder));
+        EventGraphSnapshot patched = builder.build();
+        synchronized (snapshots) {
+            // 快照补丁前已过期，或补丁期间有并发写入时丢弃，下次查询重新加载
+            if (entry.version == version - 1 && snapshots.get(novelId) == entry && version == version(novelId)) {
+                snapshots.put(novelId, new Entry(patched, version, entry.loadedAt));
+                record("patched");
+            } else {
+                snapshots.remove(novelId);
+                record("patch_conflict");
+            }
+        }
+    }
+
+    private void drop(Long novelId) {
+        versions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+        synchronized (snapshots) {
+            snapshots.remove(novelId);
+        }
+    }
+
+    /**
+     * 当前事务待补丁的变更（小说ID -> 变更），create 为 true 时首次访问登记事务回调；无事务时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, List<Consumer<EventGraphSnapshot.Builder>>> pendingChanges(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Long, List<Consumer<EventGraphSnapshot.Builder>>> pending =
+            (Map<Long, List<Consumer<EventGraphSnapshot.Builder>>>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null || !create) {
+            return pending;
+        }
+        Map<Long, List<Consumer<EventGraphSnapshot.Builder>>> changes = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(this, changes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changes.forEach((novelId, list) -> {
+                    try {
+                        apply(novelId, list);
+                    } catch (RuntimeException e) {
+                        logger.warn("⚠️ 事件图快照补丁失败，丢弃快照: novelId={}, {}", novelId, e.getMessage());
+                        drop(novelId);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(EventGraphIndex.this);
+                if (status != STATUS_COMMITTED) {
+                    changes.keySet().forEach(EventGraphIndex.this::drop);
+                }
+            }
+        });
+        return changes;
+    }
+
+    private long version(Long novelId) {
+        AtomicLong version = versions.get(novelId);
+        return version != null ? version.get() : 0L;
+    }
+
+    private void record(String outcome) {
+        if (meterRegistry != null) {
+            Counter.builder("graph.event.index")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        }
+    }
+}
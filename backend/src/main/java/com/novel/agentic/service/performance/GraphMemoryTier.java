@@ -0,0 +1,192 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.service.graph.NovelGraphTables;
+import com.novel.agentic.service.graph.NovelGraphTables.Segment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 图谱内存读取分层
+ *
+ * 解决问题：ReAct 循环每章发出大量相互重叠的图谱读取（事件、伏笔、情节线、规则、角色与关系状态），
+ * 查询缓存只能命中参数完全相同的调用，其余都要回到 MySQL
+ *
+ * 策略：
+ * 1. 首次读取某部小说的某张表时整表加载为 {@link NovelGraphTables} 中的内存镜像，之后的查询在内存中完成
+ * 2. 写入先落 MySQL，再按表失效：只丢弃被写入的表，下次读取时单表重新加载；
+ *    事务内的写入在事务结束后再失效一次，避免并发读取把提交前的旧数据重新装回
+ * 3. 每张表带版本号，加载期间发生写入时不回写；有效期兜底其他写入路径
+ * 4. 按估算堆占用的总预算淘汰最久未访问的小说
+ */
+@Component
+public class GraphMemoryTier {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphMemoryTier.class);
+
+    @Value("${graph.memory-tier.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${graph.memory-tier.ttl-ms:1800000}")
+    private long ttlMs = 1_800_000L;
+
+    @Value("${graph.memory-tier.max-heap-mb:256}")
+    private long maxHeapMb = 256;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // novelId -> 该小说已加载的表（访问顺序 LRU）；所有访问都在 this 上同步
+    private final LinkedHashMap<Long, NovelEntry> novels = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long totalBytes;
+
+    private static final class NovelEntry {
+        final NovelGraphTables.Table[] tables = new NovelGraphTables.Table[Segment.values().length];
+        final long[] loadedAt = new long[Segment.values().length];
+        final long[] versions = new long[Segment.values().length];
+
+        long bytes() {
+            long bytes = 0;
+            for (NovelGraphTables.Table table : tables) {
+                if (table != null) {
+                    bytes += table.estimatedBytes();
+                }
+            }
+            return bytes;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取小说某张表的内存镜像，未加载、已失效或已过期时用 loader 从库中加载
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends NovelGraphTables.Table> T get(Long novelId, Segment segment, Supplier<T> loader) {
+        if (!enabled || novelId == null) {
+            return loader.get();
+        }
+        int slot = segment.ordinal();
+        long version;
+        String outcome;
+        synchronized (this) {
+            NovelEntry entry = novels.computeIfAbsent(novelId, id -> new NovelEntry());
+            version = entry.versions[slot];
+            NovelGraphTables.Table table = entry.tables[slot];
+            if (table == null) {
+                outcome = "miss";
+            } else if (System.currentTimeMillis() - entry.loadedAt[slot] > ttlMs) {
+                outcome = "expired";
+            } else {
+                record(segment, "hit");
+                return (T) table;
+            }
+        }
+        record(segment, outcome);
+
+        T table = loader.get();
+        synchronized (this) {
+            NovelEntry entry = novels.get(novelId);
+            // 加载期间发生写入或小说已被淘汰时不回写
+            if (entry != null && entry.versions[slot] == version) {
+                NovelGraphTables.Table previous = entry.tables[slot];
+                entry.tables[slot] = table;
+                entry.loadedAt[slot] = System.currentTimeMillis();
+                totalBytes += table.estimatedBytes() - (previous != null ? previous.estimatedBytes() : 0);
+                evictOverBudget(novelId);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 小说的若干张表发生写入
+     */
+    public void invalidate(Long novelId, Segment... segments) {
+        if (novelId == null) {
+            return;
+        }
+        drop(novelId, segments);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(novelId, segments);
+                }
+            });
+        }
+    }
+
+    /**
+     * 小说的所有表发生写入（清空、删除章节等）
+     */
+    public void invalidateAll(Long novelId) {
+        invalidate(novelId, Segment.values());
+    }
+
+    /**
+     * 当前估算的总堆占用（字节）
+     */
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized void drop(Long novelId, Segment[] segments) {
+        NovelEntry entry = novels.get(novelId);
+        if (entry == null) {
+            return;
+        }
+        for (Segment segment : segments) {
+            int slot = segment.ordinal();
+            entry.versions[slot]++;
+            if (entry.tables[slot] != null) {
+                totalBytes -= entry.tables[slot].estimatedBytes();
+                entry.tables[slot] = null;
+            }
+        }
+    }
+
+    /**
+     * 超出预算时从最久未访问的小说开始整部淘汰；刚加载的小说单独超出预算时也不保留
+     */
+    private void evictOverBudget(Long current) {
+        long budget = Math.max(1, maxHeapMb) * 1024L * 1024L;
+        Iterator<Map.Entry<Long, NovelEntry>> it = novels.entrySet().iterator();
+        while (totalBytes > budget && it.hasNext()) {
+            Map.Entry<Long, NovelEntry> eldest = it.next();
+            if (eldest.getKey().equals(current) && novels.size() > 1) {
+                continue;
+            }
+            long bytes = eldest.getValue().bytes();
+            totalBytes -= bytes;
+            it.remove();
+            record(null, "evicted");
+            logger.info("🧠 图谱内存分层淘汰: novelId={}, 释放约{}KB, 当前约{}KB",
+                eldest.getKey(), bytes / 1024, totalBytes / 1024);
+        }
+    }
+
+    private void record(Segment segment, String outcome) {
+        if (meterRegistry != null) {
+            Counter.builder("graph.memory.tier")
+                .tag("table", segment != null ? segment.name().toLowerCase() : "all")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        }
+    }
+}
@@ -1,116 +1,157 @@
 package com.novel.agentic.service.performance;
 
-import com.novel.agentic.model.GraphEntity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  * 图谱查询缓存
- * 
+ *
  * 解决问题：频繁的图谱查询可能导致性能问题
- * 
+ *
  * 策略：
- * 1. 缓存最近查询结果（5分钟有效期）
- * 2. 新章节入图后自动失效相关缓存
- * 3. 定时清理过期缓存
+ * 1. 每部小说维护单调递增的图谱版本号，缓存键包含版本号
+ * 2. 任意写入只需递增版本号（O(1)），旧版本条目不再命中，随 LRU/TTL 自然淘汰；
+ *    事务内的写入在事务结束后再递增一次（与 GraphMemoryTier 相同），避免提交前被并发读取以新版本号回填旧数据
+ * 3. 按条目数做 LRU 淘汰，条目超过 TTL 视为失效
+ * 4. 统计命中、未命中、淘汰次数及各查询类型的命中率
  */
 @Component
 public class GraphQueryCache {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(GraphQueryCache.class);
-    
+
+    @Value("${graph.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${graph.cache.max-entries:2000}")
+    private int maxEntries;
+
     // 缓存有效期（毫秒）
-    private static final long CACHE_TTL = 5 * 60 * 1000; // 5分钟
-    
-    // 缓存存储
-    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-    
+    @Value("${graph.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // 缓存存储（访问顺序，最久未访问的在头部）
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(256, 0.75f, true);
+
+    // novelId -> 图谱版本号
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // 查询类型 -> [命中, 未命中]
+    private final Map<String, LongAdder[]> typeStats = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder versionBumps = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry != null) {
+            Gauge.builder("graph.cache.entries", this, GraphQueryCache::size).register(meterRegistry);
+            Gauge.builder("graph.cache.hits", hits, LongAdder::sum).register(meterRegistry);
+            Gauge.builder("graph.cache.misses", misses, LongAdder::sum).register(meterRegistry);
+            Gauge.builder("graph.cache.evictions", evictions, LongAdder::sum).register(meterRegistry);
+        }
+        logger.info("图谱查询缓存初始化完成: enabled={}, maxEntries={}, ttlMs={}", enabled, maxEntries, ttlMs);
+    }
+
     /**
-     * 获取缓存
+     * 读取缓存，未命中时调用 loader 加载并写入（null 结果不缓存）
+     *
+     * @param queryType 查询类型（用于键与分类统计）
+     * @param novelId   小说ID
+     * @param loader    实际查询
+     * @param params    其余查询参数
      */
     @SuppressWarnings("unchecked")
-    public <T> Optional<T> get(String key) {
-        CacheEntry entry = cache.get(key);
-        
-        if (entry == null) {
-            return Optional.empty();
+    public <T> T getOrLoad(String queryType, Long novelId, Supplier<T> loader, Object... params) {
+        if (!enabled || novelId == null) {
+            return loader.get();
         }
-        
-        // 检查是否过期
-        if (System.currentTimeMillis() - entry.timestamp > CACHE_TTL) {
-            cache.remove(key);
-            logger.debug("缓存过期: {}", key);
-            return Optional.empty();
+        // 先取版本号：加载期间发生写入时，结果落在旧版本键下，不会被新读者命中
+        String key = buildKey(queryType, novelId, version(novelId), params);
+        LongAdder[] stats = typeStats.computeIfAbsent(queryType, t -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        long now = System.currentTimeMillis();
+
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null) {
+                if (now - entry.timestamp <= ttlMs) {
+                    hits.increment();
+                    stats[0].increment();
+                    return (T) entry.data;
+                }
+                cache.remove(key);
+                expirations.increment();
+            }
+        }
+
+        misses.increment();
+        stats[1].increment();
+        T value = loader.get();
+        if (value != null) {
+            put(key, value, now);
         }
-        
-        logger.debug("缓存命中: {}", key);
-        return Optional.of((T) entry.data);
+        return value;
     }
-    
+
     /**
-     * 设置缓存
+     * 当前图谱版本号
      */
-    public void put(String key, Object data) {
-        CacheEntry entry = new CacheEntry();
-        entry.timestamp = System.currentTimeMillis();
-        entry.data = data;
-        
-        cache.put(key, entry);
-        logger.debug("缓存设置: {}", key);
+    public long version(Long novelId) {
+        AtomicLong version = versions.get(novelId);
+        return version != null ? version.get() : 0L;
     }
-    
+
     /**
-     * 构建查询键
+     * 图谱发生写入：递增版本号，该小说的全部旧缓存立即失效；处于事务中时事务结束后再递增一次
      */
-    public String buildKey(String queryType, Long novelId, Integer chapterNumber, Object... params) {
-        StringBuilder key = new StringBuilder();
-        key.append(queryType).append(":").append(novelId).append(":").append(chapterNumber);
-        for (Object param : params) {
-            key.append(":").append(param);
+    public long bumpVersion(Long novelId) {
+        if (novelId == null) {
+            return 0L;
         }
-        return key.toString();
+        Set<Long> pending = pendingNovels();
+        if (pending != null) {
+            pending.add(novelId);
+        }
+        return increment(novelId);
     }
-    
+
     /**
      * 失效小说的所有缓存
      */
     public void invalidateNovel(Long novelId) {
-        String prefix = "novel:" + novelId;
-        cache.keySet().removeIf(key -> key.contains(":" + novelId + ":"));
-        logger.info("失效小说缓存: novelId={}", novelId);
+        long version = bumpVersion(novelId);
+        logger.debug("失效小说缓存: novelId={}, version={}", novelId, version);
     }
-    
+
     /**
-     * 失效特定章节之后的缓存
+     * 失效特定章节之后的缓存（图谱查询结果跨章节聚合，按整部小说失效）
      */
     public void invalidateAfterChapter(Long novelId, Integer chapterNumber) {
-        cache.keySet().removeIf(key -> {
-            if (!key.contains(":" + novelId + ":")) {
-                return false;
-            }
-            
-            // 提取章节号（简单实现）
-            try {
-                String[] parts = key.split(":");
-                if (parts.length >= 3) {
-                    int cachedChapter = Integer.parseInt(parts[2]);
-                    return cachedChapter >= chapterNumber;
-                }
-            } catch (Exception e) {
-                // 忽略
-            }
-            
-            return false;
-        });
-        
-        logger.info("失效缓存: novelId={}, chapter>={}", novelId, chapterNumber);
+        long version = bumpVersion(novelId);
+        logger.debug("失效缓存: novelId={}, chapter>={}, version={}", novelId, chapterNumber, version);
     }
-    
+
     /**
      * 定时清理过期缓存
      */
@@ -118,39 +159,120 @@ public class GraphQueryCache {
     public void cleanExpiredCache() {
         long now = System.currentTimeMillis();
         int removedCount = 0;
-        
-        Iterator<Map.Entry<String, CacheEntry>> iterator = cache.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, CacheEntry> entry = iterator.next();
-            if (now - entry.getValue().timestamp > CACHE_TTL) {
-                iterator.remove();
-                removedCount++;
+
+        synchronized (cache) {
+            Iterator<Map.Entry<String, CacheEntry>> iterator = cache.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, CacheEntry> entry = iterator.next();
+                if (now - entry.getValue().timestamp > ttlMs) {
+                    iterator.remove();
+                    removedCount++;
+                }
             }
         }
-        
+        expirations.add(removedCount);
+
         if (removedCount > 0) {
             logger.info("清理过期缓存: 移除{}个条目", removedCount);
         }
     }
-    
+
     /**
      * 获取缓存统计
      */
     public Map<String, Object> getStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalEntries", cache.size());
-        
-        long now = System.currentTimeMillis();
-        long validCount = cache.values().stream()
-            .filter(e -> now - e.timestamp <= CACHE_TTL)
-            .count();
-        
-        stats.put("validEntries", validCount);
-        stats.put("expiredEntries", cache.size() - validCount);
-        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("totalEntries", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", ttlMs);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", ratio(hits.sum(), misses.sum()));
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("versionBumps", versionBumps.sum());
+        stats.put("trackedNovels", versions.size());
+
+        Map<String, Object> byType = new TreeMap<>();
+        typeStats.forEach((type, counters) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("hits", counters[0].sum());
+            item.put("misses", counters[1].sum());
+            item.put("hitRatio", ratio(counters[0].sum(), counters[1].sum()));
+            byType.put(type, item);
+        });
+        stats.put("byQueryType", byType);
+
         return stats;
     }
-    
+
+    private long increment(Long novelId) {
+        versionBumps.increment();
+        return versions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * 当前事务内写入过的小说，首次访问时登记事务结束回调（每个事务只登记一次）；无事务时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Long> pendingNovels() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Set<Long> novels = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(this, novels);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(GraphQueryCache.this);
+                novels.forEach(GraphQueryCache.this::increment);
+            }
+        });
+        return novels;
+    }
+
+    private int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private void put(String key, Object data, long timestamp) {
+        CacheEntry entry = new CacheEntry();
+        entry.timestamp = timestamp;
+        entry.data = data;
+
+        synchronized (cache) {
+            cache.put(key, entry);
+            // LRU 淘汰：访问顺序链表头部为最久未访问
+            Iterator<String> eldest = cache.keySet().iterator();
+            while (cache.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static String buildKey(String queryType, Long novelId, long version, Object... params) {
+        StringBuilder key = new StringBuilder();
+        key.append(queryType).append(':').append(novelId).append(':').append(version);
+        for (Object param : params) {
+            key.append(':').append(param);
+        }
+        return key.toString();
+    }
+
+    private static double ratio(long hit, long miss) {
+        long total = hit + miss;
+        return total == 0 ? 0d : Math.round(hit * 10000d / total) / 10000d;
+    }
+
     /**
      * 缓存条目
      */
@@ -159,5 +281,3 @@ public class GraphQueryCache {
         Object data;
     }
 }
-
-
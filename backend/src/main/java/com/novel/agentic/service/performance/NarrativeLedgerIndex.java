@@ -0,0 +1,223 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.service.graph.NarrativeLedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 叙事节奏账本索引
+ *
+ * 解决问题：节奏、视角查询需要最近若干章的类型分布、张力曲线与视角记录，每次从 MySQL 回扫历史代价高
+ *
+ * 策略：
+ * 1. 每部小说首次查询时从库中加载一份 {@link NarrativeLedger}，按访问顺序 LRU 淘汰
+ * 2. 每章写入节奏节点、视角记录后直接在已缓存的账本上增量更新（O(log n)），无需重新查库；
+ *    事务内的写入先按小说收集，提交后才应用到共享账本，并发读取看不到未提交的节奏；
+ *    应用时递增版本号，加载期间发生写入时不回写加载结果，回滚或状态未知时丢弃账本
+ * 3. 清空图谱时丢弃账本，事务结束后再丢弃一次（与 GraphMemoryTier 相同），
+ *    避免事务未提交期间被并发加载回填旧数据；有效期兜底其他写入路径
+ */
+@Component
+public class NarrativeLedgerIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NarrativeLedgerIndex.class);
+
+    @Value("${graph.narrative-index.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${graph.narrative-index.ttl-ms:1800000}")
+    private long ttlMs = 1_800_000L;
+
+    @Value("${graph.narrative-index.max-novels:256}")
+    private int maxNovels = 256;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // novelId -> 节奏数据写入版本号
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // novelId -> 账本（访问顺序 LRU）
+    private final LinkedHashMap<Long, Entry> ledgers = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static final class Entry {
+        final NarrativeLedger ledger;
+        final long loadedAt;
+
+        Entry(NarrativeLedger ledger, long loadedAt) {
+            this.ledger = ledger;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * 获取小说的节奏账本，缓存不可用时用 loader 从库中加载
+     */
+    public NarrativeLedger get(Long novelId, Supplier<NarrativeLedger> loader) {
+        if (!enabled || novelId == null) {
+            return loader.get();
+        }
+        // 当前事务已写入该小说但未提交：直接查库（能看到本事务的写入），不读也不回写缓存
+        Map<Long, List<Consumer<NarrativeLedger>>> pending = pendingChanges(false);
+        if (pending != null && pending.containsKey(novelId)) {
+            record("bypass");
+            return loader.get();
+        }
+        long version = version(novelId);
+        Entry entry;
+        synchronized (ledgers) {
+            entry = ledgers.get(novelId);
+        }
+        String outcome;
+        if (entry == null) {
+            outcome = "miss";
+        } else if (System.currentTimeMillis() - entry.loadedAt > ttlMs) {
+            outcome = "expired";
+        } else {
+            record("hit");
+            return entry.ledger;
+        }
+        record(outcome);
+
+        long startedAt = System.currentTimeMillis();
+        NarrativeLedger ledger = loader.get();
+        logger.debug("加载叙事节奏账本({}): novelId={}, {}ms", outcome, novelId, System.currentTimeMillis() - startedAt);
+        synchronized (ledgers) {
+            // 与 applyNow 在同一把锁内比对版本，避免比对后、回写前的写入被漏掉
+            if (version == version(novelId)) {
+                ledgers.put(novelId, new Entry(ledger, startedAt));
+                while (ledgers.size() > Math.max(1, maxNovels)) {
+                    ledgers.remove(ledgers.keySet().iterator().next());
+                }
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * 节奏数据发生增量写入：事务内登记到提交后统一应用，无事务时立即应用
+     */
+    public void apply(Long novelId, Consumer<NarrativeLedger> change) {
+        if (novelId == null) {
+            return;
+        }
+        Map<Long, List<Consumer<NarrativeLedger>>> pending = pendingChanges(true);
+        if (pending != null) {
+            pending.computeIfAbsent(novelId, id -> new ArrayList<>()).add(change);
+            return;
+        }
+        applyNow(novelId, Collections.singletonList(change));
+    }
+
+    /**
+     * 节奏数据整体失效
+     */
+    public void invalidate(Long novelId) {
+        if (novelId == null) {
+            return;
+        }
+        drop(novelId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(novelId);
+                }
+            });
+        }
+        logger.debug("叙事节奏账本失效: novelId={}", novelId);
+    }
+
+    /**
+     * 在已缓存的账本上就地应用全部变更；未缓存时只递增版本号
+     */
+    private void applyNow(Long novelId, List<Consumer<NarrativeLedger>> changes) {
+        Entry entry;
+        synchronized (ledgers) {
+            versions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+            entry = ledgers.get(novelId);
+        }
+        if (entry == null) {
+            return;
+        }
+        changes.forEach(change -> change.accept(entry.ledger));
+        record("applied");
+    }
+
+    private void drop(Long novelId) {
+        synchronized (ledgers) {
+            versions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+            ledgers.remove(novelId);
+        }
+    }
+
+    /**
+     * 当前事务待应用的变更（小说ID -> 变更），create 为 true 时首次访问登记事务回调；无事务时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, List<Consumer<NarrativeLedger>>> pendingChanges(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Long, List<Consumer<NarrativeLedger>>> pending =
+            (Map<Long, List<Consumer<NarrativeLedger>>>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null || !create) {
+            return pending;
+        }
+        Map<Long, List<Consumer<NarrativeLedger>>> changes = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(this, changes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changes.forEach((novelId, list) -> {
+                    try {
+                        applyNow(novelId, list);
+                    } catch (RuntimeException e) {
+                        logger.warn("⚠️ 叙事节奏账本更新失败，丢弃账本: novelId={}, {}", novelId, e.getMessage());
+                        drop(novelId);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(NarrativeLedgerIndex.this);
+                if (status != STATUS_COMMITTED) {
+                    changes.keySet().forEach(NarrativeLedgerIndex.this::drop);
+                }
+            }
+        });
+        return changes;
+    }
+
+    private long version(Long novelId) {
+        AtomicLong version = versions.get(novelId);
+        return version != null ? version.get() : 0L;
+    }
+
+    private void record(String outcome) {
+        if (meterRegistry != null) {
+            Counter.builder("graph.narrative.index")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.service.tools.VolumeLayout;
+import com.novel.domain.entity.Novel;
+import com.novel.domain.entity.NovelVolume;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 卷布局缓存
+ *
+ * 解决问题：卷蓝图在每章预取、决策循环与重写流程中反复查询，每次都重新加载全部卷并重算卷区间
+ *
+ * 策略：
+ * 1. 每部小说缓存一份不可变的 {@link VolumeLayout}，按访问顺序 LRU 淘汰
+ * 2. 卷的任何写入（生成、修改、删除、流式落库）递增该小说的版本号并丢弃布局；
+ *    加载期间版本变化时不回写，避免缓存旧数据；处于事务中时事务结束后再丢弃一次（与 GraphMemoryTier 相同），
+ *    避免提交前被并发查询用旧卷数据回填
+ * 3. 小说的计划卷数、目标章数变化时（布局标识不一致）直接重建；有效期兜底其他写入路径
+ */
+@Component
+public class VolumeLayoutCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VolumeLayoutCache.class);
+
+    @Value("${generation.volume-layout.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${generation.volume-layout.ttl-ms:600000}")
+    private long ttlMs = 600_000L;
+
+    @Value("${generation.volume-layout.max-novels:512}")
+    private int maxNovels = 512;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // novelId -> 卷数据版本号
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // novelId -> 布局（访问顺序 LRU）
+    private final LinkedHashMap<Long, Entry> layouts = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static final class Entry {
+        final VolumeLayout layout;
+        final long version;
+        final long builtAt = System.currentTimeMillis();
+
+        Entry(VolumeLayout layout, long version) {
+            this.layout = layout;
+            this.version = version;
+        }
+    }
+
+    /**
+     * 获取小说的卷布局，缓存不可用时用 volumeLoader 加载卷并重建
+     *
+     * @param novel 小说（用于判断规划参数是否变化，可为空）
+     */
+    public VolumeLayout get(Long novelId, Novel novel, Supplier<List<NovelVolume>> volumeLoader) {
+        if (!enabled || novelId == null) {
+            return VolumeLayout.build(novelId, novel, volumeLoader.get());
+        }
+        long version = version(novelId);
+        String planKey = VolumeLayout.planKey(novel);
+        Entry entry;
+        synchronized (layouts) {
+            entry = layouts.get(novelId);
+        }
+        String outcome;
+        if (entry == null) {
+            outcome = "miss";
+        } else if (entry.version != version) {
+            outcome = "stale";
+        } else if (!planKey.equals(entry.layout.getPlanKey())) {
+            outcome = "plan_changed";
+        } else if (System.currentTimeMillis() - entry.builtAt > ttlMs) {
+            outcome = "expired";
+        } else {
+            record("hit");
+            return entry.layout;
+        }
+        record(outcome);
+
+        VolumeLayout layout = VolumeLayout.build(novelId, novel, volumeLoader.get());
+        synchronized (layouts) {
+            // 与 drop 在同一把锁内比对版本，避免比对后、回写前的写入被漏掉
+            if (version == version(novelId)) {
+                layouts.put(novelId, new Entry(layout, version));
+                while (layouts.size() > Math.max(1, maxNovels)) {
+                    layouts.remove(layouts.keySet().iterator().next());
+                }
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * 卷数据发生写入；处于事务中时事务结束后再失效一次
+     */
+    public void onVolumesChanged(Long novelId) {
+        if (novelId == null) {
+            return;
+        }
+        drop(novelId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(novelId);
+                }
+            });
+        }
+        logger.debug("卷布局失效: novelId={}", novelId);
+    }
+
+    private void drop(Long novelId) {
+        synchronized (layouts) {
+            versions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+            layouts.remove(novelId);
+        }
+    }
+
+    private long version(Long novelId) {
+        AtomicLong version = versions.get(novelId);
+        return version != null ? version.get() : 0L;
+    }
+
+    private void record(String outcome) {
+        if (meterRegistry != null) {
+            Counter.builder("agentic.volume.layout")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
@@ -26,6 +27,10 @@ public class GenerateForeshadowPlanTool implements Tool {
     @Autowired
     private ToolRegistry registry;
 
+    // 内部调用模型，超时长于查询类工具
+    @Value("${generation.tools.model-timeout-ms:90000}")
+    private long timeoutMs;
+
     @Autowired
     private PromptTemplateService promptTemplateService;
 
@@ -48,6 +53,11 @@ public class GenerateForeshadowPlanTool implements Tool {
         return "generateForeshadowPlan";
     }
 
+    @Override
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
     @Override
     public ToolDefinition getDefinition() {
         Map<String, Object> params = new HashMap<>();
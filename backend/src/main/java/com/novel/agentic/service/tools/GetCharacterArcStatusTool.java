@@ -13,7 +13,7 @@ import java.util.Map;
  * 查询人物成长状态工具
  */
 @Component
-public class GetCharacterArcStatusTool implements Tool {
+public class GetCharacterArcStatusTool implements ReadOnlyTool {
 
     @Autowired
     private IGraphService graphService;
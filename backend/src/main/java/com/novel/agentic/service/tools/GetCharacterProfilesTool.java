@@ -18,7 +18,7 @@ import java.util.stream.Collectors;
  * 从图谱中查询已保存的角色档案（CharacterProfile节点）
  */
 @Component
-public class GetCharacterProfilesTool implements Tool {
+public class GetCharacterProfilesTool implements ReadOnlyTool {
     
     private static final Logger logger = LoggerFactory.getLogger(GetCharacterProfilesTool.class);
     
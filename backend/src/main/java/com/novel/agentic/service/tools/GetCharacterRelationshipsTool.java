@@ -15,7 +15,7 @@ import java.util.Map;
  * 查询指定角色与其他角色的关系（对抗、合作、暧昧等）
  */
 @Component
-public class GetCharacterRelationshipsTool implements Tool {
+public class GetCharacterRelationshipsTool implements ReadOnlyTool {
     
     @Autowired
     private IGraphService graphService;
@@ -13,7 +13,7 @@ import java.util.Map;
  * 查询活跃冲突弧线工具
  */
 @Component
-public class GetConflictArcStatusTool implements Tool {
+public class GetConflictArcStatusTool implements ReadOnlyTool {
 
     @Autowired
     private IGraphService graphService;
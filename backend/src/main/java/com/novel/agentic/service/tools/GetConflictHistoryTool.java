@@ -15,7 +15,7 @@ import java.util.Map;
  * 查询主角与指定角色的所有对抗、冲突事件
  */
 @Component
-public class GetConflictHistoryTool implements Tool {
+public class GetConflictHistoryTool implements ReadOnlyTool {
     
     @Autowired
     private IGraphService graphService;
@@ -15,7 +15,7 @@ import java.util.Map;
  * 从指定事件出发，沿因果链查询前因后果
  */
 @Component
-public class GetEventsByCausalityTool implements Tool {
+public class GetEventsByCausalityTool implements ReadOnlyTool {
     
     @Autowired
     private IGraphService graphService;
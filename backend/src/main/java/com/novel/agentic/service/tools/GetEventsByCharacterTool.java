@@ -15,7 +15,7 @@ import java.util.Map;
  * 查询指定角色参与的所有重要事件
  */
 @Component
-public class GetEventsByCharacterTool implements Tool {
+public class GetEventsByCharacterTool implements ReadOnlyTool {
     
     @Autowired
     private IGraphService graphService;
@@ -15,7 +15,7 @@ import java.util.Map;
  * 用于帮助AI判断当前章节的节奏策略（冲突/主线/人物/缓冲）
  */
 @Component
-public class GetNarrativeRhythmTool implements Tool {
+public class GetNarrativeRhythmTool implements ReadOnlyTool {
 
     @Autowired
     private IGraphService graphService;
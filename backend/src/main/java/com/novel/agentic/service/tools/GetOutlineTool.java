@@ -20,7 +20,7 @@ import java.util.Optional;
  * 优先返回核心设定（避免AI上帝视角），如果核心设定不存在则返回完整大纲
  */
 @Component
-public class GetOutlineTool implements Tool {
+public class GetOutlineTool implements ReadOnlyTool {
 
     private static final Logger logger = LoggerFactory.getLogger(GetOutlineTool.class);
 
@@ -13,7 +13,7 @@ import java.util.Map;
  * 查询视角使用历史工具
  */
 @Component
-public class GetPerspectiveHistoryTool implements Tool {
+public class GetPerspectiveHistoryTool implements ReadOnlyTool {
 
     @Autowired
     private IGraphService graphService;
@@ -15,7 +15,7 @@ import java.util.Map;
  * 检测久未推进、待发展的情节线，提醒AI推进剧情
  */
 @Component
-public class GetPlotlineStatusTool implements Tool {
+public class GetPlotlineStatusTool implements ReadOnlyTool {
     
     @Autowired
     private IGraphService graphService;
@@ -19,7 +19,7 @@ import java.util.stream.Collectors;
  * 2. 最近30章概括（了解剧情发展）
  */
 @Component
-public class GetRecentChaptersTool implements Tool {
+public class GetRecentChaptersTool implements ReadOnlyTool {
     
     @Autowired
     private ChapterService chapterService;
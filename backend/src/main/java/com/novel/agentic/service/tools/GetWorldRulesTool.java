@@ -15,7 +15,7 @@ import java.util.Map;
  * 自动注入：优先使用Neo4j实现，不可用时降级到内存版
  */
 @Component
-public class GetWorldRulesTool implements Tool {
+public class GetWorldRulesTool implements ReadOnlyTool {
     
     @Autowired
     private IGraphService graphService;
@@ -0,0 +1,17 @@
+package com.novel.agentic.service.tools;
+
+/**
+ * 只读查询工具：无副作用，同一请求内相同参数的结果可记忆复用
+ */
+public interface ReadOnlyTool extends Tool {
+
+    @Override
+    default boolean isCacheable() {
+        return true;
+    }
+
+    @Override
+    default boolean isSideEffectFree() {
+        return true;
+    }
+}
@@ -25,6 +25,27 @@ public interface Tool {
      * 工具名称
      */
     String getName();
+
+    /**
+     * 是否可在同一请求内按参数记忆结果（相同参数返回相同结果且无副作用）
+     */
+    default boolean isCacheable() {
+        return false;
+    }
+
+    /**
+     * 是否无副作用（超时或取消时可直接中断执行线程）
+     */
+    default boolean isSideEffectFree() {
+        return false;
+    }
+
+    /**
+     * 单次执行超时（毫秒）；0 表示使用注册表默认值
+     */
+    default long getTimeoutMs() {
+        return 0L;
+    }
 }
 
 
@@ -0,0 +1,110 @@
+package com.novel.agentic.service.tools;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 工具调用作用域（一次写章/重写请求）
+ *
+ * 作用域内可缓存工具的结果按「工具名 + 规范化参数」记忆，预取、决策循环与兜底查询中的重复调用只执行一次；
+ * 并发的相同调用共享同一个执行结果。作用域绑定在线程上，由 {@link ToolRegistry} 与上下文预取线程池传递。
+ *
+ * 记忆的结果在作用域内共享，调用方只读使用。
+ */
+public final class ToolCallScope {
+
+    private static final ThreadLocal<ToolCallScope> CURRENT = new ThreadLocal<>();
+
+    private static final Registration NOOP = () -> { };
+
+    /**
+     * 作用域绑定句柄，关闭即恢复之前的绑定
+     */
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final String name;
+    private final ConcurrentMap<String, CompletableFuture<Object>> memo = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+
+    private ToolCallScope(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 当前线程的作用域，未绑定时返回 null
+     */
+    public static ToolCallScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 开启新的作用域（即使已有绑定也不复用，用于需要读取最新数据的后台任务）
+     */
+    public static Registration open(String name) {
+        return bind(new ToolCallScope(name));
+    }
+
+    /**
+     * 加入当前作用域；未绑定时开启新的作用域
+     */
+    public static Registration join(String name) {
+        return CURRENT.get() != null ? NOOP : open(name);
+    }
+
+    /**
+     * 将作用域绑定到当前线程（跨线程传递时使用），scope 为 null 时不做任何事
+     */
+    public static Registration bind(ToolCallScope scope) {
+        if (scope == null) {
+            return NOOP;
+        }
+        ToolCallScope previous = CURRENT.get();
+        CURRENT.set(scope);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 作用域内命中记忆的次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public int size() {
+        return memo.size();
+    }
+
+    /**
+     * 占位：key 尚无结果时登记 pending 并返回 null（由调用方执行并完成）；已有结果或正在执行时返回该结果
+     */
+    CompletableFuture<Object> claim(String key, CompletableFuture<Object> pending) {
+        CompletableFuture<Object> existing = memo.putIfAbsent(key, pending);
+        if (existing != null) {
+            hits.increment();
+        }
+        return existing;
+    }
+
+    /**
+     * 执行失败或超时：撤销占位，允许之后重试
+     */
+    void release(String key, CompletableFuture<Object> pending) {
+        memo.remove(key, pending);
+    }
+}
@@ -1,38 +1,124 @@
 package com.novel.agentic.service.tools;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.novel.agentic.model.ToolDefinition;
+import com.novel.agentic.service.performance.ContextPrefetcher;
+import com.novel.ai.execution.CancellationToken;
+import com.novel.exception.GenerationCancelledException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * 工具注册表（管理所有可用工具）
+ * 工具注册表（管理所有可用工具）与执行引擎
+ *
+ * 解决问题：工具调用只是查表后直接执行，没有超时（慢查询卡住整个决策循环）、没有复用
+ * （同一章内预取、决策、兜底反复查询大纲/卷蓝图/最近章节）、也没有耗时指标
+ *
+ * 策略：
+ * 1. 工具在独立线程池中执行，按工具声明的超时等待（未声明时用默认值）；
+ *    无副作用的工具超时或任务取消时中断执行线程，其余工具只放弃等待
+ *    （调用模型、消耗额度的工具不是无副作用的，中断只会白白浪费已发生的调用）
+ * 2. 已在预取线程上（该线程已受来源超时与取消约束）时，无副作用的工具直接在当前线程执行，
+ *    不再占用第二个线程；有副作用的工具仍进入线程池，避免被预取超时中断
+ * 3. 可缓存工具在 {@link ToolCallScope} 内按「工具名 + 规范化参数」记忆结果，并发的相同调用共享一次执行
+ * 4. 每个工具维护无锁的调用计数与耗时分桶直方图，并上报 Micrometer 计时器
  */
 @Service
 public class ToolRegistry {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(ToolRegistry.class);
-    
+
+    // 耗时直方图分桶上界（毫秒），最后一桶为溢出
+    static final long[] LATENCY_BUCKETS_MS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    // 参数规范化：Map 按键排序，保证参数顺序不同的相同调用命中同一条记忆
+    private static final ObjectMapper KEY_MAPPER = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+        .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
     private final Map<String, Tool> tools = new ConcurrentHashMap<>();
-    
+
+    private final Map<String, ToolStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${generation.tools.threads:16}")
+    private int threads = 16;
+
+    @Value("${generation.tools.queue-capacity:64}")
+    private int queueCapacity = 64;
+
+    @Value("${generation.tools.default-timeout-ms:30000}")
+    private long defaultTimeoutMs = 30000L;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+            threads, threads,
+            60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(r, "tool-exec-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        logger.info("工具执行引擎初始化完成: threads={}, queueCapacity={}, defaultTimeoutMs={}",
+            threads, queueCapacity, defaultTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * 注册工具
      */
     public void register(Tool tool) {
         tools.put(tool.getName(), tool);
-        logger.info("📌 工具已注册: {}", tool.getName());
+        logger.info("📌 工具已注册: {} (cacheable={}, sideEffectFree={})",
+            tool.getName(), tool.isCacheable(), tool.isSideEffectFree());
     }
-    
+
     /**
      * 获取工具
      */
     public Tool getTool(String name) {
         return tools.get(name);
     }
-    
+
     /**
      * 获取所有工具定义（供AI选择）
      */
@@ -43,29 +129,221 @@ public class ToolRegistry {
         }
         return definitions;
     }
-    
+
     /**
-     * 执行工具
+     * 执行工具：可缓存工具先查当前作用域的记忆，其余按超时执行
+     *
+     * @throws TimeoutException 超过工具超时仍未完成
      */
     public Object executeTool(String toolName, Map<String, Object> args) throws Exception {
         Tool tool = tools.get(toolName);
         if (tool == null) {
             throw new IllegalArgumentException("工具不存在: " + toolName);
         }
-        
-        logger.info("🔧 执行工具: {} | 参数: {}", toolName, args);
-        Object result = tool.execute(args);
-        logger.info("✅ 工具执行完成: {}", toolName);
-        
-        return result;
+        ToolStats toolStats = stats.computeIfAbsent(toolName, ToolStats::new);
+
+        ToolCallScope scope = tool.isCacheable() ? ToolCallScope.current() : null;
+        String key = scope != null ? memoKey(toolName, args) : null;
+        if (key == null) {
+            return invoke(tool, args, toolStats);
+        }
+
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        CompletableFuture<Object> shared = scope.claim(key, pending);
+        if (shared != null) {
+            toolStats.memoHits.increment();
+            logger.info("♻️ 工具结果复用: {} | 作用域: {}", toolName, scope.getName());
+            return awaitShared(tool, shared);
+        }
+        try {
+            Object result = invoke(tool, args, toolStats);
+            pending.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            scope.release(key, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
     }
-    
+
     /**
      * 获取所有工具名称
      */
     public Set<String> getAllToolNames() {
         return tools.keySet();
     }
-}
 
+    /**
+     * 各工具的调用统计（调用数、复用数、失败、超时、平均耗时与耗时分布）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new TreeMap<>();
+        stats.forEach((name, toolStats) -> result.put(name, toolStats.snapshot()));
+        return result;
+    }
+
+    private Object invoke(Tool tool, Map<String, Object> args, ToolStats toolStats) throws Exception {
+        String toolName = tool.getName();
+        long timeoutMs = tool.getTimeoutMs() > 0 ? tool.getTimeoutMs() : defaultTimeoutMs;
+        logger.info("🔧 执行工具: {} | 参数: {}", toolName, args);
+
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        CancellationToken token = CancellationToken.current();
+        ToolCallScope scope = ToolCallScope.current();
+        Thread caller = Thread.currentThread();
+        FutureTask<Object> task = new FutureTask<>(() -> {
+            // 在线程池中执行时恢复调用方的上下文（调用线程内联执行时无需切换）
+            if (Thread.currentThread() == caller) {
+                return tool.execute(args);
+            }
+            SecurityContextHolder.setContext(securityContext);
+            try (CancellationToken.Registration ignoredToken = token != null ? CancellationToken.bind(token) : () -> { };
+                 ToolCallScope.Registration ignoredScope = ToolCallScope.bind(scope)) {
+                return tool.execute(args);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+
+        long startedAt = System.nanoTime();
+        if (tool.isSideEffectFree() && ContextPrefetcher.isWorkerThread()) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                logger.warn("⚠️ 工具线程池已满，在调用线程执行: {}", toolName);
+                task.run();
+            }
+        }
+
+        String outcome = "error";
+        try (CancellationToken.Registration ignored = CancellationToken.registerCurrent(() -> task.cancel(true))) {
+            Object result = task.get(timeoutMs, TimeUnit.MILLISECONDS);
+            outcome = "ok";
+            logger.info("✅ 工具执行完成: {} ({}ms)", toolName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            return result;
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            task.cancel(tool.isSideEffectFree());
+            logger.warn("⏱️ 工具执行超时: {} ({}ms)", toolName, timeoutMs);
+            throw new TimeoutException("工具执行超时: " + toolName + " (" + timeoutMs + "ms)");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            outcome = "cancelled";
+            throw new GenerationCancelledException("工具执行已取消: " + toolName);
+        } catch (InterruptedException e) {
+            outcome = "cancelled";
+            task.cancel(tool.isSideEffectFree());
+            Thread.currentThread().interrupt();
+            throw new GenerationCancelledException("工具执行已取消: " + toolName);
+        } finally {
+            long elapsedNanos = System.nanoTime() - startedAt;
+            toolStats.record(outcome, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            if (meterRegistry != null) {
+                Timer.builder("agentic.tool.latency")
+                    .tag("tool", toolName)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 等待作用域内同一调用的结果（可能仍在执行中），受该工具超时约束
+     */
+    private Object awaitShared(Tool tool, CompletableFuture<Object> shared) throws Exception {
+        long timeoutMs = tool.getTimeoutMs() > 0 ? tool.getTimeoutMs() : defaultTimeoutMs;
+        try {
+            return shared.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenerationCancelledException("工具执行已取消: " + tool.getName());
+        }
+    }
 
+    /**
+     * 记忆键：工具名 + 参数的规范化 JSON；参数无法序列化时返回 null（本次不记忆）
+     */
+    static String memoKey(String toolName, Map<String, Object> args) {
+        try {
+            return toolName + ":" + KEY_MAPPER.writeValueAsString(args != null ? args : Collections.emptyMap());
+        } catch (Exception e) {
+            logger.debug("工具参数无法规范化，跳过记忆: {} ({})", toolName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 单个工具的统计（全部为 LongAdder，热路径无锁）
+     */
+    static final class ToolStats {
+        final String tool;
+        final LongAdder invocations = new LongAdder();
+        final LongAdder memoHits = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder totalMs = new LongAdder();
+        final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS_MS.length + 1];
+
+        ToolStats(String tool) {
+            this.tool = tool;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(String outcome, long elapsedMs) {
+            invocations.increment();
+            totalMs.add(elapsedMs);
+            if ("timeout".equals(outcome)) {
+                timeouts.increment();
+            } else if (!"ok".equals(outcome)) {
+                errors.increment();
+            }
+            buckets[bucketOf(elapsedMs)].increment();
+        }
+
+        static int bucketOf(long elapsedMs) {
+            for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+                if (elapsedMs <= LATENCY_BUCKETS_MS[i]) {
+                    return i;
+                }
+            }
+            return LATENCY_BUCKETS_MS.length;
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> item = new LinkedHashMap<>();
+            long calls = invocations.sum();
+            item.put("invocations", calls);
+            item.put("memoHits", memoHits.sum());
+            item.put("errors", errors.sum());
+            item.put("timeouts", timeouts.sum());
+            item.put("avgMs", calls > 0 ? totalMs.sum() / calls : 0);
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                String label = i < LATENCY_BUCKETS_MS.length ? "<=" + LATENCY_BUCKETS_MS[i] + "ms" : ">" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms";
+                histogram.put(label, buckets[i].sum());
+            }
+            item.put("latency", histogram);
+            return item;
+        }
+    }
+}
@@ -0,0 +1,673 @@
+package com.novel.agentic.service.tools;
+
+import com.novel.domain.entity.Novel;
+import com.novel.domain.entity.NovelVolume;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 小说的卷布局索引（不可变）
+ *
+ * 解决问题：每次查询卷蓝图都重新加载全部卷，再逐卷比较实际范围、延展范围、规划估算范围，
+ * 而这些区间只在卷或小说规划（计划卷数、目标章数）变化时才会变化
+ *
+ * 策略：构建时把三级匹配规则预先展开成按起始章排序、互不重叠的区间表，
+ * 查询某一章时在区间表上二分查找，选中结果与逐卷比较的规则完全一致：
+ * 1. 实际范围：按卷号顺序第一个包含该章的卷；跨度明显小于规划跨度时视为异常，继续往下匹配
+ * 2. 延展范围：已结束的卷中终点最大者，在其缓冲余量内的章节归入该卷
+ * 3. 规划估算：按目标章数 ÷ 计划卷数均分，各卷前后留缓冲，最后一卷无上限
+ */
+public final class VolumeLayout {
+
+    private static final Logger logger = LoggerFactory.getLogger(VolumeLayout.class);
+
+    private static final double BOUNDARY_BUFFER_RATIO = 0.1;
+    private static final int BOUNDARY_BUFFER_MIN = 5;
+    private static final int DEFAULT_VOLUME_COUNT = 5;
+    private static final int DEFAULT_VOLUME_SIZE = 100;
+
+    private final Long novelId;
+    private final String planKey;
+    private final List<NovelVolume> volumes;
+    private final int novelPlannedVolumes;
+    private final int novelTargetChapters;
+    private final int expectedSpan;
+
+    // 第 1 级：实际范围（按卷号优先级展开后的不重叠区间）
+    private final List<Range<NovelVolume>> actualRanges;
+
+    // 第 2 级：已定义范围的卷按终点升序（终点相同时卷号靠前者排在后面）
+    private final NovelVolume[] definedByEnd;
+    private final int[] definedEnds;
+
+    // 第 3 级：规划估算（按卷序展开后的不重叠区间）
+    private final List<Range<PlannedVolume>> plannedRanges;
+
+    private VolumeLayout(Long novelId, String planKey, List<NovelVolume> volumes,
+                         int novelPlannedVolumes, int novelTargetChapters, int expectedSpan,
+                         List<Range<NovelVolume>> actualRanges, NovelVolume[] definedByEnd,
+                         List<Range<PlannedVolume>> plannedRanges) {
+        this.novelId = novelId;
+        this.planKey = planKey;
+        this.volumes = volumes;
+        this.novelPlannedVolumes = novelPlannedVolumes;
+        this.novelTargetChapters = novelTargetChapters;
+        this.expectedSpan = expectedSpan;
+        this.actualRanges = actualRanges;
+        this.definedByEnd = definedByEnd;
+        this.definedEnds = new int[definedByEnd.length];
+        for (int i = 0; i < definedByEnd.length; i++) {
+            definedEnds[i] = definedByEnd[i].getChapterEnd();
+        }
+        this.plannedRanges = plannedRanges;
+    }
+
+    /**
+     * 小说规划参数的标识；与缓存中布局的标识不同时需要重建
+     */
+    public static String planKey(Novel novel) {
+        if (novel == null) {
+            return "-";
+        }
+        return novel.getPlannedVolumeCount() + ":" + novel.getTargetTotalChapters();
+    }
+
+    public String getPlanKey() {
+        return planKey;
+    }
+
+    /**
+     * 按卷号排序的卷（只读）
+     */
+    public List<NovelVolume> getVolumes() {
+        return volumes;
+    }
+
+    /**
+     * 构建布局索引
+     *
+     * @param novel   小说（可为空，此时按卷数据与默认值估算）
+     * @param volumes 该小说的全部卷
+     */
+    public static VolumeLayout build(Long novelId, Novel novel, List<NovelVolume> volumes) {
+        List<NovelVolume> sorted = new ArrayList<>(volumes != null ? volumes : Collections.emptyList());
+        sorted.sort(Comparator.comparing(v -> v.getVolumeNumber() != null ? v.getVolumeNumber() : Integer.MAX_VALUE));
+
+        int plannedVolumeCount = resolvePlannedVolumeCount(novel, sorted);
+        int targetTotalChapters = resolveTargetTotalChapters(novel, plannedVolumeCount, sorted);
+
+        int effectivePlannedVolumes = plannedVolumeCount > 0 ? plannedVolumeCount : DEFAULT_VOLUME_COUNT;
+        int effectiveTotalChapters = targetTotalChapters > 0
+            ? targetTotalChapters
+            : effectivePlannedVolumes * DEFAULT_VOLUME_SIZE;
+        int expectedSpan = Math.max(1, (int) Math.ceil(effectiveTotalChapters * 1.0 / effectivePlannedVolumes));
+
+        int novelPlannedVolumes = 0;
+        int novelTargetChapters = 0;
+        if (novel != null) {
+            if (novel.getPlannedVolumeCount() != null && novel.getPlannedVolumeCount() > 0) {
+                novelPlannedVolumes = novel.getPlannedVolumeCount();
+            }
+            if (novel.getTargetTotalChapters() != null && novel.getTargetTotalChapters() > 0) {
+                novelTargetChapters = novel.getTargetTotalChapters();
+            }
+        }
+
+        // 第 1 级：卷号顺序即优先级
+        List<Range<NovelVolume>> actualCandidates = new ArrayList<>();
+        for (NovelVolume volume : sorted) {
+            if (volume.getChapterStart() != null && volume.getChapterEnd() != null) {
+                actualCandidates.add(new Range<>(volume.getChapterStart(), volume.getChapterEnd(), volume));
+            }
+        }
+
+        // 第 2 级
+        List<NovelVolume> defined = new ArrayList<>();
+        for (NovelVolume volume : sorted) {
+            if (volume.getChapterStart() != null && volume.getChapterEnd() != null) {
+                defined.add(volume);
+            }
+        }
+        List<NovelVolume> definedByEnd = new ArrayList<>(defined);
+        definedByEnd.sort(Comparator.comparing(NovelVolume::getChapterEnd)
+            .thenComparing(Comparator.comparingInt(defined::indexOf).reversed()));
+
+        // 第 3 级
+        List<Range<PlannedVolume>> plannedCandidates = new ArrayList<>();
+        if (effectiveTotalChapters > 0) {
+            int approxVolumeSize = Math.max(1, (int) Math.ceil(effectiveTotalChapters * 1.0 / effectivePlannedVolumes));
+            logger.debug("🎯 卷划分计算: 总章节={} ÷ 卷数={} = 每卷约{}章",
+                effectiveTotalChapters, effectivePlannedVolumes, approxVolumeSize);
+
+            int baseStart = 1;
+            for (int index = 1; index <= effectivePlannedVolumes; index++) {
+                int baseEnd = index == effectivePlannedVolumes
+                    ? effectiveTotalChapters
+                    : Math.min(effectiveTotalChapters, baseStart + approxVolumeSize - 1);
+                int buffer = computeBufferForSpan(baseEnd - baseStart + 1);
+                int softStart = index == 1 ? 1 : Math.max(1, baseStart - buffer);
+                int softEnd = baseEnd + buffer;
+                boolean isLastVolume = index == effectivePlannedVolumes;
+
+                NovelVolume targetVolume = findVolumeByNumber(sorted, index);
+                PlannedVolume planned = new PlannedVolume(targetVolume, index, effectivePlannedVolumes,
+                    effectiveTotalChapters, baseStart, baseEnd, buffer, isLastVolume);
+                plannedCandidates.add(new Range<>(softStart, isLastVolume ? Integer.MAX_VALUE : softEnd, planned));
+
+                baseStart = baseEnd + 1;
+            }
+        }
+
+        logger.info("📐 卷布局已构建: novelId={}, 卷数={}, 实际区间={}, 规划区间={}, 计划{}卷/{}章",
+            novelId, sorted.size(), actualCandidates.size(), plannedCandidates.size(),
+            effectivePlannedVolumes, effectiveTotalChapters);
+
+        return new VolumeLayout(novelId, planKey(novel), Collections.unmodifiableList(sorted),
+            novelPlannedVolumes, novelTargetChapters, expectedSpan,
+            flatten(actualCandidates), definedByEnd.toArray(new NovelVolume[0]),
+            flatten(plannedCandidates));
+    }
+
+    /**
+     * 选出某一章所属的卷及其进度；无法推断时返回 null
+     */
+    public Selection select(int chapterNumber) {
+        Range<NovelVolume> actual = find(actualRanges, chapterNumber);
+        if (actual != null) {
+            NovelVolume matched = actual.value;
+            int start = matched.getChapterStart();
+            int end = matched.getChapterEnd();
+            int actualSpan = end - start + 1;
+            int minimumAcceptableSpan = Math.max(BOUNDARY_BUFFER_MIN, (int) Math.ceil(expectedSpan * 0.6));
+            if (actualSpan < minimumAcceptableSpan) {
+                logger.warn("⚠️ 卷跨度异常: novelId={}, chapter={}, volumeNo={}, 实际跨度={} 小于预期跨度{}，将按规划重新估算",
+                    novelId, chapterNumber, matched.getVolumeNumber(), actualSpan, expectedSpan);
+            } else {
+                int buffer = computeBufferForVolumeSpan(start, end);
+                return Selection.fromActual(matched, novelPlannedVolumes, novelTargetChapters, chapterNumber, buffer, false);
+            }
+        }
+
+        // 终点小于当前章的卷中终点最大者
+        int index = lastIndexBelow(definedEnds, chapterNumber);
+        if (index >= 0) {
+            NovelVolume lastDefined = definedByEnd[index];
+            int buffer = computeBufferForVolumeSpan(lastDefined.getChapterStart(), lastDefined.getChapterEnd());
+            int softEnd = lastDefined.getChapterEnd() + buffer;
+            if (chapterNumber <= softEnd) {
+                return Selection.fromActual(lastDefined, novelPlannedVolumes, novelTargetChapters, chapterNumber, buffer, true);
+            }
+        }
+
+        Range<PlannedVolume> planned = find(plannedRanges, chapterNumber);
+        if (planned == null) {
+            return null;
+        }
+        PlannedVolume p = planned.value;
+        boolean fallbackUsed = p.volume == null
+            || p.volume.getChapterStart() == null
+            || p.volume.getChapterEnd() == null;
+        return Selection.fromComputed(p.volume, p.volumeNumber, p.plannedVolumes, p.totalChapters,
+            p.baseStart, p.baseEnd, chapterNumber, p.buffer, fallbackUsed, p.isLastVolume);
+    }
+
+    /**
+     * 按优先级把可能重叠的候选区间展开为按起始章排序、互不重叠的区间；每段取包含它的第一个候选
+     */
+    static <T> List<Range<T>> flatten(List<Range<T>> candidates) {
+        TreeSet<Integer> breakpoints = new TreeSet<>();
+        for (Range<T> candidate : candidates) {
+            if (candidate.end < candidate.start) {
+                continue;
+            }
+            breakpoints.add(candidate.start);
+            if (candidate.end != Integer.MAX_VALUE) {
+                breakpoints.add(candidate.end + 1);
+            }
+        }
+        List<Range<T>> segments = new ArrayList<>();
+        Integer[] points = breakpoints.toArray(new Integer[0]);
+        for (int i = 0; i < points.length; i++) {
+            int segmentStart = points[i];
+            int segmentEnd = i + 1 < points.length ? points[i + 1] - 1 : Integer.MAX_VALUE;
+            Range<T> winner = null;
+            for (Range<T> candidate : candidates) {
+                if (candidate.start <= segmentStart && segmentStart <= candidate.end) {
+                    winner = candidate;
+                    break;
+                }
+            }
+            if (winner == null) {
+                continue;
+            }
+            Range<T> last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last != null && last.value == winner.value && last.end == segmentStart - 1) {
+                segments.set(segments.size() - 1, new Range<>(last.start, segmentEnd, winner.value));
+            } else {
+                segments.add(new Range<>(segmentStart, segmentEnd, winner.value));
+            }
+        }
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * 在不重叠的有序区间上二分查找包含 chapter 的区间
+     */
+    static <T> Range<T> find(List<Range<T>> ranges, int chapter) {
+        int low = 0;
+        int high = ranges.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Range<T> range = ranges.get(mid);
+            if (chapter < range.start) {
+                high = mid - 1;
+            } else if (chapter > range.end) {
+                low = mid + 1;
+            } else {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 升序数组中最后一个小于 value 的下标，不存在时返回 -1
+     */
+    private static int lastIndexBelow(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private static int resolvePlannedVolumeCount(Novel novel, List<NovelVolume> volumes) {
+        if (novel != null && novel.getPlannedVolumeCount() != null && novel.getPlannedVolumeCount() > 0) {
+            return novel.getPlannedVolumeCount();
+        }
+        if (volumes != null && !volumes.isEmpty()) {
+            long count = volumes.stream()
+                .map(NovelVolume::getVolumeNumber)
+                .filter(n -> n != null && n > 0)
+                .distinct()
+                .count();
+            if (count > 0) {
+                return (int) count;
+            }
+        }
+        return 0;
+    }
+
+    private static int resolveTargetTotalChapters(Novel novel, int plannedVolumeCount, List<NovelVolume> volumes) {
+        // 优先使用小说表的目标章节数
+        if (novel != null && novel.getTargetTotalChapters() != null && novel.getTargetTotalChapters() > 0) {
+            logger.debug("📖 使用小说表设置: 总章节={}", novel.getTargetTotalChapters());
+            return novel.getTargetTotalChapters();
+        }
+
+        // 次优：从所有卷的设定范围推断总章节数
+        // ⚠️ 警告：这个逻辑有风险，只有当所有卷都明确设置了范围时才可信
+        if (volumes != null && !volumes.isEmpty()) {
+            long volumesWithRange = volumes.stream()
+                .filter(v -> v.getChapterStart() != null && v.getChapterEnd() != null)
+                .count();
+
+            logger.debug("📚 卷数据检查: 总卷数={}, 已设置范围的卷={}", volumes.size(), volumesWithRange);
+
+            // 只有当所有卷都设置了范围，才从卷数据推断
+            if (volumesWithRange == volumes.size() && volumesWithRange == plannedVolumeCount) {
+                int maxEnd = volumes.stream()
+                    .map(NovelVolume::getChapterEnd)
+                    .filter(end -> end != null && end > 0)
+                    .max(Integer::compareTo)
+                    .orElse(0);
+                if (maxEnd > 0) {
+                    logger.debug("✅ 从卷数据推断: 总章节={} (所有{}个卷都已设置)", maxEnd, volumesWithRange);
+                    return maxEnd;
+                }
+            } else if (volumesWithRange > 0) {
+                logger.warn("⚠️ 只有部分卷设置了范围，不使用卷数据，改用默认计算");
+            }
+        }
+
+        // 默认按照100章/卷估算
+        int defaultTotal = plannedVolumeCount * DEFAULT_VOLUME_SIZE;
+        logger.debug("📐 使用默认计算: {}卷 × {}章 = {}总章节", plannedVolumeCount, DEFAULT_VOLUME_SIZE, defaultTotal);
+        return defaultTotal;
+    }
+
+    private static NovelVolume findVolumeByNumber(List<NovelVolume> volumes, int volumeNumber) {
+        return volumes.stream()
+            .filter(v -> v.getVolumeNumber() != null && v.getVolumeNumber() == volumeNumber)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static int computeBufferForSpan(int span) {
+        int effectiveSpan = Math.max(1, span);
+        return Math.max(BOUNDARY_BUFFER_MIN, (int) Math.ceil(effectiveSpan * BOUNDARY_BUFFER_RATIO));
+    }
+
+    private static int computeBufferForVolumeSpan(Integer start, Integer end) {
+        if (start == null || end == null) {
+            return Math.max(BOUNDARY_BUFFER_MIN, (int) Math.ceil(DEFAULT_VOLUME_SIZE * BOUNDARY_BUFFER_RATIO));
+        }
+        return computeBufferForSpan(end - start + 1);
+    }
+
+    /**
+     * 闭区间 [start, end] 及其对应的值
+     */
+    static final class Range<T> {
+        final int start;
+        final int end;
+        final T value;
+
+        Range(int start, int end, T value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + "," + end + "]=" + Objects.toString(value);
+        }
+    }
+
+    /**
+     * 规划估算出的一卷
+     */
+    private static final class PlannedVolume {
+        final NovelVolume volume;
+        final int volumeNumber;
+        final int plannedVolumes;
+        final int totalChapters;
+        final int baseStart;
+        final int baseEnd;
+        final int buffer;
+        final boolean isLastVolume;
+
+        PlannedVolume(NovelVolume volume, int volumeNumber, int plannedVolumes, int totalChapters,
+                      int baseStart, int baseEnd, int buffer, boolean isLastVolume) {
+            this.volume = volume;
+            this.volumeNumber = volumeNumber;
+            this.plannedVolumes = plannedVolumes;
+            this.totalChapters = totalChapters;
+            this.baseStart = baseStart;
+            this.baseEnd = baseEnd;
+            this.buffer = buffer;
+            this.isLastVolume = isLastVolume;
+        }
+
+        @Override
+        public String toString() {
+            return "volume" + volumeNumber;
+        }
+    }
+
+    /**
+     * 某一章的选中结果
+     */
+    public static final class Selection {
+        private final NovelVolume volume;
+        private final int volumeNumber;
+        private final int plannedVolumeCount;
+        private final int targetTotalChapters;
+        private final int computedStart;
+        private final int computedEnd;
+        private final int softEnd;
+        private final int chapterIndex;
+        private final int volumeSpan;
+        private final BigDecimal progress;
+        private final String progressDescription;
+        private final boolean fallbackUsed;
+        private final boolean overrun;
+        private final int overrunChapters;
+        private final int bufferAllowance;
+        private final int bufferRemaining;
+        private final int remainingChapters;
+
+        private Selection(NovelVolume volume,
+                          int volumeNumber,
+                          int plannedVolumeCount,
+                          int targetTotalChapters,
+                          int computedStart,
+                          int computedEnd,
+                          int softEnd,
+                          int chapterIndex,
+                          int volumeSpan,
+                          BigDecimal progress,
+                          String progressDescription,
+                          boolean fallbackUsed,
+                          boolean overrun,
+                          int overrunChapters,
+                          int bufferAllowance,
+                          int bufferRemaining,
+                          int remainingChapters) {
+            this.volume = volume;
+            this.volumeNumber = volumeNumber;
+            this.plannedVolumeCount = plannedVolumeCount;
+            this.targetTotalChapters = targetTotalChapters;
+            this.computedStart = computedStart;
+            this.computedEnd = computedEnd;
+            this.softEnd = softEnd;
+            this.chapterIndex = chapterIndex;
+            this.volumeSpan = volumeSpan;
+            this.progress = progress;
+            this.progressDescription = progressDescription;
+            this.fallbackUsed = fallbackUsed;
+            this.overrun = overrun;
+            this.overrunChapters = overrunChapters;
+            this.bufferAllowance = bufferAllowance;
+            this.bufferRemaining = bufferRemaining;
+            this.remainingChapters = remainingChapters;
+        }
+
+        static Selection fromActual(NovelVolume volume,
+                                    int novelPlannedVolumes,
+                                    int novelTargetChapters,
+                                    int chapterNumber,
+                                    int bufferAllowance,
+                                    boolean extended) {
+            int plannedVolumes = novelPlannedVolumes;
+            int totalChapters = novelTargetChapters;
+            if (plannedVolumes <= 0) {
+                plannedVolumes = DEFAULT_VOLUME_COUNT;
+            }
+            if (totalChapters <= 0) {
+                totalChapters = plannedVolumes * DEFAULT_VOLUME_SIZE;
+            }
+
+            int volumeNo = volume.getVolumeNumber() != null && volume.getVolumeNumber() > 0 ? volume.getVolumeNumber() : 1;
+            int start = volume.getChapterStart() != null ? volume.getChapterStart() : (volumeNo - 1) * DEFAULT_VOLUME_SIZE + 1;
+            int end = volume.getChapterEnd() != null ? volume.getChapterEnd() : start + DEFAULT_VOLUME_SIZE - 1;
+            if (end < start) {
+                end = start;
+            }
+            int span = Math.max(1, end - start + 1);
+            int softEnd = end + bufferAllowance;
+            if (chapterNumber > softEnd && !extended) {
+                return null;
+            }
+            int index = Math.max(1, chapterNumber - start + 1);
+            BigDecimal progress = BigDecimal.valueOf(index)
+                .divide(BigDecimal.valueOf(span), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+
+            boolean overrun = chapterNumber > end;
+            int overrunChapters = overrun ? chapterNumber - end : 0;
+            int remainingChapters = Math.max(0, end - chapterNumber + 1);
+            int bufferRemaining = Math.max(0, softEnd - chapterNumber);
+
+            return new Selection(volume,
+                volumeNo,
+                plannedVolumes,
+                totalChapters,
+                start,
+                end,
+                softEnd,
+                index,
+                span,
+                progress,
+                describeProgress(progress, overrun, overrunChapters, bufferRemaining, remainingChapters),
+                extended,
+                overrun,
+                overrunChapters,
+                bufferAllowance,
+                bufferRemaining,
+                remainingChapters);
+        }
+
+        static Selection fromComputed(NovelVolume volume,
+                                      int volumeNumber,
+                                      int plannedVolumes,
+                                      int totalChapters,
+                                      int baseStart,
+                                      int baseEnd,
+                                      int chapterNumber,
+                                      int bufferAllowance,
+                                      boolean fallbackUsed,
+                                      boolean isLastVolume) {
+            int span = Math.max(1, baseEnd - baseStart + 1);
+            int softEnd = baseEnd + bufferAllowance;
+            if (!isLastVolume && chapterNumber > softEnd) {
+                return null;
+            }
+            if (isLastVolume && chapterNumber > softEnd) {
+                softEnd = chapterNumber;
+            }
+
+            int index = Math.max(1, chapterNumber - baseStart + 1);
+            BigDecimal progress = BigDecimal.valueOf(index)
+                .divide(BigDecimal.valueOf(span), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+
+            boolean overrun = chapterNumber > baseEnd;
+            int overrunChapters = overrun ? chapterNumber - baseEnd : 0;
+            int bufferRemaining = Math.max(0, softEnd - chapterNumber);
+            int remainingChapters = Math.max(0, baseEnd - chapterNumber + 1);
+
+            return new Selection(volume,
+                volumeNumber,
+                plannedVolumes,
+                totalChapters,
+                baseStart,
+                baseEnd,
+                softEnd,
+                index,
+                span,
+                progress,
+                describeProgress(progress, overrun, overrunChapters, bufferRemaining, remainingChapters),
+                fallbackUsed,
+                overrun,
+                overrunChapters,
+                bufferAllowance,
+                bufferRemaining,
+                remainingChapters);
+        }
+
+        private static String describeProgress(BigDecimal progress, boolean overrun, int overrunChapters,
+                                               int bufferRemaining, int remainingChapters) {
+            StringBuilder descBuilder = new StringBuilder();
+            descBuilder.append("目标进度：");
+            descBuilder.append(progress.setScale(1, RoundingMode.HALF_UP)).append("%");
+            if (overrun) {
+                descBuilder.append("，已超过原定终点 ").append(overrunChapters).append(" 章");
+                if (bufferRemaining > 0) {
+                    descBuilder.append("，可延后余量 ").append(bufferRemaining).append(" 章");
+                } else {
+                    descBuilder.append("，已用尽预留缓冲");
+                }
+            } else if (remainingChapters > 0) {
+                descBuilder.append("，预计本卷剩余 ").append(remainingChapters).append(" 章");
+            }
+            return descBuilder.toString();
+        }
+
+        public NovelVolume getVolume() {
+            return volume;
+        }
+
+        public int getVolumeNumber() {
+            return volumeNumber;
+        }
+
+        public int getPlannedVolumeCount() {
+            return plannedVolumeCount;
+        }
+
+        public int getTargetTotalChapters() {
+            return targetTotalChapters;
+        }
+
+        public int getComputedStart() {
+            return computedStart;
+        }
+
+        public int getComputedEnd() {
+            return computedEnd;
+        }
+
+        public int getSoftEnd() {
+            return softEnd;
+        }
+
+        public int getChapterIndex() {
+            return chapterIndex;
+        }
+
+        public int getVolumeSpan() {
+            return volumeSpan;
+        }
+
+        public BigDecimal getProgress() {
+            return progress;
+        }
+
+        public String getProgressDescription() {
+            return progressDescription;
+        }
+
+        public boolean isFallbackUsed() {
+            return fallbackUsed;
+        }
+
+        public boolean isOverrun() {
+            return overrun;
+        }
+
+        public int getOverrunChapters() {
+            return overrunChapters;
+        }
+
+        public int getBufferAllowance() {
+            return bufferAllowance;
+        }
+
+        public int getBufferRemaining() {
+            return bufferRemaining;
+        }
+
+        public int getRemainingChapters() {
+            return remainingChapters;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.novel.ai.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * AI响应内容寻址缓存（磁盘 + LRU）
+ *
+ * 解决问题：章节重新发布、抽取重试（EntityExtractionRetryService）、批量回填重跑时，
+ * 实体抽取/核心状态抽取/概要/核心设定提炼会把同样的正文再发一遍，每次都重新计费
+ *
+ * 策略：
+ * 1. 按需开启（ai.response-cache.enabled），只缓存配置了 TTL 的调用类型；
+ *    正文写作等创作类调用即使误配也不缓存
+ * 2. key = SHA-256(调用类型 + 接口地址 + API Key + 用户 + 请求体)，请求体含模型、温度等参数与 messages；
+ *    不同用户、不同 Key 之间不共享结果，命中时免于扣费的只能是该用户自己此前已付费的同一请求
+ * 3. 只有调用方校验通过（能解析出可用结构、且未因 max_tokens 截断）的响应才写入；
+ *    命中时再校验一次，不合格的旧条目直接丢弃并重新请求，抽取重试因此总能恢复
+ * 4. 每条响应一个文件（目录/类型/hash.txt），启动时扫描目录重建索引
+ * 5. 总大小超限时按最近最少使用淘汰，读取时检查所属类型的 TTL
+ * 6. 按类型记录命中/未命中指标
+ */
+@Component
+public class AIResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIResponseCache.class);
+
+    /** 创作类调用：输出本就应当每次不同，永不缓存 */
+    private static final Set<String> NEVER_CACHE = new HashSet<>(Arrays.asList(
+        "chapter_writing", "chapter_revision", "chapter_optimization", "chapter_rewrite",
+        "volume_chapter_outlines_generation", "chapter_outline_from_content", "ai_chat"));
+
+    private static final String FILE_SUFFIX = ".txt";
+
+    @Value("${ai.response-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.response-cache.dir:./data/ai-response-cache}")
+    private String directory;
+
+    @Value("${ai.response-cache.max-size-mb:256}")
+    private long maxSizeMb;
+
+    /** 调用类型=TTL小时，逗号分隔 */
+    @Value("${ai.response-cache.ttl-hours:entity_extraction=168,core_state_extraction=168,chapter_digest=168,chapter_summary=720,content_summarization=720,core_settings_extraction=720}")
+    private String ttlSpec;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final ObjectMapper keyMapper = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final Map<String, Long> ttlMsByType = new HashMap<>();
+
+    // LRU 索引：hash -> 条目（访问顺序），由 this 保护
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, LongAdder> hitsByType = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> missesByType = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private Path root;
+    private long maxBytes;
+
+    @PostConstruct
+    public void init() {
+        ttlMsByType.putAll(parseTtlSpec(ttlSpec));
+        if (!enabled) {
+            logger.info("AI响应缓存未开启");
+            return;
+        }
+        root = Paths.get(directory).toAbsolutePath();
+        maxBytes = maxSizeMb * 1024 * 1024;
+        try {
+            Files.createDirectories(root);
+            loadIndex();
+        } catch (IOException e) {
+            logger.error("AI响应缓存目录不可用，已关闭缓存: {}", root, e);
+            enabled = false;
+            return;
+        }
+        if (meterRegistry != null) {
+            Gauge.builder("ai.response.cache.entries", this, c -> c.entryCount()).register(meterRegistry);
+            Gauge.builder("ai.response.cache.bytes", this, c -> c.sizeBytes()).register(meterRegistry);
+            Gauge.builder("ai.response.cache.evictions", evictions, LongAdder::sum).register(meterRegistry);
+        }
+        logger.info("AI响应缓存已开启: dir={}, 上限={}MB, 已有{}条, 类型TTL={}",
+            root, maxSizeMb, entryCount(), ttlMsByType.keySet());
+    }
+
+    /**
+     * 该调用类型是否走缓存
+     */
+    public boolean isCacheable(String type) {
+        return enabled && type != null && !NEVER_CACHE.contains(type) && ttlMsByType.containsKey(type);
+    }
+
+    /**
+     * 计算缓存 key；不可缓存时返回 null
+     *
+     * @param apiKey 本次请求使用的 API Key（只参与哈希，不落盘）
+     * @param userId 发起请求的用户，系统任务为 null
+     * @param requestBody 实际发送的请求体（模型、温度、max_tokens、messages 等）
+     */
+    public String keyFor(String type, String url, String apiKey, Long userId, Map<String, Object> requestBody) {
+        if (!isCacheable(type)) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(type.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(url).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(apiKey).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(userId).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(keyMapper.writeValueAsBytes(requestBody));
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            logger.warn("AI响应缓存 key 计算失败，本次不走缓存: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 读取缓存，未命中/过期返回 null
+     */
+    public String get(String type, String key) {
+        return get(type, key, null);
+    }
+
+    /**
+     * 读取缓存，未命中/过期/校验不通过返回 null；校验不通过的条目同时删除
+     *
+     * @param validator 调用方的解析校验，null 表示不校验
+     */
+    public String get(String type, String key, Predicate<String> validator) {
+        if (key == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = index.get(key);
+            if (entry != null && isExpired(entry)) {
+                removeEntry(key, entry);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            recordMiss(type);
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(entry.path), StandardCharsets.UTF_8);
+            if (validator != null && !accepts(validator, content)) {
+                logger.warn("AI响应缓存条目未通过校验，已丢弃: type={}, key={}", type, key);
+                synchronized (this) {
+                    removeEntry(key, entry);
+                }
+                recordMiss(type);
+                return null;
+            }
+            recordHit(type);
+            return content;
+        } catch (NoSuchFileException e) {
+            synchronized (this) {
+                removeEntry(key, entry);
+            }
+        } catch (IOException e) {
+            logger.warn("读取AI响应缓存失败: {}, {}", entry.path, e.getMessage());
+        }
+        recordMiss(type);
+        return null;
+    }
+
+    /**
+     * 调用方校验通过后才写入缓存
+     *
+     * @return 是否写入
+     */
+    public boolean putIfValid(String type, String key, String content, Predicate<String> validator) {
+        if (key == null || validator == null || !accepts(validator, content)) {
+            return false;
+        }
+        put(type, key, content);
+        return true;
+    }
+
+    /**
+     * 写入缓存（写临时文件后原子替换），超出容量时淘汰最久未使用的条目
+     */
+    public void put(String type, String key, String content) {
+        if (key == null || content == null || content.isEmpty()) {
+            return;
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            return;
+        }
+        Path target = root.resolve(type).resolve(key + FILE_SUFFIX);
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), key, ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("写入AI响应缓存失败: {}, {}", target, e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            Entry previous = index.put(key, new Entry(type, target, bytes.length, System.currentTimeMillis()));
+            if (previous != null) {
+                totalBytes -= previous.size;
+            }
+            totalBytes += bytes.length;
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * 缓存统计（含按类型的命中率）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", entryCount());
+        stats.put("sizeBytes", sizeBytes());
+        stats.put("maxBytes", maxBytes);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        Map<String, Object> byType = new LinkedHashMap<>();
+        for (String type : ttlMsByType.keySet()) {
+            long hits = counter(hitsByType, type).sum();
+            long misses = counter(missesByType, type).sum();
+            Map<String, Object> typeStats = new LinkedHashMap<>();
+            typeStats.put("hits", hits);
+            typeStats.put("misses", misses);
+            typeStats.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+            byType.put(type, typeStats);
+        }
+        stats.put("byType", byType);
+        return stats;
+    }
+
+    synchronized int entryCount() {
+        return index.size();
+    }
+
+    synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    private void loadIndex() throws IOException {
+        List<Entry> found = new ArrayList<>();
+        try (DirectoryStream<Path> typeDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path typeDir : typeDirs) {
+                String type = typeDir.getFileName().toString();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(typeDir, "*" + FILE_SUFFIX)) {
+                    for (Path file : files) {
+                        found.add(new Entry(type, file, Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+                    }
+                }
+            }
+        }
+        // 按写入时间排序，近似恢复 LRU 顺序
+        found.sort(Comparator.comparingLong(e -> e.createdAt));
+        synchronized (this) {
+            for (Entry entry : found) {
+                String name = entry.path.getFileName().toString();
+                index.put(name.substring(0, name.length() - FILE_SUFFIX.length()), entry);
+                totalBytes += entry.size;
+            }
+            evictIfNeeded();
+        }
+    }
+
+    // 调用方持有 this 锁
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            totalBytes -= eldest.size;
+            deleteQuietly(eldest.path);
+            evictions.increment();
+        }
+    }
+
+    // 调用方持有 this 锁
+    private void removeEntry(String key, Entry entry) {
+        if (index.remove(key, entry)) {
+            totalBytes -= entry.size;
+            deleteQuietly(entry.path);
+        }
+    }
+
+    private static boolean accepts(Predicate<String> validator, String content) {
+        if (content == null || content.isEmpty()) {
+            return false;
+        }
+        try {
+            return validator.test(content);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        Long ttl = ttlMsByType.get(entry.type);
+        return ttl == null || System.currentTimeMillis() - entry.createdAt > ttl;
+    }
+
+    private void recordHit(String type) {
+        counter(hitsByType, type).increment();
+        if (meterRegistry != null) {
+            Counter.builder("ai.response.cache.requests").tag("type", type).tag("result", "hit")
+                .register(meterRegistry).increment();
+        }
+    }
+
+    private void recordMiss(String type) {
+        counter(missesByType, type).increment();
+        if (meterRegistry != null) {
+            Counter.builder("ai.response.cache.requests").tag("type", type).tag("result", "miss")
+                .register(meterRegistry).increment();
+        }
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String type) {
+        return counters.computeIfAbsent(type, t -> new LongAdder());
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("删除缓存文件失败: {}", path);
+        }
+    }
+
+    static Map<String, Long> parseTtlSpec(String spec) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (spec == null) {
+            return result;
+        }
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2 || kv[0].trim().isEmpty()) {
+                continue;
+            }
+            try {
+                result.put(kv[0].trim(), TimeUnit.HOURS.toMillis(Long.parseLong(kv[1].trim())));
+            } catch (NumberFormatException e) {
+                logger.warn("忽略无效的缓存TTL配置: {}", part);
+            }
+        }
+        return result;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static final class Entry {
+        final String type;
+        final Path path;
+        final long size;
+        final long createdAt;
+
+        Entry(String type, Path path, long size, long createdAt) {
+            this.type = type;
+            this.path = path;
+            this.size = size;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.novel.ai.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * AI调用遥测（Micrometer）
+ *
+ * 解决问题：AI 层除日志外没有任何指标，无法判断一章的耗时主要花在哪个环节，也无法按环节定 SLO
+ *
+ * 策略：
+ * 1. 业务方法用 {@link #begin(String)} 声明调用类型（chapter_writing、entity_extraction 等），
+ *    同线程内经 {@link AIHttpClient} 发出的请求自动带上该类型
+ * 2. HTTP 层记录排队耗时（等待并发名额）、总耗时（获得名额后起算，按 outcome）、
+ *    首 token 耗时（{@link SseDeltaParser} 交出第一个非空增量时）、请求/响应字节数与 429 重试次数
+ * 3. 业务方法拿到正文后调用 {@link Scope#recordOutput(int)}，关闭时记录输出字数与字/秒
+ * 4. 类型末尾的批次序号（如 volume_chapter_outlines_batch_3）会被去掉，避免标签基数膨胀
+ */
+@Component
+public class AICallTelemetry {
+
+    static final String UNSCOPED = "unscoped";
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    // 当前线程上进行中的 HTTP 交换，供 SseDeltaParser 标记首 token
+    private static final ThreadLocal<Exchange> ACTIVE_EXCHANGE = new ThreadLocal<>();
+
+    private static final Pattern NUMERIC_SUFFIX = Pattern.compile("_\\d+$");
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 开始一次业务调用，在 try-with-resources 中使用
+     */
+    public Scope begin(String type) {
+        Scope scope = new Scope(this, normalizeType(type), CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * 开始一次 HTTP 交换（由 AIHttpClient 调用）
+     */
+    Exchange startExchange(String model, AIHttpClient.CallType callType, long requestBytes) {
+        Exchange exchange = new Exchange(this, CURRENT.get(), model != null ? model : "-", callType, requestBytes,
+            ACTIVE_EXCHANGE.get());
+        ACTIVE_EXCHANGE.set(exchange);
+        return exchange;
+    }
+
+    /**
+     * 当前线程的流式交换收到第一个非空增量（由 SseDeltaParser 调用）
+     */
+    static void markFirstDelta() {
+        Exchange exchange = ACTIVE_EXCHANGE.get();
+        if (exchange != null) {
+            exchange.onFirstDelta();
+        }
+    }
+
+    static String normalizeType(String type) {
+        if (type == null || type.isEmpty()) {
+            return UNSCOPED;
+        }
+        return NUMERIC_SUFFIX.matcher(type).replaceFirst("");
+    }
+
+    private void recordExchange(Exchange exchange, String outcome) {
+        if (meterRegistry == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        // 未获得名额（排队超时）时整段都是排队，总耗时从创建起算
+        long startedAt = exchange.admittedAt != 0 ? exchange.admittedAt : exchange.createdAt;
+        Timer.builder("ai.call.queue")
+            .tag("type", exchange.type).tag("model", exchange.model)
+            .register(meterRegistry)
+            .record((exchange.admittedAt != 0 ? exchange.admittedAt : now) - exchange.createdAt, TimeUnit.NANOSECONDS);
+        Timer.builder("ai.call.latency")
+            .tag("type", exchange.type).tag("model", exchange.model).tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(now - startedAt, TimeUnit.NANOSECONDS);
+        if (exchange.callType == AIHttpClient.CallType.STREAMING && exchange.firstTokenAt != 0
+            && exchange.attemptAt != 0) {
+            Timer.builder("ai.call.ttft")
+                .tag("type", exchange.type).tag("model", exchange.model)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(exchange.firstTokenAt - exchange.attemptAt, TimeUnit.NANOSECONDS);
+        }
+        DistributionSummary.builder("ai.call.request.bytes").baseUnit("bytes")
+            .tag("type", exchange.type).tag("model", exchange.model)
+            .register(meterRegistry)
+            .record(exchange.requestBytes);
+        DistributionSummary.builder("ai.call.response.bytes").baseUnit("bytes")
+            .tag("type", exchange.type).tag("model", exchange.model)
+            .register(meterRegistry)
+            .record(exchange.responseBytes);
+        if (exchange.retries > 0) {
+            Counter.builder("ai.call.retries")
+                .tag("type", exchange.type).tag("model", exchange.model)
+                .register(meterRegistry)
+                .increment(exchange.retries);
+        }
+    }
+
+    private void recordOutput(Scope scope) {
+        if (meterRegistry == null || scope.outputChars <= 0) {
+            return;
+        }
+        String model = scope.model != null ? scope.model : "-";
+        DistributionSummary.builder("ai.call.output.chars")
+            .tag("type", scope.type).tag("model", model)
+            .register(meterRegistry)
+            .record(scope.outputChars);
+        // 生成速率从首 token 算起，排除排队与首 token 等待
+        long from = scope.firstTokenAt != 0 ? scope.firstTokenAt : scope.startedAt;
+        double seconds = (System.nanoTime() - from) / 1e9;
+        if (seconds > 0) {
+            DistributionSummary.builder("ai.call.output.chars.per.second")
+                .tag("type", scope.type).tag("model", model)
+                .register(meterRegistry)
+                .record(scope.outputChars / seconds);
+        }
+    }
+
+    /**
+     * 业务调用范围（线程内）
+     */
+    public static final class Scope implements AutoCloseable {
+        private final AICallTelemetry telemetry;
+        private final String type;
+        private final Scope previous;
+        private final long startedAt = System.nanoTime();
+        private volatile String model;
+        private volatile long firstTokenAt;
+        private int outputChars;
+
+        private Scope(AICallTelemetry telemetry, String type, Scope previous) {
+            this.telemetry = telemetry;
+            this.type = type;
+            this.previous = previous;
+        }
+
+        /**
+         * 记录本次调用得到的正文字数
+         */
+        public void recordOutput(int chars) {
+            this.outputChars += chars;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public void close() {
+            telemetry.recordOutput(this);
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 单次 HTTP 交换（含 429 重试）
+     */
+    static final class Exchange {
+        private final AICallTelemetry telemetry;
+        private final Scope scope;
+        private final String type;
+        private final String model;
+        private final AIHttpClient.CallType callType;
+        private final long requestBytes;
+        private final Exchange previous;
+        private final long createdAt = System.nanoTime();
+        // 首次获得并发名额的时间
+        private long admittedAt;
+        // 本次（最终成功的那次）请求获得名额的时间，首 token 从这里起算
+        private long attemptAt;
+        private volatile long firstTokenAt;
+        private volatile long responseBytes;
+        private int retries;
+
+        private Exchange(AICallTelemetry telemetry, Scope scope, String model,
+                         AIHttpClient.CallType callType, long requestBytes, Exchange previous) {
+            this.telemetry = telemetry;
+            this.scope = scope;
+            this.previous = previous;
+            this.type = scope != null ? scope.type : UNSCOPED;
+            this.model = model;
+            this.callType = callType;
+            this.requestBytes = requestBytes;
+            if (scope != null) {
+                scope.model = model;
+            }
+        }
+
+        /**
+         * 获得并发名额，即将发出请求（每次尝试调用一次）
+         */
+        void admitted() {
+            attemptAt = System.nanoTime();
+            if (admittedAt == 0) {
+                admittedAt = attemptAt;
+            }
+        }
+
+        void retry() {
+            retries++;
+            // 首 token 以最终成功的那次请求为准
+            firstTokenAt = 0;
+            if (scope != null) {
+                scope.firstTokenAt = 0;
+            }
+        }
+
+        /**
+         * 包装响应体，统计字节数
+         */
+        Response instrument(Response response) {
+            ResponseBody body = response.body();
+            if (body == null) {
+                return response;
+            }
+            ForwardingSource counting = new ForwardingSource(body.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read > 0) {
+                        onBytes(read);
+                    }
+                    return read;
+                }
+            };
+            return response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(counting), body.contentType(), body.contentLength()))
+                .build();
+        }
+
+        void finish(String outcome) {
+            if (previous != null) {
+                ACTIVE_EXCHANGE.set(previous);
+            } else {
+                ACTIVE_EXCHANGE.remove();
+            }
+            telemetry.recordExchange(this, outcome);
+        }
+
+        private void onFirstDelta() {
+            if (firstTokenAt == 0) {
+                firstTokenAt = System.nanoTime();
+                if (scope != null && scope.firstTokenAt == 0) {
+                    scope.firstTokenAt = firstTokenAt;
+                }
+            }
+        }
+
+        private void onBytes(long bytes) {
+            responseBytes += bytes;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.novel.ai.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.ai.execution.CancellationToken;
+import com.novel.exception.AIHttpException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI接口共享HTTP客户端
+ *
+ * 解决问题：各服务每次调用都 new RestTemplate，连接从不复用，
+ * 每章的推理/写作/概要/抽取都要重新做 TCP+TLS 握手
+ *
+ * 策略：
+ * 1. 按 baseUrl（scheme://host:port）维护独立连接池，互不挤占
+ * 2. 启用 HTTP/2 多路复用（服务商不支持时自动降级 HTTP/1.1）
+ * 3. 按调用类型区分超时（快速/普通/长耗时/流式）
+ * 4. 记录新建连接与复用次数，导出连接池指标
+ * 5. 所有请求经 {@link ProviderConcurrencyLimiter} 限制并发，429 时退避重试
+ * 6. 每次请求由 {@link AICallTelemetry} 记录排队耗时、耗时（获得名额后起算）、首 token 与字节数
+ * 7. 请求期间注册到当前线程的 {@link CancellationToken}，任务取消时立即中止
+ */
+@Component
+public class AIHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIHttpClient.class);
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    /**
+     * 调用类型，决定读超时
+     */
+    public enum CallType {
+        /** 短请求：润色、纠错、消痕等 */
+        QUICK,
+        /** 普通非流式请求：章纲、抽取、概要等 */
+        BLOCKING,
+        /** 长耗时非流式请求：大段回复一次性返回（如按类型生成的设定、大纲） */
+        LONG_BLOCKING,
+        /** 流式请求：正文写作、审稿等 */
+        STREAMING
+    }
+
+    /**
+     * 流式响应处理器
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(InputStream body) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(Response response) throws IOException;
+    }
+
+    @Value("${ai.http.connect-timeout-ms:30000}")
+    private long connectTimeoutMs;
+
+    @Value("${ai.http.write-timeout-ms:60000}")
+    private long writeTimeoutMs;
+
+    @Value("${ai.http.quick-read-timeout-ms:120000}")
+    private long quickReadTimeoutMs;
+
+    @Value("${ai.http.blocking-read-timeout-ms:300000}")
+    private long blockingReadTimeoutMs;
+
+    @Value("${ai.http.long-blocking-read-timeout-ms:600000}")
+    private long longBlockingReadTimeoutMs;
+
+    @Value("${ai.http.streaming-read-timeout-ms:600000}")
+    private long streamingReadTimeoutMs;
+
+    @Value("${ai.http.pool.max-idle-connections:16}")
+    private int maxIdleConnections;
+
+    @Value("${ai.http.pool.keep-alive-seconds:300}")
+    private long keepAliveSeconds;
+
+    @Autowired
+    private ProviderConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private AICallTelemetry telemetry;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 共享的调度器（各连接池共用同一组线程）
+    private final Dispatcher dispatcher = new Dispatcher();
+
+    // baseUrl -> 连接池
+    private final Map<String, HostPool> pools = new ConcurrentHashMap<>();
+
+    private OkHttpClient baseClient;
+
+    @PostConstruct
+    public void init() {
+        dispatcher.setMaxRequests(256);
+        dispatcher.setMaxRequestsPerHost(64);
+        baseClient = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+            .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+            .retryOnConnectionFailure(true)
+            .build();
+        logger.info("AI HTTP客户端初始化完成: connectTimeout={}ms, maxIdle={}, keepAlive={}s",
+            connectTimeoutMs, maxIdleConnections, keepAliveSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (HostPool pool : pools.values()) {
+            pool.connectionPool.evictAll();
+        }
+        dispatcher.executorService().shutdown();
+    }
+
+    /**
+     * POST JSON 并返回响应文本
+     */
+    public String postForString(String url, String apiKey, Object body, CallType callType) {
+        Request request = buildRequest(url, apiKey, body, "application/json");
+        try {
+            return execute(request, body, callType, response -> {
+                ResponseBody responseBody = response.body();
+                String text = responseBody != null ? responseBody.string() : null;
+                if (!response.isSuccessful()) {
+                    throw new AIHttpException(response.code(), text,
+                        "AI接口返回错误(HTTP " + response.code() + "): " + abbreviate(text));
+                }
+                return text;
+            });
+        } catch (IOException e) {
+            throw new AIHttpException("无法连接到AI服务: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * POST JSON 并将响应解析为 Map
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> postForMap(String url, String apiKey, Object body, CallType callType) {
+        String text = postForString(url, apiKey, body, callType);
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(text, Map.class);
+        } catch (IOException e) {
+            throw new AIHttpException(200, text, "AI服务响应格式错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * POST JSON 并以流的方式读取响应（SSE）
+     */
+    public <T> T postForStream(String url, String apiKey, Object body, ResponseHandler<T> handler) {
+        Request request = buildRequest(url, apiKey, body, "text/event-stream");
+        try {
+            return execute(request, body, CallType.STREAMING, response -> {
+                ResponseBody responseBody = response.body();
+                if (!response.isSuccessful()) {
+                    String text = responseBody != null ? responseBody.string() : null;
+                    throw new AIHttpException(response.code(), text,
+                        "AI接口返回错误(HTTP " + response.code() + "): " + abbreviate(text));
+                }
+                if (responseBody == null) {
+                    throw new AIHttpException(response.code(), null, "AI接口返回空响应");
+                }
+                return handler.handle(responseBody.byteStream());
+            });
+        } catch (IOException e) {
+            throw new AIHttpException("AI流式读取失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 连接池统计（按 baseUrl）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, HostPool> entry : pools.entrySet()) {
+            HostPool pool = entry.getValue();
+            long acquired = pool.acquired.sum();
+            long created = pool.created.sum();
+            Map<String, Object> hostStats = new LinkedHashMap<>();
+            hostStats.put("connectionCount", pool.connectionPool.connectionCount());
+            hostStats.put("idleConnectionCount", pool.connectionPool.idleConnectionCount());
+            hostStats.put("requests", pool.requests.sum());
+            hostStats.put("newConnections", created);
+            hostStats.put("reusedConnections", Math.max(0, acquired - created));
+            hostStats.put("reuseRatio", acquired > 0 ? (double) (acquired - created) / acquired : 0.0);
+            stats.put(entry.getKey(), hostStats);
+        }
+        return stats;
+    }
+
+    /**
+     * 在并发限制内执行请求；429 时按 Retry-After 退避后重试，重试耗尽才向上抛出
+     */
+    private <T> T execute(Request request, Object body, CallType callType, ResponseReader<T> reader) throws IOException {
+        OkHttpClient client = clientFor(request.url(), callType);
+        String host = hostKey(request.url());
+        String model = modelOf(body);
+        // 优先级由发起方在线程上声明（后台任务为 BACKGROUND），与超时类型无关
+        ProviderConcurrencyLimiter.Priority priority = ProviderConcurrencyLimiter.currentPriority();
+        long deadline = concurrencyLimiter.deadline(priority);
+        RequestBody requestBody = request.body();
+        AICallTelemetry.Exchange exchange = telemetry.startExchange(model, callType,
+            requestBody != null ? requestBody.contentLength() : 0);
+        String outcome = "error";
+
+        try {
+            for (int attempt = 0; ; attempt++) {
+                ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(host, model, priority, deadline);
+                exchange.admitted();
+                Call call = client.newCall(request);
+                // 任务被取消（如 SSE 断开）时立即中止上游请求，阻塞中的读取随之抛出
+                try (CancellationToken.Registration ignored = CancellationToken.registerCurrent(call::cancel);
+                     Response raw = call.execute()) {
+                    Response response = exchange.instrument(raw);
+                    if (response.code() == 429) {
+                        ResponseBody responseBody = response.body();
+                        String text = responseBody != null ? responseBody.string() : null;
+                        permit.onThrottled(ProviderConcurrencyLimiter.parseRetryAfterMs(response.header("Retry-After")));
+                        if (attempt < concurrencyLimiter.getMaxRetries()) {
+                            logger.warn("🚦 AI接口限流(HTTP 429)，退避后重试({}/{}): host={}, model={}",
+                                attempt + 1, concurrencyLimiter.getMaxRetries(), host, model);
+                            exchange.retry();
+                            continue;
+                        }
+                        throw new AIHttpException(429, text, "AI服务限流(HTTP 429)，请稍后重试: " + abbreviate(text));
+                    }
+                    T result = reader.read(response);
+                    permit.onSuccess();
+                    outcome = "success";
+                    return result;
+                } finally {
+                    permit.release();
+                }
+            }
+        } catch (AIHttpException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } catch (IOException e) {
+            outcome = CancellationToken.isCurrentCancelled() ? "cancelled" : "network_error";
+            throw e;
+        } finally {
+            exchange.finish(outcome);
+        }
+    }
+
+    private static String outcomeOf(AIHttpException e) {
+        if (CancellationToken.isCurrentCancelled()) {
+            return "cancelled";
+        }
+        if (e.getStatusCode() == 429) {
+            return "throttled";
+        }
+        if (e.isClientError()) {
+            return "client_error";
+        }
+        if (e.isServerError()) {
+            return "server_error";
+        }
+        return e.isNetworkError() ? "network_error" : "error";
+    }
+
+    private static String modelOf(Object body) {
+        if (body instanceof Map) {
+            Object model = ((Map<?, ?>) body).get("model");
+            return model != null ? model.toString() : null;
+        }
+        return null;
+    }
+
+    private static String hostKey(HttpUrl url) {
+        return url.scheme() + "://" + url.host() + ":" + url.port();
+    }
+
+    private Request buildRequest(String url, String apiKey, Object body, String accept) {
+        byte[] payload;
+        try {
+            payload = body instanceof byte[] ? (byte[]) body : objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new AIHttpException("AI请求体序列化失败: " + e.getMessage(), e);
+        }
+        Request.Builder builder = new Request.Builder()
+            .url(url)
+            .header("Accept", accept)
+            .post(RequestBody.create(payload, JSON));
+        if (apiKey != null && !apiKey.isEmpty()) {
+            builder.header("Authorization", "Bearer " + apiKey);
+        }
+        return builder.build();
+    }
+
+    private OkHttpClient clientFor(HttpUrl url, CallType callType) {
+        HostPool pool = pools.computeIfAbsent(hostKey(url), this::createPool);
+        pool.requests.increment();
+        return pool.clients.get(callType);
+    }
+
+    private HostPool createPool(String key) {
+        HostPool pool = new HostPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS));
+        OkHttpClient poolClient = baseClient.newBuilder()
+            .connectionPool(pool.connectionPool)
+            .eventListener(new PoolEventListener(pool))
+            .build();
+        pool.clients.put(CallType.QUICK, withReadTimeout(poolClient, quickReadTimeoutMs));
+        pool.clients.put(CallType.BLOCKING, withReadTimeout(poolClient, blockingReadTimeoutMs));
+        pool.clients.put(CallType.LONG_BLOCKING, withReadTimeout(poolClient, longBlockingReadTimeoutMs));
+        pool.clients.put(CallType.STREAMING, withReadTimeout(poolClient, streamingReadTimeoutMs));
+
+        if (meterRegistry != null) {
+            Gauge.builder("ai.http.pool.connections", pool.connectionPool, ConnectionPool::connectionCount)
+                .tag("host", key).register(meterRegistry);
+            Gauge.builder("ai.http.pool.idle", pool.connectionPool, ConnectionPool::idleConnectionCount)
+                .tag("host", key).register(meterRegistry);
+            Gauge.builder("ai.http.connections.created", pool.created, LongAdder::sum)
+                .tag("host", key).register(meterRegistry);
+            Gauge.builder("ai.http.connections.acquired", pool.acquired, LongAdder::sum)
+                .tag("host", key).register(meterRegistry);
+        }
+        logger.info("创建AI连接池: {}", key);
+        return pool;
+    }
+
+    private OkHttpClient withReadTimeout(OkHttpClient client, long readTimeoutMs) {
+        return client.newBuilder().readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS).build();
+    }
+
+    private static String abbreviate(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() > 500 ? text.substring(0, 500) + "..." : text;
+    }
+
+    /**
+     * 单个 baseUrl 的连接池及统计
+     */
+    private static class HostPool {
+        final ConnectionPool connectionPool;
+        final Map<CallType, OkHttpClient> clients = new EnumMap<>(CallType.class);
+        final LongAdder requests = new LongAdder();
+        final LongAdder created = new LongAdder();
+        final LongAdder acquired = new LongAdder();
+
+        HostPool(ConnectionPool connectionPool) {
+            this.connectionPool = connectionPool;
+        }
+    }
+
+    /**
+     * 统计新建连接（握手）与连接获取次数，两者之差即为复用次数
+     */
+    private static class PoolEventListener extends EventListener {
+        private final HostPool pool;
+
+        PoolEventListener(HostPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            pool.created.increment();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            pool.acquired.increment();
+        }
+    }
+}
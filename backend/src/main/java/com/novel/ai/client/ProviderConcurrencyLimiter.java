@@ -0,0 +1,392 @@
+package com.novel.ai.client;
+
+import com.novel.exception.AIHttpException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按服务商+模型的自适应并发限制（AIMD）
+ *
+ * 解决问题：批量写章、短篇工作流、卷章纲批量生成同时跑时，对同一服务商的并发没有上限，
+ * 触发 429 后直接以"AI调用失败"报错
+ *
+ * 策略：
+ * 1. 以 baseUrl(host) + model 为维度维护并发上限，成功一次上限 +1/limit，被限流时减半
+ * 2. 解析 Retry-After，退避期内该维度不再放行新请求
+ * 3. 超出上限的请求排队等待，超过截止时间仍未获得名额则以 429 失败
+ * 4. 交互式请求（流式写作、润色等）优先，有交互请求排队时后台抽取让行；
+ *    优先级由发起方用 {@link #withPriority(Priority)} 在线程上声明，未声明时按交互式处理
+ * 5. 导出每个维度的上限、在途数、排队数
+ */
+@Component
+public class ProviderConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderConcurrencyLimiter.class);
+
+    /**
+     * 请求优先级
+     */
+    public enum Priority {
+        /** 用户正在等待的请求 */
+        INTERACTIVE,
+        /** 抽取、概要、批量任务 */
+        BACKGROUND
+    }
+
+    @Value("${ai.limiter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.limiter.initial-limit:8}")
+    private int initialLimit;
+
+    @Value("${ai.limiter.min-limit:1}")
+    private int minLimit;
+
+    @Value("${ai.limiter.max-limit:64}")
+    private int maxLimit;
+
+    @Value("${ai.limiter.interactive-queue-timeout-ms:30000}")
+    private long interactiveQueueTimeoutMs;
+
+    @Value("${ai.limiter.background-queue-timeout-ms:180000}")
+    private long backgroundQueueTimeoutMs;
+
+    @Value("${ai.limiter.default-backoff-ms:2000}")
+    private long defaultBackoffMs;
+
+    @Value("${ai.limiter.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    @Value("${ai.limiter.max-retries:2}")
+    private int maxRetries;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, ProviderLimit> limits = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Priority> CURRENT_PRIORITY = new ThreadLocal<>();
+
+    /**
+     * 声明当前线程后续 AI 请求的优先级，在 try-with-resources 中使用
+     */
+    public static PriorityScope withPriority(Priority priority) {
+        PriorityScope scope = new PriorityScope(CURRENT_PRIORITY.get());
+        CURRENT_PRIORITY.set(priority);
+        return scope;
+    }
+
+    /**
+     * 当前线程声明的优先级，未声明时为交互式
+     */
+    public static Priority currentPriority() {
+        Priority priority = CURRENT_PRIORITY.get();
+        return priority != null ? priority : Priority.INTERACTIVE;
+    }
+
+    /**
+     * 优先级声明范围，关闭时恢复外层声明
+     */
+    public static final class PriorityScope implements AutoCloseable {
+        private final Priority previous;
+
+        private PriorityScope(Priority previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous != null) {
+                CURRENT_PRIORITY.set(previous);
+            } else {
+                CURRENT_PRIORITY.remove();
+            }
+        }
+    }
+
+    /**
+     * 本次调用的排队截止时间（nanoTime），同一调用的重试共用
+     */
+    public long deadline(Priority priority) {
+        long timeoutMs = priority == Priority.INTERACTIVE ? interactiveQueueTimeoutMs : backgroundQueueTimeoutMs;
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * 获取并发名额，必要时排队到截止时间
+     *
+     * @throws AIHttpException 排队超时（状态码 429）或等待被中断
+     */
+    public Permit acquire(String host, String model, Priority priority, long deadlineNanos) {
+        if (!enabled) {
+            return Permit.NOOP;
+        }
+        ProviderLimit limit = limits.computeIfAbsent(host + "|" + (model != null ? model : "-"),
+            key -> createLimit(host, model));
+        return limit.acquire(priority, deadlineNanos);
+    }
+
+    /**
+     * 各维度统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, ProviderLimit> entry : limits.entrySet()) {
+            ProviderLimit limit = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("limit", limit.currentLimit());
+            item.put("inFlight", limit.inFlight());
+            item.put("queued", limit.queued());
+            item.put("acquired", limit.acquired.sum());
+            item.put("throttled", limit.throttled.sum());
+            item.put("queueTimeouts", limit.timedOut.sum());
+            stats.put(entry.getKey(), item);
+        }
+        return stats;
+    }
+
+    /**
+     * 解析 Retry-After（秒数或 HTTP 日期），无法解析返回 -1
+     */
+    public static long parseRetryAfterMs(String header) {
+        if (header == null || header.trim().isEmpty()) {
+            return -1;
+        }
+        String value = header.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        } catch (NumberFormatException ignore) {
+            // 不是秒数，按 HTTP 日期解析
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private ProviderLimit createLimit(String host, String model) {
+        ProviderLimit limit = new ProviderLimit(host, model,
+            Math.max(minLimit, Math.min(initialLimit, maxLimit)));
+        if (meterRegistry != null) {
+            String modelTag = model != null ? model : "-";
+            Gauge.builder("ai.limiter.limit", limit, ProviderLimit::currentLimit)
+                .tag("host", host).tag("model", modelTag).register(meterRegistry);
+            Gauge.builder("ai.limiter.inflight", limit, ProviderLimit::inFlight)
+                .tag("host", host).tag("model", modelTag).register(meterRegistry);
+            Gauge.builder("ai.limiter.queued", limit, ProviderLimit::queued)
+                .tag("host", host).tag("model", modelTag).register(meterRegistry);
+            Gauge.builder("ai.limiter.throttled", limit.throttled, LongAdder::sum)
+                .tag("host", host).tag("model", modelTag).register(meterRegistry);
+            Gauge.builder("ai.limiter.queue.timeouts", limit.timedOut, LongAdder::sum)
+                .tag("host", host).tag("model", modelTag).register(meterRegistry);
+        }
+        return limit;
+    }
+
+    /**
+     * 单个服务商+模型的并发状态，由 lock 保护
+     */
+    private final class ProviderLimit {
+        private final String host;
+        private final String model;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        private double limit;
+        private int inFlight;
+        private int interactiveWaiting;
+        private int backgroundWaiting;
+        private long blockedUntilNanos;
+        private long lastDecreaseNanos;
+
+        final LongAdder acquired = new LongAdder();
+        final LongAdder throttled = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+
+        ProviderLimit(String host, String model, int initial) {
+            this.host = host;
+            this.model = model;
+            this.limit = initial;
+            this.blockedUntilNanos = System.nanoTime();
+        }
+
+        Permit acquire(Priority priority, long deadlineNanos) {
+            boolean interactive = priority == Priority.INTERACTIVE;
+            lock.lock();
+            try {
+                if (interactive) {
+                    interactiveWaiting++;
+                } else {
+                    backgroundWaiting++;
+                }
+                try {
+                    while (true) {
+                        long now = System.nanoTime();
+                        boolean myTurn = interactive || interactiveWaiting == 0;
+                        if (myTurn && now - blockedUntilNanos >= 0 && inFlight < (int) limit) {
+                            inFlight++;
+                            acquired.increment();
+                            return new Permit(this);
+                        }
+                        long remaining = deadlineNanos - now;
+                        if (remaining <= 0) {
+                            timedOut.increment();
+                            logger.warn("⏳ AI并发排队超时: host={}, model={}, limit={}, inFlight={}",
+                                host, model, (int) limit, inFlight);
+                            throw new AIHttpException(429, null, "AI服务繁忙，排队超时，请稍后重试");
+                        }
+                        long wait = remaining;
+                        if (now - blockedUntilNanos < 0) {
+                            wait = Math.min(wait, blockedUntilNanos - now);
+                        }
+                        changed.awaitNanos(wait);
+                    }
+                } finally {
+                    if (interactive) {
+                        // 最后一个交互请求离开队列，唤醒让行中的后台请求
+                        if (--interactiveWaiting == 0) {
+                            changed.signalAll();
+                        }
+                    } else {
+                        backgroundWaiting--;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AIHttpException("等待AI并发名额时被中断", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(boolean succeeded) {
+            lock.lock();
+            try {
+                inFlight--;
+                if (succeeded) {
+                    // 加性增：每轮（约 limit 个成功请求）上限 +1
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void throttle(long retryAfterMs) {
+            throttled.increment();
+            long backoffMs = Math.min(maxBackoffMs, retryAfterMs >= 0 ? retryAfterMs : defaultBackoffMs);
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                // 同一波限流只减半一次，避免并发中的多个 429 把上限打到底
+                if (now - lastDecreaseNanos > TimeUnit.SECONDS.toNanos(1)) {
+                    limit = Math.max(minLimit, limit / 2);
+                    lastDecreaseNanos = now;
+                }
+                long until = now + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+                if (until - blockedUntilNanos > 0) {
+                    blockedUntilNanos = until;
+                }
+                logger.warn("🚦 AI服务限流: host={}, model={}, 并发上限降为{}, 退避{}ms",
+                    host, model, (int) limit, backoffMs);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        double currentLimit() {
+            lock.lock();
+            try {
+                return limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int inFlight() {
+            lock.lock();
+            try {
+                return inFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int queued() {
+            lock.lock();
+            try {
+                return interactiveWaiting + backgroundWaiting;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 一个并发名额，必须且只能释放一次
+     */
+    public static class Permit {
+
+        static final Permit NOOP = new Permit(null);
+
+        private final ProviderLimit owner;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ProviderLimit owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * 调用成功，释放名额并放宽上限
+         */
+        public void onSuccess() {
+            if (owner != null && released.compareAndSet(false, true)) {
+                owner.release(true);
+            }
+        }
+
+        /**
+         * 被服务商限流，收紧上限并按 Retry-After 退避
+         */
+        public void onThrottled(long retryAfterMs) {
+            if (owner != null) {
+                owner.throttle(retryAfterMs);
+            }
+            release();
+        }
+
+        /**
+         * 释放名额，不调整上限（其他错误或已处理）
+         */
+        public void release() {
+            if (owner != null && released.compareAndSet(false, true)) {
+                owner.release(false);
+            }
+        }
+    }
+}
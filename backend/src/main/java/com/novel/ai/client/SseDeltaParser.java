@@ -0,0 +1,214 @@
+package com.novel.ai.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * OpenAI 兼容 SSE 流解析器
+ *
+ * 解决问题：原实现对每个 data: 行 new ObjectMapper 并把整个事件解析成 Map，
+ * 再对每个 chunk 跑三次正则，高并发流式写作时 CPU 与 GC 开销明显
+ *
+ * 策略：
+ * 1. 直接按字节读取响应流、按 '\n' 切行，不经过 BufferedReader/String
+ * 2. 使用共享 JsonFactory 的流式 JsonParser，只取 choices[0].delta.content，其余字段跳过
+ * 3. 内容经 {@link ThinkTagFilter} 过滤，推理标签跨 chunk 也能正确剔除
+ * 4. 交出第一个非空增量时通知 {@link AICallTelemetry} 记录首 token 耗时
+ */
+public final class SseDeltaParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final byte[] DATA_PREFIX = "data:".getBytes();
+    private static final byte[] DONE = "[DONE]".getBytes();
+
+    // 单行处理结果
+    private static final int LINE_CONTINUE = 0;
+    private static final int LINE_DONE = 1;
+    private static final int LINE_STOP = 2;
+
+    /**
+     * 增量内容回调
+     */
+    @FunctionalInterface
+    public interface DeltaHandler {
+        /**
+         * @param content 过滤后的增量文本（非空）
+         * @return false 表示停止读取
+         */
+        boolean onDelta(String content) throws IOException;
+    }
+
+    private SseDeltaParser() {
+    }
+
+    /**
+     * 读取整个 SSE 流，直到 [DONE]、流结束或回调要求停止
+     *
+     * @return 是否读到了 [DONE]
+     */
+    public static boolean parse(InputStream in, DeltaHandler target) throws IOException {
+        DeltaHandler handler = new DeltaHandler() {
+            private boolean first = true;
+
+            @Override
+            public boolean onDelta(String content) throws IOException {
+                if (first) {
+                    first = false;
+                    AICallTelemetry.markFirstDelta();
+                }
+                return target.onDelta(content);
+            }
+        };
+        ThinkTagFilter filter = new ThinkTagFilter();
+        byte[] readBuf = new byte[8192];
+        byte[] line = new byte[1024];
+        int lineLen = 0;
+        boolean done = false;
+
+        outer:
+        while (true) {
+            int n = in.read(readBuf);
+            if (n == -1) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                byte b = readBuf[i];
+                if (b != '\n') {
+                    if (lineLen == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLen++] = b;
+                    continue;
+                }
+                int result = handleLine(line, lineLen, filter, handler);
+                lineLen = 0;
+                if (result == LINE_DONE) {
+                    done = true;
+                    break outer;
+                }
+                if (result == LINE_STOP) {
+                    return false;
+                }
+            }
+        }
+        // 流结束但最后一行没有换行符
+        if (!done && lineLen > 0) {
+            int result = handleLine(line, lineLen, filter, handler);
+            if (result == LINE_STOP) {
+                return false;
+            }
+            done = result == LINE_DONE;
+        }
+        String rest = filter.flush();
+        if (!rest.isEmpty()) {
+            handler.onDelta(rest);
+        }
+        return done;
+    }
+
+    /**
+     * 从单个事件 JSON 中提取 choices[0].delta.content，不存在时返回 null
+     */
+    public static String extractDeltaContent(byte[] buf, int offset, int length) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(buf, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        return null;
+                    }
+                    return readDeltaFromChoice(parser);
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    private static String readDeltaFromChoice(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("delta".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String deltaField = parser.getCurrentName();
+                    JsonToken deltaValue = parser.nextToken();
+                    if ("content".equals(deltaField)) {
+                        return deltaValue == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private static int handleLine(byte[] line, int len, ThinkTagFilter filter, DeltaHandler handler) throws IOException {
+        // 去掉行尾 \r 与首尾空白
+        int start = 0;
+        int end = len;
+        while (end > start && isWhitespace(line[end - 1])) {
+            end--;
+        }
+        while (start < end && isWhitespace(line[start])) {
+            start++;
+        }
+        if (!startsWith(line, start, end, DATA_PREFIX)) {
+            return LINE_CONTINUE;
+        }
+        start += DATA_PREFIX.length;
+        while (start < end && line[start] == ' ') {
+            start++;
+        }
+        if (start >= end) {
+            return LINE_CONTINUE;
+        }
+        if (end - start == DONE.length && startsWith(line, start, end, DONE)) {
+            return LINE_DONE;
+        }
+
+        String content;
+        try {
+            content = extractDeltaContent(line, start, end - start);
+        } catch (IOException e) {
+            // 单行解析失败（心跳、非JSON），跳过
+            return LINE_CONTINUE;
+        }
+        if (content == null || content.isEmpty()) {
+            return LINE_CONTINUE;
+        }
+        String filtered = filter.filter(content);
+        if (filtered.isEmpty()) {
+            return LINE_CONTINUE;
+        }
+        return handler.onDelta(filtered) ? LINE_CONTINUE : LINE_STOP;
+    }
+
+    private static boolean startsWith(byte[] buf, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\r' || b == '\t';
+    }
+}
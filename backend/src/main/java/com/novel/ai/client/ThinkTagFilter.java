@@ -0,0 +1,94 @@
+package com.novel.ai.client;
+
+/**
+ * 推理标签过滤器（有状态，跨 chunk）
+ *
+ * 推理模型会在正文前输出 &lt;think&gt;...&lt;/think&gt;，且标签本身可能被拆在两个 chunk 里。
+ * 原先对每个 chunk 跑三次 replaceAll，跨 chunk 的标签会漏掉。
+ *
+ * 这里用一个小状态机逐字符处理：
+ * 1. 标签外：正常输出，遇到 '<' 开始尝试匹配 &lt;think&gt; / &lt;/think&gt;
+ * 2. 标签内：丢弃内容，只尝试匹配 &lt;/think&gt;
+ * 3. chunk 末尾未匹配完的半个标签暂存，等下一个 chunk 决定
+ * 4. 标签外遇到孤立的 &lt;/think&gt;（模型省略了开始标签）：丢弃本 chunk 中此前的内容，与原逻辑一致
+ *
+ * 每个流创建一个实例，非线程安全。
+ */
+public class ThinkTagFilter {
+
+    private static final String OPEN_TAG = "<think>";
+    private static final String CLOSE_TAG = "</think>";
+
+    private boolean insideThink;
+
+    // 已匹配的标签前缀（仅在标签外时需要回放）
+    private final StringBuilder pending = new StringBuilder(8);
+
+    /**
+     * 过滤一个 chunk，返回可以输出的内容（可能为空串）
+     */
+    public String filter(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return "";
+        }
+        // 快速路径：标签外、无暂存、chunk 中没有 '<'
+        if (!insideThink && pending.length() == 0 && chunk.indexOf('<') < 0) {
+            return chunk;
+        }
+
+        StringBuilder out = new StringBuilder(chunk.length());
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (pending.length() > 0 || c == '<') {
+                pending.append(c);
+                String candidate = pending.toString();
+                if (!insideThink && candidate.equals(OPEN_TAG)) {
+                    insideThink = true;
+                    pending.setLength(0);
+                } else if (candidate.equals(CLOSE_TAG)) {
+                    if (!insideThink) {
+                        // 孤立的结束标签：之前的内容属于推理部分
+                        out.setLength(0);
+                    }
+                    insideThink = false;
+                    pending.setLength(0);
+                } else if (!isTagPrefix(candidate)) {
+                    // 不是标签：回放暂存内容（最后一个字符可能是新的 '<'）
+                    pending.setLength(0);
+                    if (c == '<') {
+                        emit(out, candidate, 0, candidate.length() - 1);
+                        pending.append('<');
+                    } else {
+                        emit(out, candidate, 0, candidate.length());
+                    }
+                }
+            } else if (!insideThink) {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 流结束时调用，输出暂存的半截内容（若不在推理块内）
+     */
+    public String flush() {
+        String rest = insideThink ? "" : pending.toString();
+        pending.setLength(0);
+        return rest;
+    }
+
+    public boolean isInsideThink() {
+        return insideThink;
+    }
+
+    private void emit(StringBuilder out, String text, int from, int to) {
+        if (!insideThink) {
+            out.append(text, from, to);
+        }
+    }
+
+    private boolean isTagPrefix(String candidate) {
+        return (!insideThink && OPEN_TAG.startsWith(candidate)) || CLOSE_TAG.startsWith(candidate);
+    }
+}
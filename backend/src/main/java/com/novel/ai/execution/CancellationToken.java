@@ -0,0 +1,120 @@
+package com.novel.ai.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 生成任务取消令牌
+ *
+ * 由 {@link GenerationHandle} 持有并绑定到执行线程：SSE 断开 → 句柄取消 → 令牌触发 →
+ * 正在进行的上游 HTTP 请求被中止（AIHttpClient 在请求期间注册回调）。
+ * 业务代码可用 {@link #isCurrentCancelled()} 判断失败是否源于取消。
+ */
+public final class CancellationToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(CancellationToken.class);
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private static final Registration NOOP = () -> { };
+
+    /**
+     * 取消回调的注册句柄，关闭即注销
+     */
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+    private volatile String reason;
+
+    /**
+     * 当前线程绑定的令牌，未绑定时返回 null
+     */
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前线程的任务是否已被取消
+     */
+    public static boolean isCurrentCancelled() {
+        CancellationToken token = CURRENT.get();
+        return token != null && token.isCancelled();
+    }
+
+    /**
+     * 在当前线程的令牌上注册取消回调；未绑定令牌时返回空句柄
+     */
+    public static Registration registerCurrent(Runnable callback) {
+        CancellationToken token = CURRENT.get();
+        return token != null ? token.onCancel(callback) : NOOP;
+    }
+
+    /**
+     * 将令牌绑定到当前线程，关闭返回值时解绑
+     */
+    public static Registration bind(CancellationToken token) {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(token);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * 触发取消，回调只执行一次
+     *
+     * @return 本次调用是否实际触发
+     */
+    public boolean cancel(String reason) {
+        if (!cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        this.reason = reason;
+        for (Runnable callback : callbacks) {
+            if (callbacks.remove(callback)) {
+                runQuietly(callback);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 注册取消回调；已取消时立即执行
+     */
+    public Registration onCancel(Runnable callback) {
+        callbacks.add(callback);
+        if (cancelled.get() && callbacks.remove(callback)) {
+            runQuietly(callback);
+        }
+        return () -> callbacks.remove(callback);
+    }
+
+    private static void runQuietly(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            logger.warn("取消回调执行失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.novel.ai.execution;
+
+import com.novel.ai.client.ProviderConcurrencyLimiter;
+import com.novel.common.security.AuthUtils;
+import com.novel.common.sse.SseSession;
+import com.novel.exception.GenerationCancelledException;
+import com.novel.exception.GenerationRejectedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI生成任务统一执行器
+ *
+ * 解决问题：各 SSE 接口与工作流各自 new Thread 或丢进公共 ForkJoinPool，
+ * 没有并发上限，阻塞 I/O 占满公共池，SecurityContext 需要手工复制
+ *
+ * 策略：
+ * 1. 全局并发上限 = 工作线程数，超出部分进入有界队列，队列满则拒绝
+ * 2. 每个用户同时运行+排队的任务数有上限，超出直接拒绝（后台任务不占用户名额，其 AI 请求按后台优先级排队）
+ * 3. 提交时捕获 SecurityContext，在工作线程中恢复并在结束后清理
+ * 4. 返回 {@link GenerationHandle}，支持取消与取消回调
+ * 5. 导出活跃数、排队数、拒绝数等指标
+ *
+ * 虚拟线程：项目目前以 Java 17 编译，默认使用平台线程；
+ * 运行在 Java 21+ 时开启 generation.executor.virtual-threads 即改用虚拟线程工厂，
+ * 并发上限与队列语义保持不变，届时可相应调大 max-concurrent。
+ */
+@Component
+public class GenerationExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationExecutor.class);
+
+    @Value("${generation.executor.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${generation.executor.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${generation.executor.per-user-limit:3}")
+    private int perUserLimit;
+
+    @Value("${generation.executor.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    // userId -> 该用户运行中+排队中的任务数
+    private final Map<Long, Integer> userTasks = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(
+            maxConcurrent, maxConcurrent,
+            60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(queueCapacity),
+            createThreadFactory(),
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        if (meterRegistry != null) {
+            Gauge.builder("generation.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+            Gauge.builder("generation.executor.queued", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+            Gauge.builder("generation.executor.users", userTasks, Map::size)
+                .register(meterRegistry);
+            Gauge.builder("generation.executor.submitted", submitted, LongAdder::sum)
+                .register(meterRegistry);
+            Gauge.builder("generation.executor.rejected", rejected, LongAdder::sum)
+                .register(meterRegistry);
+            Gauge.builder("generation.executor.cancelled", cancelled, LongAdder::sum)
+                .register(meterRegistry);
+        }
+        logger.info("生成执行器初始化完成: maxConcurrent={}, queueCapacity={}, perUserLimit={}, virtualThreads={}",
+            maxConcurrent, queueCapacity, perUserLimit, virtualThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交用户发起的生成任务（占用当前用户的并发名额）
+     *
+     * @throws GenerationRejectedException 用户并发超限或全局队列已满
+     */
+    public GenerationHandle submit(String name, Runnable task) {
+        return doSubmit(name, task, true);
+    }
+
+    /**
+     * 提交后台任务（如章节保存后的抽取），只受全局上限约束
+     */
+    public GenerationHandle submitBackground(String name, Runnable task) {
+        return doSubmit(name, task, false);
+    }
+
+    /**
+     * 提交 SSE 生成任务：被拒绝时向前端发送 error 事件并结束连接，
+     * SSE 断开时取消任务并中止上游请求（emitter 为 SseSession 时与其他回调共存）
+     *
+     * @return 任务句柄，被拒绝时返回 null
+     */
+    public GenerationHandle submitStream(String name, SseEmitter emitter, Runnable task) {
+        GenerationHandle handle;
+        try {
+            handle = submit(name, task);
+        } catch (GenerationRejectedException e) {
+            try {
+                emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+            } catch (Exception ignored) {}
+            emitter.complete();
+            return null;
+        }
+        if (emitter instanceof SseSession) {
+            // 超时、出错、写失败或客户端主动断开都会取消任务并中止上游请求
+            ((SseSession) emitter).onDisconnect(handle::cancel);
+        } else {
+            emitter.onTimeout(handle::cancel);
+            emitter.onError(error -> handle.cancel());
+        }
+        return handle;
+    }
+
+    /**
+     * 执行器统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("perUserLimit", perUserLimit);
+        stats.put("activeUsers", userTasks.size());
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("rejected", rejected.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    private GenerationHandle doSubmit(String name, Runnable task, boolean countForUser) {
+        Long userId = countForUser ? AuthUtils.getCurrentUserId() : null;
+        boolean permit = acquireUserPermit(userId, name);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CancellationToken token = new CancellationToken();
+        // 名额由先抢到 started 的一方释放：开始运行的任务在执行线程真正退出后释放，
+        // 排队中就被取消的任务在取消时释放（cancel(true) 时 done() 先于执行线程退出触发，不能在那里释放运行中任务的名额）
+        AtomicBoolean started = new AtomicBoolean();
+        ProviderConcurrencyLimiter.Priority priority = countForUser
+            ? ProviderConcurrencyLimiter.Priority.INTERACTIVE
+            : ProviderConcurrencyLimiter.Priority.BACKGROUND;
+        Runnable wrapped = () -> {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try (ProviderConcurrencyLimiter.PriorityScope ignored = ProviderConcurrencyLimiter.withPriority(priority)) {
+                runWithContext(name, authentication, token, task);
+            } finally {
+                releaseUserPermit(userId, permit);
+            }
+        };
+
+        GenerationHandle handle = new GenerationHandle(name, userId, wrapped, token, finished -> {
+            if (finished.isCancelled()) {
+                cancelled.increment();
+            }
+            if (started.compareAndSet(false, true)) {
+                releaseUserPermit(userId, permit);
+            }
+        });
+
+        try {
+            executor.execute(handle);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            releaseUserPermit(userId, permit);
+            logger.warn("⚠️ 生成队列已满，拒绝任务: {}, active={}, queued={}",
+                name, executor.getActiveCount(), executor.getQueue().size());
+            throw new GenerationRejectedException("当前生成任务较多，请稍后再试", e);
+        }
+        submitted.increment();
+        return handle;
+    }
+
+    private boolean acquireUserPermit(Long userId, String name) {
+        if (userId == null || perUserLimit <= 0) {
+            return false;
+        }
+        // 在 compute 中完成检查与计数，保证同一用户的并发提交不会超限
+        userTasks.compute(userId, (id, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= perUserLimit) {
+                rejected.increment();
+                logger.warn("⚠️ 用户 {} 并发生成任务已达上限 {}，拒绝任务: {}", userId, perUserLimit, name);
+                throw new GenerationRejectedException("同时进行的生成任务已达上限（" + perUserLimit + "个），请等待当前任务完成");
+            }
+            return current + 1;
+        });
+        return true;
+    }
+
+    private void releaseUserPermit(Long userId, boolean acquired) {
+        if (!acquired) {
+            return;
+        }
+        // 计数归零时移除条目，避免无限增长
+        userTasks.compute(userId, (id, count) -> count == null || count <= 1 ? null : count - 1);
+    }
+
+    private void runWithContext(String name, Authentication authentication, CancellationToken token, Runnable task) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        try (CancellationToken.Registration ignored = CancellationToken.bind(token)) {
+            task.run();
+        } catch (GenerationCancelledException e) {
+            logger.info("生成任务已取消: {}, {}", name, e.getMessage());
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            logger.error("生成任务异常结束: {}", name, e);
+            throw e;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private ThreadFactory createThreadFactory() {
+        if (virtualThreads) {
+            ThreadFactory factory = virtualThreadFactory();
+            if (factory != null) {
+                return factory;
+            }
+            logger.warn("当前JVM不支持虚拟线程（需要 Java 21+），回退为平台线程");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "generation-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 通过反射获取虚拟线程工厂，使 Java 17 编译的代码在 Java 21 上可直接启用
+     */
+    private ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "generation-v-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
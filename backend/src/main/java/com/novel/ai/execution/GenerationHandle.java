@@ -0,0 +1,121 @@
+package com.novel.ai.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * 生成任务句柄
+ *
+ * 由 {@link GenerationExecutor} 创建，调用方用它取消任务或注册取消回调。
+ * 取消时同时触发 {@link CancellationToken}，中止执行线程上正在进行的上游请求。
+ * 任务结束时通知执行器：运行中的任务由执行线程退出时释放并发名额，排队中被取消的任务在取消时释放。
+ * 调用方可用 {@link #onDone(Runnable)} 在任务结束（结果已可见）后清理自己的登记。
+ */
+public class GenerationHandle extends FutureTask<Void> {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationHandle.class);
+
+    private final String name;
+    private final Long userId;
+    private final Consumer<GenerationHandle> onFinished;
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+    private final List<Runnable> doneHooks = new CopyOnWriteArrayList<>();
+    private final CancellationToken token;
+    private final long submittedAt = System.currentTimeMillis();
+
+    GenerationHandle(String name, Long userId, Runnable task, CancellationToken token,
+                     Consumer<GenerationHandle> onFinished) {
+        super(task, null);
+        this.name = name;
+        this.userId = userId;
+        this.token = token;
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * 注册取消回调；任务已被取消时立即执行
+     */
+    public void onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (isCancelled() && cancelHooks.remove(hook)) {
+            runHook(hook);
+        }
+    }
+
+    /**
+     * 注册结束回调（完成、异常或取消后执行，此时 isDone() 已为 true）；任务已结束时立即执行
+     */
+    public void onDone(Runnable hook) {
+        doneHooks.add(hook);
+        if (isDone() && doneHooks.remove(hook)) {
+            runHook(hook);
+        }
+    }
+
+    /**
+     * 取消任务并中断执行线程
+     */
+    public boolean cancel() {
+        return cancel(true);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            logger.info("生成任务已取消: {}", name);
+            token.cancel("任务已取消: " + name);
+            for (Runnable hook : cancelHooks) {
+                if (cancelHooks.remove(hook)) {
+                    runHook(hook);
+                }
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * 完成、异常或取消时触发；取消时执行线程可能仍在运行
+     */
+    @Override
+    protected void done() {
+        onFinished.accept(this);
+        for (Runnable hook : doneHooks) {
+            if (doneHooks.remove(hook)) {
+                runHook(hook);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * 执行线程上绑定的取消令牌
+     */
+    public CancellationToken getToken() {
+        return token;
+    }
+
+    private void runHook(Runnable hook) {
+        try {
+            hook.run();
+        } catch (Exception e) {
+            logger.warn("任务回调执行失败: {}, {}", name, e.getMessage());
+        }
+    }
+}
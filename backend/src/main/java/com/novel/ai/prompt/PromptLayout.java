@@ -0,0 +1,288 @@
+package com.novel.ai.prompt;
+
+import com.novel.ai.token.TokenCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 提示词布局引擎（面向服务端前缀缓存）
+ *
+ * 解决问题：写作提示词把本章意图、最近概要、图谱实体等逐章变化的内容穿插在系统身份、核心设定、
+ * 风格提示等跨章不变的内容之前，支持前缀缓存的服务商看不到可复用的前缀
+ *
+ * 策略：
+ * 1. 每条消息标注稳定层级：小说级 → 卷级 → 章节级 → 本次请求级，按层级稳定排序，同层保持声明顺序
+ * 2. 小说级与卷级消息构成可缓存前缀；同一小说连续章节在同一卷内的前缀逐字节一致
+ * 3. 每次组装计算前缀指纹（SHA-256）与前缀 token 数，并与该小说上一次的指纹比对，
+ *    记录命中/变化，用于衡量每次调用可被缓存的 token 量
+ */
+@Component
+public class PromptLayout {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptLayout.class);
+
+    /**
+     * 稳定层级（声明顺序即排列顺序）
+     */
+    public enum Stability {
+        /** 整本小说内不变：系统身份、风格提示、核心设定 */
+        NOVEL,
+        /** 同一卷内不变：卷蓝图 */
+        VOLUME,
+        /** 逐章变化：最近章节、概要、图谱、本章意图、任务说明与字数要求 */
+        CHAPTER,
+        /** 本次请求特有：用户临时要求、关联素材 */
+        REQUEST;
+
+        boolean cacheable() {
+            return this == NOVEL || this == VOLUME;
+        }
+    }
+
+    @Value("${generation.prompt-layout.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${generation.prompt-layout.fingerprint-history:1024}")
+    private int fingerprintHistory = 1024;
+
+    @Autowired(required = false)
+    private TokenCounter tokenCounter;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // prompt类型:小说ID -> 上一次前缀指纹（访问顺序 LRU）
+    private final LinkedHashMap<String, String> lastFingerprints = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * 开始组装一份提示词
+     *
+     * @param prompt  提示词类型（用于日志与指标标签，如 intent、rewrite）
+     * @param novelId 小说ID，用于跨章比对前缀指纹；为空时只记录不比对
+     */
+    public Builder builder(String prompt, Long novelId) {
+        return new Builder(this, prompt, novelId);
+    }
+
+    /**
+     * 组装结果：排列后的消息与前缀信息
+     */
+    public static class Arrangement {
+        private final List<Map<String, String>> messages;
+        private final int prefixMessages;
+        private final int prefixTokens;
+        private final int totalTokens;
+        private final String fingerprint;
+        private final String outcome;
+
+        Arrangement(List<Map<String, String>> messages, int prefixMessages, int prefixTokens,
+                    int totalTokens, String fingerprint, String outcome) {
+            this.messages = messages;
+            this.prefixMessages = prefixMessages;
+            this.prefixTokens = prefixTokens;
+            this.totalTokens = totalTokens;
+            this.fingerprint = fingerprint;
+            this.outcome = outcome;
+        }
+
+        public List<Map<String, String>> getMessages() {
+            return messages;
+        }
+
+        public int getPrefixMessages() {
+            return prefixMessages;
+        }
+
+        public int getPrefixTokens() {
+            return prefixTokens;
+        }
+
+        public int getTotalTokens() {
+            return totalTokens;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * 与该小说上一次前缀的比对结果：reused / changed / first
+         */
+        public String getOutcome() {
+            return outcome;
+        }
+    }
+
+    public static class Builder {
+        private final PromptLayout layout;
+        private final String prompt;
+        private final Long novelId;
+        private final List<Section> sections = new ArrayList<>();
+
+        private Builder(PromptLayout layout, String prompt, Long novelId) {
+            this.layout = layout;
+            this.prompt = prompt;
+            this.novelId = novelId;
+        }
+
+        public Builder add(Stability stability, String role, String content) {
+            sections.add(new Section(stability, role, content, sections.size()));
+            return this;
+        }
+
+        /**
+         * 排列消息并记录前缀指纹；布局关闭时保持声明顺序
+         */
+        public Arrangement arrange() {
+            return layout.arrange(prompt, novelId, sections);
+        }
+
+        /**
+         * 仅返回排列后的消息
+         */
+        public List<Map<String, String>> build() {
+            return arrange().getMessages();
+        }
+    }
+
+    static final class Section {
+        final Stability stability;
+        final String role;
+        final String content;
+        final int order;
+
+        Section(Stability stability, String role, String content, int order) {
+            this.stability = stability;
+            this.role = role;
+            this.content = content != null ? content : "";
+            this.order = order;
+        }
+    }
+
+    Arrangement arrange(String prompt, Long novelId, List<Section> sections) {
+        List<Section> ordered = order(sections, enabled);
+
+        List<Map<String, String>> messages = new ArrayList<>(ordered.size());
+        int prefixMessages = 0;
+        int prefixTokens = 0;
+        int totalTokens = 0;
+        boolean inPrefix = true;
+        MessageDigest digest = newDigest();
+        for (Section section : ordered) {
+            Map<String, String> message = new HashMap<>();
+            message.put("role", section.role);
+            message.put("content", section.content);
+            messages.add(message);
+
+            int tokens = countTokens(section.content);
+            totalTokens += tokens;
+            // 前缀只计到第一条非缓存层级的消息为止（布局关闭时可能更早中断）
+            inPrefix = inPrefix && section.stability.cacheable();
+            if (inPrefix) {
+                prefixMessages++;
+                prefixTokens += tokens;
+                if (digest != null) {
+                    digest.update(section.role.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(section.content.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                }
+            }
+        }
+
+        String fingerprint = digest != null && prefixMessages > 0 ? toHex(digest.digest()) : "";
+        String outcome = compareWithLast(prompt, novelId, fingerprint);
+        record(prompt, novelId, messages.size(), prefixMessages, prefixTokens, totalTokens, fingerprint, outcome);
+        return new Arrangement(messages, prefixMessages, prefixTokens,
+            totalTokens, fingerprint, outcome);
+    }
+
+    /**
+     * 按层级稳定排序；关闭时原样返回
+     */
+    static List<Section> order(List<Section> sections, boolean byStability) {
+        List<Section> ordered = new ArrayList<>(sections);
+        if (byStability) {
+            ordered.sort(Comparator.comparing((Section s) -> s.stability).thenComparingInt(s -> s.order));
+        }
+        return ordered;
+    }
+
+    private String compareWithLast(String prompt, Long novelId, String fingerprint) {
+        if (novelId == null || fingerprint.isEmpty()) {
+            return "first";
+        }
+        String key = prompt + ":" + novelId;
+        String previous;
+        synchronized (lastFingerprints) {
+            previous = lastFingerprints.put(key, fingerprint);
+            while (lastFingerprints.size() > Math.max(1, fingerprintHistory)) {
+                lastFingerprints.remove(lastFingerprints.keySet().iterator().next());
+            }
+        }
+        if (previous == null) {
+            return "first";
+        }
+        return previous.equals(fingerprint) ? "reused" : "changed";
+    }
+
+    private void record(String prompt, Long novelId, int messageCount, int prefixMessages, int prefixTokens,
+                        int totalTokens, String fingerprint, String outcome) {
+        logger.info("🧱 提示词前缀: prompt={}, novelId={}, 前缀消息={}/{}, 前缀tokens={}/{}, 指纹={}, 与上次相比={}",
+            prompt, novelId, prefixMessages, messageCount, prefixTokens, totalTokens,
+            fingerprint.isEmpty() ? "-" : fingerprint.substring(0, 12), outcome);
+        if (meterRegistry == null) {
+            return;
+        }
+        DistributionSummary.builder("ai.prompt.prefix.tokens")
+            .tag("prompt", prompt)
+            .register(meterRegistry)
+            .record(prefixTokens);
+        DistributionSummary.builder("ai.prompt.prefix.ratio")
+            .tag("prompt", prompt)
+            .register(meterRegistry)
+            .record(totalTokens > 0 ? (double) prefixTokens / totalTokens : 0d);
+        Counter.builder("ai.prompt.prefix")
+            .tag("prompt", prompt)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private int countTokens(String text) {
+        return (tokenCounter != null ? tokenCounter : TokenCounter.shared()).count(text);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            logger.warn("前缀指纹计算不可用: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
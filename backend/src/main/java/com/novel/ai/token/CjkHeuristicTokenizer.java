@@ -0,0 +1,141 @@
+package com.novel.ai.token;
+
+/**
+ * 离线、面向中文的启发式 token 估算器
+ *
+ * 不依赖词表、不做 BPE 合并，只按字符类别套用主流字节级 BPE（cl100k/o200k 一类）的平均切分规律计数：
+ * 1. 预切分与 GPT 系列一致：字母串（可带一个前导空格）、最多 3 位的数字组、标点串、空白串各自成段
+ * 2. 常用汉字（基本区）、假名、全角标点各 1 个 token；扩展区/补充平面汉字通常被拆成字节，记 2 个
+ * 3. 拉丁字母串按 BPE 合并后的平均长度折算：6 字符以内 1 个，之后每 4 字符 1 个
+ * 4. 其他非 ASCII 字母按 UTF-8 字节折半计数，空白串计 1 个，ASCII 标点串每 2 个字符 1 个，
+ *    中文引号、省略号等通用标点 1 个
+ *
+ * 结果为估算值，用于预算分配；需要与某个模型精确一致时替换为对应词表的实现。
+ * 注意常用汉字按 1 个计，比旧的按字估算（约 1.5 个/字）低，TokenBudget 各上限按此口径配置
+ */
+public class CjkHeuristicTokenizer implements Tokenizer {
+
+    @Override
+    public String name() {
+        return "cjk-heuristic";
+    }
+
+    @Override
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int[] total = new int[1];
+        scan(text, Integer.MAX_VALUE, total);
+        return total[0];
+    }
+
+    /**
+     * 单次扫描：累计到超出预算前的最后一个完整片段
+     */
+    @Override
+    public int prefixWithin(String text, int maxTokens) {
+        if (text == null || text.isEmpty() || maxTokens <= 0) {
+            return 0;
+        }
+        return scan(text, maxTokens, new int[1]);
+    }
+
+    /**
+     * 逐段计数，返回 token 累计不超过 maxTokens 的前缀长度；total[0] 为该前缀的 token 数
+     */
+    private static int scan(String text, int maxTokens, int[] total) {
+        int length = text.length();
+        int i = 0;
+        int tokens = 0;
+        while (i < length) {
+            int cp = text.codePointAt(i);
+            int end;
+            int cost;
+            if (isCjk(cp)) {
+                end = i + Character.charCount(cp);
+                cost = cp > 0xFFFF || (cp >= 0x3400 && cp <= 0x4DBF) ? 2 : 1;
+            } else if (isLatinLetter(cp) || (cp == ' ' && i + 1 < length && isLatinLetter(text.charAt(i + 1)))) {
+                end = cp == ' ' ? i + 1 : i;
+                while (end < length && isLatinLetter(text.charAt(end))) {
+                    end++;
+                }
+                int letters = end - i - (cp == ' ' ? 1 : 0);
+                cost = letters <= 6 ? 1 : 1 + (letters - 6 + 3) / 4;
+            } else if (cp >= '0' && cp <= '9') {
+                end = i;
+                while (end < length && end - i < 3 && Character.isDigit(text.charAt(end))) {
+                    end++;
+                }
+                cost = 1;
+            } else if (Character.isWhitespace(cp)) {
+                end = i;
+                while (end < length && Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                cost = 1;
+            } else if (cp < 0x80) {
+                end = i;
+                while (end < length && end - i < 8 && isAsciiPunct(text.charAt(end))) {
+                    end++;
+                }
+                end = Math.max(end, i + 1);
+                cost = (end - i + 1) / 2;
+            } else if (Character.isLetter(cp)) {
+                end = i;
+                int bytes = 0;
+                while (end < length) {
+                    int c = text.codePointAt(end);
+                    if (!Character.isLetter(c) || isCjk(c) || c < 0x80) {
+                        break;
+                    }
+                    bytes += utf8Length(c);
+                    end += Character.charCount(c);
+                }
+                cost = Math.max(1, (bytes + 1) / 2);
+            } else if (cp >= 0x2000 && cp <= 0x206F) {
+                // 通用标点：“”‘’…—
+                end = i + 1;
+                cost = 1;
+            } else {
+                // 其余符号（emoji、制表符号等）多数按字节拆分
+                end = i + Character.charCount(cp);
+                cost = Math.max(1, utf8Length(cp) - 1);
+            }
+            if (tokens + cost > maxTokens) {
+                break;
+            }
+            tokens += cost;
+            i = end;
+        }
+        total[0] = tokens;
+        return i;
+    }
+
+    private static boolean isCjk(int cp) {
+        return (cp >= 0x4E00 && cp <= 0x9FFF)      // 基本区汉字
+            || (cp >= 0x3400 && cp <= 0x4DBF)      // 扩展A
+            || (cp >= 0x20000 && cp <= 0x2FA1F)    // 补充平面
+            || (cp >= 0x3000 && cp <= 0x30FF)      // 中日标点、假名
+            || (cp >= 0xFF00 && cp <= 0xFFEF)      // 全角字符
+            || (cp >= 0xAC00 && cp <= 0xD7AF);     // 谚文
+    }
+
+    private static boolean isLatinLetter(int cp) {
+        return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z');
+    }
+
+    private static boolean isAsciiPunct(char c) {
+        return c < 0x80 && !Character.isLetterOrDigit(c) && !Character.isWhitespace(c);
+    }
+
+    private static int utf8Length(int cp) {
+        if (cp < 0x80) {
+            return 1;
+        }
+        if (cp < 0x800) {
+            return 2;
+        }
+        return cp < 0x10000 ? 3 : 4;
+    }
+}
@@ -0,0 +1,151 @@
+package com.novel.ai.token;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * token 计数服务
+ *
+ * 解决问题：预算以 token 声明，却以字符数或条数执行，提示词要么超量要么被随意截断
+ *
+ * 策略：
+ * 1. 计数委托给 {@link Tokenizer}（默认 {@link CjkHeuristicTokenizer}，可由 Bean 替换）
+ * 2. 较长文本按内容哈希缓存计数结果（同一段大纲、卷蓝图、历史章节会在多次组装中反复计数）
+ * 3. 供静态代码（如 TokenBudget）使用的共享实例：Spring 初始化前退化为默认分词器
+ */
+@Component
+public class TokenCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenCounter.class);
+
+    // 短文本直接计数，不进缓存
+    private static final int MEMO_MIN_LENGTH = 64;
+
+    private static volatile TokenCounter shared;
+
+    private final Tokenizer tokenizer;
+
+    @Value("${generation.tokenizer.cache-size:4096}")
+    private int cacheSize = 4096;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // 内容哈希 -> token 数（访问顺序 LRU）
+    private final LinkedHashMap<Long, Integer> memo = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public TokenCounter(ObjectProvider<Tokenizer> tokenizerProvider) {
+        this(tokenizerProvider.getIfAvailable(CjkHeuristicTokenizer::new));
+    }
+
+    public TokenCounter(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    @PostConstruct
+    public void init() {
+        shared = this;
+        if (meterRegistry != null) {
+            Gauge.builder("ai.tokenizer.memo.hits", hits, LongAdder::sum).register(meterRegistry);
+            Gauge.builder("ai.tokenizer.memo.misses", misses, LongAdder::sum).register(meterRegistry);
+        }
+        logger.info("token计数器初始化完成: tokenizer={}, cacheSize={}", tokenizer.name(), cacheSize);
+    }
+
+    /**
+     * 共享实例（容器未就绪时使用默认分词器）
+     */
+    public static TokenCounter shared() {
+        TokenCounter current = shared;
+        if (current == null) {
+            synchronized (TokenCounter.class) {
+                if (shared == null) {
+                    shared = new TokenCounter(new CjkHeuristicTokenizer());
+                }
+                current = shared;
+            }
+        }
+        return current;
+    }
+
+    public Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    /**
+     * 文本 token 数
+     */
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        if (text.length() < MEMO_MIN_LENGTH || cacheSize <= 0) {
+            return tokenizer.count(text);
+        }
+        Long key = contentHash(text);
+        synchronized (memo) {
+            Integer cached = memo.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        int tokens = tokenizer.count(text);
+        synchronized (memo) {
+            memo.put(key, tokens);
+            if (memo.size() > cacheSize) {
+                memo.remove(memo.keySet().iterator().next());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 截断到不超过 maxTokens 的最长前缀
+     */
+    public String truncate(String text, int maxTokens) {
+        if (text == null || count(text) <= maxTokens) {
+            return text;
+        }
+        return text.substring(0, tokenizer.prefixWithin(text, maxTokens));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokenizer", tokenizer.name());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        synchronized (memo) {
+            stats.put("entries", memo.size());
+        }
+        return stats;
+    }
+
+    /**
+     * 64 位 FNV-1a 内容哈希，混入长度降低碰撞概率
+     */
+    static long contentHash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash ^ ((long) text.length() << 32);
+    }
+}
@@ -0,0 +1,40 @@
+package com.novel.ai.token;
+
+/**
+ * 分词计数器
+ *
+ * 默认实现为 {@link CjkHeuristicTokenizer}；如需接入具体模型的词表，
+ * 声明一个 Tokenizer Bean 即可由 {@link TokenCounter} 接管
+ */
+public interface Tokenizer {
+
+    /**
+     * 实现名称（用于日志）
+     */
+    String name();
+
+    /**
+     * 文本的 token 数
+     */
+    int count(String text);
+
+    /**
+     * 不超过 maxTokens 的最长前缀长度（字符下标）；默认实现对前缀二分查找
+     */
+    default int prefixWithin(String text, int maxTokens) {
+        if (text == null || text.isEmpty() || maxTokens <= 0) {
+            return 0;
+        }
+        int lo = 0;
+        int hi = text.length();
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (count(text.substring(0, mid)) <= maxTokens) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
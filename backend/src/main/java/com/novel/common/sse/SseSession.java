@@ -0,0 +1,186 @@
+package com.novel.common.sse;
+
+import io.netty.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 受 {@link SseSessionRegistry} 管理的 SseEmitter
+ *
+ * 1. 记录最近一次写出时间，供心跳判断是否需要发送
+ * 2. onTimeout/onError/onCompletion 支持注册多个回调（原生 SseEmitter 只保留最后一个）
+ * 3. 完成、出错或写失败时自动从注册表注销
+ * 4. 区分服务端主动结束与连接断开（超时、出错、写失败、客户端关闭），断开时触发 onDisconnect 回调
+ */
+public class SseSession extends SseEmitter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseSession.class);
+
+    private final String name;
+    private final long openedAt = System.currentTimeMillis();
+    private final Consumer<SseSession> onClosed;
+
+    private final List<Runnable> timeoutCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Throwable>> errorCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Runnable> completionCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Runnable> disconnectCallbacks = new CopyOnWriteArrayList<>();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean disconnected = new AtomicBoolean();
+    private volatile boolean completedByServer;
+    private final AtomicBoolean heartbeatInFlight = new AtomicBoolean();
+    private volatile long lastWriteAt = openedAt;
+
+    // 心跳调度句柄，由注册表维护
+    volatile Timeout heartbeatTimeout;
+
+    SseSession(String name, Long timeout, Consumer<SseSession> onClosed) {
+        super(timeout);
+        this.name = name;
+        this.onClosed = onClosed;
+        super.onTimeout(() -> {
+            timeoutCallbacks.forEach(this::runQuietly);
+            markDisconnected();
+        });
+        super.onError(error -> {
+            markClosed();
+            for (Consumer<Throwable> callback : errorCallbacks) {
+                runQuietly(() -> callback.accept(error));
+            }
+            markDisconnected();
+        });
+        super.onCompletion(() -> {
+            markClosed();
+            completionCallbacks.forEach(this::runQuietly);
+            if (!completedByServer) {
+                markDisconnected();
+            }
+        });
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        try {
+            super.send(builder);
+            lastWriteAt = System.currentTimeMillis();
+        } catch (IOException | IllegalStateException e) {
+            markClosed();
+            if (!completedByServer) {
+                markDisconnected();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void complete() {
+        completedByServer = true;
+        markClosed();
+        super.complete();
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+        completedByServer = true;
+        markClosed();
+        super.completeWithError(ex);
+    }
+
+    /**
+     * 注册连接断开回调（超时、出错、写失败或客户端关闭，服务端主动 complete 不触发）；
+     * 已断开时立即执行
+     */
+    public void onDisconnect(Runnable callback) {
+        disconnectCallbacks.add(callback);
+        if (disconnected.get() && disconnectCallbacks.remove(callback)) {
+            runQuietly(callback);
+        }
+    }
+
+    @Override
+    public void onTimeout(Runnable callback) {
+        timeoutCallbacks.add(callback);
+    }
+
+    @Override
+    public void onError(Consumer<Throwable> callback) {
+        errorCallbacks.add(callback);
+    }
+
+    @Override
+    public void onCompletion(Runnable callback) {
+        completionCallbacks.add(callback);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOpenedAt() {
+        return openedAt;
+    }
+
+    public long getLastWriteAt() {
+        return lastWriteAt;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    public boolean isDisconnected() {
+        return disconnected.get();
+    }
+
+    /**
+     * 发送心跳（SSE 注释行，前端解析器会忽略）
+     *
+     * @return 是否实际发送；上一个心跳尚未写完或连接已关闭时跳过
+     */
+    boolean sendHeartbeat() {
+        if (closed.get() || !heartbeatInFlight.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            send(event().comment("keepalive"));
+            return true;
+        } catch (Exception e) {
+            logger.debug("SSE心跳发送失败，连接已关闭: {}", name);
+            return false;
+        } finally {
+            heartbeatInFlight.set(false);
+        }
+    }
+
+    private void markClosed() {
+        if (closed.compareAndSet(false, true)) {
+            onClosed.accept(this);
+        }
+    }
+
+    private void markDisconnected() {
+        if (disconnected.compareAndSet(false, true)) {
+            logger.info("SSE连接已断开: {}", name);
+            for (Runnable callback : disconnectCallbacks) {
+                if (disconnectCallbacks.remove(callback)) {
+                    runQuietly(callback);
+                }
+            }
+        }
+    }
+
+    private void runQuietly(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            logger.warn("SSE回调执行失败: {}, {}", name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.novel.common.sse;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SSE 会话注册表与统一心跳
+ *
+ * 解决问题：代理式写作每个流都新建一个单线程 ScheduledExecutorService 发心跳，
+ * 其他 SSE 接口完全没有心跳，长时间生成时连接会被代理/网关断开
+ *
+ * 策略：
+ * 1. 所有 SSE 接口通过 {@link #open} 创建 {@link SseSession}，完成/出错时自动注销
+ * 2. 一个 HashedWheelTimer 驱动所有会话的心跳，不再按连接占用线程
+ * 3. 会话记录最近写出时间，距今未满心跳间隔时跳过心跳，按剩余时间重新调度
+ * 4. 心跳实际写出交给小线程池，单个卡住的连接不会拖住时间轮
+ * 5. 导出在线会话数与心跳发送/跳过次数
+ */
+@Component
+public class SseSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseSessionRegistry.class);
+
+    @Value("${sse.heartbeat.interval-ms:20000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${sse.heartbeat.tick-ms:500}")
+    private long tickMs;
+
+    @Value("${sse.heartbeat.dispatch-threads:2}")
+    private int dispatchThreads;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Set<SseSession> sessions = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder heartbeatsSent = new LongAdder();
+    private final LongAdder heartbeatsSkipped = new LongAdder();
+
+    private HashedWheelTimer timer;
+    private ThreadPoolExecutor dispatcher;
+
+    @PostConstruct
+    public void init() {
+        timer = new HashedWheelTimer(new DefaultThreadFactory("sse-heartbeat-wheel", true),
+            tickMs, TimeUnit.MILLISECONDS, 512);
+        dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(4096), new DefaultThreadFactory("sse-heartbeat", true),
+            new ThreadPoolExecutor.DiscardPolicy());
+        dispatcher.allowCoreThreadTimeOut(true);
+
+        if (meterRegistry != null) {
+            Gauge.builder("sse.sessions.open", sessions, Set::size)
+                .register(meterRegistry);
+            Gauge.builder("sse.sessions.opened", opened, LongAdder::sum)
+                .register(meterRegistry);
+            Gauge.builder("sse.heartbeats.sent", heartbeatsSent, LongAdder::sum)
+                .register(meterRegistry);
+            Gauge.builder("sse.heartbeats.skipped", heartbeatsSkipped, LongAdder::sum)
+                .register(meterRegistry);
+        }
+        logger.info("SSE会话注册表初始化完成: heartbeatInterval={}ms, tick={}ms", heartbeatIntervalMs, tickMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * 创建并注册一个带心跳的 SSE 会话
+     *
+     * @param name 会话名称（用于日志与统计，如 "outline-generate"）
+     * @param timeoutMs SSE 超时时间，0 表示不超时
+     */
+    public SseSession open(String name, long timeoutMs) {
+        SseSession session = new SseSession(name, timeoutMs, this::unregister);
+        sessions.add(session);
+        opened.increment();
+        schedule(session, heartbeatIntervalMs);
+        return session;
+    }
+
+    /**
+     * 在线会话统计（总数与按名称分组）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Integer> byName = new TreeMap<>();
+        for (SseSession session : sessions) {
+            byName.merge(session.getName(), 1, Integer::sum);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openSessions", sessions.size());
+        stats.put("openedTotal", opened.sum());
+        stats.put("heartbeatsSent", heartbeatsSent.sum());
+        stats.put("heartbeatsSkipped", heartbeatsSkipped.sum());
+        stats.put("byName", byName);
+        return stats;
+    }
+
+    private void unregister(SseSession session) {
+        sessions.remove(session);
+        Timeout timeout = session.heartbeatTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void schedule(SseSession session, long delayMs) {
+        if (session.isClosed()) {
+            return;
+        }
+        session.heartbeatTimeout = timer.newTimeout(t -> onHeartbeatDue(session), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void onHeartbeatDue(SseSession session) {
+        if (session.isClosed()) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - session.getLastWriteAt();
+        long remaining = heartbeatIntervalMs - idle;
+        // 最近有真实数据写出，本轮跳过，到期时间顺延
+        if (remaining > tickMs) {
+            heartbeatsSkipped.increment();
+            schedule(session, remaining);
+            return;
+        }
+        dispatcher.execute(() -> {
+            if (session.sendHeartbeat()) {
+                heartbeatsSent.increment();
+            }
+        });
+        schedule(session, heartbeatIntervalMs);
+    }
+}
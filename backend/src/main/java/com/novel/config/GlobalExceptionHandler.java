@@ -111,6 +111,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(errorResponse);
     }
 
+    /**
+     * 处理生成任务并发超限异常
+     */
+    @ExceptionHandler(com.novel.exception.GenerationRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleGenerationRejectedException(com.novel.exception.GenerationRejectedException e) {
+        logger.warn("生成任务被拒绝: {}", e.getMessage());
+
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "生成任务繁忙");
+        errorResponse.put("message", e.getMessage());
+        errorResponse.put("code", "GENERATION_BUSY");
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+    }
+
     /**
      * 处理权限异常
      */
@@ -1,5 +1,8 @@
 package com.novel.controller;
 
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.common.sse.SseSessionRegistry;
+import com.novel.exception.GenerationCancelledException;
 import com.novel.dto.AIConfigRequest;
 import com.novel.domain.entity.AIModel;
 import com.novel.service.AIWritingService;
@@ -13,7 +16,6 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * AI 聊天控制器
@@ -32,12 +34,18 @@ public class AIChatController {
     @Autowired
     private SystemAIConfigService systemAIConfigService;
 
+    @Autowired
+    private GenerationExecutor generationExecutor;
+
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
+
     /**
      * 流式聊天接口
      */
     @PostMapping(value = "/chat-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter chatStream(@RequestBody Map<String, Object> request) {
-        SseEmitter emitter = new SseEmitter(300000L); // 5分钟超时
+        SseEmitter emitter = sseSessionRegistry.open("ai-chat", 300000L); // 5分钟超时
 
         try {
             // 获取请求参数
@@ -79,7 +87,7 @@ public class AIChatController {
             logger.info("🤖 开始 AI 聊天，模型: {}, 消息数: {}", aiModel.getModelId(), messages.size());
 
             // 异步执行流式生成
-            CompletableFuture.runAsync(() -> {
+            generationExecutor.submitStream("ai-chat", emitter, () -> {
                 try {
                     aiWritingService.streamGenerateContentWithMessages(
                         messages,
@@ -102,6 +110,9 @@ public class AIChatController {
                     emitter.complete();
                     logger.info("✅ AI 聊天完成");
                     
+                } catch (GenerationCancelledException e) {
+                    // 客户端已断开，上游请求已中止并按已输出部分结算
+                    logger.info("🛑 AI 聊天已取消: {}", e.getMessage());
                 } catch (Exception e) {
                     logger.error("AI 聊天失败", e);
                     try {
@@ -1,5 +1,8 @@
 package com.novel.controller;
 
+import com.novel.ai.execution.CancellationToken;
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.common.sse.SseSessionRegistry;
 import com.novel.common.Result;
 import com.novel.dto.AIConfigRequest;
 import com.novel.service.AIPolishService;
@@ -30,6 +33,8 @@ public class AIController {
     private final com.novel.service.AISmartSuggestionService smartSuggestionService;
     private final com.novel.service.AIWritingService aiWritingService;
     private final com.novel.service.AIConfigService aiConfigService;
+    private final GenerationExecutor generationExecutor;
+    private final SseSessionRegistry sseSessionRegistry;
 
     @Autowired
     public AIController(
@@ -39,7 +44,9 @@ public class AIController {
             AIProofreadService aiProofreadService,
             com.novel.service.AISmartSuggestionService smartSuggestionService,
             com.novel.service.AIWritingService aiWritingService,
-            com.novel.service.AIConfigService aiConfigService
+            com.novel.service.AIConfigService aiConfigService,
+            GenerationExecutor generationExecutor,
+            SseSessionRegistry sseSessionRegistry
     ) {
         this.aiTraceRemovalService = aiTraceRemovalService;
         this.manuscriptReviewService = manuscriptReviewService;
@@ -48,6 +55,8 @@ public class AIController {
         this.smartSuggestionService = smartSuggestionService;
         this.aiWritingService = aiWritingService;
         this.aiConfigService = aiConfigService;
+        this.generationExecutor = generationExecutor;
+        this.sseSessionRegistry = sseSessionRegistry;
     }
 
     @PostMapping("/polish-selection")
@@ -165,7 +174,7 @@ public class AIController {
      */
     @PostMapping(value = "/remove-trace-stream", produces = org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE)
     public org.springframework.web.servlet.mvc.method.annotation.SseEmitter removeAITraceStream(@RequestBody Map<String, Object> request) {
-        org.springframework.web.servlet.mvc.method.annotation.SseEmitter emitter = new org.springframework.web.servlet.mvc.method.annotation.SseEmitter(300000L);
+        org.springframework.web.servlet.mvc.method.annotation.SseEmitter emitter = sseSessionRegistry.open("ai-trace-removal", 300000L);
         
         try {
             String content = (String) request.get("content");
@@ -187,10 +196,14 @@ public class AIController {
             logger.info("✅ 使用系统配置模型: {} ({})", aiConfig.getModel(), aiConfig.getProvider());
             
             // 异步执行AI消痕
-            java.util.concurrent.CompletableFuture.runAsync(() -> {
+            generationExecutor.submitStream("ai-trace-removal", emitter, () -> {
                 try {
                     aiTraceRemovalService.removeAITraceStream(content, aiConfig, emitter);
                 } catch (Exception e) {
+                    if (CancellationToken.isCurrentCancelled()) {
+                        logger.info("🛑 AI消痕已取消（客户端断开）");
+                        return;
+                    }
                     logger.error("AI消痕流式处理失败", e);
                     try {
                         emitter.send(org.springframework.web.servlet.mvc.method.annotation.SseEmitter.event()
@@ -223,7 +236,7 @@ public class AIController {
      */
     @PostMapping(value = "/review-manuscript-stream", produces = org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE)
     public org.springframework.web.servlet.mvc.method.annotation.SseEmitter reviewManuscriptStream(@RequestBody Map<String, Object> request) {
-        org.springframework.web.servlet.mvc.method.annotation.SseEmitter emitter = new org.springframework.web.servlet.mvc.method.annotation.SseEmitter(300000L);
+        org.springframework.web.servlet.mvc.method.annotation.SseEmitter emitter = sseSessionRegistry.open("manuscript-review", 300000L);
         
         try {
             String content = (String) request.get("content");
@@ -245,10 +258,14 @@ public class AIController {
             logger.info("✅ 使用系统配置模型: {} ({})", aiConfig.getModel(), aiConfig.getProvider());
             
             // 异步执行AI审稿
-            java.util.concurrent.CompletableFuture.runAsync(() -> {
+            generationExecutor.submitStream("manuscript-review", emitter, () -> {
                 try {
                     manuscriptReviewService.reviewManuscriptStream(content, aiConfig, emitter);
                 } catch (Exception e) {
+                    if (CancellationToken.isCurrentCancelled()) {
+                        logger.info("🛑 AI审稿已取消（客户端断开）");
+                        return;
+                    }
                     logger.error("AI审稿流式处理失败", e);
                     try {
                         emitter.send(org.springframework.web.servlet.mvc.method.annotation.SseEmitter.event()
@@ -1,5 +1,8 @@
 package com.novel.controller;
 
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.common.sse.SseSessionRegistry;
+import com.novel.exception.GenerationCancelledException;
 import com.novel.dto.AIConfigRequest;
 import com.novel.service.AIWritingService;
 import com.novel.service.NovelService;
@@ -39,6 +42,12 @@ public class ChapterRewriteController {
     @Autowired
     private ContextManagementService contextManagementService;
 
+    @Autowired
+    private GenerationExecutor generationExecutor;
+
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
+
     /**
      * 章节重写接口（流式）
      * 使用SSE流式输出重写结果
@@ -49,7 +58,7 @@ public class ChapterRewriteController {
             @RequestBody Map<String, Object> requestMap
     ) {
         org.springframework.web.servlet.mvc.method.annotation.SseEmitter emitter =
-            new org.springframework.web.servlet.mvc.method.annotation.SseEmitter(300000L);
+            sseSessionRegistry.open("chapter-rewrite", 300000L);
 
         try {
             // 提取基本请求参数
@@ -121,7 +130,7 @@ public class ChapterRewriteController {
             }
 
             // 异步执行流式重写
-            java.util.concurrent.CompletableFuture.runAsync(() -> {
+            generationExecutor.submitStream("chapter-rewrite", emitter, () -> {
                 try {
                     aiWritingService.streamGenerateContent(
                         prompt,
@@ -142,6 +151,9 @@ public class ChapterRewriteController {
                     // 流式处理完成
                     emitter.complete();
                     log.info("✅ 章节重写流式处理完成");
+                } catch (GenerationCancelledException e) {
+                    // 客户端已断开，上游请求已中止并按已输出部分结算
+                    log.info("🛑 章节重写已取消: {}", e.getMessage());
                 } catch (Exception e) {
                     log.error("章节重写流式处理失败", e);
                     try {
@@ -1,5 +1,7 @@
 package com.novel.controller;
 
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.common.sse.SseSessionRegistry;
 import com.novel.domain.entity.NovelOutline;
 import com.novel.service.NovelOutlineService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +30,12 @@ public class NovelOutlineController {
     @Autowired
     private NovelOutlineService outlineService;
 
+    @Autowired
+    private GenerationExecutor generationExecutor;
+
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
+
 
     /**
      * 流式生成大纲（SSE）
@@ -35,8 +43,8 @@ public class NovelOutlineController {
      */
     @PostMapping(value = "/generate-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter generateOutlineStream(@RequestBody @Valid OutlineGenerationRequest request) {
-        SseEmitter emitter = new SseEmitter(0L); // 不超时
-        new Thread(() -> {
+        SseEmitter emitter = sseSessionRegistry.open("outline-generate", 0L); // 不超时
+        generationExecutor.submitStream("outline-generate", emitter, () -> {
             try {
                 // 提取AI配置
                 com.novel.dto.AIConfigRequest aiConfig = request.getAiConfig();
@@ -73,7 +81,7 @@ public class NovelOutlineController {
                 } catch (Exception ignored) {}
                 emitter.completeWithError(e);
             }
-        }).start();
+        });
         return emitter;
     }
 
@@ -171,8 +179,8 @@ public class NovelOutlineController {
      */
     @PostMapping(value = "/optimize-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter optimizeOutlineStream(@RequestBody OutlineOptimizationRequest request) {
-        SseEmitter emitter = new SseEmitter(0L);
-        new Thread(() -> {
+        SseEmitter emitter = sseSessionRegistry.open("outline-optimize", 0L);
+        generationExecutor.submitStream("outline-optimize", emitter, () -> {
             try {
                 // 提取AI配置
                 com.novel.dto.AIConfigRequest aiConfig = request.getAiConfig();
@@ -199,7 +207,7 @@ public class NovelOutlineController {
                 } catch (Exception ignored) {}
                 emitter.completeWithError(e);
             }
-        }).start();
+        });
         return emitter;
     }
 
@@ -1,5 +1,7 @@
 package com.novel.controller;
 
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.common.sse.SseSessionRegistry;
 import com.novel.common.Result;
 import com.novel.domain.entity.NovelVolume;
 import com.novel.dto.AIConfigRequest;
@@ -31,6 +33,12 @@ public class VolumeController {
 
     @Autowired
     private VolumeService volumeService;
+
+    @Autowired
+    private GenerationExecutor generationExecutor;
+
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
     
     // 保留注入占位，暂未在本控制器使用，后续可能扩展
     // @Autowired
@@ -173,8 +181,8 @@ public class VolumeController {
             @PathVariable Long volumeId,
             @RequestBody Map<String, Object> request) {
 
-        SseEmitter emitter = new SseEmitter(0L);
-        new Thread(() -> {
+        SseEmitter emitter = sseSessionRegistry.open("volume-outline-optimize", 0L);
+        generationExecutor.submitStream("volume-outline-optimize", emitter, () -> {
             try {
                 String currentOutline = (String) request.get("currentOutline");
                 String suggestion = (String) request.get("suggestion");
@@ -224,7 +232,7 @@ public class VolumeController {
                 } catch (Exception ignored) {}
                 emitter.completeWithError(e);
             }
-        }).start();
+        });
         return emitter;
     }
 
@@ -0,0 +1,43 @@
+package com.novel.exception;
+
+/**
+ * AI接口HTTP调用异常
+ * 携带上游返回的状态码与响应体，网络层错误时状态码为 -1
+ */
+public class AIHttpException extends RuntimeException {
+
+    private final int statusCode;
+    private final String responseBody;
+
+    public AIHttpException(int statusCode, String responseBody, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
+    public AIHttpException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = -1;
+        this.responseBody = null;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500;
+    }
+
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+
+    public boolean isNetworkError() {
+        return statusCode < 0;
+    }
+}
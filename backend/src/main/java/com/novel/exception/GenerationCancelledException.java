@@ -0,0 +1,11 @@
+package com.novel.exception;
+
+/**
+ * 生成任务已取消异常（客户端断开、SSE 超时等），已输出部分已按实际字数结算
+ */
+public class GenerationCancelledException extends RuntimeException {
+
+    public GenerationCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.novel.exception;
+
+/**
+ * 生成任务被拒绝异常（并发超限或队列已满）
+ */
+public class GenerationRejectedException extends RuntimeException {
+
+    public GenerationRejectedException(String message) {
+        super(message);
+    }
+
+    public GenerationRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -7,6 +7,8 @@ import com.novel.script.entity.VideoScriptLog;
 import com.novel.script.repository.VideoScriptEpisodeRepository;
 import com.novel.script.repository.VideoScriptLogRepository;
 import com.novel.script.repository.VideoScriptRepository;
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.ai.execution.GenerationHandle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,8 +37,11 @@ public class VideoScriptServiceImpl implements VideoScriptService {
     @Autowired
     private VideoScriptWorkflowEngine workflowEngine;
 
-    // 存储正在运行的工作流任务（scriptId -> Thread）
-    private final ConcurrentHashMap<Long, Thread> runningWorkflows = new ConcurrentHashMap<>();
+    @Autowired
+    private GenerationExecutor generationExecutor;
+
+    // 存储正在运行的工作流任务（scriptId -> 任务句柄）
+    private final ConcurrentHashMap<Long, GenerationHandle> runningWorkflows = new ConcurrentHashMap<>();
 
     @Override
     @Transactional
@@ -89,7 +94,7 @@ public class VideoScriptServiceImpl implements VideoScriptService {
         script.setStatus("WORKFLOW_RUNNING");
         scriptRepository.save(script);
 
-        Thread workflowThread = new Thread(() -> {
+        GenerationHandle workflow = generationExecutor.submit("video-script-workflow-" + scriptId, () -> {
             try {
                 workflowEngine.execute(scriptId);
             } catch (Exception e) {
@@ -102,13 +107,12 @@ public class VideoScriptServiceImpl implements VideoScriptService {
                     failed.setErrorMessage(e.getMessage());
                     scriptRepository.save(failed);
                 }
-            } finally {
-                runningWorkflows.remove(scriptId);
             }
-        }, "video-script-workflow-" + scriptId);
+        });
 
-        runningWorkflows.put(scriptId, workflowThread);
-        workflowThread.start();
+        runningWorkflows.put(scriptId, workflow);
+        // 任务结束后按句柄移除，不会误删重启后的新工作流
+        workflow.onDone(() -> runningWorkflows.remove(scriptId, workflow));
 
         logger.info("剧本工作流已启动: scriptId={}", scriptId);
     }
@@ -116,9 +120,8 @@ public class VideoScriptServiceImpl implements VideoScriptService {
     @Override
     @Transactional
     public void pauseWorkflow(Long scriptId) {
-        Thread t = runningWorkflows.remove(scriptId);
-        if (t != null && t.isAlive()) {
-            t.interrupt();
+        GenerationHandle workflow = runningWorkflows.remove(scriptId);
+        if (workflow != null && workflow.cancel()) {
             logger.info("剧本工作流已暂停: scriptId={}", scriptId);
         }
 
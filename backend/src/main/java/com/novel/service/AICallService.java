@@ -1,13 +1,15 @@
 package com.novel.service;
 
+import com.novel.ai.client.AICallTelemetry;
+import com.novel.ai.client.AIHttpClient;
+import com.novel.ai.client.SseDeltaParser;
+import com.novel.ai.execution.CancellationToken;
 import com.novel.domain.entity.AIModel;
 import com.novel.exception.InsufficientCreditsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -27,11 +29,11 @@ public class AICallService {
     @Autowired
     private SystemAIConfigService systemAIConfigService;
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private AIHttpClient aiHttpClient;
 
-    public AICallService() {
-        this.restTemplate = new RestTemplate();
-    }
+    @Autowired
+    private AICallTelemetry aiCallTelemetry;
 
     /**
      * AI调用结果
@@ -128,10 +130,6 @@ public class AICallService {
             }
             String url = baseUrl + "/chat/completions";
             logger.debug("AI API URL: {}", url);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
 
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", model.getModelId());
@@ -148,11 +146,11 @@ public class AICallService {
                 requestBody.put("temperature", model.getTemperature().doubleValue());
             }
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
             // 调用API - 使用 String 接收响应以便处理非JSON响应
-            ResponseEntity<String> rawResponse = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            String responseText = rawResponse.getBody();
+            String responseText;
+            try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin(taskDescription)) {
+                responseText = aiHttpClient.postForString(url, apiKey, requestBody, AIHttpClient.CallType.BLOCKING);
+            }
             
             if (responseText == null || responseText.isEmpty()) {
                 result.setSuccess(false);
@@ -275,9 +273,12 @@ public class AICallService {
                              String taskDescription, Consumer<String> onContent, Consumer<AICallResult> onComplete) {
         AICallResult result = new AICallResult();
         StringBuilder fullContent = new StringBuilder();
+        AIModel model = null;
+        BigDecimal frozenCost = null;
+        int inputChars = prompt.length();
 
         try {
-            AIModel model = systemAIConfigService.getModel(modelId);
+            model = systemAIConfigService.getModel(modelId);
             if (model == null) {
                 result.setSuccess(false);
                 result.setErrorMessage("模型不可用");
@@ -287,7 +288,6 @@ public class AICallService {
             result.setModelId(model.getModelId());
 
             // 预估消费并检查余额（按字数计算）
-            int inputChars = prompt.length();
             int estimatedOutputChars = maxTokens != null ? maxTokens * 2 : 8000;
             BigDecimal estimatedCost = systemAIConfigService.calculateCost(
                 model.getModelId(), inputChars, estimatedOutputChars);
@@ -298,6 +298,7 @@ public class AICallService {
 
             // 预扣费
             creditService.freezeForConsumption(userId, estimatedCost);
+            frozenCost = estimatedCost;
 
             Map<String, String> apiConfig = systemAIConfigService.getModelAPIConfig(model);
             String apiKey = apiConfig.get("apiKey");
@@ -305,6 +306,7 @@ public class AICallService {
 
             if (apiKey == null || apiKey.isEmpty()) {
                 creditService.cancelFreeze(userId, estimatedCost);
+                frozenCost = null;
                 result.setSuccess(false);
                 result.setErrorMessage("AI服务未配置");
                 onComplete.accept(result);
@@ -312,9 +314,6 @@ public class AICallService {
             }
 
             String url = baseUrl + "/chat/completions";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
 
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", model.getModelId());
@@ -332,70 +331,86 @@ public class AICallService {
                 requestBody.put("temperature", model.getTemperature().doubleValue());
             }
 
-            // 使用RestTemplate进行流式请求
-            restTemplate.execute(url, HttpMethod.POST,
-                request -> {
-                    request.getHeaders().addAll(headers);
-                    new com.fasterxml.jackson.databind.ObjectMapper()
-                        .writeValue(request.getBody(), requestBody);
-                },
-                response -> {
-                    try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                            new java.io.InputStreamReader(response.getBody()))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            if (line.startsWith("data: ") && !line.equals("data: [DONE]")) {
-                                String json = line.substring(6);
-                                try {
-                                    Map<String, Object> data = new com.fasterxml.jackson.databind.ObjectMapper()
-                                        .readValue(json, Map.class);
-                                    List<Map<String, Object>> choices = (List<Map<String, Object>>) data.get("choices");
-                                    if (choices != null && !choices.isEmpty()) {
-                                        Map<String, Object> delta = (Map<String, Object>) choices.get(0).get("delta");
-                                        if (delta != null && delta.containsKey("content")) {
-                                            String content = (String) delta.get("content");
-                                            fullContent.append(content);
-                                            onContent.accept(content);
-                                        }
-                                    }
-                                } catch (Exception e) {
-                                    // 忽略解析错误
-                                }
-                            }
+            // 使用共享连接池进行流式请求
+            try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin(taskDescription)) {
+                aiHttpClient.postForStream(url, apiKey, requestBody,
+                    body -> SseDeltaParser.parse(body, content -> {
+                        fullContent.append(content);
+                        try {
+                            onContent.accept(content);
+                        } catch (RuntimeException e) {
+                            // 忽略回调异常，继续读取以便准确计费
                         }
-                    }
-                    return null;
-                }
-            );
-
-            // 计算实际消费（按字数）
-            result.setContent(fullContent.toString());
-            result.setInputChars(inputChars);
-            result.setOutputChars(fullContent.length());
-
-            BigDecimal actualCost = systemAIConfigService.calculateCost(
-                model.getModelId(), result.getInputChars(), result.getOutputChars());
-            result.setCost(actualCost);
-
-            // 确认消费（使用模型显示名称）
-            String modelDisplayName = model.getDisplayName() != null ? model.getDisplayName() : model.getModelId();
-            creditService.confirmConsumption(userId, estimatedCost, actualCost, null,
-                modelDisplayName, result.getInputChars(), result.getOutputChars(), taskDescription);
+                        // 任务已取消（SSE 断开）时停止读取，按已输出部分结算
+                        return !CancellationToken.isCurrentCancelled();
+                    })
+                );
+                telemetryScope.recordOutput(fullContent.length());
+            }
 
-            result.setSuccess(true);
+            // 计算实际消费（按字数）并确认
+            BigDecimal toSettle = frozenCost;
+            frozenCost = null;
+            settleStream(result, userId, model, toSettle, inputChars, fullContent, taskDescription);
+            result.setSuccess(!CancellationToken.isCurrentCancelled());
+            if (!result.isSuccess()) {
+                result.setErrorMessage("生成已取消");
+            }
 
         } catch (InsufficientCreditsException e) {
             result.setSuccess(false);
             result.setErrorMessage(e.getMessage());
         } catch (Exception e) {
             result.setSuccess(false);
-            result.setErrorMessage("AI调用失败: " + e.getMessage());
-            logger.error("流式AI调用异常", e);
+            if (frozenCost != null && CancellationToken.isCurrentCancelled()) {
+                // 客户端断开导致上游请求被中止：按已输出部分结算
+                BigDecimal toSettle = frozenCost;
+                frozenCost = null;
+                settleStream(result, userId, model, toSettle, inputChars, fullContent, taskDescription);
+                result.setErrorMessage("生成已取消");
+            } else {
+                result.setErrorMessage("AI调用失败: " + e.getMessage());
+                logger.error("流式AI调用异常", e);
+            }
+        } finally {
+            if (frozenCost != null) {
+                // 失败时释放预扣
+                creditService.cancelFreeze(userId, frozenCost);
+            }
         }
 
         onComplete.accept(result);
     }
 
+    /**
+     * 按实际输出确认消费并释放预扣差额；取消时线程带中断标记，先清除再写库
+     */
+    private void settleStream(AICallResult result, Long userId, AIModel model, BigDecimal frozenCost,
+                              int inputChars, StringBuilder fullContent, String taskDescription) {
+        result.setContent(fullContent.toString());
+        result.setInputChars(inputChars);
+        result.setOutputChars(fullContent.length());
+
+        BigDecimal actualCost = systemAIConfigService.calculateCost(
+            model.getModelId(), result.getInputChars(), result.getOutputChars());
+        result.setCost(actualCost);
+
+        boolean interrupted = Thread.interrupted();
+        try {
+            // 确认消费（使用模型显示名称）
+            String modelDisplayName = model.getDisplayName() != null ? model.getDisplayName() : model.getModelId();
+            creditService.confirmConsumption(userId, frozenCost, actualCost, null,
+                modelDisplayName, result.getInputChars(), result.getOutputChars(), taskDescription);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (CancellationToken.isCurrentCancelled()) {
+            logger.info("🛑 客户端已断开，已中止上游生成，按已输出 {} 字结算", result.getOutputChars());
+        }
+    }
+
     /**
      * 检查用户是否有足够余额进行AI调用
      */
@@ -1,18 +1,16 @@
 package com.novel.service;
 
+import com.novel.ai.client.AICallTelemetry;
+import com.novel.ai.client.AIHttpClient;
+import com.novel.ai.client.SseDeltaParser;
 import com.novel.dto.AIConfigRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,6 +24,12 @@ public class AIManuscriptReviewService {
 
     private static final Logger logger = LoggerFactory.getLogger(AIManuscriptReviewService.class);
 
+    @Autowired
+    private AIHttpClient aiHttpClient;
+
+    @Autowired
+    private AICallTelemetry aiCallTelemetry;
+
     private static final String REVIEW_SYSTEM_PROMPT = buildReviewSystemPrompt();
 
     private static String buildReviewSystemPrompt() {
@@ -353,127 +357,50 @@ public class AIManuscriptReviewService {
             String url = aiConfig.getApiUrl();
             logger.info("📡 调用AI接口: {}, model: {}, stream: true", url, model);
             
-            // 使用OkHttp或者原生HttpURLConnection来精确控制流式读取
-            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-            requestFactory.setConnectTimeout(15000);
-            requestFactory.setReadTimeout(300000);
-            RestTemplate restTemplate = new RestTemplate(requestFactory);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            headers.set("Accept", "text/event-stream");
+            // 使用共享连接池进行流式读取
+            try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin("manuscript_review")) {
+                aiHttpClient.postForStream(url, apiKey, requestBody,
+                    responseStream -> {
+                        int[] chunkCount = {0};
+                        int[] totalChars = {0};
+                        try {
+                            boolean done = SseDeltaParser.parse(responseStream, contentChunk -> {
+                                // 发送JSON格式数据，包裹在content字段中
+                                Map<String, String> eventData = new HashMap<>();
+                                eventData.put("content", contentChunk);
+                                emitter.send(SseEmitter.event()
+                                    .name("message")
+                                    .data(eventData));
+                                chunkCount[0]++;
+                                totalChars[0] += contentChunk.length();
 
-            // 使用字节流而不是字符流，避免丢失换行符
-            restTemplate.execute(url, HttpMethod.POST, 
-                req -> {
-                    req.getHeaders().putAll(headers);
-                    req.getBody().write(new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsBytes(requestBody));
-                },
-                response -> {
-                    try {
-                        // 关键修改：使用字节流读取，保留所有原始字符
-                        java.io.InputStream inputStream = response.getBody();
-                        byte[] buffer = new byte[8192];
-                        StringBuilder lineBuffer = new StringBuilder();
-                        int chunkCount = 0;
-                        int totalChars = 0;
-                        
-                        while (true) {
-                            int bytesRead = inputStream.read(buffer);
-                            if (bytesRead == -1) break;
-                            
-                            // 将字节转换为字符串，保留所有字符包括\n
-                            String chunk = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
-                            lineBuffer.append(chunk);
-                            
-                            // 按行处理，但保留换行符
-                            String bufferContent = lineBuffer.toString();
-                            String[] lines = bufferContent.split("\n", -1);
-                            
-                            // 保留最后一个不完整的行
-                            lineBuffer = new StringBuilder();
-                            if (lines.length > 0) {
-                                lineBuffer.append(lines[lines.length - 1]);
-                            }
-                            
-                            // 处理完整的行
-                            for (int i = 0; i < lines.length - 1; i++) {
-                                String line = lines[i].trim();
-                                
-                                if (line.startsWith("data: ")) {
-                                    String data = line.substring(6);
-                                    if ("[DONE]".equals(data)) {
-                                        logger.info("📨 收到流式结束标记 [DONE]，共处理 {} 个chunk，总字符数: {}", chunkCount, totalChars);
-                                        inputStream.close();
-                                        emitter.complete();
-                                        return null;
-                                    }
-                                    
-                                    try {
-                                        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                                        @SuppressWarnings("unchecked")
-                                        Map<String, Object> json = mapper.readValue(data, Map.class);
-                                        
-                                        @SuppressWarnings("unchecked")
-                                        List<Map<String, Object>> choices = (List<Map<String, Object>>) json.get("choices");
-                                        
-                                        if (choices != null && !choices.isEmpty()) {
-                                            @SuppressWarnings("unchecked")
-                                            Map<String, Object> firstChoice = choices.get(0);
-                                            @SuppressWarnings("unchecked")
-                                            Map<String, Object> delta = (Map<String, Object>) firstChoice.get("delta");
-                                            
-                                            if (delta != null) {
-                                                String contentChunk = (String) delta.get("content");
-                                                if (contentChunk != null && !contentChunk.isEmpty()) {
-                                                    // 过滤掉 <think> 标签及其内容
-                                                    contentChunk = contentChunk.replaceAll("<think>.*?</think>", "");
-                                                    contentChunk = contentChunk.replaceAll("<think>.*", ""); // 处理未闭合的情况
-                                                    contentChunk = contentChunk.replaceAll(".*</think>", ""); // 处理跨chunk的结束标签
-                                                    
-                                                    if (!contentChunk.isEmpty()) {
-                                                        // 发送JSON格式数据，包裹在content字段中
-                                                        Map<String, String> eventData = new HashMap<>();
-                                                        eventData.put("content", contentChunk);
-                                                        emitter.send(SseEmitter.event()
-                                                            .name("message")
-                                                            .data(eventData));
-                                                        chunkCount++;
-                                                        totalChars += contentChunk.length();
-                                                        
-                                                        if (chunkCount == 1) {
-                                                            logger.info("✅ 开始接收流式数据");
-                                                        }
-                                                        
-                                                        // 调试：记录换行符数量
-                                                        if (chunkCount % 50 == 0) {
-                                                            int newlineCount = contentChunk.length() - contentChunk.replace("\n", "").length();
-                                                            logger.info("📊 Chunk #{}: 长度={}, 换行符数量={}", chunkCount, contentChunk.length(), newlineCount);
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    } catch (Exception e) {
-                                        logger.warn("⚠️ 解析流式响应失败: {}", e.getMessage());
-                                    }
+                                if (chunkCount[0] == 1) {
+                                    logger.info("✅ 开始接收流式数据");
                                 }
+
+                                // 调试：记录换行符数量
+                                if (chunkCount[0] % 50 == 0) {
+                                    int newlineCount = contentChunk.length() - contentChunk.replace("\n", "").length();
+                                    logger.info("📊 Chunk #{}: 长度={}, 换行符数量={}", chunkCount[0], contentChunk.length(), newlineCount);
+                                }
+                                return true;
+                            });
+
+                            if (done) {
+                                logger.info("📨 收到流式结束标记 [DONE]，共处理 {} 个chunk，总字符数: {}", chunkCount[0], totalChars[0]);
                             }
+                            emitter.complete();
+                            logger.info("✅ AI审稿完成，总chunk数: {}, 总字符数: {}", chunkCount[0], totalChars[0]);
+
+                        } catch (IOException e) {
+                            logger.error("❌ 读取流式响应失败", e);
+                            try {
+                                emitter.completeWithError(e);
+                            } catch (Exception ignored) {}
                         }
-                        
-                        inputStream.close();
-                        emitter.complete();
-                        logger.info("✅ AI审稿完成，总chunk数: {}, 总字符数: {}", chunkCount, totalChars);
-                        
-                    } catch (IOException e) {
-                        logger.error("❌ 读取流式响应失败", e);
-                        try {
-                            emitter.completeWithError(e);
-                        } catch (Exception ignored) {}
-                    }
-                    return null;
-                });
+                        return null;
+                    });
+            }
 
         } catch (Exception e) {
             logger.error("❌ AI审稿失败", e);
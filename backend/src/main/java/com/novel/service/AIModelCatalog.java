@@ -0,0 +1,142 @@
+package com.novel.service;
+
+import com.novel.domain.entity.AIModel;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 模型目录与计价快照（不可变）
+ *
+ * 由 {@link SystemAIConfigService} 整体加载并整体替换，读取方无需加锁。
+ * 计价因子在加载时预先算好：
+ * 原公式 (输入/10 + 输出) × 倍率 = 输入 × (倍率/10) + 输出 × 倍率，计算时只剩乘加
+ */
+public final class AIModelCatalog {
+
+    private static final BigDecimal TEN = BigDecimal.TEN;
+
+    private final String version;
+    private final long loadedAt;
+    private final Map<String, AIModel> modelsById;
+    private final Map<String, PriceFactor> pricesById;
+    private final List<AIModel> availableModels;
+    private final AIModel defaultModel;
+    private final Map<String, String> configs;
+
+    AIModelCatalog(String version, List<AIModel> models, Map<String, String> configs) {
+        this.version = version;
+        this.loadedAt = System.currentTimeMillis();
+
+        List<AIModel> available = models.stream()
+            .filter(m -> Boolean.TRUE.equals(m.getAvailable()))
+            .sorted(Comparator.comparing(m -> m.getSortOrder() != null ? m.getSortOrder() : 0))
+            .collect(Collectors.toList());
+        Map<String, AIModel> byId = new HashMap<>();
+        Map<String, PriceFactor> prices = new HashMap<>();
+        for (AIModel model : available) {
+            if (model.getModelId() != null && !byId.containsKey(model.getModelId())) {
+                byId.put(model.getModelId(), model);
+                prices.put(model.getModelId(), new PriceFactor(model.getCostMultiplier()));
+            }
+        }
+        this.availableModels = Collections.unmodifiableList(available);
+        this.modelsById = Collections.unmodifiableMap(byId);
+        this.pricesById = Collections.unmodifiableMap(prices);
+        this.defaultModel = resolveDefault(available);
+        this.configs = Collections.unmodifiableMap(new HashMap<>(configs));
+    }
+
+    /**
+     * 按 modelId 查找可用模型，不存在返回 null
+     */
+    public AIModel getModel(String modelId) {
+        return modelId != null ? modelsById.get(modelId) : null;
+    }
+
+    /**
+     * 按 modelId 查找计价因子，不存在时回退到默认模型
+     */
+    public PriceFactor getPrice(String modelId) {
+        PriceFactor price = modelId != null ? pricesById.get(modelId) : null;
+        if (price == null && defaultModel != null) {
+            price = pricesById.get(defaultModel.getModelId());
+        }
+        return price;
+    }
+
+    public AIModel getDefaultModel() {
+        return defaultModel;
+    }
+
+    public List<AIModel> getAvailableModels() {
+        return availableModels;
+    }
+
+    public String getConfig(String key) {
+        return configs.get(key);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    public int size() {
+        return modelsById.size();
+    }
+
+    /**
+     * 默认模型：标记为默认的可用模型，否则取单价最低的可用模型（与原查询一致）
+     */
+    private static AIModel resolveDefault(List<AIModel> available) {
+        for (AIModel model : available) {
+            if (Boolean.TRUE.equals(model.getIsDefault())) {
+                return model;
+            }
+        }
+        return available.stream()
+            .min(Comparator.comparing(m -> m.getCostPer1k() != null ? m.getCostPer1k() : 0.0))
+            .orElse(null);
+    }
+
+    /**
+     * 单个模型的预计算计价因子
+     */
+    public static final class PriceFactor {
+        private final BigDecimal perInputChar;
+        private final BigDecimal perOutputChar;
+
+        PriceFactor(BigDecimal multiplier) {
+            BigDecimal m = multiplier != null ? multiplier : BigDecimal.ONE;
+            this.perOutputChar = m;
+            this.perInputChar = m.divide(TEN);
+        }
+
+        /**
+         * 字数点 = 输入 × (倍率/10) + 输出 × 倍率，保留两位小数
+         */
+        public BigDecimal cost(int inputTokens, int outputTokens) {
+            return perInputChar.multiply(BigDecimal.valueOf(inputTokens))
+                .add(perOutputChar.multiply(BigDecimal.valueOf(outputTokens)))
+                .setScale(2, RoundingMode.HALF_UP);
+        }
+
+        public BigDecimal getPerInputChar() {
+            return perInputChar;
+        }
+
+        public BigDecimal getPerOutputChar() {
+            return perOutputChar;
+        }
+    }
+}
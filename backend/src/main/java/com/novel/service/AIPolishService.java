@@ -1,17 +1,13 @@
 package com.novel.service;
 
+import com.novel.ai.client.AICallTelemetry;
+import com.novel.ai.client.AIHttpClient;
 import com.novel.dto.AIConfigRequest;
+import com.novel.exception.AIHttpException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -27,6 +23,12 @@ public class AIPolishService {
 
     private static final Logger logger = LoggerFactory.getLogger(AIPolishService.class);
 
+    @Autowired
+    private AIHttpClient aiHttpClient;
+
+    @Autowired
+    private AICallTelemetry aiCallTelemetry;
+
     /**
      * 润色选中的文本片段
      *
@@ -123,10 +125,6 @@ public class AIPolishService {
     private String callAI(AIConfigRequest aiConfig, String systemPrompt, String userMessage) {
         try {
             // 构建请求
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(aiConfig.getApiKey());
-            
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", aiConfig.getModel());
             requestBody.put("max_tokens", 8000);
@@ -146,29 +144,18 @@ public class AIPolishService {
             
             requestBody.put("messages", messages);
             
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            
             // 使用 getApiUrl() 方法获取完整的API地址
             String apiUrl = aiConfig.getApiUrl();
             
             logger.info("🔄 调用AI润色接口: {}, model: {}", apiUrl, aiConfig.getModel());
             
-            // 创建RestTemplate
-            RestTemplate restTemplate = new RestTemplate();
-            
-            // 发送请求并获取响应
-            ResponseEntity<Map> responseEntity = restTemplate.postForEntity(
-                apiUrl, entity, Map.class);
-            
-            // 检查HTTP状态码
-            if (!responseEntity.getStatusCode().is2xxSuccessful()) {
-                logger.error("❌ AI接口返回错误状态码: {}", responseEntity.getStatusCode());
-                throw new RuntimeException("AI接口返回错误状态码: " + responseEntity.getStatusCode());
+            // 通过共享连接池发送请求并获取响应
+            Map<String, Object> response;
+            try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin("ai_polish")) {
+                response = aiHttpClient.postForMap(
+                    apiUrl, aiConfig.getApiKey(), requestBody, AIHttpClient.CallType.BLOCKING);
             }
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = responseEntity.getBody();
-            
             if (response == null) {
                 logger.error("❌ AI接口返回空响应");
                 throw new RuntimeException("AI接口返回空响应");
@@ -211,19 +198,16 @@ public class AIPolishService {
             logger.info("✅ AI润色接口调用成功，返回内容长度: {}", content.length());
             return content;
             
-        } catch (HttpClientErrorException e) {
-            logger.error("❌ AI接口HTTP客户端错误: status={}, body={}", 
-                e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("AI接口调用失败(HTTP " + e.getStatusCode() + "): " + 
-                e.getResponseBodyAsString());
-        } catch (HttpServerErrorException e) {
-            logger.error("❌ AI接口HTTP服务器错误: status={}, body={}", 
-                e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("AI接口服务器错误(HTTP " + e.getStatusCode() + "): " + 
-                e.getResponseBodyAsString());
-        } catch (ResourceAccessException e) {
-            logger.error("❌ AI接口网络连接错误", e);
-            throw new RuntimeException("无法连接到AI服务: " + e.getMessage());
+        } catch (AIHttpException e) {
+            if (e.isNetworkError()) {
+                logger.error("❌ AI接口网络连接错误", e);
+                throw new RuntimeException("无法连接到AI服务: " + e.getMessage());
+            }
+            logger.error("❌ AI接口HTTP错误: status={}, body={}", 
+                e.getStatusCode(), e.getResponseBody());
+            String prefix = e.isServerError() ? "AI接口服务器错误(HTTP " : "AI接口调用失败(HTTP ";
+            throw new RuntimeException(prefix + e.getStatusCode() + "): " + 
+                e.getResponseBody());
         } catch (Exception e) {
             logger.error("❌ AI接口调用异常", e);
             throw new RuntimeException("AI接口调用失败: " + e.getMessage());
@@ -2,15 +2,13 @@ package com.novel.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.ai.client.AICallTelemetry;
+import com.novel.ai.client.AIHttpClient;
 import com.novel.dto.AIConfigRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
 import java.util.regex.Matcher;
@@ -24,6 +22,13 @@ import java.util.regex.Pattern;
 public class AIProofreadService {
 
     private static final Logger logger = LoggerFactory.getLogger(AIProofreadService.class);
+
+    @Autowired
+    private AIHttpClient aiHttpClient;
+
+    @Autowired
+    private AICallTelemetry aiCallTelemetry;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -231,10 +236,6 @@ public class AIProofreadService {
      */
     private String callAI(AIConfigRequest aiConfig, String systemPrompt, String userMessage) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(aiConfig.getApiKey());
-            
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", aiConfig.getModel());
             requestBody.put("max_tokens", 4000);
@@ -254,22 +255,16 @@ public class AIProofreadService {
             
             requestBody.put("messages", messages);
             
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            
             String apiUrl = aiConfig.getApiUrl();
             
             logger.info("🔄 调用AI纠错接口: {}, model: {}", apiUrl, aiConfig.getModel());
             
-            RestTemplate restTemplate = new RestTemplate();
-            ResponseEntity<Map> responseEntity = restTemplate.postForEntity(apiUrl, entity, Map.class);
-            
-            if (!responseEntity.getStatusCode().is2xxSuccessful()) {
-                throw new RuntimeException("AI接口返回错误状态码: " + responseEntity.getStatusCode());
+            Map<String, Object> response;
+            try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin("ai_proofread")) {
+                response = aiHttpClient.postForMap(
+                    apiUrl, aiConfig.getApiKey(), requestBody, AIHttpClient.CallType.BLOCKING);
             }
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = responseEntity.getBody();
-            
             if (response == null || response.containsKey("error")) {
                 throw new RuntimeException("AI接口返回错误");
             }
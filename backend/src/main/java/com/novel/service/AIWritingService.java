@@ -7,27 +7,28 @@ import com.novel.domain.entity.AITask.AITaskStatus;
 import com.novel.domain.entity.User;
 import com.novel.dto.AITaskDto;
 import com.novel.common.security.AuthUtils;
+import com.novel.exception.GenerationCancelledException;
 import com.novel.exception.InsufficientCreditsException;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.novel.config.AIClientConfig;
+import com.novel.ai.client.AICallTelemetry;
+import com.novel.ai.client.AIHttpClient;
+import com.novel.ai.client.SseDeltaParser;
+import com.novel.ai.execution.CancellationToken;
+import com.novel.ai.cache.AIResponseCache;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.http.HttpMethod;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /**
  * AI写作服务
@@ -43,11 +44,14 @@ public class AIWritingService {
      * 任务类型到友好描述的映射
      */
     private static final Map<String, String> TYPE_DESCRIPTIONS = new HashMap<>();
+
+    private static final Pattern TRUNCATED_FINISH = Pattern.compile("\"finish_reason\"\\s*:\\s*\"length\"");
     static {
         TYPE_DESCRIPTIONS.put("chapter_writing", "章节内容生成");
         TYPE_DESCRIPTIONS.put("content_summarization", "章节概要生成");
         TYPE_DESCRIPTIONS.put("core_state_extraction", "核心状态抽取");
         TYPE_DESCRIPTIONS.put("entity_extraction", "实体关系抽取");
+        TYPE_DESCRIPTIONS.put("chapter_digest", "章节合并抽取");
         TYPE_DESCRIPTIONS.put("chapter_revision", "章节修订");
         TYPE_DESCRIPTIONS.put("chapter_optimization", "章节优化");
         TYPE_DESCRIPTIONS.put("chapter_rewrite", "章节重写");
@@ -100,6 +104,15 @@ public class AIWritingService {
     @Autowired
     private SystemAIConfigService systemAIConfigService;
 
+    @Autowired
+    private AIHttpClient aiHttpClient;
+
+    @Autowired
+    private AIResponseCache aiResponseCache;
+
+    @Autowired
+    private AICallTelemetry aiCallTelemetry;
+
     /**
      * 开始AI写作流程
      */
@@ -153,8 +166,16 @@ public class AIWritingService {
      * @return 生成的内容
      */
     public String generateContent(String prompt, String type) {
+        return generateContent(prompt, type, (Predicate<String>) null);
+    }
+
+    /**
+     * 通用内容生成方法（抽取/概要类调用可走响应缓存）
+     * @param cacheValidator 调用方对响应的解析校验，通过才写入缓存；null 表示不走缓存
+     */
+    public String generateContent(String prompt, String type, Predicate<String> cacheValidator) {
         logger.info("开始生成内容，类型: {}", type);
-        return callAIWithType(prompt, type);
+        return callAIWithType(prompt, type, cacheValidator);
     }
 
     /**
@@ -165,6 +186,15 @@ public class AIWritingService {
      * @return 生成的完整内容
      */
     public String generateContent(String prompt, String type, com.novel.dto.AIConfigRequest aiConfig) {
+        return generateContent(prompt, type, aiConfig, null);
+    }
+
+    /**
+     * 非流式调用AI服务（带AI配置，抽取/概要类调用可走响应缓存）
+     * @param cacheValidator 调用方对响应的解析校验，通过才写入缓存；null 表示不走缓存
+     */
+    public String generateContent(String prompt, String type, com.novel.dto.AIConfigRequest aiConfig,
+                                  Predicate<String> cacheValidator) {
         logger.info("开始生成内容（带AI配置），类型: {}", type);
 
         // 获取当前用户ID
@@ -219,31 +249,29 @@ public class AIWritingService {
         requestBody.put("messages", messages);
 
         // 发送HTTP请求
-        try {
+        try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin(type)) {
             String url = aiConfig.getApiUrl();
-            logger.info("🌐 调用AI接口（非流式）: {}", url);
 
-            // 使用带超时配置的 RestTemplate（连接30秒，读取5分钟）
-            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-            requestFactory.setConnectTimeout(30000);
-            requestFactory.setReadTimeout(300000);
-            RestTemplate restTemplate = new RestTemplate(requestFactory);
+            // 抽取/概要类调用：同一用户同样的请求直接复用已校验的缓存结果，不再调用也不再扣费
+            String cacheKey = cacheValidator != null
+                ? aiResponseCache.keyFor(type, url, apiKey, userId, requestBody) : null;
+            String cached = aiResponseCache.get(type, cacheKey, cacheValidator);
+            if (cached != null) {
+                logger.info("♻️ 命中AI响应缓存，类型: {}, 长度: {} 字符", type, cached.length());
+                return cached;
+            }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
+            logger.info("🌐 调用AI接口（非流式）: {}", url);
 
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = (ResponseEntity<Map<String, Object>>)
-                    (ResponseEntity<?>) restTemplate.postForEntity(url, requestEntity, Map.class);
+            // 使用共享连接池（普通请求读超时5分钟）
+            Map<String, Object> responseBody = aiHttpClient.postForMap(url, apiKey, requestBody, AIHttpClient.CallType.BLOCKING);
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
+            if (responseBody != null) {
                 @SuppressWarnings("unchecked")
                 List<Map<String, Object>> choices = (List<Map<String, Object>>) responseBody.get("choices");
                 if (choices != null && !choices.isEmpty()) {
                     Map<String, Object> firstChoice = choices.get(0);
+                    boolean truncated = "length".equals(firstChoice.get("finish_reason"));
                     @SuppressWarnings("unchecked")
                     Map<String, Object> messageObj = (Map<String, Object>) firstChoice.get("message");
                     if (messageObj != null) {
@@ -252,6 +280,7 @@ public class AIWritingService {
 
                         // 计算实际消费并扣费
                         int outputTokens = content != null ? content.length() : 0;
+                        telemetryScope.recordOutput(outputTokens);
                         if (userId != null && outputTokens > 0) {
                             BigDecimal actualCost = systemAIConfigService.calculateCost(model, inputTokens, outputTokens);
                             boolean deducted = creditService.consume(userId, actualCost, null, model,
@@ -264,6 +293,10 @@ public class AIWritingService {
                             }
                         }
 
+                        // 被 max_tokens 截断的响应不缓存，否则重试会一直拿到同一份残缺结果
+                        if (!truncated) {
+                            aiResponseCache.putIfValid(type, cacheKey, content, cacheValidator);
+                        }
                         return content;
                     }
                 }
@@ -345,117 +378,40 @@ public class AIWritingService {
         final String finalModel = model;
 
         // 发送HTTP请求（流式读取）
-        try {
+        try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin(type)) {
             String url = aiConfigRequest.getApiUrl();
             logger.info("🌐 调用AI接口: {}", url);
 
-            // 使用RestTemplate进行流式读取
-            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-            requestFactory.setConnectTimeout(30000); // 连接超时30秒
-            requestFactory.setReadTimeout(600000); // 读取超时10分钟（有些模型写得慢）
-            RestTemplate restTemplate = new RestTemplate(requestFactory);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            // 流式接口必须设置Accept为text/event-stream
-            headers.set("Accept", "text/event-stream");
-
-
-            // 使用ResponseExtractor进行流式读取
-            restTemplate.execute(url, HttpMethod.POST,
-                    req -> {
-                        req.getHeaders().putAll(headers);
-                        req.getBody().write(new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsBytes(requestBody));
-                    },
-                    response -> {
-                        try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                                new java.io.InputStreamReader(response.getBody(), java.nio.charset.StandardCharsets.UTF_8))) {
-
-                            String line;
-                            boolean connectionClosed = false;
-                            while ((line = reader.readLine()) != null && !connectionClosed) {
-                                line = line.trim();
-                                if (line.startsWith("data: ")) {
-                                    String data = line.substring(6);
-                                    if ("[DONE]".equals(data)) {
-                                        break; // 流式响应结束
-                                    }
-
-                                    try {
-                                        // 解析JSON数据
-                                        com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
-                                        java.util.Map dataMap = om.readValue(data, java.util.Map.class);
-
-                                        Object choicesObj = dataMap.get("choices");
-                                        if (choicesObj instanceof java.util.List) {
-                                            java.util.List choices = (java.util.List) choicesObj;
-                                            if (!choices.isEmpty() && choices.get(0) instanceof java.util.Map) {
-                                                java.util.Map firstChoice = (java.util.Map) choices.get(0);
-                                                Object deltaObj = firstChoice.get("delta");
-                                                if (deltaObj instanceof java.util.Map) {
-                                                    Object content = ((java.util.Map) deltaObj).get("content");
-                                                    if (content instanceof String && !((String) content).isEmpty()) {
-                                                        String chunk = (String) content;
-                                                        // 过滤掉 <think> 标签及其内容
-                                                        chunk = chunk.replaceAll("<think>.*?</think>", "");
-                                                        chunk = chunk.replaceAll("<think>.*", ""); // 处理未闭合的情况
-                                                        chunk = chunk.replaceAll(".*</think>", ""); // 处理跨chunk的结束标签
-
-                                                        if (!chunk.isEmpty()) {
-                                                            // 累积输出内容用于计费
-                                                            outputBuilder.append(chunk);
-                                                            // 回调给消费者 (保留换行符，不要trim)
-                                                            try {
-                                                                chunkConsumer.accept(chunk);
-                                                            } catch (Exception ce) {
-                                                                // 连接已断开，停止处理后续数据
-                                                                if (ce.getMessage() != null && ce.getMessage().contains("already completed")) {
-                                                                    logger.warn("⚠️ 客户端连接已断开，停止发送数据");
-                                                                    connectionClosed = true;
-                                                                    break;
-                                                                }
-                                                                throw ce; // 其他异常继续抛出
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    } catch (Exception e) {
-                                        // 如果是连接断开，停止处理
-                                        if (e.getMessage() != null && e.getMessage().contains("already completed")) {
-                                            logger.warn("⚠️ 客户端连接已断开，停止处理数据");
-                                            connectionClosed = true;
-                                            break;
-                                        }
-                                        // 解析失败，跳过这一行
-                                        logger.warn("解析流式响应数据失败: {}", e.getMessage());
-                                    }
-                                }
+            // 使用共享连接池进行流式读取（读超时10分钟，有些模型写得慢）
+            aiHttpClient.postForStream(url, apiKey, requestBody,
+                    body -> SseDeltaParser.parse(body, chunk -> {
+                        // 累积输出内容用于计费
+                        outputBuilder.append(chunk);
+                        // 回调给消费者 (保留换行符，不要trim)
+                        try {
+                            chunkConsumer.accept(chunk);
+                        } catch (RuntimeException ce) {
+                            // emitter 已结束，客户端不再接收
+                            if (ce instanceof IllegalStateException) {
+                                logger.warn("⚠️ 客户端连接已断开，停止发送数据");
+                                return false;
                             }
+                            logger.warn("处理流式数据失败: {}", ce.getMessage());
                         }
-                        return null;
-                    });
-
-            // 计算实际消费并扣费
-            int outputTokens = outputBuilder.length();
-            if (finalUserId != null && outputTokens > 0) {
-                BigDecimal actualCost = systemAIConfigService.calculateCost(finalModel, finalInputTokens, outputTokens);
-                boolean deducted = creditService.consume(finalUserId, actualCost, null, finalModel,
-                        finalInputTokens, outputTokens, getTypeDescription(type));
-                if (deducted) {
-                    logger.info("💰 扣费成功: {} 点, 用户ID: {}, 输入: {} tokens, 输出: {} tokens",
-                            actualCost, finalUserId, finalInputTokens, outputTokens);
-                } else {
-                    logger.warn("⚠️ 扣费失败，用户ID: {}, 金额: {}", finalUserId, actualCost);
-                }
-            }
+                        // 任务已取消（SSE 断开）时停止读取
+                        return !CancellationToken.isCurrentCancelled();
+                    }));
 
+            telemetryScope.recordOutput(outputBuilder.length());
         } catch (Exception e) {
-            logger.error("流式AI调用失败: {}", e.getMessage(), e);
-            throw new RuntimeException("流式AI调用失败: " + e.getMessage());
+            if (!CancellationToken.isCurrentCancelled()) {
+                logger.error("流式AI调用失败: {}", e.getMessage(), e);
+                throw new RuntimeException("流式AI调用失败: " + e.getMessage());
+            }
         }
+
+        // 计算实际消费并扣费（客户端断开时按已输出部分结算）
+        settleStreamOutput(finalUserId, finalModel, finalInputTokens, outputBuilder.length(), type);
     }
 
     /**
@@ -521,9 +477,9 @@ public class AIWritingService {
     /**
      * 根据类型调用AI服务
      */
-    private String callAIWithType(String prompt, String type) {
+    private String callAIWithType(String prompt, String type, Predicate<String> cacheValidator) {
         try {
-            return callRealAIWithType(prompt, type);
+            return callRealAIWithType(prompt, type, cacheValidator);
         } catch (Exception e) {
             logger.error("AI服务调用失败，类型: {}", type, e);
             throw new RuntimeException("AI服务调用失败: " + e.getMessage(), e);
@@ -534,13 +490,13 @@ public class AIWritingService {
      * 调用真实AI服务
      */
     private String callRealAI(String prompt) throws Exception {
-        return callRealAIWithType(prompt, "default");
+        return callRealAIWithType(prompt, "default", null);
     }
 
     /**
      * 根据类型调用真实AI服务
      */
-    private String callRealAIWithType(String prompt, String type) throws Exception {
+    private String callRealAIWithType(String prompt, String type, Predicate<String> cacheValidator) throws Exception {
         String baseUrl = aiConfig.getBaseUrl();
         String apiKey = aiConfig.getApiKey();
         String model = aiConfig.getDefaultModel();
@@ -566,29 +522,34 @@ public class AIWritingService {
         messages.add(message);
         requestBody.put("messages", messages);
 
-        // 发送HTTP请求（设置超时，避免大回复时读超时/断开）
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-        requestFactory.setConnectTimeout(30000); // 连接超时30秒
-        requestFactory.setReadTimeout(600000); // 读取超时10分钟（有些模型写得慢）
-        RestTemplate restTemplate = new RestTemplate(requestFactory);
-        // 确保支持 text/plain 与 JSON
-        restTemplate.getMessageConverters().add(0, new org.springframework.http.converter.StringHttpMessageConverter(java.nio.charset.StandardCharsets.UTF_8));
-        restTemplate.getMessageConverters().add(new org.springframework.http.converter.json.MappingJackson2HttpMessageConverter());
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        headers.setAccept(java.util.Arrays.asList(MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN));
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
+        // 发送HTTP请求（共享连接池，长耗时读超时，避免大回复时读超时/断开）
         String url = baseUrl + "/v1/chat/completions";
-        ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
+        String cacheKey = cacheValidator != null
+            ? aiResponseCache.keyFor(type, url, apiKey, AuthUtils.getCurrentUserId(), requestBody) : null;
+        String cached = aiResponseCache.get(type, cacheKey, cacheValidator);
+        if (cached != null) {
+            logger.info("♻️ 命中AI响应缓存，类型: {}, 长度: {} 字符", type, cached.length());
+            return cached;
+        }
+        try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin(type)) {
+            String body = aiHttpClient.postForString(url, apiKey, requestBody, AIHttpClient.CallType.LONG_BLOCKING);
+            String content = extractContent(body);
+            telemetryScope.recordOutput(content.length());
+            // 被 max_tokens 截断的响应不缓存
+            if (body == null || !TRUNCATED_FINISH.matcher(body).find()) {
+                aiResponseCache.putIfValid(type, cacheKey, content, cacheValidator);
+            }
+            return content;
+        }
+    }
+
+    /**
+     * 从非流式响应文本中提取正文
+     */
+    private String extractContent(String body) {
 
-        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-            String body = response.getBody();
-            MediaType ct = response.getHeaders().getContentType();
-            logger.info("AI响应content-type={}, length={}", ct, body.length());
+        if (body != null) {
+            logger.info("AI响应length={}", body.length());
 
             // 先尝试按JSON解析（有些服务虽然是text/plain但实际返回JSON）
             try {
@@ -631,7 +592,7 @@ public class AIWritingService {
             return body;
         }
 
-        throw new RuntimeException("AI服务响应异常，状态码: " + response.getStatusCode());
+        throw new RuntimeException("AI服务响应异常：返回内容为空");
     }
 
     /**
@@ -757,6 +718,15 @@ public class AIWritingService {
      * @return 生成的完整内容
      */
     public String generateContentWithMessages(List<Map<String, String>> messages, String type, com.novel.dto.AIConfigRequest aiConfig) {
+        return generateContentWithMessages(messages, type, aiConfig, null);
+    }
+
+    /**
+     * 非流式调用AI服务（支持messages列表，抽取/概要类调用可走响应缓存）
+     * @param cacheValidator 调用方对响应的解析校验，通过才写入缓存；null 表示不走缓存
+     */
+    public String generateContentWithMessages(List<Map<String, String>> messages, String type,
+                                              com.novel.dto.AIConfigRequest aiConfig, Predicate<String> cacheValidator) {
         logger.info("开始生成内容（messages模式），类型: {}, messages数量: {}", type, messages.size());
 
         // 获取当前用户ID
@@ -812,31 +782,29 @@ public class AIWritingService {
         requestBody.put("messages", messages);
 
         // 发送HTTP请求
-        try {
+        try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin(type)) {
             String url = aiConfig.getApiUrl();
-            logger.info("🌐 调用AI接口（非流式，messages模式）: {}", url);
 
-            // 使用带超时配置的 RestTemplate（连接30秒，读取5分钟）
-            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-            requestFactory.setConnectTimeout(30000);
-            requestFactory.setReadTimeout(300000);
-            RestTemplate restTemplate = new RestTemplate(requestFactory);
+            // 抽取/概要类调用：同一用户同样的请求直接复用已校验的缓存结果，不再调用也不再扣费
+            String cacheKey = cacheValidator != null
+                ? aiResponseCache.keyFor(type, url, apiKey, userId, requestBody) : null;
+            String cached = aiResponseCache.get(type, cacheKey, cacheValidator);
+            if (cached != null) {
+                logger.info("♻️ 命中AI响应缓存，类型: {}, 长度: {} 字符", type, cached.length());
+                return cached;
+            }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
+            logger.info("🌐 调用AI接口（非流式，messages模式）: {}", url);
 
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = (ResponseEntity<Map<String, Object>>)
-                    (ResponseEntity<?>) restTemplate.postForEntity(url, requestEntity, Map.class);
+            // 使用共享连接池（普通请求读超时5分钟）
+            Map<String, Object> responseBody = aiHttpClient.postForMap(url, apiKey, requestBody, AIHttpClient.CallType.BLOCKING);
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
+            if (responseBody != null) {
                 @SuppressWarnings("unchecked")
                 List<Map<String, Object>> choices = (List<Map<String, Object>>) responseBody.get("choices");
                 if (choices != null && !choices.isEmpty()) {
                     Map<String, Object> firstChoice = choices.get(0);
+                    boolean truncated = "length".equals(firstChoice.get("finish_reason"));
                     @SuppressWarnings("unchecked")
                     Map<String, Object> messageObj = (Map<String, Object>) firstChoice.get("message");
                     if (messageObj != null) {
@@ -845,6 +813,7 @@ public class AIWritingService {
 
                         // 计算实际消费并扣费
                         int outputTokens = content != null ? content.length() : 0;
+                        telemetryScope.recordOutput(outputTokens);
                         if (userId != null && outputTokens > 0) {
                             BigDecimal actualCost = systemAIConfigService.calculateCost(model, inputTokens, outputTokens);
                             boolean deducted = creditService.consume(userId, actualCost, null, model,
@@ -857,6 +826,10 @@ public class AIWritingService {
                             }
                         }
 
+                        // 被 max_tokens 截断的响应不缓存，否则重试会一直拿到同一份残缺结果
+                        if (!truncated) {
+                            aiResponseCache.putIfValid(type, cacheKey, content, cacheValidator);
+                        }
                         return content;
                     }
                 }
@@ -954,117 +927,71 @@ public class AIWritingService {
         final String finalModel = model;
 
         // 发送HTTP请求（流式读取）
-        try {
+        try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin(type)) {
             String url = aiConfig.getApiUrl();
             logger.info("🌐 调用AI流式接口（messages模式）: {}", url);
 
-            // 使用RestTemplate进行流式读取
-            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-            requestFactory.setConnectTimeout(30000); // 连接超时30秒
-            requestFactory.setReadTimeout(600000); // 读取超时10分钟（有些模型写得慢）
-            RestTemplate restTemplate = new RestTemplate(requestFactory);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            // 流式接口必须设置Accept为text/event-stream
-            headers.set("Accept", "text/event-stream");
-
-            // 使用ResponseExtractor进行流式读取
-            restTemplate.execute(url, HttpMethod.POST,
-                    req -> {
-                        req.getHeaders().putAll(headers);
-                        req.getBody().write(new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsBytes(requestBody));
-                    },
-                    response -> {
-                        try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                                new java.io.InputStreamReader(response.getBody(), java.nio.charset.StandardCharsets.UTF_8))) {
-
-                            String line;
-                            boolean connectionClosed = false;
-                            while ((line = reader.readLine()) != null && !connectionClosed) {
-                                line = line.trim();
-                                if (line.startsWith("data: ")) {
-                                    String data = line.substring(6);
-                                    if ("[DONE]".equals(data)) {
-                                        break; // 流式响应结束
-                                    }
-
-                                    try {
-                                        // 解析JSON数据
-                                        com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
-                                        java.util.Map dataMap = om.readValue(data, java.util.Map.class);
-
-                                        Object choicesObj = dataMap.get("choices");
-                                        if (choicesObj instanceof java.util.List) {
-                                            java.util.List choices = (java.util.List) choicesObj;
-                                            if (!choices.isEmpty() && choices.get(0) instanceof java.util.Map) {
-                                                java.util.Map firstChoice = (java.util.Map) choices.get(0);
-                                                Object deltaObj = firstChoice.get("delta");
-                                                if (deltaObj instanceof java.util.Map) {
-                                                    Object content = ((java.util.Map) deltaObj).get("content");
-                                                    if (content instanceof String && !((String) content).isEmpty()) {
-                                                        String chunk = (String) content;
-                                                        // 过滤掉 <think> 标签及其内容
-                                                        chunk = chunk.replaceAll("<think>.*?</think>", "");
-                                                        chunk = chunk.replaceAll("<think>.*", ""); // 处理未闭合的情况
-                                                        chunk = chunk.replaceAll(".*</think>", ""); // 处理跨chunk的结束标签
-
-                                                        if (!chunk.isEmpty()) {
-                                                            // 累积输出内容用于计费
-                                                            outputBuilder.append(chunk);
-                                                            // 调用回调处理chunk (保留换行符，不要trim)
-                                                            try {
-                                                                chunkConsumer.accept(chunk);
-                                                            } catch (Exception ce) {
-                                                                // 连接已断开，停止处理后续数据
-                                                                if (ce.getMessage() != null && ce.getMessage().contains("already completed")) {
-                                                                    logger.warn("⚠️ 客户端连接已断开，停止发送数据");
-                                                                    connectionClosed = true;
-                                                                    break;
-                                                                }
-                                                                throw ce; // 其他异常继续抛出
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    } catch (Exception e) {
-                                        // 如果是连接断开，停止处理
-                                        if (e.getMessage() != null && e.getMessage().contains("already completed")) {
-                                            logger.warn("⚠️ 客户端连接已断开，停止处理数据");
-                                            connectionClosed = true;
-                                            break;
-                                        }
-                                        logger.warn("解析流式数据失败: {}", e.getMessage());
-                                    }
-                                }
+            // 使用共享连接池进行流式读取（读超时10分钟，有些模型写得慢）
+            aiHttpClient.postForStream(url, apiKey, requestBody,
+                    body -> SseDeltaParser.parse(body, chunk -> {
+                        // 累积输出内容用于计费
+                        outputBuilder.append(chunk);
+                        // 回调给消费者 (保留换行符，不要trim)
+                        try {
+                            chunkConsumer.accept(chunk);
+                        } catch (RuntimeException ce) {
+                            // emitter 已结束，客户端不再接收
+                            if (ce instanceof IllegalStateException) {
+                                logger.warn("⚠️ 客户端连接已断开，停止发送数据");
+                                return false;
                             }
+                            logger.warn("处理流式数据失败: {}", ce.getMessage());
                         }
-                        return null;
-                    }
-            );
-
-            // 计算实际消费并扣费
-            int outputTokens = outputBuilder.length();
-            if (finalUserId != null && outputTokens > 0) {
-                BigDecimal actualCost = systemAIConfigService.calculateCost(finalModel, finalInputTokens, outputTokens);
-                boolean deducted = creditService.consume(finalUserId, actualCost, null, finalModel,
-                        finalInputTokens, outputTokens, getTypeDescription(type));
+                        // 任务已取消（SSE 断开）时停止读取
+                        return !CancellationToken.isCurrentCancelled();
+                    }));
+
+            telemetryScope.recordOutput(outputBuilder.length());
+        } catch (Exception e) {
+            if (!CancellationToken.isCurrentCancelled()) {
+                logger.error("流式AI调用失败（messages模式）: {}", e.getMessage(), e);
+                throw new RuntimeException("流式AI调用失败: " + e.getMessage());
+            }
+        }
+
+        // 计算实际消费并扣费（客户端断开时按已输出部分结算）
+        settleStreamOutput(finalUserId, finalModel, finalInputTokens, outputBuilder.length(), type);
+        logger.info("✅ 流式生成完成（messages模式）");
+    }
+
+    /**
+     * 按实际输出字数扣费；任务已取消时结算后抛出 {@link GenerationCancelledException}，
+     * 避免调用方把截断的内容当作完整结果保存
+     */
+    private void settleStreamOutput(Long userId, String model, int inputTokens, int outputTokens, String type) {
+        boolean cancelled = CancellationToken.isCurrentCancelled();
+        // 取消时执行线程带中断标记，先清除再写库，否则连接池获取连接会失败
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (userId != null && outputTokens > 0) {
+                BigDecimal actualCost = systemAIConfigService.calculateCost(model, inputTokens, outputTokens);
+                boolean deducted = creditService.consume(userId, actualCost, null, model,
+                        inputTokens, outputTokens, getTypeDescription(type));
                 if (deducted) {
                     logger.info("💰 扣费成功: {} 点, 用户ID: {}, 输入: {} tokens, 输出: {} tokens",
-                            actualCost, finalUserId, finalInputTokens, outputTokens);
+                            actualCost, userId, inputTokens, outputTokens);
                 } else {
-                    logger.warn("⚠️ 扣费失败，用户ID: {}, 金额: {}", finalUserId, actualCost);
+                    logger.warn("⚠️ 扣费失败，用户ID: {}, 金额: {}", userId, actualCost);
                 }
             }
-
-            logger.info("✅ 流式生成完成（messages模式）");
-
-        } catch (Exception e) {
-            logger.error("流式AI调用失败（messages模式）: {}", e.getMessage(), e);
-            throw new RuntimeException("流式AI调用失败: " + e.getMessage());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (cancelled) {
+            logger.info("🛑 客户端已断开，已中止上游生成，按已输出 {} 字结算，类型: {}", outputTokens, type);
+            throw new GenerationCancelledException("生成已取消（已输出 " + outputTokens + " 字）");
         }
     }
 
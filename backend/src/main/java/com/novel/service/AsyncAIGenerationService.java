@@ -1,5 +1,7 @@
 package com.novel.service;
 
+import com.novel.ai.client.AICallTelemetry;
+import com.novel.ai.client.AIHttpClient;
 import com.novel.domain.entity.Novel;
 import com.novel.domain.entity.NovelVolume;
 import com.novel.dto.AIConfigRequest;
@@ -35,6 +37,9 @@ public class AsyncAIGenerationService {
     @Autowired
     private com.novel.mapper.NovelVolumeMapper novelVolumeMapper;
 
+    @Autowired(required = false)
+    private com.novel.agentic.service.performance.VolumeLayoutCache volumeLayoutCache;
+
     // 用于更新小说创作阶段
     @Autowired
     private NovelService novelService;
@@ -42,6 +47,12 @@ public class AsyncAIGenerationService {
     // 用于获取大纲
     @Autowired
     private com.novel.repository.NovelOutlineRepository outlineRepository;
+
+    @Autowired
+    private AIHttpClient aiHttpClient;
+
+    @Autowired
+    private AICallTelemetry aiCallTelemetry;
     
     /**
      * 使用AI配置调用AI接口
@@ -67,21 +78,11 @@ public class AsyncAIGenerationService {
         // 调用AI接口
         String url = aiConfig.getApiUrl();
         
-        org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
-        org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-        headers.setContentType(org.springframework.http.MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        
-        org.springframework.http.HttpEntity<java.util.Map<String, Object>> entity = 
-            new org.springframework.http.HttpEntity<>(requestBody, headers);
-        
-        @SuppressWarnings("unchecked")
-        java.util.Map<String, Object> response = restTemplate.exchange(
-            url,
-            org.springframework.http.HttpMethod.POST,
-            entity,
-            java.util.Map.class
-        ).getBody();
+        java.util.Map<String, Object> response;
+        try (AICallTelemetry.Scope telemetryScope = aiCallTelemetry.begin("async_generation")) {
+            response = aiHttpClient.postForMap(
+                url, apiKey, requestBody, AIHttpClient.CallType.BLOCKING);
+        }
         
         if (response == null) {
             throw new Exception("AI返回响应为空");
@@ -409,6 +410,9 @@ public class AsyncAIGenerationService {
                 volume.setStatus(NovelVolume.VolumeStatus.PLANNED);
                 novelVolumeMapper.updateById(volume);
                 logger.info("✅ 卷 {} 大纲已更新到数据库", volumeId);
+                if (volumeLayoutCache != null) {
+                    volumeLayoutCache.onVolumesChanged(volume.getNovelId());
+                }
 
                 // 同步更新小说创作阶段为 详细大纲已生成
                 try {
@@ -52,6 +52,9 @@ public class ChapterService {
     @Autowired(required = false)
     private IGraphService graphService;
 
+    @Autowired(required = false)
+    private com.novel.agentic.service.performance.ContextBundleStore contextBundleStore;
+
 
     /**
      * 初始化第一章（写作工作室用）
@@ -107,6 +110,7 @@ public class ChapterService {
         chapter.calculateReadingTime();
         
         chapterRepository.insert(chapter);
+        notifyChapterChanged(chapter.getNovelId(), chapter.getChapterNumber());
         return chapter;
     }
 
@@ -239,6 +243,7 @@ public class ChapterService {
         }
 
         chapterRepository.updateById(chapter);
+        notifyChapterChanged(chapter.getNovelId(), chapter.getChapterNumber());
 
         if (isContentRewrite && chapter.getNovelId() != null && chapter.getChapterNumber() != null) {
             cleanupChapterRelatedData(chapter.getNovelId(), chapter.getChapterNumber());
@@ -394,7 +399,18 @@ public class ChapterService {
             }
         }
 
-        return chapterRepository.deleteById(id) > 0;
+        boolean deleted = chapterRepository.deleteById(id) > 0;
+        notifyChapterChanged(novelId, chapterNumber);
+        return deleted;
+    }
+
+    /**
+     * 章节写入后使预构建的下一章上下文失效
+     */
+    private void notifyChapterChanged(Long novelId, Integer chapterNumber) {
+        if (contextBundleStore != null) {
+            contextBundleStore.onChapterChanged(novelId, chapterNumber);
+        }
     }
 
     public List<Chapter> getChapterMetadataByNovel(Long novelId) {
@@ -36,6 +36,9 @@ public class ChapterSummaryService {
     @Autowired(required = false)
     private com.novel.agentic.service.graph.IGraphService graphService;
 
+    @Autowired(required = false)
+    private com.novel.agentic.service.performance.ContextBundleStore contextBundleStore;
+
     /**
      * 生成章节概括（使用后端配置 - 已弃用，建议使用带AIConfigRequest参数的方法）
      * 将章节内容压缩为100-200字的简短概括
@@ -55,7 +58,8 @@ public class ChapterSummaryService {
             String prompt = buildSummaryPrompt(chapter);
             
             // 调用AI生成概括
-            String summary = aiWritingService.generateContent(prompt, "chapter_summary");
+            String summary = aiWritingService.generateContent(prompt, "chapter_summary",
+                response -> !stripThink(response).isEmpty());
             
             // 确保概括长度合适
             summary = trimSummaryToLength(summary, 200);
@@ -178,6 +182,7 @@ public class ChapterSummaryService {
                 // 不存在则插入
                 chapterSummaryRepository.insert(chapterSummary);
             }
+            notifySummaryChanged(novelId, chapterNumber);
 
             logger.info("💾 章节概括已保存: 小说ID={}, 章节={}", novelId, chapterNumber);
 
@@ -186,6 +191,22 @@ public class ChapterSummaryService {
         }
     }
 
+    /**
+     * 保存由章节合并抽取（ChapterDigestService）给出的概括与状态信号，返回实际保存的概括
+     */
+    public String saveDigestSummary(Long novelId, Integer chapterNumber, String summary, Map<String, String> signals) {
+        String trimmed = trimSummaryToLength(summary, 200);
+        if (signals != null && !signals.isEmpty() && graphService != null) {
+            try {
+                graphService.addSummarySignals(novelId, chapterNumber, signals);
+            } catch (Exception ex) {
+                logger.warn("保存Summary Signals失败（忽略）: {}", ex.getMessage());
+            }
+        }
+        saveChapterSummary(novelId, chapterNumber, trimmed);
+        return trimmed;
+    }
+
     public void generateOrUpdateSummary(Chapter chapter, AIConfigRequest aiConfig) {
         if (chapter == null || chapter.getNovelId() == null || chapter.getChapterNumber() == null) {
             return;
@@ -291,6 +312,7 @@ public class ChapterSummaryService {
             Optional<ChapterSummary> existing = chapterSummaryRepository.findByNovelIdAndChapterNumber(novelId, chapterNumber);
             if (existing.isPresent()) {
                 chapterSummaryRepository.deleteById(existing.get().getId());
+                notifySummaryChanged(novelId, chapterNumber);
                 logger.info("🗑️ 已删除章节概括: 小说ID={}, 章节={}", novelId, chapterNumber);
             } else {
                 logger.debug("章节概括不存在，无需删除: 小说ID={}, 章节={}", novelId, chapterNumber);
@@ -392,20 +414,27 @@ public class ChapterSummaryService {
         msg.put("content", prompt);
         messages.add(msg);
 
-        String content = aiWritingService.generateContentWithMessages(messages, "content_summarization", aiConfig);
+        String content = aiWritingService.generateContentWithMessages(messages, "content_summarization", aiConfig,
+            response -> !stripThink(response).isEmpty());
         if (content == null) {
             throw new RuntimeException("AI返回内容为空");
         }
-        // 去除可能的<think>噪声
-        content = content.replaceAll("<think>.*?</think>", "");
-        content = content.replaceAll("<think>.*", "");
-        content = content.replaceAll(".*</think>", "");
-        content = content.trim();
+        content = stripThink(content);
         if (content.isEmpty()) {
             throw new RuntimeException("AI返回内容为空");
         }
         return content;
     }
+
+    /**
+     * 去除可能的<think>噪声
+     */
+    private static String stripThink(String content) {
+        content = content.replaceAll("<think>.*?</think>", "");
+        content = content.replaceAll("<think>.*", "");
+        content = content.replaceAll(".*</think>", "");
+        return content.trim();
+    }
     
     /**
      * 生成fallback概括（当AI生成失败时）
@@ -482,20 +511,7 @@ public class ChapterSummaryService {
                 return new ArrayList<>();
             }
             
-            // 从数据库获取概括
-            List<ChapterSummary> summaries = chapterSummaryRepository.findByNovelIdAndChapterNumberBetween(
-                novelId, startChapter, endChapter);
-            
-            // 按章节号排序并转换为Map
-            List<Map<String, Object>> result = summaries.stream()
-                .sorted(Comparator.comparing(ChapterSummary::getChapterNumber))
-                .map(summary -> {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("chapterNumber", summary.getChapterNumber());
-                    map.put("summary", summary.getSummary());
-                    return map;
-                })
-                .collect(Collectors.toList());
+            List<Map<String, Object>> result = getSummariesInRange(novelId, startChapter, endChapter);
             
             logger.info("✅ 获取到{}章概括（含章节号）", result.size());
             return result;
@@ -505,6 +521,35 @@ public class ChapterSummaryService {
             return new ArrayList<>();
         }
     }
+
+    /**
+     * 获取 [startChapter, endChapter] 区间内已有的概括（按章节号升序，含章节号）
+     * 供上下文包增量维护概要窗口时补查缺失章节
+     */
+    public List<Map<String, Object>> getSummariesInRange(Long novelId, int startChapter, int endChapter) {
+        if (endChapter < startChapter) {
+            return new ArrayList<>();
+        }
+        List<ChapterSummary> summaries = chapterSummaryRepository.findByNovelIdAndChapterNumberBetween(
+            novelId, startChapter, endChapter);
+
+        // 按章节号排序并转换为Map
+        return summaries.stream()
+            .sorted(Comparator.comparing(ChapterSummary::getChapterNumber))
+            .map(summary -> {
+                Map<String, Object> map = new HashMap<>();
+                map.put("chapterNumber", summary.getChapterNumber());
+                map.put("summary", summary.getSummary());
+                return map;
+            })
+            .collect(Collectors.toList());
+    }
+
+    private void notifySummaryChanged(Long novelId, Integer chapterNumber) {
+        if (contextBundleStore != null) {
+            contextBundleStore.onSummaryChanged(novelId, chapterNumber);
+        }
+    }
     
     /**
      * 根据章节号查找章节
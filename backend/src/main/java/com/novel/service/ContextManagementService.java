@@ -3,6 +3,8 @@ package com.novel.service;
 import com.novel.domain.entity.Novel;
 import com.novel.agentic.service.AgenticChapterWriter;
 import com.novel.agentic.model.WritingContext;
+import com.novel.ai.prompt.PromptLayout;
+import com.novel.ai.prompt.PromptLayout.Stability;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -39,6 +41,9 @@ public class ContextManagementService {
     @Autowired
     private PromptTemplateService promptTemplateService;
 
+    @Autowired
+    private PromptLayout promptLayout;
+
     @Autowired
     private NovelVolumeService novelVolumeService;
 
@@ -75,15 +80,16 @@ public class ContextManagementService {
             String userAdjustment,
             Long promptTemplateId) {
 
-        List<Map<String, String>> messages = new ArrayList<>();
         Integer chapterNumber = (Integer) chapterPlan.get("chapterNumber");
+        // 跨章不变的内容在前，逐章变化的内容在后，便于服务端前缀缓存
+        PromptLayout.Builder layout = promptLayout.builder("rewrite", novel.getId());
 
         // 1. 系统身份（已调整为编辑模式身份）
         String systemIdentity = getSystemIdentityPrompt(promptTemplateId);
-        messages.add(createMessage("system", systemIdentity));
+        layout.add(Stability.NOVEL, "system", systemIdentity);
 
         // 2. 基本小说信息
-        messages.add(createMessage("system", buildNovelBasicInfoPrompt(novel)));
+        layout.add(Stability.NOVEL, "system", buildNovelBasicInfoPrompt(novel));
 
         // 3. 复用 agentic 写作的上下文构建逻辑
         //    使用 AgenticChapterWriter.buildDirectWritingContext 获取 WritingContext，
@@ -96,7 +102,7 @@ public class ContextManagementService {
             StringBuilder sb = new StringBuilder();
             sb.append("【核心设定】\n");
             sb.append(context.getCoreSettings()).append("\n");
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.NOVEL, "system", sb.toString());
         }
 
         // 3.2 卷蓝图（volumeBlueprint）
@@ -109,11 +115,12 @@ public class ContextManagementService {
             if (blueprint != null) {
                 sb.append("蓝图摘要：").append(blueprint).append("\n");
             }
+            layout.add(Stability.VOLUME, "system", sb.toString());
+            // 卷内进度逐章变化，单独成条
             Object progress = volume.get("progressDescription");
             if (progress != null) {
-                sb.append("当前位置：").append(progress).append("\n");
+                layout.add(Stability.CHAPTER, "system", "【本卷进度】\n当前位置：" + progress + "\n");
             }
-            messages.add(createMessage("system", sb.toString()));
         }
 
         // 3.3 最近章节完整内容（recentFullChapters）
@@ -133,7 +140,7 @@ public class ContextManagementService {
                 }
                 sb.append("\n\n");
                 sb.append(content.toString());
-                messages.add(createMessage("system", sb.toString()));
+                layout.add(Stability.CHAPTER, "system", sb.toString());
             }
         }
 
@@ -147,7 +154,7 @@ public class ContextManagementService {
                 sb.append("- 第").append(num).append("章：")
                   .append(text != null ? text : "暂无摘要").append("\n");
             }
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.CHAPTER, "system", sb.toString());
         }
 
         // 3.5 角色档案（characterProfiles）
@@ -169,7 +176,7 @@ public class ContextManagementService {
                 }
                 sb.append("\n");
             }
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.CHAPTER, "system", sb.toString());
         }
 
         // 3.6 历史事件与未回收伏笔（relevantEvents / unresolvedForeshadows）
@@ -182,7 +189,7 @@ public class ContextManagementService {
                   .append(String.valueOf(props.getOrDefault("description", "事件描述")))
                   .append("\n");
             }
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.CHAPTER, "system", sb.toString());
         }
 
         if (context.getUnresolvedForeshadows() != null && !context.getUnresolvedForeshadows().isEmpty()) {
@@ -194,7 +201,7 @@ public class ContextManagementService {
                   .append(String.valueOf(props.getOrDefault("description", "伏笔描述")))
                   .append("\n");
             }
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.CHAPTER, "system", sb.toString());
         }
 
         // 3.7 核心记忆账本（角色状态 / 关系 / 未决任务）
@@ -216,7 +223,7 @@ public class ContextManagementService {
                 }
                 sb.append("\n");
             }
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.CHAPTER, "system", sb.toString());
         }
 
         if (context.getRelationshipStates() != null && !context.getRelationshipStates().isEmpty()) {
@@ -232,7 +239,7 @@ public class ContextManagementService {
                 if (type != null) sb.append("（").append(type).append(")");
                 sb.append("\n");
             }
-            messages.add(createMessage("system", sb.toString()));
+            layout.add(Stability.CHAPTER, "system", sb.toString());
         }
 
         // 🔕 注释掉未决任务：剧情按章纲发展，未决任务容易干扰AI写作
@@ -258,9 +265,10 @@ public class ContextManagementService {
             rewriteReq.append("未被要求修改的句子一个字都不要改（包括标点和换行），不要新增或删减剧情和信息。\n\n");
             rewriteReq.append("【修改要求原文】\n");
             rewriteReq.append(userAdjustment.trim());
-            messages.add(createMessage("system", rewriteReq.toString()));
+            layout.add(Stability.REQUEST, "system", rewriteReq.toString());
         }
 
+        List<Map<String, String>> messages = layout.build();
         logMessageSizes(messages, novel.getTitle(), chapterNumber);
         logger.info("为小说{}第{}章构建了{}条（重写/编辑模式）上下文消息", novel.getTitle(), chapterNumber, messages.size());
         return messages;
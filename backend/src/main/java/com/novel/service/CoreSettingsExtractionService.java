@@ -1,5 +1,6 @@
 package com.novel.service;
 
+import com.novel.ai.client.ProviderConcurrencyLimiter;
 import com.novel.domain.entity.Novel;
 import com.novel.domain.entity.NovelOutline;
 import com.novel.repository.NovelOutlineRepository;
@@ -64,11 +65,17 @@ public class CoreSettingsExtractionService {
 
             // 调用AI提炼核心设定
             logger.info("📝 调用AI提炼核心设定，大纲长度: {} 字", plotStructure.length());
-            String coreSettings = aiWritingService.generateContent(
-                extractionPrompt, 
-                "core_settings_extraction", 
-                aiConfig
-            );
+            // 异步提炼，有交互请求排队时让行
+            String coreSettings;
+            try (ProviderConcurrencyLimiter.PriorityScope ignored =
+                     ProviderConcurrencyLimiter.withPriority(ProviderConcurrencyLimiter.Priority.BACKGROUND)) {
+                coreSettings = aiWritingService.generateContent(
+                    extractionPrompt, 
+                    "core_settings_extraction", 
+                    aiConfig,
+                    response -> !response.trim().isEmpty()
+                );
+            }
             
             if (coreSettings == null || coreSettings.trim().isEmpty()) {
                 logger.error("❌ AI返回的核心设定为空");
@@ -239,7 +246,8 @@ public class CoreSettingsExtractionService {
         String coreSettings = aiWritingService.generateContent(
             extractionPrompt, 
             "core_settings_extraction", 
-            aiConfig
+            aiConfig,
+            response -> !response.trim().isEmpty()
         );
         
         if (coreSettings == null || coreSettings.trim().isEmpty()) {
@@ -37,6 +37,9 @@ public class NovelOutlineService {
     @Autowired
     private AIWritingService aiWritingService;
 
+    @Autowired
+    private StreamPersistenceService streamPersistenceService;
+
     @Autowired
     private VolumeService volumeService;
 
@@ -184,22 +187,23 @@ public class NovelOutlineService {
         }
 
         // 使用真正的流式AI调用 - 从空开始累加（不使用旧的大纲）
-        StringBuilder accumulated = new StringBuilder();
+        // 累积内容按时间/字数阈值合并落库，而不是每个chunk整行重写
+        StreamPersistenceService.Buffer accumulated = streamPersistenceService.open("outline:" + outline.getId(), text -> {
+            // 直接写入 novels.outline（主存储）
+            novel.setOutline(text);
+            novelRepository.updateById(novel);
+
+            // 为兼容旧逻辑，保留写回 novel_outlines.plot_structure（可后续下线）
+            outline.setPlotStructure(text);
+            outlineRepository.updateById(outline);
+        });
         
         try {
             aiWritingService.streamGenerateContent(prompt, "outline_generation_stream", aiConfig, chunk -> {
                 try {
-                    // 累加内容
+                    // 累加内容（达到阈值时落库）
                     accumulated.append(chunk);
                     
-                    // 实时更新数据库：直接写入 novels.outline（主存储）
-                    novel.setOutline(accumulated.toString());
-                    novelRepository.updateById(novel);
-                    
-                    // 为兼容旧逻辑，保留写回 novel_outlines.plot_structure（可后续下线）
-                    outline.setPlotStructure(accumulated.toString());
-                    outlineRepository.updateById(outline);
-                    
                     // 回调给SSE
                     if (chunkConsumer != null) {
                         chunkConsumer.accept(chunk);
@@ -209,6 +213,9 @@ public class NovelOutlineService {
                     throw new RuntimeException("处理流式内容块失败: " + e.getMessage());
                 }
             });
+
+            // 最终落库
+            accumulated.complete();
             
             // 流式生成完成，设置状态为DRAFT
             outline.setStatus(NovelOutline.OutlineStatus.DRAFT);
@@ -225,6 +232,7 @@ public class NovelOutlineService {
             // }
             
         } catch (Exception e) {
+            accumulated.fail(e);
             logger.error("❌ 流式大纲生成失败: {}", e.getMessage(), e);
             throw new RuntimeException("流式大纲生成失败: " + e.getMessage());
         }
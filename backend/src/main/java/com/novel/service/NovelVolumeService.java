@@ -22,6 +22,9 @@ public class NovelVolumeService {
     @Autowired
     private NovelVolumeMapper volumeMapper;
 
+    @Autowired(required = false)
+    private com.novel.agentic.service.performance.VolumeLayoutCache volumeLayoutCache;
+
     /**
      * 手动修改卷信息
      */
@@ -38,6 +41,7 @@ public class NovelVolumeService {
         volume.setContentOutline(contentOutline);
 
         volumeMapper.updateById(volume);
+        notifyVolumesChanged(volume.getNovelId());
 
         return volume;
     }
@@ -70,6 +74,7 @@ public class NovelVolumeService {
 
         volume.setStatus(status);
         volumeMapper.updateById(volume);
+        notifyVolumesChanged(volume.getNovelId());
 
         return volume;
     }
@@ -85,4 +90,13 @@ public class NovelVolumeService {
     public NovelVolume findVolumeByChapterNumber(Long novelId, Integer chapterNumber) {
         return volumeMapper.selectByChapterNumber(novelId, chapterNumber);
     }
+
+    /**
+     * 卷数据写入后使缓存的卷布局失效
+     */
+    private void notifyVolumesChanged(Long novelId) {
+        if (volumeLayoutCache != null) {
+            volumeLayoutCache.onVolumesChanged(novelId);
+        }
+    }
 }
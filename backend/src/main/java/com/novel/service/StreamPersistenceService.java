@@ -0,0 +1,140 @@
+package com.novel.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Consumer;
+
+/**
+ * 流式生成结果的合并落库服务（write-behind）
+ *
+ * 解决问题：大纲/卷蓝图流式生成时每个 chunk 都把完整累积文本 updateById 一次，
+ * 5000 字的大纲会产生上千次整行 TEXT 重写
+ *
+ * 策略：
+ * 1. chunk 先在内存累积，距上次落库超过时间阈值或新增字符超过数量阈值时才落库
+ * 2. 落库在生成线程内同步执行，与最终落库不存在并发
+ * 3. complete()/fail() 保证最终落库一次，无论成功还是异常
+ *
+ * 崩溃恢复语义：
+ * - 进程崩溃时数据库中最多丢失最近一个落库窗口的内容（默认 2 秒或 1500 字）
+ * - 已落库的部分文本保留，调用方的状态字段（如大纲 DRAFT）只在 complete() 之后更新，
+ *   因此"有内容但状态未完成"即表示生成中断，可由用户重新生成
+ */
+@Service
+public class StreamPersistenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamPersistenceService.class);
+
+    @Value("${stream.persist.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    @Value("${stream.persist.flush-chars:1500}")
+    private int flushChars;
+
+    /**
+     * 打开一个落库缓冲区
+     *
+     * @param name 名称（用于日志，如 "outline:12"）
+     * @param flusher 落库回调，参数为当前完整累积文本
+     */
+    public Buffer open(String name, Consumer<String> flusher) {
+        return new Buffer(name, flusher, flushIntervalMs, flushChars);
+    }
+
+    /**
+     * 单次流式生成的落库缓冲区，仅供生成线程使用
+     */
+    public static class Buffer {
+        private final String name;
+        private final Consumer<String> flusher;
+        private final long flushIntervalMs;
+        private final int flushChars;
+
+        private final StringBuilder content = new StringBuilder();
+        private int flushedLength;
+        private long lastFlushAt = System.currentTimeMillis();
+        private int chunkCount;
+        private int flushCount;
+        private boolean closed;
+
+        Buffer(String name, Consumer<String> flusher, long flushIntervalMs, int flushChars) {
+            this.name = name;
+            this.flusher = flusher;
+            this.flushIntervalMs = flushIntervalMs;
+            this.flushChars = flushChars;
+        }
+
+        /**
+         * 追加 chunk，达到阈值时落库；中间落库失败只记录日志，留待下次/最终落库
+         */
+        public void append(String chunk) {
+            if (closed || chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            content.append(chunk);
+            chunkCount++;
+            long now = System.currentTimeMillis();
+            if (content.length() - flushedLength >= flushChars || now - lastFlushAt >= flushIntervalMs) {
+                try {
+                    flush(now);
+                } catch (Exception e) {
+                    logger.warn("流式内容中间落库失败（将在下次重试）: {}, {}", name, e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 生成成功结束：最终落库，失败时抛出
+         */
+        public void complete() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (content.length() != flushedLength) {
+                flush(System.currentTimeMillis());
+            }
+            logger.info("流式内容落库完成: {}, 长度={}, chunk数={}, 落库次数={}",
+                name, content.length(), chunkCount, flushCount);
+        }
+
+        /**
+         * 生成异常结束：尽量把已生成的部分落库，不覆盖原异常
+         */
+        public void fail(Throwable cause) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (content.length() == flushedLength) {
+                return;
+            }
+            try {
+                flush(System.currentTimeMillis());
+                logger.warn("流式生成中断，已保存部分内容: {}, 长度={}, 原因: {}",
+                    name, content.length(), cause != null ? cause.getMessage() : "unknown");
+            } catch (Exception e) {
+                logger.error("流式生成中断且部分内容落库失败: {}", name, e);
+            }
+        }
+
+        public String getContent() {
+            return content.toString();
+        }
+
+        public int length() {
+            return content.length();
+        }
+
+        private void flush(long now) {
+            String snapshot = content.toString();
+            flusher.accept(snapshot);
+            flushedLength = snapshot.length();
+            lastFlushAt = now;
+            flushCount++;
+        }
+    }
+}
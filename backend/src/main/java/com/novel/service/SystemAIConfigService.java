@@ -7,30 +7,50 @@ import com.novel.repository.SystemAIConfigRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * 系统AI配置服务
+ *
+ * 模型目录与计价走内存快照 {@link AIModelCatalog}：
+ * 每次AI调用都要查模型、取API配置、算两次费用，原先每一步都是一次 ai_model 查询，
+ * 而模型目录一个月只改几次。
+ *
+ * 刷新策略：
+ * 1. 管理端修改模型/配置时更新 system_ai_config 中的版本戳（model_catalog_version）
+ * 2. 定时轮询版本戳（一条主键查询），变化时整体重建快照
+ * 3. 兜底按固定周期全量重载，覆盖绕过版本戳的改动
  */
 @Service
 public class SystemAIConfigService {
 
     private static final Logger logger = LoggerFactory.getLogger(SystemAIConfigService.class);
 
+    /** 模型目录版本戳，管理端改动模型/配置时更新 */
+    public static final String CATALOG_VERSION_KEY = "model_catalog_version";
+
+    private static final AIModelCatalog.PriceFactor DEFAULT_PRICE = new AIModelCatalog.PriceFactor(BigDecimal.ONE);
+
     @Autowired
     private SystemAIConfigRepository configRepository;
 
     @Autowired
     private AIModelRepository aiModelRepository;
 
+    @Value("${ai.model-catalog.full-reload-ms:600000}")
+    private long fullReloadMs;
+
+    private volatile AIModelCatalog catalog;
+
     /**
      * 获取配置值
      */
@@ -52,6 +72,7 @@ public class SystemAIConfigService {
     @CacheEvict(value = "aiConfig", allEntries = true)
     public void setConfig(String key, String value) {
         configRepository.updateValue(key, value);
+        bumpCatalogVersion();
     }
 
     /**
@@ -60,6 +81,7 @@ public class SystemAIConfigService {
     @CacheEvict(value = "aiConfig", allEntries = true)
     public void updateConfig(String key, String value, String description) {
         configRepository.upsertConfig(key, value, description, false);
+        bumpCatalogVersion();
     }
 
     /**
@@ -87,47 +109,93 @@ public class SystemAIConfigService {
     }
 
     /**
-     * 获取默认模型
+     * 获取默认模型（标记为默认的可用模型，否则为单价最低的可用模型）
      */
-    @Cacheable(value = "aiConfig", key = "'defaultModel'")
     public AIModel getDefaultModel() {
-        List<AIModel> models = aiModelRepository.selectList(
-            new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<AIModel>()
-                .eq("is_default", true)
-                .eq("available", true)
-        );
-        if (!models.isEmpty()) {
-            return models.get(0);
-        }
-        // 如果没有默认模型，返回第一个可用模型
-        models = aiModelRepository.findByAvailableTrueOrderByCostPer1kAsc();
-        return models.isEmpty() ? null : models.get(0);
+        return catalog().getDefaultModel();
     }
 
     /**
-     * 获取指定模型
+     * 获取指定模型，不存在或不可用时返回默认模型
      */
     public AIModel getModel(String modelId) {
         if (modelId == null || modelId.isEmpty()) {
             return getDefaultModel();
         }
-        List<AIModel> models = aiModelRepository.selectList(
-            new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<AIModel>()
-                .eq("model_id", modelId)
-                .eq("available", true)
-        );
-        return models.isEmpty() ? getDefaultModel() : models.get(0);
+        AIModel model = catalog().getModel(modelId);
+        return model != null ? model : getDefaultModel();
     }
 
     /**
      * 获取所有可用模型
      */
     public List<AIModel> getAvailableModels() {
-        return aiModelRepository.selectList(
-            new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<AIModel>()
-                .eq("available", true)
-                .orderByAsc("sort_order")
-        );
+        return catalog().getAvailableModels();
+    }
+
+    /**
+     * 当前模型目录快照，首次访问时加载
+     */
+    public AIModelCatalog catalog() {
+        AIModelCatalog current = catalog;
+        if (current == null) {
+            synchronized (this) {
+                current = catalog;
+                if (current == null) {
+                    current = reloadCatalog();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 从数据库重建模型目录快照
+     */
+    public synchronized AIModelCatalog reloadCatalog() {
+        List<AIModel> models = aiModelRepository.selectList(null);
+        Map<String, String> configs = new HashMap<>();
+        for (SystemAIConfig config : configRepository.findAll()) {
+            if (config.getConfigKey() != null && config.getConfigValue() != null) {
+                configs.put(config.getConfigKey(), config.getConfigValue());
+            }
+        }
+        AIModelCatalog loaded = new AIModelCatalog(configs.get(CATALOG_VERSION_KEY), models, configs);
+        catalog = loaded;
+        logger.info("模型目录已加载: 可用模型{}个, 版本={}", loaded.size(), loaded.getVersion());
+        return loaded;
+    }
+
+    /**
+     * 定时检查版本戳，变化或超过全量重载周期时重建快照
+     */
+    @Scheduled(fixedDelayString = "${ai.model-catalog.version-check-ms:15000}",
+               initialDelayString = "${ai.model-catalog.version-check-ms:15000}")
+    public void refreshCatalogIfChanged() {
+        AIModelCatalog current = catalog;
+        if (current == null) {
+            return;
+        }
+        try {
+            String version = configRepository.getValueByKey(CATALOG_VERSION_KEY);
+            if (!Objects.equals(version, current.getVersion())) {
+                logger.info("检测到模型目录版本变化: {} -> {}", current.getVersion(), version);
+                reloadCatalog();
+            } else if (System.currentTimeMillis() - current.getLoadedAt() >= fullReloadMs) {
+                reloadCatalog();
+            }
+        } catch (Exception e) {
+            logger.warn("刷新模型目录失败，继续使用旧快照: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 更新版本戳并立即重建本实例快照（其他实例经轮询感知）
+     */
+    private void bumpCatalogVersion() {
+        configRepository.upsertConfig(CATALOG_VERSION_KEY, String.valueOf(System.currentTimeMillis()),
+            "模型目录版本戳", false);
+        reloadCatalog();
     }
 
     /**
@@ -135,20 +203,21 @@ public class SystemAIConfigService {
      */
     public Map<String, String> getModelAPIConfig(AIModel model) {
         Map<String, String> config = new HashMap<>();
+        AIModelCatalog snapshot = catalog();
         
         // 使用统一的AI配置
-        String apiKey = getConfig("ai_api_key");
-        String baseUrl = getConfig("ai_api_base_url");
+        String apiKey = snapshot.getConfig("ai_api_key");
+        String baseUrl = snapshot.getConfig("ai_api_base_url");
         
         // 如果统一配置为空，尝试使用旧的配置方式（兼容）
         if (apiKey == null || apiKey.isEmpty()) {
             String apiKeyRef = model.getApiKeyRef();
             if (apiKeyRef != null && !apiKeyRef.isEmpty()) {
-                apiKey = getConfig(apiKeyRef);
+                apiKey = snapshot.getConfig(apiKeyRef);
             }
             if (apiKey == null || apiKey.isEmpty()) {
                 String provider = model.getProvider() != null ? model.getProvider().toLowerCase() : "openai";
-                apiKey = getConfig(provider + "_api_key");
+                apiKey = snapshot.getConfig(provider + "_api_key");
             }
         }
         
@@ -156,7 +225,7 @@ public class SystemAIConfigService {
             baseUrl = model.getApiBaseUrl();
             if (baseUrl == null || baseUrl.isEmpty()) {
                 String provider = model.getProvider() != null ? model.getProvider().toLowerCase() : "openai";
-                baseUrl = getConfig(provider + "_base_url");
+                baseUrl = snapshot.getConfig(provider + "_base_url");
             }
         }
         
@@ -190,20 +259,13 @@ public class SystemAIConfigService {
      * @return 消费的字数点（灵感点）
      */
     public BigDecimal calculateCost(String modelId, int inputTokens, int outputTokens) {
-        AIModel model = getModel(modelId);
-        BigDecimal multiplier = BigDecimal.ONE;
-        
-        if (model != null && model.getCostMultiplier() != null) {
-            multiplier = model.getCostMultiplier();
-        } else if (model == null) {
+        // 计价因子在快照加载时已预算好，不存在的模型回退默认模型
+        AIModelCatalog.PriceFactor price = catalog().getPrice(modelId);
+        if (price == null) {
             logger.warn("模型{}不存在，使用默认倍率1.0", modelId);
+            price = DEFAULT_PRICE;
         }
-        
-        // 字数点 = (输入token/10 + 输出token) × 倍率
-        // 输入token除以10，降低输入成本
-        BigDecimal adjustedInputTokens = new BigDecimal(inputTokens).divide(new BigDecimal(10), 2, RoundingMode.HALF_UP);
-        BigDecimal totalTokens = adjustedInputTokens.add(new BigDecimal(outputTokens));
-        return totalTokens.multiply(multiplier).setScale(2, RoundingMode.HALF_UP);
+        return price.cost(inputTokens, outputTokens);
     }
 
     /**
@@ -234,6 +296,7 @@ public class SystemAIConfigService {
         for (Map.Entry<String, String> entry : configs.entrySet()) {
             configRepository.updateValue(entry.getKey(), entry.getValue());
         }
+        bumpCatalogVersion();
     }
 
     /**
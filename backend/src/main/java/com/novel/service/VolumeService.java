@@ -66,6 +66,12 @@ public class VolumeService {
     @Autowired
     private AIWritingService aiWritingService;
 
+    @Autowired
+    private StreamPersistenceService streamPersistenceService;
+
+    @Autowired(required = false)
+    private com.novel.agentic.service.performance.VolumeLayoutCache volumeLayoutCache;
+
     @Autowired
     private LongNovelMemoryManager longNovelMemoryManager;
     
@@ -233,28 +239,29 @@ public class VolumeService {
 
             logger.info("📝 [流式] 调用AI生成卷蓝图，提示词长度: {}", prompt.length());
             
-            // 使用真正的流式AI调用
-            StringBuilder accumulated = new StringBuilder();
+            // 使用真正的流式AI调用，累积内容按阈值合并落库
+            StreamPersistenceService.Buffer accumulated = streamPersistenceService.open("volume:" + volumeId, text -> {
+                volume.setContentOutline(text);
+                volume.setUpdatedAt(LocalDateTime.now());
+                volumeMapper.updateById(volume);
+                notifyVolumesChanged(volume.getNovelId());
+            });
             
-            aiWritingService.streamGenerateContent(prompt.toString(), "volume_outline_generation", aiConfig, chunk -> {
-                try {
-                    // 累加内容
+            try {
+                aiWritingService.streamGenerateContent(prompt.toString(), "volume_outline_generation", aiConfig, chunk -> {
+                    // 累加内容（达到阈值时落库）
                     accumulated.append(chunk);
                     
-                    // 实时更新数据库
-                    volume.setContentOutline(accumulated.toString());
-                    volume.setUpdatedAt(LocalDateTime.now());
-                    volumeMapper.updateById(volume);
-                    
                     // 回调给SSE消费者
                     if (chunkConsumer != null) {
                         chunkConsumer.accept(chunk);
                     }
-                } catch (Exception e) {
-                    logger.error("处理流式内容块失败: {}", e.getMessage(), e);
-                    throw new RuntimeException("处理流式内容块失败: " + e.getMessage());
-                }
-            });
+                });
+                accumulated.complete();
+            } catch (RuntimeException e) {
+                accumulated.fail(e);
+                throw e;
+            }
             
             logger.info("✅ [流式] 卷 {} 蓝图生成并保存成功，总长度: {}", volumeId, accumulated.length());
             
@@ -2152,6 +2159,7 @@ public class VolumeService {
                         .eq("novel_id", novelId)
                 );
                 logger.info("🗑️ 已删除小说 {} 的 {} 个旧卷", novelId, deletedCount);
+                notifyVolumesChanged(novelId);
             } else {
                 logger.info("ℹ️ 小说 {} 当前无卷，直接生成新卷", novelId);
             }
@@ -2215,6 +2223,7 @@ public class VolumeService {
             }
 
             logger.info("🎯 成功生成并保存{}个卷到数据库", savedVolumes.size());
+            notifyVolumesChanged(novelId);
 
             // 更新小说的创作阶段为"卷已生成"
             try {
@@ -2363,6 +2372,16 @@ public class VolumeService {
      */
     public void updateVolume(NovelVolume volume) {
         volumeMapper.updateById(volume);
+        notifyVolumesChanged(volume.getNovelId());
+    }
+
+    /**
+     * 卷数据写入后使缓存的卷布局失效
+     */
+    private void notifyVolumesChanged(Long novelId) {
+        if (volumeLayoutCache != null) {
+            volumeLayoutCache.onVolumesChanged(novelId);
+        }
     }
 
     /**
@@ -2430,6 +2449,7 @@ public class VolumeService {
             volume.setContentOutline(accumulated.toString());
             volume.setLastModifiedByAi(java.time.LocalDateTime.now());
             volumeMapper.updateById(volume);
+            notifyVolumesChanged(volume.getNovelId());
             
             logger.info("✅ 卷大纲流式优化完成");
             
@@ -2498,6 +2518,7 @@ public class VolumeService {
             volume.setContentOutline(optimizedOutline);
             volume.setLastModifiedByAi(java.time.LocalDateTime.now());
             volumeMapper.updateById(volume);
+            notifyVolumesChanged(volume.getNovelId());
             
             logger.info("✅ 卷大纲优化完成");
             return optimizedOutline;
@@ -2657,29 +2678,30 @@ public class VolumeService {
             
             logger.info("📝 [流式修改] 调用AI修改卷蓝图，提示词长度: {}", prompt.length());
             
-            // 使用流式AI调用
-            StringBuilder accumulated = new StringBuilder();
+            // 使用流式AI调用，累积内容按阈值合并落库
+            StreamPersistenceService.Buffer accumulated = streamPersistenceService.open("volume-modify:" + volumeId, text -> {
+                currentVolume.setContentOutline(text);
+                currentVolume.setUpdatedAt(LocalDateTime.now());
+                currentVolume.setLastModifiedByAi(LocalDateTime.now());
+                volumeMapper.updateById(currentVolume);
+                notifyVolumesChanged(currentVolume.getNovelId());
+            });
             
-            aiWritingService.streamGenerateContent(prompt.toString(), "volume_blueprint_modification", aiConfig, chunk -> {
-                try {
-                    // 累加内容
+            try {
+                aiWritingService.streamGenerateContent(prompt.toString(), "volume_blueprint_modification", aiConfig, chunk -> {
+                    // 累加内容（达到阈值时落库）
                     accumulated.append(chunk);
                     
-                    // 实时更新数据库
-                    currentVolume.setContentOutline(accumulated.toString());
-                    currentVolume.setUpdatedAt(LocalDateTime.now());
-                    currentVolume.setLastModifiedByAi(LocalDateTime.now());
-                    volumeMapper.updateById(currentVolume);
-                    
                     // 回调给SSE消费者
                     if (chunkConsumer != null) {
                         chunkConsumer.accept(chunk);
                     }
-                } catch (Exception e) {
-                    logger.error("处理流式内容块失败: {}", e.getMessage(), e);
-                    throw new RuntimeException("处理流式内容块失败: " + e.getMessage());
-                }
-            });
+                });
+                accumulated.complete();
+            } catch (RuntimeException e) {
+                accumulated.fail(e);
+                throw e;
+            }
             
             logger.info("✅ [流式修改] 卷 {} 蓝图修改完成，总长度: {}", volumeId, accumulated.length());
             
@@ -7,6 +7,8 @@ import com.novel.shortstory.entity.WorkflowLog;
 import com.novel.shortstory.repository.ShortNovelRepository;
 import com.novel.shortstory.repository.ShortChapterRepository;
 import com.novel.shortstory.repository.WorkflowLogRepository;
+import com.novel.ai.execution.GenerationExecutor;
+import com.novel.ai.execution.GenerationHandle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,8 +37,11 @@ public class ShortStoryServiceImpl implements ShortStoryService {
     @Autowired
     private ShortStoryWorkflowEngine workflowEngine;
     
-    // 存储正在运行的工作流任务（novelId -> Thread）
-    private final ConcurrentHashMap<Long, Thread> runningWorkflows = new ConcurrentHashMap<>();
+    @Autowired
+    private GenerationExecutor generationExecutor;
+    
+    // 存储正在运行的工作流任务（novelId -> 任务句柄）
+    private final ConcurrentHashMap<Long, GenerationHandle> runningWorkflows = new ConcurrentHashMap<>();
     
     @Override
     @Transactional
@@ -93,7 +98,7 @@ public class ShortStoryServiceImpl implements ShortStoryService {
         novelRepository.save(novel);
         
         // 异步启动工作流
-        Thread workflowThread = new Thread(() -> {
+        GenerationHandle workflow = generationExecutor.submit("workflow-" + novelId, () -> {
             try {
                 workflowEngine.execute(novelId);
             } catch (Exception e) {
@@ -106,13 +111,12 @@ public class ShortStoryServiceImpl implements ShortStoryService {
                     failedNovel.setErrorMessage(e.getMessage());
                     novelRepository.save(failedNovel);
                 }
-            } finally {
-                runningWorkflows.remove(novelId);
             }
-        }, "workflow-" + novelId);
+        });
         
-        runningWorkflows.put(novelId, workflowThread);
-        workflowThread.start();
+        runningWorkflows.put(novelId, workflow);
+        // 任务结束后按句柄移除，不会误删重启后的新工作流
+        workflow.onDone(() -> runningWorkflows.remove(novelId, workflow));
         
         logger.info("工作流已启动: novelId={}", novelId);
     }
@@ -120,10 +124,9 @@ public class ShortStoryServiceImpl implements ShortStoryService {
     @Override
     @Transactional
     public void pauseWorkflow(Long novelId) {
-        Thread workflowThread = runningWorkflows.remove(novelId);
+        GenerationHandle workflow = runningWorkflows.remove(novelId);
         
-        if (workflowThread != null && workflowThread.isAlive()) {
-            workflowThread.interrupt();
+        if (workflow != null && workflow.cancel()) {
             logger.info("工作流已暂停: novelId={}", novelId);
         }
         
@@ -0,0 +1,7 @@
+-- 事件因果边、事件参与者：补充唯一键，支持多行幂等写入（两表此前未写入数据）
+
+ALTER TABLE graph_event_causal
+  ADD UNIQUE KEY uk_novel_causal (novel_id, from_event_id, to_event_id, relation_type);
+
+ALTER TABLE graph_event_participant
+  ADD UNIQUE KEY uk_event_character (event_id, character_name);
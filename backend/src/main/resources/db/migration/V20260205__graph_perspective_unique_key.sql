@@ -0,0 +1,4 @@
+-- 视角使用：每章一条记录，补充唯一键，支持多行幂等写入（此前未写入数据）
+
+ALTER TABLE graph_perspective_usage
+  ADD UNIQUE KEY uk_novel_chapter (novel_id, chapter_number);
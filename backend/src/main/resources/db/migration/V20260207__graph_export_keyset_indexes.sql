@@ -0,0 +1,7 @@
+-- 图谱导出按 (章节, id) 键集分页：补充按章节排序的索引，避免每页对整部小说的数据做 filesort
+
+ALTER TABLE graph_relationship_state
+  ADD INDEX idx_last_updated (novel_id, last_updated_chapter);
+
+ALTER TABLE graph_open_quest
+  ADD INDEX idx_status_introduced (novel_id, status, introduced_chapter);
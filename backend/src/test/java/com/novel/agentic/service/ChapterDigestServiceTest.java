@@ -0,0 +1,62 @@
+package com.novel.agentic.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChapterDigestServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void acceptsCompleteDigest() throws Exception {
+        Map<String, List<String>> errors = ChapterDigestService.validate(json("{"
+            + "\"summary\": \"主角夜探黑市，得知师门血案另有隐情。\","
+            + "\"summarySignals\": {\"loc\": \"南疆黑市\", \"deaths\": \"无\"},"
+            + "\"coreState\": {\"protagonist\": {\"name\": \"林晨\", \"inventory\": [\"残剑\"]},"
+            + "  \"keyCharacters\": [{\"name\": \"苏婉\", \"relation\": \"同门师姐,信任\"}],"
+            + "  \"questProgress\": {\"追查血案\": \"推进\"}},"
+            + "\"entities\": {\"events\": [{\"id\": \"event_3_1\", \"summary\": \"夜探黑市\"}],"
+            + "  \"causalRelations\": [{\"from\": \"event_3_1\", \"to\": \"event_3_2\"}],"
+            + "  \"characterRelations\": [{\"from\": \"林晨\", \"to\": \"苏婉\", \"strength\": 0.8}],"
+            + "  \"narrativeBeat\": {\"id\": \"beat_3\", \"tension\": 0.7}}"
+            + "}"), true);
+
+        errors.values().forEach(list -> assertTrue(list.isEmpty(), list.toString()));
+    }
+
+    @Test
+    void rejectsOnlyTheMalformedSection() throws Exception {
+        Map<String, List<String>> errors = ChapterDigestService.validate(json("{"
+            + "\"summary\": \"本章摘要\","
+            + "\"coreState\": {\"protagonist\": {\"name\": \"林晨\"}},"
+            + "\"entities\": {\"events\": [{\"id\": 1}], \"characterRelations\": [{\"from\": \"林晨\"}]}"
+            + "}"), true);
+
+        assertTrue(errors.get(ChapterDigestService.SECTION_SUMMARY).isEmpty());
+        assertTrue(errors.get(ChapterDigestService.SECTION_CORE_STATE).isEmpty());
+        assertEquals(2, errors.get(ChapterDigestService.SECTION_ENTITIES).size());
+    }
+
+    @Test
+    void missingSectionsFailAndGraphSectionsAreSkippedWithoutGraph() throws Exception {
+        JsonNode root = json("{\"summary\": \"  \", \"coreState\": []}");
+
+        Map<String, List<String>> withGraph = ChapterDigestService.validate(root, true);
+        assertFalse(withGraph.get(ChapterDigestService.SECTION_SUMMARY).isEmpty());
+        assertFalse(withGraph.get(ChapterDigestService.SECTION_CORE_STATE).isEmpty());
+        assertFalse(withGraph.get(ChapterDigestService.SECTION_ENTITIES).isEmpty());
+
+        Map<String, List<String>> summaryOnly = ChapterDigestService.validate(json("{\"summary\": \"摘要\"}"), false);
+        summaryOnly.values().forEach(list -> assertTrue(list.isEmpty(), list.toString()));
+    }
+
+    private JsonNode json(String text) throws Exception {
+        return objectMapper.readTree(text);
+    }
+}
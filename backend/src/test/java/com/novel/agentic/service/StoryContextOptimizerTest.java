@@ -0,0 +1,79 @@
+package com.novel.agentic.service;
+
+import com.novel.agentic.model.GraphEntity;
+import com.novel.agentic.model.WritingContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoryContextOptimizerTest {
+
+    @Test
+    void packsByScorePerTokenWithinBudget() {
+        StoryContextOptimizer.Candidate cheap = candidate("events", 0, 0.6, 20);
+        StoryContextOptimizer.Candidate costly = candidate("events", 1, 0.9, 90);
+        StoryContextOptimizer.Candidate summary = candidate("summaries", 0, 1.0, 30);
+
+        Set<StoryContextOptimizer.Candidate> packed =
+            StoryContextOptimizer.pack(Arrays.asList(cheap, costly, summary), 60);
+
+        assertTrue(packed.contains(cheap));
+        assertTrue(packed.contains(summary));
+        assertFalse(packed.contains(costly));
+        assertTrue(packed.stream().mapToInt(c -> c.tokens).sum() <= 60);
+    }
+
+    @Test
+    void prefersSingleHighValueItemOverWeakGreedyFill() {
+        StoryContextOptimizer.Candidate tiny = candidate("profiles", 0, 0.2, 1);
+        StoryContextOptimizer.Candidate big = candidate("events", 0, 0.9, 100);
+        List<StoryContextOptimizer.Candidate> candidates = Arrays.asList(tiny, big);
+
+        Set<StoryContextOptimizer.Candidate> packed = StoryContextOptimizer.pack(candidates, 100);
+
+        assertEquals(1, packed.size());
+        assertTrue(packed.contains(big));
+    }
+
+    @Test
+    void capsSummariesAndProfilesBeforePacking() {
+        List<GraphEntity> events = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            events.add(GraphEntity.builder().id("e" + i).type("Event").chapterNumber(i).relevanceScore(0.9).build());
+        }
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            summaries.add(Map.of("chapterNumber", i, "summary", "第" + i + "章概要"));
+        }
+        List<Map<String, Object>> profiles = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            profiles.add(Map.of("name", "角色" + i));
+        }
+        Map<String, Object> plan = new HashMap<>();
+        plan.put("chapterNumber", 20);
+
+        WritingContext optimized = new StoryContextOptimizer().optimize(WritingContext.builder()
+            .chapterPlan(plan)
+            .relevantEvents(events)
+            .recentSummaries(summaries)
+            .characterProfiles(profiles)
+            .build());
+
+        // 预算足够时也只保留最近 10 条概要、前 5 个人物档案
+        assertEquals(10, optimized.getRecentSummaries().size());
+        assertEquals(3, optimized.getRecentSummaries().get(0).get("chapterNumber"));
+        assertEquals(5, optimized.getCharacterProfiles().size());
+        assertEquals("角色1", optimized.getCharacterProfiles().get(0).get("name"));
+    }
+
+    private StoryContextOptimizer.Candidate candidate(String section, int index, double score, int tokens) {
+        return new StoryContextOptimizer.Candidate(section, index, score, tokens);
+    }
+}
@@ -0,0 +1,100 @@
+package com.novel.agentic.service.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventGraphSnapshotTest {
+
+    private static EventGraphSnapshot sample() {
+        return EventGraphSnapshot.builder(1L)
+            .event("e1", 1, 0.9, "入门考核", "neutral", "[]")
+            .event("e2", 2, 0.5, "与师兄冲突", "tense", "[\"冲突\"]")
+            .event("e3", 3, 0.7, "被逐出宗门", "negative", "[]")
+            .event("e4", 5, 0.4, "流落坊市", "neutral", "[]")
+            .participants("e1", Arrays.asList("林动", "长老"))
+            .participants("e2", Arrays.asList("林动", "林琅天"))
+            .participants("e3", Arrays.asList("林琅天", "林动"))
+            .causal("e1", "e2")
+            .causal("e2", "e3")
+            .causal("e3", "e4")
+            .build();
+    }
+
+    @Test
+    void causalChainIsBoundedByDepthAndOrderedByDistance() {
+        EventGraphSnapshot graph = sample();
+
+        List<EventGraphSnapshot.Hop> hops = graph.causalChain("e2", 1);
+        assertEquals(Arrays.asList("e1", "e3"), ids(graph, hops));
+
+        hops = graph.causalChain("e1", 3);
+        assertEquals(Arrays.asList("e2", "e3", "e4"), ids(graph, hops));
+        assertEquals(Arrays.asList(1, 2, 3), hops.stream().map(EventGraphSnapshot.Hop::getDistance).collect(Collectors.toList()));
+
+        assertTrue(graph.causalChain("missing", 3).isEmpty());
+    }
+
+    @Test
+    void participantEventsAreSortedByChapter() {
+        EventGraphSnapshot graph = EventGraphSnapshot.builder(1L)
+            .event("late", 9, null, "后", null, null)
+            .event("early", 2, null, "前", null, null)
+            .participants("late", Arrays.asList("林动"))
+            .participants("early", Arrays.asList("林动"))
+            .build();
+
+        int[] events = graph.eventsOf("林动");
+        assertEquals("early", graph.eventId(events[0]));
+        assertEquals("late", graph.eventId(events[1]));
+        assertEquals(0, graph.eventsOf("路人").length);
+    }
+
+    @Test
+    void sharedConflictEventsUseToneAndTags() {
+        EventGraphSnapshot graph = sample();
+
+        List<String> shared = Arrays.stream(graph.eventsOf("林动"))
+            .filter(e -> graph.participates(e, "林琅天") && graph.isConflict(e))
+            .mapToObj(graph::eventId)
+            .collect(Collectors.toList());
+        assertEquals(Arrays.asList("e2", "e3"), shared);
+    }
+
+    @Test
+    void patchKeepsExistingDataAndReplacesParticipants() {
+        EventGraphSnapshot base = sample();
+        EventGraphSnapshot patched = base.toBuilder()
+            .event("e5", 6, 0.8, "重返宗门", null, null)
+            .causal("e4", "e5")
+            .participants("e1", Arrays.asList("长老"))
+            .build();
+
+        assertEquals(5, patched.eventCount());
+        assertEquals(4, patched.causalEdgeCount());
+        assertEquals(Arrays.asList("e2", "e3"), ids(patched, patched.causalChain("e1", 2)));
+        assertEquals(4, patched.causalChain("e1", 4).size());
+        assertFalse(patched.participates(0, "林动"));
+        assertTrue(base.participates(0, "林动"));
+    }
+
+    @Test
+    void edgesToUnknownEventsAreTraversedButNotReturned() {
+        EventGraphSnapshot graph = EventGraphSnapshot.builder(1L)
+            .event("a", 1, null, "起", null, null)
+            .event("c", 3, null, "终", null, null)
+            .causal("a", "b")
+            .causal("b", "c")
+            .build();
+
+        assertEquals(Arrays.asList("c"), ids(graph, graph.causalChain("a", 2)));
+    }
+
+    private static List<String> ids(EventGraphSnapshot graph, List<EventGraphSnapshot.Hop> hops) {
+        return hops.stream().map(h -> graph.eventId(h.getEvent())).collect(Collectors.toList());
+    }
+}
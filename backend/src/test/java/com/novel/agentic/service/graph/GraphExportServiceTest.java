@@ -0,0 +1,186 @@
+package com.novel.agentic.service.graph;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.agentic.entity.graph.GraphEvent;
+import com.novel.agentic.entity.graph.GraphOpenQuest;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphExportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private GraphExportService service;
+
+    private final List<GraphOpenQuest> quests = new ArrayList<>();
+    private final List<GraphEvent> events = new ArrayList<>();
+
+    private static final Comparator<Integer> CHAPTER_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    /**
+     * 模拟 Mapper 的 streamPage：按 (章节, id) 键集过滤、排序并逐行交给 ResultHandler；
+     * 与 MySQL 一致，章节为空的行升序排在最前、降序排在最后
+     */
+    private static <T> GraphExportService.PageQuery<T> keyset(List<T> rows, Function<T, Integer> chapter, Function<T, Long> id) {
+        return (novelId, afterChapter, afterId, descending, limit, handler) -> {
+            Comparator<T> order = Comparator.comparing(chapter, CHAPTER_ORDER).thenComparing(id);
+            if (descending) {
+                order = order.reversed();
+            }
+            List<T> page = rows.stream()
+                .filter(row -> {
+                    if (afterId == null) {
+                        return true;
+                    }
+                    int cmp = CHAPTER_ORDER.compare(chapter.apply(row), afterChapter);
+                    cmp = cmp != 0 ? cmp : Long.compare(id.apply(row), afterId);
+                    return descending ? cmp < 0 : cmp > 0;
+                })
+                .sorted(order)
+                .limit(limit)
+                .collect(Collectors.toList());
+            DefaultResultContext<T> context = new DefaultResultContext<>();
+            for (T row : page) {
+                if (context.isStopped()) {
+                    break;
+                }
+                context.nextResultObject(row);
+                handler.handleResult(context);
+            }
+        };
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = new GraphExportService();
+        for (long i = 1; i <= 3; i++) {
+            quests.add(GraphOpenQuest.builder().id(i).questId("q" + i).introducedChapter((int) i).build());
+        }
+        // 同一章多个事件，验证 id 作为第二排序键
+        long id = 1;
+        for (int chapter = 1; chapter <= 4; chapter++) {
+            for (int k = 0; k < 2; k++) {
+                events.add(GraphEvent.builder().id(id).eventId("e" + id).chapterNumber(chapter).build());
+                id++;
+            }
+        }
+        service.register(GraphExportService.Section.OPEN_QUESTS,
+            keyset(quests, GraphOpenQuest::getIntroducedChapter, GraphOpenQuest::getId),
+            GraphOpenQuest::getIntroducedChapter, GraphOpenQuest::getId,
+            (json, quest) -> json.writeString(quest.getQuestId()), novelId -> quests.size());
+        service.register(GraphExportService.Section.EVENTS,
+            keyset(events, GraphEvent::getChapterNumber, GraphEvent::getId),
+            GraphEvent::getChapterNumber, GraphEvent::getId,
+            (json, event) -> json.writeString(event.getEventId()), novelId -> events.size());
+    }
+
+    private JsonNode page(String types, String cursor, Integer limit, String order) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.write(service.prepare(1L, types, cursor, limit, order), out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static List<String> ids(JsonNode page, String section) {
+        List<String> ids = new ArrayList<>();
+        page.path("data").path(section).forEach(node -> ids.add(node.asText()));
+        return ids;
+    }
+
+    @Test
+    void cursorRoundTripsAndRejectsMalformedValues() {
+        assertNull(GraphExportService.Cursor.parse(null));
+        assertEquals("events", GraphExportService.Cursor.parse("events").toString());
+        assertEquals("events:12:3456", GraphExportService.Cursor.parse("events:12:3456").toString());
+        assertEquals("events::3456", GraphExportService.Cursor.parse("events::3456").toString());
+        assertThrows(IllegalArgumentException.class, () -> GraphExportService.Cursor.parse("events:12"));
+        assertThrows(IllegalArgumentException.class, () -> GraphExportService.Cursor.parse("events:x:1"));
+        assertThrows(IllegalArgumentException.class, () -> GraphExportService.Cursor.parse("unknown"));
+        // 游标分区必须在导出范围内
+        assertThrows(IllegalArgumentException.class, () -> service.prepare(1L, "openQuests", "events:1:1", null, null));
+    }
+
+    @Test
+    void pagesSpanSectionsInOrderUntilExhausted() throws Exception {
+        JsonNode first = page("events,openQuests", null, 4, null);
+        assertEquals(3, first.path("totals").path("openQuests").asInt());
+        assertEquals(8, first.path("totals").path("events").asInt());
+        assertEquals(List.of("q1", "q2", "q3"), ids(first, "openQuests"));
+        assertEquals(List.of("e1"), ids(first, "events"));
+        assertEquals(4, first.path("count").asInt());
+        assertEquals("events:1:1", first.path("nextCursor").asText());
+
+        List<String> all = new ArrayList<>(ids(first, "events"));
+        String cursor = first.path("nextCursor").asText();
+        while (cursor != null) {
+            JsonNode next = page("events,openQuests", cursor, 4, null);
+            assertTrue(next.path("totals").isMissingNode(), "只有首页附带总数");
+            assertTrue(next.path("data").path("openQuests").isMissingNode());
+            all.addAll(ids(next, "events"));
+            cursor = next.path("nextCursor").isNull() ? null : next.path("nextCursor").asText();
+        }
+        assertEquals(List.of("e1", "e2", "e3", "e4", "e5", "e6", "e7", "e8"), all);
+    }
+
+    @Test
+    void sectionBoundaryHandsOverToNextSection() throws Exception {
+        // 恰好写满任务分区时，下一页从事件分区开头开始
+        JsonNode first = page("openQuests,events", null, 3, null);
+        assertEquals(List.of("q1", "q2", "q3"), ids(first, "openQuests"));
+        assertEquals("events", first.path("nextCursor").asText());
+
+        JsonNode second = page("openQuests,events", "events", 3, null);
+        assertEquals(List.of("e1", "e2", "e3"), ids(second, "events"));
+        assertEquals("events:2:3", second.path("nextCursor").asText());
+    }
+
+    @Test
+    void descendingOrderWalksFromLatestChapter() throws Exception {
+        JsonNode first = page("events", null, 3, "desc");
+        assertEquals("desc", first.path("order").asText());
+        assertEquals(List.of("e8", "e7", "e6"), ids(first, "events"));
+        assertEquals("events:3:6", first.path("nextCursor").asText());
+
+        JsonNode second = page("events", "events:3:6", 10, "desc");
+        assertEquals(List.of("e5", "e4", "e3", "e2", "e1"), ids(second, "events"));
+        assertTrue(second.path("nextCursor").isNull());
+    }
+
+    @Test
+    void nullChaptersPageAsSeparateRange() throws Exception {
+        // 章节为空的事件：升序排在最前，降序排在最后
+        events.add(GraphEvent.builder().id(9L).eventId("e9").build());
+        events.add(GraphEvent.builder().id(10L).eventId("e10").build());
+
+        JsonNode first = page("events", null, 1, null);
+        assertEquals(List.of("e9"), ids(first, "events"));
+        assertEquals("events::9", first.path("nextCursor").asText());
+
+        JsonNode second = page("events", "events::9", 2, null);
+        assertEquals(List.of("e10", "e1"), ids(second, "events"));
+        assertEquals("events:1:1", second.path("nextCursor").asText());
+
+        assertEquals(List.of("e8", "e7", "e6", "e5", "e4", "e3", "e2", "e1", "e10", "e9"), walk("desc", 3));
+    }
+
+    private List<String> walk(String order, int limit) throws Exception {
+        List<String> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode next = page("events", cursor, limit, order);
+            all.addAll(ids(next, "events"));
+            cursor = next.path("nextCursor").isNull() ? null : next.path("nextCursor").asText();
+        } while (cursor != null);
+        return all;
+    }
+}
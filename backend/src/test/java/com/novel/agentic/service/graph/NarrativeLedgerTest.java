@@ -0,0 +1,109 @@
+package com.novel.agentic.service.graph;
+
+import com.novel.agentic.entity.graph.GraphNarrativeBeat;
+import com.novel.agentic.entity.graph.GraphPerspectiveUsage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NarrativeLedgerTest {
+
+    private static GraphNarrativeBeat beat(int chapter, String type, double tension) {
+        return GraphNarrativeBeat.builder().beatId("beat_" + chapter).chapterNumber(chapter)
+            .beatType(type).tension(tension).paceScore(0.5).build();
+    }
+
+    private static GraphPerspectiveUsage perspective(int chapter, String characterName) {
+        return GraphPerspectiveUsage.builder().perspectiveId("perspective_" + chapter)
+            .chapterNumber(chapter).characterName(characterName).build();
+    }
+
+    private static List<Integer> chapters(NarrativeLedger.Rhythm rhythm) {
+        return rhythm.getBeats().stream().map(GraphNarrativeBeat::getChapterNumber).collect(Collectors.toList());
+    }
+
+    @Test
+    void windowCoversMostRecentRecordedChaptersBeforeCurrent() {
+        NarrativeLedger ledger = new NarrativeLedger();
+        ledger.putBeat(beat(1, "PLOT", 0.2));
+        ledger.putBeat(beat(2, "人物刻画", 0.4));
+        ledger.putBeat(beat(4, "冲突", 0.8));
+        ledger.putBeat(beat(5, "CLIMAX", 1.0));
+        ledger.putBeat(beat(7, "CONFLICT", 0.9));
+
+        // 第 8 章之前最近 3 个有记录的章节：4、5、7（第 6 章缺失不占窗口）
+        NarrativeLedger.Rhythm rhythm = ledger.rhythm(8, 3);
+        assertEquals(Arrays.asList(4, 5, 7), chapters(rhythm));
+        assertEquals(1.0, rhythm.ratio(NarrativeLedger.BeatKind.CONFLICT, NarrativeLedger.BeatKind.CLIMAX), 1e-9);
+        assertEquals(3, rhythm.getConsecutiveConflict());
+        assertEquals(0.9, rhythm.getAverageTension(), 1e-9);
+
+        NarrativeLedger.Rhythm wide = ledger.rhythm(6, 10);
+        assertEquals(Arrays.asList(1, 2, 4, 5), chapters(wide));
+        assertEquals(1, wide.count(NarrativeLedger.BeatKind.CHARACTER));
+        assertEquals(0.25, wide.ratio(NarrativeLedger.BeatKind.PLOT), 1e-9);
+        assertEquals(2, wide.getConsecutiveConflict());
+
+        assertTrue(ledger.rhythm(1, 5).getBeats().isEmpty());
+    }
+
+    @Test
+    void overwriteAndRemoveKeepAggregatesConsistent() {
+        NarrativeLedger ledger = new NarrativeLedger();
+        ledger.putBeat(beat(1, "CONFLICT", 0.9));
+        ledger.putBeat(beat(2, "CONFLICT", 0.9));
+        ledger.putBeat(beat(2, "RELIEF", 0.1));
+
+        NarrativeLedger.Rhythm rhythm = ledger.rhythm(3, 5);
+        assertEquals(2, rhythm.getTotal());
+        assertEquals(1, rhythm.count(NarrativeLedger.BeatKind.RELIEF));
+        assertEquals(0, rhythm.getConsecutiveConflict());
+        assertEquals(0.5, rhythm.getAverageTension(), 1e-9);
+
+        ledger.removeChapter(2);
+        rhythm = ledger.rhythm(3, 5);
+        assertEquals(1, rhythm.getTotal());
+        assertEquals(0, rhythm.count(NarrativeLedger.BeatKind.RELIEF));
+        assertEquals(0.9, rhythm.getAverageTension(), 1e-9);
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        NarrativeLedger ledger = new NarrativeLedger();
+        for (int chapter = 1; chapter <= 300; chapter++) {
+            ledger.putBeat(beat(chapter, chapter % 2 == 0 ? "PLOT" : "CONFLICT", 0.5));
+        }
+
+        NarrativeLedger.Rhythm rhythm = ledger.rhythm(301, 6);
+        assertEquals(Arrays.asList(295, 296, 297, 298, 299, 300), chapters(rhythm));
+        assertEquals(3, rhythm.count(NarrativeLedger.BeatKind.PLOT));
+    }
+
+    @Test
+    void perspectivesReturnRecentRecordsInChapterOrder() {
+        NarrativeLedger ledger = new NarrativeLedger();
+        ledger.putPerspective(perspective(1, "林凡"));
+        ledger.putPerspective(perspective(3, "苏瑶"));
+        ledger.putPerspective(perspective(4, "林凡"));
+        ledger.putPerspective(perspective(6, "林凡"));
+
+        List<Integer> chapters = ledger.perspectives(6, 2).stream()
+            .map(GraphPerspectiveUsage::getChapterNumber).collect(Collectors.toList());
+        assertEquals(Arrays.asList(3, 4), chapters);
+
+        ledger.removeChapter(3);
+        assertEquals(3, ledger.perspectives(7, 5).size());
+    }
+
+    @Test
+    void normalizesBeatTypes() {
+        assertEquals("CONFLICT", NarrativeLedger.normalizeBeatType("激烈冲突"));
+        assertEquals("RELIEF", NarrativeLedger.normalizeBeatType("daily relief"));
+        assertEquals(NarrativeLedger.BeatKind.OTHER, NarrativeLedger.kindOf("悬疑"));
+        assertEquals(NarrativeLedger.BeatKind.OTHER, NarrativeLedger.kindOf(null));
+    }
+}
@@ -0,0 +1,97 @@
+package com.novel.agentic.service.graph;
+
+import com.novel.agentic.entity.graph.GraphEvent;
+import com.novel.agentic.entity.graph.GraphForeshadowing;
+import com.novel.agentic.entity.graph.GraphOpenQuest;
+import com.novel.agentic.entity.graph.GraphPlotline;
+import com.novel.agentic.entity.graph.GraphRelationshipState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NovelGraphTablesTest {
+
+    private static GraphEvent event(String id, Integer chapter, Double importance) {
+        return GraphEvent.builder().eventId(id).chapterNumber(chapter).importance(importance).build();
+    }
+
+    @Test
+    void relevantEventsMatchSqlFilterAndOrder() {
+        NovelGraphTables.Events events = NovelGraphTables.Events.of(Arrays.asList(
+            event("a", 1, 0.5),
+            event("b", 3, 0.9),
+            event("c", 2, null),
+            event("d", 5, 1.0),
+            event("e", null, 1.0),
+            event("f", 4, 0.9)));
+
+        // chapter < 5，按重要性降序（空值最后）、章节降序；空章节不满足条件
+        List<String> ids = events.relevant(5, 10).stream().map(GraphEvent::getEventId).collect(Collectors.toList());
+        assertEquals(Arrays.asList("f", "b", "a", "c"), ids);
+        assertEquals(2, events.relevant(5, 2).size());
+        assertTrue(events.relevant(1, 10).isEmpty());
+
+        // 全部事件按章节降序，空章节排最后
+        List<String> all = events.all().stream().map(GraphEvent::getEventId).collect(Collectors.toList());
+        assertEquals(Arrays.asList("d", "f", "b", "c", "a", "e"), all);
+    }
+
+    @Test
+    void unresolvedForeshadowsSkipRevealedAndFarFuture() {
+        NovelGraphTables.Foreshadows foreshadows = NovelGraphTables.Foreshadows.of(Arrays.asList(
+            GraphForeshadowing.builder().foreshadowId("low").importance("low").status("PLANTED").introducedChapter(1).build(),
+            GraphForeshadowing.builder().foreshadowId("high2").importance("high").status("PLANTED").introducedChapter(2).build(),
+            GraphForeshadowing.builder().foreshadowId("high1").importance("high").status("PLANTED").introducedChapter(1).build(),
+            GraphForeshadowing.builder().foreshadowId("revealed").importance("high").status("REVEALED").introducedChapter(1).build(),
+            GraphForeshadowing.builder().foreshadowId("far").importance("high").status("PLANTED").introducedChapter(1)
+                .plannedRevealChapter(40).build(),
+            GraphForeshadowing.builder().foreshadowId("current").importance("high").status("PLANTED").introducedChapter(5).build()));
+
+        List<String> ids = foreshadows.unresolved(5, 10).stream()
+            .map(GraphForeshadowing::getForeshadowId).collect(Collectors.toList());
+        assertEquals(Arrays.asList("high1", "high2", "low"), ids);
+    }
+
+    @Test
+    void idlePlotlinesTreatNullAsChapterZero() {
+        NovelGraphTables.Plotlines plotlines = NovelGraphTables.Plotlines.of(Arrays.asList(
+            GraphPlotline.builder().plotlineId("never").priority(0.5).build(),
+            GraphPlotline.builder().plotlineId("recent").priority(0.9).lastTouchedChapter(8).build(),
+            GraphPlotline.builder().plotlineId("stale").priority(0.5).lastTouchedChapter(3).build(),
+            GraphPlotline.builder().plotlineId("urgent").priority(0.9).lastTouchedChapter(4).build()));
+
+        List<String> ids = plotlines.idle(10, 10).stream().map(GraphPlotline::getPlotlineId).collect(Collectors.toList());
+        assertEquals(Arrays.asList("urgent", "never", "stale"), ids);
+    }
+
+    @Test
+    void relationshipsIndexedPerCharacterInStrengthOrder() {
+        NovelGraphTables.Relationships relationships = NovelGraphTables.Relationships.of(Arrays.asList(
+            GraphRelationshipState.builder().characterA("甲").characterB("乙").strength(0.3).build(),
+            GraphRelationshipState.builder().characterA("丙").characterB("甲").strength(0.9).build(),
+            GraphRelationshipState.builder().characterA("乙").characterB("丙").strength(0.6).build()));
+
+        assertEquals(0.9, relationships.top(1).get(0).getStrength());
+        List<Double> strengths = relationships.ofCharacter("甲", 10).stream()
+            .map(GraphRelationshipState::getStrength).collect(Collectors.toList());
+        assertEquals(Arrays.asList(0.9, 0.3), strengths);
+        assertTrue(relationships.ofCharacter("丁", 10).isEmpty());
+    }
+
+    @Test
+    void openQuestsOrderedByDueChapterWithNullsFirst() {
+        NovelGraphTables.OpenQuests quests = NovelGraphTables.OpenQuests.of(Arrays.asList(
+            GraphOpenQuest.builder().questId("late").status("OPEN").dueByChapter(20).build(),
+            GraphOpenQuest.builder().questId("overdue").status("OPEN").dueByChapter(3).build(),
+            GraphOpenQuest.builder().questId("anytime").status("OPEN").build(),
+            GraphOpenQuest.builder().questId("done").status("RESOLVED").dueByChapter(12).build(),
+            GraphOpenQuest.builder().questId("soon").status("OPEN").dueByChapter(12).build()));
+
+        List<String> ids = quests.open(10).stream().map(GraphOpenQuest::getQuestId).collect(Collectors.toList());
+        assertEquals(Arrays.asList("anytime", "soon", "late"), ids);
+    }
+}
@@ -0,0 +1,149 @@
+package com.novel.agentic.service.orchestrator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novel.agentic.model.ToolDefinition;
+import com.novel.agentic.model.WritingContext;
+import com.novel.agentic.service.performance.ContextPrefetcher;
+import com.novel.agentic.service.tools.Tool;
+import com.novel.agentic.service.tools.ToolRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgentOrchestratorTest {
+
+    private AgentOrchestrator orchestrator;
+    private ToolRegistry registry;
+    private ContextPrefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ToolRegistry();
+        ReflectionTestUtils.setField(registry, "threads", 4);
+        ReflectionTestUtils.setField(registry, "queueCapacity", 8);
+        ReflectionTestUtils.setField(registry, "defaultTimeoutMs", 1000L);
+        registry.init();
+
+        prefetcher = new ContextPrefetcher();
+        ReflectionTestUtils.setField(prefetcher, "threads", 4);
+        ReflectionTestUtils.setField(prefetcher, "queueCapacity", 8);
+        ReflectionTestUtils.setField(prefetcher, "deadlineMs", 2000L);
+        ReflectionTestUtils.setField(prefetcher, "sourceTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(prefetcher, "slowSourceMs", 1000L);
+        prefetcher.init();
+
+        orchestrator = new AgentOrchestrator();
+        ReflectionTestUtils.setField(orchestrator, "toolRegistry", registry);
+        ReflectionTestUtils.setField(orchestrator, "contextPrefetcher", prefetcher);
+        ReflectionTestUtils.setField(orchestrator, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(orchestrator, "maxActionsPerStep", 3);
+        ReflectionTestUtils.setField(orchestrator, "toolTimeoutMs", 1000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+        registry.shutdown();
+    }
+
+    @Test
+    void multiActionStepRunsDistinctCallsAndReportsSkippedOnes() {
+        EchoTool a = new EchoTool("getA", 0, 0);
+        EchoTool b = new EchoTool("getB", 0, 0);
+        EchoTool c = new EchoTool("getC", 0, 0);
+        registry.register(a);
+        registry.register(b);
+        registry.register(c);
+
+        List<AgentOrchestrator.ToolCall> requested = Arrays.asList(
+            new AgentOrchestrator.ToolCall("getA", "{\"x\":1}"),
+            new AgentOrchestrator.ToolCall("getA", "{\"x\":2}"),
+            new AgentOrchestrator.ToolCall("getA", "{\"x\":1}"),
+            new AgentOrchestrator.ToolCall("getMissing", ""),
+            new AgentOrchestrator.ToolCall("getB", ""),
+            new AgentOrchestrator.ToolCall("getC", ""));
+        Set<String> executed = new HashSet<>();
+
+        AgentOrchestrator.StepResult result = orchestrator.executeStep("step", requested, 1L, 5,
+            WritingContext.builder().build(), null, WritingContext.builder(), executed);
+
+        // 同名不同参数各执行一次，完全重复的合并
+        assertEquals(2, a.seen.size());
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), a.seen.stream().map(args -> args.get("x")).collect(Collectors.toSet()));
+        assertEquals(1, b.seen.size());
+        // 不存在的工具不影响同步的其他工具；超出每步上限的不执行
+        assertEquals(0, c.seen.size());
+        assertEquals(3, result.executed);
+        assertEquals(new HashSet<>(Arrays.asList("getA", "getB")), executed);
+
+        String observation = result.observation;
+        assertTrue(observation.contains("getA({\"x\":1}): "));
+        assertTrue(observation.contains("getA({\"x\":2}): "));
+        assertTrue(observation.contains("getA({\"x\":1}): 与本步已有调用重复"));
+        assertTrue(observation.contains("getMissing: 工具不存在"));
+        assertTrue(observation.contains("getC: 超出每步最多 3 个工具的限制"));
+    }
+
+    @Test
+    void batchWaitsForToolsDeclaringLongerTimeouts() {
+        ReflectionTestUtils.setField(orchestrator, "toolTimeoutMs", 100L);
+        // 调用模型的工具声明了更长的超时，不能被步骤默认超时截断
+        EchoTool slow = new EchoTool("generateIdea", 400, 2000);
+        registry.register(slow);
+
+        AgentOrchestrator.StepResult result = orchestrator.executeStep("step",
+            Arrays.asList(new AgentOrchestrator.ToolCall("generateIdea", "")), 1L, 5,
+            WritingContext.builder().build(), null, WritingContext.builder(), new HashSet<>());
+
+        assertEquals(1, slow.seen.size());
+        assertFalse(result.observation.contains("工具执行失败"), result.observation);
+    }
+
+    private static final class EchoTool implements Tool {
+        private final String name;
+        private final long sleepMs;
+        private final long timeoutMs;
+        private final List<Map<String, Object>> seen = new CopyOnWriteArrayList<>();
+
+        EchoTool(String name, long sleepMs, long timeoutMs) {
+            this.name = name;
+            this.sleepMs = sleepMs;
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public ToolDefinition getDefinition() {
+            return null;
+        }
+
+        @Override
+        public Object execute(Map<String, Object> args) throws Exception {
+            seen.add(args);
+            if (sleepMs > 0) {
+                Thread.sleep(sleepMs);
+            }
+            return Map.of("tool", name);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+    }
+}
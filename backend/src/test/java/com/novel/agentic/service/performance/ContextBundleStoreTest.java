@@ -0,0 +1,126 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.model.WritingContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextBundleStoreTest {
+
+    private final ContextBundleStore store = new ContextBundleStore();
+
+    private final List<int[]> loadedRanges = new ArrayList<>();
+
+    private final BiFunction<Integer, Integer, List<Map<String, Object>>> loader = (from, to) -> {
+        loadedRanges.add(new int[]{from, to});
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int chapter = from; chapter <= to; chapter++) {
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("chapterNumber", chapter);
+            summary.put("summary", "第" + chapter + "章概要");
+            result.add(summary);
+        }
+        return result;
+    };
+
+    @Test
+    void slidesSummaryWindowByLoadingOnlyTheNewChapter() {
+        List<Map<String, Object>> first = store.recentSummaries(1L, 40, 30, loader);
+        List<Map<String, Object>> next = store.recentSummaries(1L, 41, 30, loader);
+
+        assertEquals(range(10, 39), chapters(first));
+        assertEquals(range(11, 40), chapters(next));
+        assertEquals(2, loadedRanges.size());
+        assertArrayEquals(new int[]{40, 40}, loadedRanges.get(1));
+    }
+
+    @Test
+    void summaryEditInsideWindowForcesFullReload() {
+        store.recentSummaries(1L, 40, 30, loader);
+        store.onSummaryChanged(1L, 20);
+        store.recentSummaries(1L, 41, 30, loader);
+
+        assertArrayEquals(new int[]{11, 40}, loadedRanges.get(1));
+    }
+
+    @Test
+    void bundleIsSingleUseAndInvalidatedByEdits() {
+        store.put(bundle(5L, 8));
+        assertNotNull(store.take(5L, 8));
+        assertNull(store.take(5L, 8));
+
+        store.put(bundle(5L, 8));
+        store.onChapterChanged(5L, 7);
+        assertNull(store.take(5L, 8));
+
+        store.put(bundle(5L, 8));
+        assertNull(store.take(5L, 9));
+    }
+
+    @Test
+    void bundleBuiltAcrossAnEditIsDiscarded() {
+        ContextBundleStore.Bundle stale = bundle(6L, 3);
+        store.onSummaryChanged(6L, 2);
+        store.put(stale);
+
+        assertNull(store.take(6L, 3));
+    }
+
+    @Test
+    void bundleBuiltBeforeEditCommitsIsRejected() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.onChapterChanged(7L, 3);
+            // 版本号递增后、事务提交前开始的后台构建读到的仍是旧正文
+            store.put(bundle(7L, 4));
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        }
+
+        assertNull(store.take(7L, 4));
+    }
+
+    @Test
+    void summaryWindowLoadedBeforeCommitIsDroppedAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.onSummaryChanged(8L, 20);
+            store.recentSummaries(8L, 40, 30, loader);
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        }
+        store.recentSummaries(8L, 41, 30, loader);
+
+        assertArrayEquals(new int[]{11, 40}, loadedRanges.get(1));
+    }
+
+    private ContextBundleStore.Bundle bundle(Long novelId, int chapter) {
+        return new ContextBundleStore.Bundle(novelId, chapter, WritingContext.builder().build(),
+            store.editVersion(novelId), store.graphVersion(novelId), 10L);
+    }
+
+    private List<Integer> chapters(List<Map<String, Object>> summaries) {
+        return summaries.stream().map(s -> (Integer) s.get("chapterNumber")).collect(Collectors.toList());
+    }
+
+    private List<Integer> range(int from, int to) {
+        List<Integer> result = new ArrayList<>();
+        for (int chapter = from; chapter <= to; chapter++) {
+            result.add(chapter);
+        }
+        return result;
+    }
+}
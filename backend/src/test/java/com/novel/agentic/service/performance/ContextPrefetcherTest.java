@@ -0,0 +1,88 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.ai.execution.CancellationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextPrefetcherTest {
+
+    private ContextPrefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() {
+        prefetcher = new ContextPrefetcher();
+        ReflectionTestUtils.setField(prefetcher, "threads", 4);
+        ReflectionTestUtils.setField(prefetcher, "queueCapacity", 4);
+        ReflectionTestUtils.setField(prefetcher, "deadlineMs", 2000L);
+        ReflectionTestUtils.setField(prefetcher, "sourceTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(prefetcher, "slowSourceMs", 1000L);
+        prefetcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    void runsSourcesConcurrentlyAndKeepsDeclarationOrder() {
+        long started = System.currentTimeMillis();
+        Map<String, ContextPrefetcher.SourceResult> results = prefetcher.batch("order")
+            .add("a", () -> sleepThen(300, "A"))
+            .add("b", () -> sleepThen(300, "B"))
+            .add("c", () -> sleepThen(300, "C"))
+            .await();
+        long elapsed = System.currentTimeMillis() - started;
+
+        assertEquals(new ArrayList<>(results.keySet()), java.util.Arrays.asList("a", "b", "c"));
+        assertEquals("A", results.get("a").getValue());
+        assertEquals("C", results.get("c").getValue());
+        assertTrue(elapsed < 800, "sources should overlap, took " + elapsed + "ms");
+    }
+
+    @Test
+    void returnsPartialResultsOnTimeoutAndFailure() {
+        Map<String, ContextPrefetcher.SourceResult> results = prefetcher.batch("partial")
+            .add("fast", () -> "ok")
+            .add("slow", 100, () -> sleepThen(2000, "late"))
+            .add("broken", () -> {
+                throw new IllegalStateException("boom");
+            })
+            .await();
+
+        assertTrue(results.get("fast").isOk());
+        assertEquals(ContextPrefetcher.Outcome.TIMEOUT, results.get("slow").getOutcome());
+        assertNull(results.get("slow").getValue());
+        assertEquals(ContextPrefetcher.Outcome.ERROR, results.get("broken").getOutcome());
+        assertEquals("boom", results.get("broken").getError().getMessage());
+    }
+
+    @Test
+    void propagatesCancellationTokenToPoolThreads() {
+        CancellationToken token = new CancellationToken();
+        Map<String, ContextPrefetcher.SourceResult> results;
+        try (CancellationToken.Registration ignored = CancellationToken.bind(token)) {
+            results = prefetcher.batch("token")
+                .add("a", CancellationToken::current)
+                .add("b", CancellationToken::current)
+                .add("c", CancellationToken::current)
+                .await();
+        }
+
+        // 无论内联还是在线程池中执行，来源都能看到提交方的取消令牌
+        results.values().forEach(result -> assertSame(token, result.getValue()));
+        assertNull(CancellationToken.current());
+    }
+
+    private static String sleepThen(long millis, String value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+}
@@ -0,0 +1,126 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.service.graph.EventGraphSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventGraphIndexTest {
+
+    private final EventGraphIndex index = new EventGraphIndex();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Supplier<EventGraphSnapshot> loader = () -> {
+        loads.incrementAndGet();
+        return EventGraphSnapshot.builder(1L)
+            .event("e1", 1, 0.5, "起", null, null)
+            .event("e2", 2, 0.5, "承", null, null)
+            .causal("e1", "e2")
+            .build();
+    };
+
+    @Test
+    void loadsOnceAndPatchesWithoutReloading() {
+        EventGraphSnapshot first = index.get(1L, loader);
+        assertSame(first, index.get(1L, loader));
+
+        index.patch(1L, builder -> builder.event("e3", 3, 0.5, "转", null, null).causal("e2", "e3"));
+        EventGraphSnapshot patched = index.get(1L, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(3, patched.eventCount());
+        assertEquals(2, patched.causalChain("e1", 2).size());
+    }
+
+    @Test
+    void patchBeforeLoadDoesNotCacheAndInvalidateForcesReload() {
+        index.patch(1L, builder -> builder.causal("x", "y"));
+        index.get(1L, loader);
+        assertEquals(1, loads.get());
+
+        index.invalidate(1L);
+        index.get(1L, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void writeDuringLoadIsNotCached() {
+        index.get(1L, () -> {
+            index.patch(1L, builder -> builder.causal("e1", "e9"));
+            return loader.get();
+        });
+        index.get(1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void transactionalPatchesApplyOnceAfterCommit() {
+        index.get(1L, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.patch(1L, builder -> builder.event("e3", 3, 0.5, "转", null, null));
+            index.patch(1L, builder -> builder.causal("e2", "e3"));
+            // 提交前其他线程仍读到已提交的快照
+            assertEquals(2, CompletableFuture.supplyAsync(() -> index.get(1L, loader)).join().eventCount());
+            assertEquals(1, loads.get());
+        } finally {
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        EventGraphSnapshot patched = index.get(1L, loader);
+        assertEquals(1, loads.get());
+        assertEquals(3, patched.eventCount());
+        assertEquals(2, patched.causalChain("e1", 2).size());
+    }
+
+    @Test
+    void rollbackDropsSnapshotInsteadOfPatching() {
+        index.get(1L, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.patch(1L, builder -> builder.event("e3", 3, 0.5, "转", null, null));
+            // 本事务内读取能看到未提交写入，但不回写缓存
+            index.get(1L, loader);
+            assertEquals(2, loads.get());
+        } finally {
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertEquals(2, index.get(1L, loader).eventCount());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidateInsideTransactionDropsAgainAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.invalidate(1L);
+            // 事务未提交期间加载到的旧数据在事务结束时被丢弃
+            index.get(1L, loader);
+        } finally {
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        index.get(1L, loader);
+        assertEquals(2, loads.get());
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(sync -> sync.afterCompletion(status));
+    }
+}
@@ -0,0 +1,78 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.entity.graph.GraphEvent;
+import com.novel.agentic.service.graph.NovelGraphTables;
+import com.novel.agentic.service.graph.NovelGraphTables.Segment;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphMemoryTierTest {
+
+    private final GraphMemoryTier tier = new GraphMemoryTier();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Supplier<NovelGraphTables.Events> loader(int descriptionLength) {
+        return () -> {
+            loads.incrementAndGet();
+            StringBuilder description = new StringBuilder();
+            for (int i = 0; i < descriptionLength; i++) {
+                description.append('字');
+            }
+            return NovelGraphTables.Events.of(Collections.singletonList(
+                GraphEvent.builder().eventId("e1").chapterNumber(1).description(description.toString()).build()));
+        };
+    }
+
+    @Test
+    void loadsTableOnceUntilItsSegmentIsInvalidated() {
+        NovelGraphTables.Events first = tier.get(1L, Segment.EVENTS, loader(10));
+        assertSame(first, tier.get(1L, Segment.EVENTS, loader(10)));
+
+        // 其他表的写入不影响事件表
+        tier.invalidate(1L, Segment.RELATIONSHIPS);
+        tier.get(1L, Segment.EVENTS, loader(10));
+        assertEquals(1, loads.get());
+
+        tier.invalidate(1L, Segment.EVENTS);
+        tier.get(1L, Segment.EVENTS, loader(10));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void writeDuringLoadIsNotCached() {
+        Supplier<NovelGraphTables.Events> loader = loader(10);
+        tier.get(1L, Segment.EVENTS, () -> {
+            tier.invalidate(1L, Segment.EVENTS);
+            return loader.get();
+        });
+        tier.get(1L, Segment.EVENTS, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedNovelOverBudget() {
+        // 预算 1MB；每部小说约 400KB
+        ReflectionTestUtils.setField(tier, "maxHeapMb", 1L);
+        tier.get(1L, Segment.EVENTS, loader(200_000));
+        tier.get(2L, Segment.EVENTS, loader(200_000));
+        assertEquals(2, loads.get());
+
+        tier.get(1L, Segment.EVENTS, loader(10));
+        tier.get(3L, Segment.EVENTS, loader(200_000));
+        assertTrue(tier.totalBytes() <= 1024L * 1024);
+
+        // 小说 1 刚被访问过而保留，小说 2 被淘汰
+        tier.get(1L, Segment.EVENTS, loader(10));
+        assertEquals(3, loads.get());
+        tier.get(2L, Segment.EVENTS, loader(10));
+        assertEquals(4, loads.get());
+    }
+}
@@ -0,0 +1,84 @@
+package com.novel.agentic.service.performance;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphQueryCacheTest {
+
+    private GraphQueryCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new GraphQueryCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        cache.init();
+    }
+
+    @Test
+    void versionBumpInvalidatesOnlyThatNovel() {
+        assertEquals("v1", load("events", 1L, "v1"));
+        assertEquals("v1", load("events", 1L, "v2"));
+        assertEquals("o1", load("events", 2L, "o1"));
+        assertEquals(2, loads.get());
+
+        cache.bumpVersion(1L);
+        assertEquals("v2", load("events", 1L, "v2"));
+        assertEquals("o1", load("events", 2L, "o2"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void writeInsideTransactionBumpsAgainAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.bumpVersion(1L);
+            cache.bumpVersion(1L);
+            // 提交前并发读取到的旧数据落在事务内的版本号下
+            assertEquals("old", load("events", 1L, "old"));
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            assertEquals(1, synchronizations.size());
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        }
+
+        assertEquals("new", load("events", 1L, "new"));
+        assertEquals(3L, cache.version(1L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndReportsHitRatio() {
+        load("a", 1L, "A");
+        load("b", 1L, "B");
+        load("a", 1L, "A");     // a 变为最近访问
+        load("c", 1L, "C");     // 淘汰 b
+        load("a", 1L, "A2");
+        assertEquals("B2", load("b", 1L, "B2"));
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(4L, stats.get("misses"));
+        assertTrue((long) stats.get("evictions") >= 1L);
+        assertEquals(0.3333, (double) stats.get("hitRatio"), 0.0001);
+    }
+
+    private String load(String type, Long novelId, String value) {
+        return cache.getOrLoad(type, novelId, () -> {
+            loads.incrementAndGet();
+            return value;
+        }, 10);
+    }
+}
@@ -0,0 +1,139 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.entity.graph.GraphNarrativeBeat;
+import com.novel.agentic.service.graph.NarrativeLedger;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NarrativeLedgerIndexTest {
+
+    private final NarrativeLedgerIndex index = new NarrativeLedgerIndex();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Supplier<NarrativeLedger> loader = () -> {
+        loads.incrementAndGet();
+        NarrativeLedger ledger = new NarrativeLedger();
+        ledger.putBeat(beat(1, "PLOT"));
+        return ledger;
+    };
+
+    private static GraphNarrativeBeat beat(int chapter, String type) {
+        return GraphNarrativeBeat.builder().chapterNumber(chapter).beatType(type).build();
+    }
+
+    @Test
+    void appliesWritesToCachedLedgerWithoutReloading() {
+        NarrativeLedger first = index.get(1L, loader);
+        index.apply(1L, ledger -> ledger.putBeat(beat(2, "CONFLICT")));
+
+        NarrativeLedger ledger = index.get(1L, loader);
+        assertSame(first, ledger);
+        assertEquals(1, loads.get());
+        assertEquals(2, ledger.rhythm(3, 5).getTotal());
+    }
+
+    @Test
+    void writeDuringLoadIsNotCached() {
+        index.get(1L, () -> {
+            index.apply(1L, ledger -> ledger.putBeat(beat(2, "CONFLICT")));
+            return loader.get();
+        });
+        index.get(1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        index.get(1L, loader);
+        index.invalidate(1L);
+        index.get(1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void transactionalWritesStayInvisibleUntilCommit() {
+        NarrativeLedger first = index.get(1L, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.apply(1L, ledger -> ledger.putBeat(beat(2, "CONFLICT")));
+            // 提交前其他线程读到的共享账本不含未提交的节奏
+            assertEquals(1, CompletableFuture.supplyAsync(() -> index.get(1L, loader)).join().rhythm(3, 5).getTotal());
+            assertEquals(1, loads.get());
+        } finally {
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        NarrativeLedger ledger = index.get(1L, loader);
+        assertSame(first, ledger);
+        assertEquals(1, loads.get());
+        assertEquals(2, ledger.rhythm(3, 5).getTotal());
+    }
+
+    @Test
+    void ledgerLoadedBeforeCommitReceivesCommittedWrite() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.apply(1L, ledger -> ledger.putBeat(beat(2, "CONFLICT")));
+            // 事务未提交时其他线程加载并缓存了不含本章的账本
+            CompletableFuture.supplyAsync(() -> index.get(1L, loader)).join();
+        } finally {
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertEquals(2, index.get(1L, loader).rhythm(3, 5).getTotal());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void rollbackDropsLedgerInsteadOfApplying() {
+        index.get(1L, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.apply(1L, ledger -> ledger.putBeat(beat(2, "CONFLICT")));
+            // 本事务内读取直接查库，不回写缓存
+            index.get(1L, loader);
+            assertEquals(2, loads.get());
+        } finally {
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertEquals(1, index.get(1L, loader).rhythm(3, 5).getTotal());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidateInsideTransactionDropsAgainAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.invalidate(1L);
+            // 事务未提交期间加载到的旧数据在事务结束时被丢弃
+            index.get(1L, loader);
+        } finally {
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        index.get(1L, loader);
+        assertEquals(2, loads.get());
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(sync -> sync.afterCompletion(status));
+    }
+}
@@ -0,0 +1,80 @@
+package com.novel.agentic.service.performance;
+
+import com.novel.agentic.service.tools.VolumeLayout;
+import com.novel.domain.entity.Novel;
+import com.novel.domain.entity.NovelVolume;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VolumeLayoutCacheTest {
+
+    private final VolumeLayoutCache cache = new VolumeLayoutCache();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Supplier<List<NovelVolume>> loader = () -> {
+        loads.incrementAndGet();
+        List<NovelVolume> volumes = new ArrayList<>();
+        NovelVolume volume = new NovelVolume();
+        volume.setNovelId(1L);
+        volume.setVolumeNumber(1);
+        volume.setChapterStart(1);
+        volume.setChapterEnd(100);
+        volumes.add(volume);
+        return volumes;
+    };
+
+    @Test
+    void reusesLayoutUntilVolumesChange() {
+        Novel novel = novel(5, 500);
+        VolumeLayout first = cache.get(1L, novel, loader);
+        assertSame(first, cache.get(1L, novel, loader));
+        assertEquals(1, loads.get());
+
+        cache.onVolumesChanged(1L);
+        assertNotSame(first, cache.get(1L, novel, loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void rebuildsWhenNovelPlanChanges() {
+        cache.get(1L, novel(5, 500), loader);
+        cache.get(1L, novel(8, 800), loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void layoutBuiltBeforeCommitIsDroppedAfterCompletion() {
+        Novel novel = novel(5, 500);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.onVolumesChanged(1L);
+            // 事务提交前并发查询用旧卷数据构建并缓存了布局
+            cache.get(1L, novel, loader);
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        }
+        cache.get(1L, novel, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    private static Novel novel(int volumes, int chapters) {
+        Novel novel = new Novel();
+        novel.setId(1L);
+        novel.setPlannedVolumeCount(volumes);
+        novel.setTargetTotalChapters(chapters);
+        return novel;
+    }
+}
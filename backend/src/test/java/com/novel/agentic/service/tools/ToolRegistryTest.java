@@ -0,0 +1,201 @@
+package com.novel.agentic.service.tools;
+
+import com.novel.agentic.model.ToolDefinition;
+import com.novel.agentic.service.performance.ContextPrefetcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolRegistryTest {
+
+    private ToolRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ToolRegistry();
+        ReflectionTestUtils.setField(registry, "threads", 2);
+        ReflectionTestUtils.setField(registry, "queueCapacity", 4);
+        ReflectionTestUtils.setField(registry, "defaultTimeoutMs", 1000L);
+        registry.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void memoizesReadOnlyCallsWithinScopeRegardlessOfArgOrder() throws Exception {
+        CountingTool tool = new CountingTool("getOutline", 0);
+        registry.register(tool);
+
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("novelId", 1L);
+        args.put("chapterNumber", 3);
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("chapterNumber", 3);
+        reordered.put("novelId", 1L);
+
+        try (ToolCallScope.Registration ignored = ToolCallScope.open("test")) {
+            Object first = registry.executeTool("getOutline", args);
+            Object second = registry.executeTool("getOutline", reordered);
+            assertSame(first, second);
+            assertEquals(1, ToolCallScope.current().getHits());
+        }
+        assertEquals(1, tool.calls.get());
+    }
+
+    @Test
+    void doesNotMemoizeOutsideScope() throws Exception {
+        CountingTool tool = new CountingTool("getOutline", 0);
+        registry.register(tool);
+
+        Map<String, Object> args = new HashMap<>();
+        args.put("novelId", 1L);
+        registry.executeTool("getOutline", args);
+        registry.executeTool("getOutline", args);
+
+        assertEquals(2, tool.calls.get());
+    }
+
+    @Test
+    void timesOutSlowToolAndInterruptsIt() throws Exception {
+        CountingTool tool = new CountingTool("getSlow", 5000);
+        tool.timeoutMs = 100;
+        registry.register(tool);
+
+        assertThrows(TimeoutException.class, () -> registry.executeTool("getSlow", new HashMap<>()));
+        assertTrue(tool.interrupted.await(1, TimeUnit.SECONDS));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) registry.getStats().get("getSlow");
+        assertEquals(1L, stats.get("timeouts"));
+    }
+
+    @Test
+    void failedCallIsNotMemoizedAndCountsAsError() {
+        CountingTool tool = new CountingTool("getBroken", 0);
+        tool.fail = true;
+        registry.register(tool);
+
+        try (ToolCallScope.Registration ignored = ToolCallScope.open("test")) {
+            assertThrows(IllegalStateException.class, () -> registry.executeTool("getBroken", new HashMap<>()));
+            assertThrows(IllegalStateException.class, () -> registry.executeTool("getBroken", new HashMap<>()));
+        }
+        assertEquals(2, tool.calls.get());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) registry.getStats().get("getBroken");
+        assertEquals(2L, stats.get("invocations"));
+        assertEquals(2L, stats.get("errors"));
+    }
+
+    @Test
+    void runsSideEffectFreeToolsInlineOnPrefetchThreads() {
+        CountingTool query = new CountingTool("getOutline", 0);
+        CountingTool generator = new CountingTool("generateIdea", 0);
+        generator.sideEffectFree = false;
+        registry.register(query);
+        registry.register(generator);
+
+        ContextPrefetcher prefetcher = new ContextPrefetcher();
+        ReflectionTestUtils.setField(prefetcher, "threads", 2);
+        ReflectionTestUtils.setField(prefetcher, "queueCapacity", 4);
+        ReflectionTestUtils.setField(prefetcher, "deadlineMs", 2000L);
+        ReflectionTestUtils.setField(prefetcher, "sourceTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(prefetcher, "slowSourceMs", 1000L);
+        prefetcher.init();
+        try {
+            Map<String, ContextPrefetcher.SourceResult> results = prefetcher.batch("inline")
+                .add("query", () -> registry.executeTool("getOutline", new HashMap<>()))
+                .add("generate", () -> registry.executeTool("generateIdea", new HashMap<>()))
+                .await();
+            assertTrue(results.get("query").isOk());
+            assertTrue(results.get("generate").isOk());
+        } finally {
+            prefetcher.shutdown();
+        }
+
+        // 只读查询不再占用第二个线程；调用模型的工具仍隔离在工具线程池，避免被预取超时中断
+        assertTrue(query.thread.startsWith("context-prefetch-"), query.thread);
+        assertTrue(generator.thread.startsWith("tool-exec-"), generator.thread);
+
+        // 请求线程上仍走工具线程池，由注册表负责超时
+        assertDoesNotThrow(() -> registry.executeTool("getOutline", Map.of("novelId", 2L)));
+        assertTrue(query.thread.startsWith("tool-exec-"), query.thread);
+    }
+
+    @Test
+    void bucketsLatency() {
+        assertEquals(0, ToolRegistry.ToolStats.bucketOf(3));
+        assertEquals(3, ToolRegistry.ToolStats.bucketOf(200));
+        assertEquals(ToolRegistry.LATENCY_BUCKETS_MS.length, ToolRegistry.ToolStats.bucketOf(60000));
+    }
+
+    private static final class CountingTool implements ReadOnlyTool {
+        private final String name;
+        private final long sleepMs;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private long timeoutMs;
+        private boolean fail;
+        private boolean sideEffectFree = true;
+        private volatile String thread;
+
+        CountingTool(String name, long sleepMs) {
+            this.name = name;
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public ToolDefinition getDefinition() {
+            return null;
+        }
+
+        @Override
+        public Object execute(Map<String, Object> args) throws Exception {
+            calls.incrementAndGet();
+            thread = Thread.currentThread().getName();
+            if (fail) {
+                throw new IllegalStateException("broken");
+            }
+            if (sleepMs > 0) {
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("args", args);
+            return result;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        @Override
+        public boolean isSideEffectFree() {
+            return sideEffectFree;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.novel.agentic.service.tools;
+
+import com.novel.domain.entity.Novel;
+import com.novel.domain.entity.NovelVolume;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VolumeLayoutTest {
+
+    @Test
+    void selectsActualRangeThenExtensionThenPlannedEstimate() {
+        Novel novel = novel(5, 500);
+        VolumeLayout layout = VolumeLayout.build(1L, novel, Arrays.asList(
+            volume(2, 101, 200), volume(1, 1, 100)));
+
+        VolumeLayout.Selection inSecond = layout.select(150);
+        assertEquals(2, inSecond.getVolumeNumber());
+        assertFalse(inSecond.isFallbackUsed());
+        assertEquals(51, inSecond.getRemainingChapters());
+
+        // 卷二结束后 10 章缓冲内仍归卷二
+        VolumeLayout.Selection extended = layout.select(205);
+        assertEquals(2, extended.getVolumeNumber());
+        assertTrue(extended.isFallbackUsed());
+        assertTrue(extended.isOverrun());
+        assertEquals(5, extended.getOverrunChapters());
+
+        // 超出缓冲后按规划估算：每卷 100 章
+        VolumeLayout.Selection planned = layout.select(260);
+        assertEquals(3, planned.getVolumeNumber());
+        assertNull(planned.getVolume());
+        assertEquals(201, planned.getComputedStart());
+        assertEquals(300, planned.getComputedEnd());
+
+        // 最后一卷没有上限
+        VolumeLayout.Selection beyond = layout.select(900);
+        assertEquals(5, beyond.getVolumeNumber());
+        assertEquals(900, beyond.getSoftEnd());
+    }
+
+    @Test
+    void overlappingRangesPreferLowerVolumeNumber() {
+        VolumeLayout layout = VolumeLayout.build(1L, novel(2, 200), Arrays.asList(
+            volume(2, 50, 200), volume(1, 1, 100)));
+
+        assertEquals(1, layout.select(60).getVolumeNumber());
+        assertEquals(2, layout.select(101).getVolumeNumber());
+    }
+
+    @Test
+    void tooShortActualRangeFallsThroughToPlannedEstimate() {
+        VolumeLayout layout = VolumeLayout.build(1L, novel(5, 500), Arrays.asList(
+            volume(1, 1, 100), volume(2, 101, 110)));
+
+        VolumeLayout.Selection selection = layout.select(105);
+        // 卷二跨度 10 章小于规划跨度的 60%，落到卷一的延展缓冲内
+        assertEquals(1, selection.getVolumeNumber());
+        assertTrue(selection.isFallbackUsed());
+    }
+
+    @Test
+    void flattenedLookupMatchesFirstCandidateScan() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            List<VolumeLayout.Range<Integer>> candidates = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int start = 1 + random.nextInt(300);
+                int end = random.nextInt(10) == 0 ? Integer.MAX_VALUE : start + random.nextInt(120) - 10;
+                candidates.add(new VolumeLayout.Range<>(start, end, i));
+            }
+            List<VolumeLayout.Range<Integer>> flattened = VolumeLayout.flatten(candidates);
+            for (int chapter = 1; chapter <= 500; chapter++) {
+                Integer expected = null;
+                for (VolumeLayout.Range<Integer> candidate : candidates) {
+                    if (candidate.start <= chapter && chapter <= candidate.end) {
+                        expected = candidate.value;
+                        break;
+                    }
+                }
+                VolumeLayout.Range<Integer> found = VolumeLayout.find(flattened, chapter);
+                assertEquals(expected, found != null ? found.value : null, "chapter " + chapter);
+            }
+        }
+    }
+
+    private static Novel novel(int volumes, int chapters) {
+        Novel novel = new Novel();
+        novel.setId(1L);
+        novel.setPlannedVolumeCount(volumes);
+        novel.setTargetTotalChapters(chapters);
+        return novel;
+    }
+
+    private static NovelVolume volume(int number, int start, int end) {
+        NovelVolume volume = new NovelVolume();
+        volume.setId((long) number);
+        volume.setNovelId(1L);
+        volume.setVolumeNumber(number);
+        volume.setChapterStart(start);
+        volume.setChapterEnd(end);
+        return volume;
+    }
+}
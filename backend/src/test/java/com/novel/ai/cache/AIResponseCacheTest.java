@@ -0,0 +1,106 @@
+package com.novel.ai.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AIResponseCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private AIResponseCache newCache(long maxSizeMb, String ttlSpec) {
+        AIResponseCache cache = new AIResponseCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "directory", dir.toString());
+        ReflectionTestUtils.setField(cache, "maxSizeMb", maxSizeMb);
+        ReflectionTestUtils.setField(cache, "ttlSpec", ttlSpec);
+        cache.init();
+        return cache;
+    }
+
+    private static Map<String, Object> request(String text) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", "gpt-4o-mini");
+        body.put("temperature", 0.3);
+        body.put("messages", Collections.singletonList(Collections.singletonMap("content", text)));
+        return body;
+    }
+
+    @Test
+    void keyIsStableAndCreativeTypesAreNeverCached() {
+        AIResponseCache cache = newCache(1, "entity_extraction=1,chapter_writing=1");
+
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("messages", request("第一章").get("messages"));
+        reordered.put("temperature", 0.3);
+        reordered.put("model", "gpt-4o-mini");
+        assertEquals(cache.keyFor("entity_extraction", "u", "sk-1", 7L, request("第一章")),
+            cache.keyFor("entity_extraction", "u", "sk-1", 7L, reordered));
+        assertNotEquals(cache.keyFor("entity_extraction", "u", "sk-1", 7L, request("第一章")),
+            cache.keyFor("entity_extraction", "u", "sk-1", 7L, request("第二章")));
+
+        // 不同 API Key、不同用户之间不共享结果
+        String key = cache.keyFor("entity_extraction", "u", "sk-1", 7L, request("第一章"));
+        assertNotEquals(key, cache.keyFor("entity_extraction", "u", "sk-2", 7L, request("第一章")));
+        assertNotEquals(key, cache.keyFor("entity_extraction", "u", "sk-1", 8L, request("第一章")));
+        assertNotEquals(key, cache.keyFor("entity_extraction", "u", "sk-1", null, request("第一章")));
+
+        assertNull(cache.keyFor("chapter_writing", "u", "sk-1", 7L, request("第一章")));
+        assertNull(cache.keyFor("chapter_summary", "u", "sk-1", 7L, request("第一章")));
+    }
+
+    @Test
+    void survivesRestartAndEvictsLeastRecentlyUsed() {
+        AIResponseCache cache = newCache(1, "entity_extraction=1");
+        char[] chunk = new char[400 * 1024];
+        Arrays.fill(chunk, 'a');
+        String big = new String(chunk);
+
+        String k1 = cache.keyFor("entity_extraction", "u", "sk-1", 7L, request("1"));
+        String k2 = cache.keyFor("entity_extraction", "u", "sk-1", 7L, request("2"));
+        String k3 = cache.keyFor("entity_extraction", "u", "sk-1", 7L, request("3"));
+        cache.put("entity_extraction", k1, big);
+        cache.put("entity_extraction", k2, big);
+        assertNotNull(cache.get("entity_extraction", k1));
+
+        // 超出 1MB，最久未访问的 k2 被淘汰
+        cache.put("entity_extraction", k3, big);
+        assertNull(cache.get("entity_extraction", k2));
+        assertNotNull(cache.get("entity_extraction", k1));
+
+        AIResponseCache reopened = newCache(1, "entity_extraction=1");
+        assertEquals(2, reopened.entryCount());
+        assertEquals(big, reopened.get("entity_extraction", k3));
+    }
+
+    @Test
+    void onlyValidatedResponsesAreCachedAndInvalidEntriesAreDropped() {
+        AIResponseCache cache = newCache(1, "chapter_digest=1");
+        String key = cache.keyFor("chapter_digest", "u", "sk-1", 7L, request("第一章"));
+
+        // 截断/无法解析的响应不写入，重试时会重新请求
+        assertFalse(cache.putIfValid("chapter_digest", key, "{\"summary\": \"半截", s -> s.endsWith("}")));
+        assertFalse(cache.putIfValid("chapter_digest", key, "{}", null));
+        assertNull(cache.get("chapter_digest", key));
+        assertFalse(cache.putIfValid("chapter_digest", key, "{}", s -> {
+            throw new IllegalStateException("解析失败");
+        }));
+
+        assertTrue(cache.putIfValid("chapter_digest", key, "{\"summary\": \"完整\"}", s -> s.endsWith("}")));
+        assertEquals("{\"summary\": \"完整\"}", cache.get("chapter_digest", key, s -> s.endsWith("}")));
+
+        // 校验规则收紧后，旧条目读取时被丢弃
+        assertNull(cache.get("chapter_digest", key, s -> s.contains("coreState")));
+        assertEquals(0, cache.entryCount());
+    }
+}
@@ -0,0 +1,80 @@
+package com.novel.ai.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AICallTelemetryTest {
+
+    @Test
+    void normalizesBatchSuffix() {
+        assertEquals("volume_chapter_outlines_batch", AICallTelemetry.normalizeType("volume_chapter_outlines_batch_12"));
+        assertEquals("entity_extraction", AICallTelemetry.normalizeType("entity_extraction"));
+        assertEquals(AICallTelemetry.UNSCOPED, AICallTelemetry.normalizeType(null));
+    }
+
+    @Test
+    void exchangesInheritTypeFromEnclosingScope() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AICallTelemetry telemetry = new AICallTelemetry();
+        ReflectionTestUtils.setField(telemetry, "meterRegistry", registry);
+
+        try (AICallTelemetry.Scope outer = telemetry.begin("chapter_writing")) {
+            try (AICallTelemetry.Scope inner = telemetry.begin("entity_extraction")) {
+                telemetry.startExchange("m", AIHttpClient.CallType.BLOCKING, 100).finish("success");
+                inner.recordOutput(50);
+            }
+            telemetry.startExchange("m", AIHttpClient.CallType.STREAMING, 200).finish("throttled");
+        }
+        telemetry.startExchange("m", AIHttpClient.CallType.QUICK, 10).finish("success");
+
+        assertEquals(1, registry.get("ai.call.latency")
+            .tags("type", "entity_extraction", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("ai.call.latency")
+            .tags("type", "chapter_writing", "outcome", "throttled").timer().count());
+        assertEquals(1, registry.get("ai.call.latency").tags("type", AICallTelemetry.UNSCOPED).timer().count());
+        assertEquals(50.0, registry.get("ai.call.output.chars")
+            .tags("type", "entity_extraction", "model", "m").summary().totalAmount());
+    }
+
+    @Test
+    void ttftRecordedAtFirstContentDeltaOnlyAfterAdmission() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AICallTelemetry telemetry = new AICallTelemetry();
+        ReflectionTestUtils.setField(telemetry, "meterRegistry", registry);
+
+        // 只有角色帧、没有内容的流不记首 token
+        AICallTelemetry.Exchange empty = telemetry.startExchange("m", AIHttpClient.CallType.STREAMING, 10);
+        empty.admitted();
+        SseDeltaParser.parse(sse("data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n"), c -> true);
+        empty.finish("success");
+        assertTrue(registry.find("ai.call.ttft").timers().isEmpty());
+
+        AICallTelemetry.Exchange exchange = telemetry.startExchange("m", AIHttpClient.CallType.STREAMING, 10);
+        exchange.admitted();
+        List<String> deltas = new ArrayList<>();
+        SseDeltaParser.parse(sse("data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"你好\"}}]}\n"
+            + "data: [DONE]\n"), c -> deltas.add(c));
+        exchange.finish("success");
+
+        assertEquals(List.of("你好"), deltas);
+        assertEquals(1, registry.get("ai.call.ttft").timer().count());
+        assertEquals(2, registry.get("ai.call.queue").timer().count());
+
+        // 交换结束后不再有活跃交换，解析不会误记
+        SseDeltaParser.parse(sse("data: {\"choices\":[{\"delta\":{\"content\":\"x\"}}]}\n"), c -> true);
+        assertEquals(1, registry.get("ai.call.ttft").timer().count());
+    }
+
+    private static ByteArrayInputStream sse(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
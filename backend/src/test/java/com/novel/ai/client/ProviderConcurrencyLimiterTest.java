@@ -0,0 +1,99 @@
+package com.novel.ai.client;
+
+import com.novel.ai.client.ProviderConcurrencyLimiter.Permit;
+import com.novel.ai.client.ProviderConcurrencyLimiter.Priority;
+import com.novel.exception.AIHttpException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderConcurrencyLimiterTest {
+
+    private static final String HOST = "https://api.example.com:443";
+
+    private ProviderConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new ProviderConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "initialLimit", 2);
+        ReflectionTestUtils.setField(limiter, "minLimit", 1);
+        ReflectionTestUtils.setField(limiter, "maxLimit", 8);
+        ReflectionTestUtils.setField(limiter, "interactiveQueueTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(limiter, "backgroundQueueTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(limiter, "defaultBackoffMs", 200L);
+        ReflectionTestUtils.setField(limiter, "maxBackoffMs", 1000L);
+    }
+
+    private Permit acquire(Priority priority, long timeoutMs) {
+        return limiter.acquire(HOST, "m", priority, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    @SuppressWarnings("unchecked")
+    private double currentLimit() {
+        return (double) ((Map<String, Object>) limiter.getStats().get(HOST + "|m")).get("limit");
+    }
+
+    @Test
+    void throttleHalvesLimitAndBlocksUntilRetryAfter() {
+        Permit first = acquire(Priority.BACKGROUND, 100);
+        Permit second = acquire(Priority.BACKGROUND, 100);
+        assertThrows(AIHttpException.class, () -> acquire(Priority.BACKGROUND, 50));
+
+        first.onThrottled(300);
+        second.release();
+        assertEquals(1.0, currentLimit());
+
+        // 退避期内即使有空闲名额也不放行
+        assertThrows(AIHttpException.class, () -> acquire(Priority.INTERACTIVE, 100));
+        long start = System.nanoTime();
+        acquire(Priority.INTERACTIVE, 2000).onSuccess();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertEquals(2.0, currentLimit());
+    }
+
+    @Test
+    void interactiveRequestsJumpAheadOfBackground() throws Exception {
+        Permit a = acquire(Priority.BACKGROUND, 100);
+        Permit b = acquire(Priority.BACKGROUND, 100);
+
+        CompletableFuture<Permit> background = CompletableFuture.supplyAsync(() -> acquire(Priority.BACKGROUND, 2000));
+        Thread.sleep(50);
+        CompletableFuture<Permit> interactive = CompletableFuture.supplyAsync(() -> acquire(Priority.INTERACTIVE, 2000));
+        Thread.sleep(50);
+
+        a.release();
+        interactive.get(1, TimeUnit.SECONDS);
+        assertFalse(background.isDone());
+
+        b.release();
+        background.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndDates() {
+        assertEquals(5000, ProviderConcurrencyLimiter.parseRetryAfterMs("5"));
+        assertEquals(-1, ProviderConcurrencyLimiter.parseRetryAfterMs("soon"));
+        assertEquals(0, ProviderConcurrencyLimiter.parseRetryAfterMs("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    void priorityIsDeclaredOnThreadAndDefaultsToInteractive() {
+        assertEquals(Priority.INTERACTIVE, ProviderConcurrencyLimiter.currentPriority());
+        try (ProviderConcurrencyLimiter.PriorityScope outer = ProviderConcurrencyLimiter.withPriority(Priority.BACKGROUND)) {
+            assertEquals(Priority.BACKGROUND, ProviderConcurrencyLimiter.currentPriority());
+            try (ProviderConcurrencyLimiter.PriorityScope inner = ProviderConcurrencyLimiter.withPriority(Priority.INTERACTIVE)) {
+                assertEquals(Priority.INTERACTIVE, ProviderConcurrencyLimiter.currentPriority());
+            }
+            assertEquals(Priority.BACKGROUND, ProviderConcurrencyLimiter.currentPriority());
+        }
+        assertEquals(Priority.INTERACTIVE, ProviderConcurrencyLimiter.currentPriority());
+    }
+}
@@ -0,0 +1,100 @@
+package com.novel.ai.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SSE解析微基准：原实现（每行 new ObjectMapper + Map + 三次正则）对比 SseDeltaParser
+ * 直接运行main方法即可，输出每种实现的耗时与分配量
+ */
+public class SseDeltaParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        byte[] stream = buildStream(events);
+
+        System.out.println("========== SSE解析微基准 ==========");
+        System.out.println("事件数/轮: " + events + ", 轮数: " + rounds + ", 流大小: " + stream.length + " bytes");
+
+        // 预热
+        for (int i = 0; i < 5; i++) {
+            legacy(stream);
+            current(stream);
+        }
+
+        report("原实现(ObjectMapper+regex)", stream, rounds, true);
+        report("SseDeltaParser", stream, rounds, false);
+    }
+
+    private static void report(String name, byte[] stream, int rounds, boolean legacy) throws Exception {
+        com.sun.management.ThreadMXBean mx =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long allocBefore = mx.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        long chars = 0;
+        for (int i = 0; i < rounds; i++) {
+            chars += legacy ? legacy(stream) : current(stream);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long allocMb = (mx.getThreadAllocatedBytes(tid) - allocBefore) / (1024 * 1024);
+        System.out.printf("%-28s 耗时: %6d ms, 分配: %6d MB, 输出字符: %d%n", name, elapsedMs, allocMb, chars);
+    }
+
+    private static byte[] buildStream(int events) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"<think>先想一想\"}}]}\n\n");
+        sb.append("data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"剧情走向</think>\"}}]}\n\n");
+        for (int i = 0; i < events; i++) {
+            sb.append("data: {\"id\":\"chatcmpl-9x\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,")
+              .append("\"model\":\"deepseek-chat\",\"system_fingerprint\":\"fp_1\",\"choices\":[{\"index\":0,")
+              .append("\"delta\":{\"content\":\"他抬起头，望向远处的山门。\"},\"logprobs\":null,\"finish_reason\":null}]}\n\n");
+        }
+        sb.append("data: [DONE]\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static long legacy(byte[] stream) throws Exception {
+        long total = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.startsWith("data: ")) {
+                    continue;
+                }
+                String data = line.substring(6);
+                if ("[DONE]".equals(data)) {
+                    break;
+                }
+                Map dataMap = new ObjectMapper().readValue(data, Map.class);
+                List choices = (List) dataMap.get("choices");
+                Map delta = (Map) ((Map) choices.get(0)).get("delta");
+                String chunk = (String) delta.get("content");
+                chunk = chunk.replaceAll("<think>.*?</think>", "");
+                chunk = chunk.replaceAll("<think>.*", "");
+                chunk = chunk.replaceAll(".*</think>", "");
+                total += chunk.length();
+            }
+        }
+        return total;
+    }
+
+    private static long current(byte[] stream) throws Exception {
+        long[] total = {0};
+        SseDeltaParser.parse(new ByteArrayInputStream(stream), c -> {
+            total[0] += c.length();
+            return true;
+        });
+        return total[0];
+    }
+}
@@ -0,0 +1,80 @@
+package com.novel.ai.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试SSE增量解析与推理标签过滤
+ */
+public class SseDeltaParserTest {
+
+    private static String event(String content) {
+        String escaped = content.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "data: {\"id\":\"x\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+            + "\"delta\":{\"role\":\"assistant\",\"content\":\"" + escaped + "\"},\"finish_reason\":null}]}\n\n";
+    }
+
+    private static String parseAll(String stream) throws IOException {
+        StringBuilder out = new StringBuilder();
+        SseDeltaParser.parse(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), c -> {
+            out.append(c);
+            return true;
+        });
+        return out.toString();
+    }
+
+    @Test
+    public void testExtractsDeltaContent() throws IOException {
+        String stream = ": keepalive\n\n" + event("第一章") + event("\n林渊睁开眼") + "data: [DONE]\n\n" + event("不应读取");
+        assertEquals("第一章\n林渊睁开眼", parseAll(stream));
+    }
+
+    @Test
+    public void testSkipsEventsWithoutContent() throws IOException {
+        String stream = "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n"
+            + "data: {\"usage\":{\"total_tokens\":10},\"choices\":[]}\n"
+            + "data: not-json\n"
+            + event("正文");
+        assertEquals("正文", parseAll(stream));
+    }
+
+    @Test
+    public void testThinkTagSpanningChunks() throws IOException {
+        String stream = event("<thi") + event("nk>推理") + event("过程</th") + event("ink>正文开始") + event("<b>保留</b>");
+        assertEquals("正文开始<b>保留</b>", parseAll(stream));
+    }
+
+    @Test
+    public void testStrayCloseTagDropsPrecedingTextInChunk() {
+        ThinkTagFilter filter = new ThinkTagFilter();
+        assertEquals("正文", filter.filter("推理尾巴</think>正文"));
+        assertEquals("a", filter.filter("a<"));
+        assertEquals("<", filter.flush());
+    }
+
+    @Test
+    public void testPartialTagFlushedAtEnd() {
+        ThinkTagFilter filter = new ThinkTagFilter();
+        assertEquals("结尾", filter.filter("结尾<thin"));
+        assertEquals("<thin", filter.flush());
+    }
+
+    @Test
+    public void testHandlerCanStop() throws IOException {
+        List<String> seen = new ArrayList<>();
+        boolean done = SseDeltaParser.parse(new ByteArrayInputStream(
+            (event("a") + event("b") + "data: [DONE]\n").getBytes(StandardCharsets.UTF_8)), c -> {
+            seen.add(c);
+            return false;
+        });
+        assertFalse(done);
+        assertEquals(List.of("a"), seen);
+    }
+}
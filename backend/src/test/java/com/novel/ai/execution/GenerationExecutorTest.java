@@ -0,0 +1,212 @@
+package com.novel.ai.execution;
+
+import com.novel.common.security.AuthUtils;
+import com.novel.exception.GenerationRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationExecutorTest {
+
+    private GenerationExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new GenerationExecutor();
+        ReflectionTestUtils.setField(executor, "maxConcurrent", 4);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 4);
+        ReflectionTestUtils.setField(executor, "perUserLimit", 2);
+        executor.init();
+        login("42");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void propagatesSecurityContextToWorker() throws Exception {
+        AtomicReference<Long> seen = new AtomicReference<>();
+        GenerationHandle handle = executor.submit("ctx", () -> seen.set(AuthUtils.getCurrentUserId()));
+        handle.get(5, TimeUnit.SECONDS);
+        assertEquals(42L, seen.get());
+    }
+
+    @Test
+    void rejectsWhenUserLimitReachedAndReleasesOnCompletion() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        GenerationHandle first = executor.submit("a", blocking);
+        GenerationHandle second = executor.submit("b", blocking);
+        assertThrows(GenerationRejectedException.class, () -> executor.submit("c", blocking));
+
+        // 后台任务不占用户名额
+        executor.submitBackground("bg", () -> {}).get(5, TimeUnit.SECONDS);
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        executor.submit("d", () -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void cancelledRunningTaskKeepsUserPermitUntilWorkerExits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        // 忽略中断，模拟取消后仍需一段时间才能停下的上游读取
+        Runnable stubborn = () -> {
+            started.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (release.getCount() > 0 && System.nanoTime() < deadline) {
+                try {
+                    release.await(50, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        GenerationHandle first = executor.submit("a", stubborn);
+        executor.submit("b", stubborn);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(first.cancel());
+        // 执行线程尚未退出，取消后立即重新提交不能绕过用户并发上限
+        assertThrows(GenerationRejectedException.class, () -> executor.submit("c", () -> {}));
+
+        release.countDown();
+        GenerationHandle resubmitted = null;
+        for (int i = 0; i < 50 && resubmitted == null; i++) {
+            try {
+                resubmitted = executor.submit("c", () -> {});
+            } catch (GenerationRejectedException e) {
+                Thread.sleep(20);
+            }
+        }
+        assertNotNull(resubmitted);
+        resubmitted.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void cancelledQueuedTaskReleasesUserPermitImmediately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        // 后台任务占满全部工作线程，用户任务只能排队
+        for (int i = 0; i < 4; i++) {
+            executor.submitBackground("bg" + i, blocking);
+        }
+        GenerationHandle queued = executor.submit("queued", () -> {});
+        assertTrue(queued.cancel());
+
+        GenerationHandle a = executor.submit("a", () -> {});
+        GenerationHandle b = executor.submit("b", () -> {});
+        release.countDown();
+        a.get(5, TimeUnit.SECONDS);
+        b.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void cancelInterruptsTaskAndRunsHooks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean hookRan = new AtomicBoolean();
+        GenerationHandle handle = executor.submit("cancel", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        handle.onCancel(() -> hookRan.set(true));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(handle.cancel());
+        assertTrue(hookRan.get());
+        for (int i = 0; i < 50 && !interrupted.get(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(interrupted.get());
+        assertEquals(1L, executor.getStats().get("cancelled"));
+    }
+
+    @Test
+    void cancelTripsTokenBoundToWorker() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicReference<CancellationToken> seen = new AtomicReference<>();
+        GenerationHandle handle = executor.submit("token", () -> {
+            seen.set(CancellationToken.current());
+            // 模拟 AIHttpClient 在请求期间注册的中止回调
+            try (CancellationToken.Registration ignored = CancellationToken.registerCurrent(() -> aborted.set(true))) {
+                started.countDown();
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(handle.cancel());
+        assertTrue(aborted.get());
+        assertSame(handle.getToken(), seen.get());
+        assertTrue(handle.getToken().isCancelled());
+        assertNull(CancellationToken.current());
+    }
+
+    @Test
+    void doneHooksRunAfterCompletionAndWhenRegisteredLate() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean doneSeen = new AtomicBoolean();
+        GenerationHandle handle = executor.submit("done", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch hookRan = new CountDownLatch(1);
+        handle.onDone(() -> {
+            doneSeen.set(handle.isDone());
+            hookRan.countDown();
+        });
+        release.countDown();
+        assertTrue(hookRan.await(5, TimeUnit.SECONDS));
+        assertTrue(doneSeen.get());
+
+        // 任务已结束后注册的回调立即执行
+        AtomicBoolean late = new AtomicBoolean();
+        handle.onDone(() -> late.set(true));
+        assertTrue(late.get());
+    }
+
+    private static void login(String userId) {
+        User user = new User(userId, "", Collections.emptyList());
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.novel.ai.prompt;
+
+import com.novel.ai.prompt.PromptLayout.Stability;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptLayoutTest {
+
+    private final PromptLayout layout = new PromptLayout();
+
+    @Test
+    void ordersByStabilityAndKeepsDeclarationOrderWithinTier() {
+        PromptLayout.Arrangement arrangement = layout.builder("intent", 1L)
+            .add(Stability.NOVEL, "user", "系统提示")
+            .add(Stability.CHAPTER, "system", "最近章节")
+            .add(Stability.VOLUME, "system", "卷蓝图")
+            .add(Stability.REQUEST, "system", "临时要求")
+            .add(Stability.NOVEL, "system", "核心设定")
+            .add(Stability.CHAPTER, "user", "本章方向")
+            .add(Stability.CHAPTER, "user", "字数要求")
+            .arrange();
+
+        // 字数要求仍是最后一条 user 消息，与不分层时的语义一致
+        assertEquals(Arrays.asList("系统提示", "核心设定", "卷蓝图", "最近章节", "本章方向", "字数要求", "临时要求"),
+            contents(arrangement.getMessages()));
+        assertEquals(3, arrangement.getPrefixMessages());
+        assertTrue(arrangement.getPrefixTokens() > 0);
+        assertTrue(arrangement.getPrefixTokens() < arrangement.getTotalTokens());
+    }
+
+    @Test
+    void prefixFingerprintIsStableAcrossChaptersOfTheSameVolume() {
+        PromptLayout.Arrangement chapter3 = chapter(7L, "第一卷蓝图", "第3章方向");
+        PromptLayout.Arrangement chapter4 = chapter(7L, "第一卷蓝图", "第4章方向");
+        PromptLayout.Arrangement nextVolume = chapter(7L, "第二卷蓝图", "第5章方向");
+
+        assertEquals("first", chapter3.getOutcome());
+        assertEquals(chapter3.getFingerprint(), chapter4.getFingerprint());
+        assertEquals("reused", chapter4.getOutcome());
+        assertNotEquals(chapter4.getFingerprint(), nextVolume.getFingerprint());
+        assertEquals("changed", nextVolume.getOutcome());
+    }
+
+    @Test
+    void keepsDeclarationOrderWhenDisabled() {
+        List<PromptLayout.Section> sections = Arrays.asList(
+            new PromptLayout.Section(Stability.CHAPTER, "system", "b", 0),
+            new PromptLayout.Section(Stability.NOVEL, "system", "a", 1));
+
+        assertEquals("b", PromptLayout.order(sections, false).get(0).content);
+        assertEquals("a", PromptLayout.order(sections, true).get(0).content);
+    }
+
+    private PromptLayout.Arrangement chapter(Long novelId, String volume, String direction) {
+        return layout.builder("intent", novelId)
+            .add(Stability.NOVEL, "user", "系统提示")
+            .add(Stability.VOLUME, "system", volume)
+            .add(Stability.CHAPTER, "user", direction)
+            .arrange();
+    }
+
+    private List<String> contents(List<Map<String, String>> messages) {
+        return messages.stream().map(m -> m.get("content")).collect(Collectors.toList());
+    }
+}
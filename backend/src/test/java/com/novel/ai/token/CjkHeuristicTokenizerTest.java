@@ -0,0 +1,51 @@
+package com.novel.ai.token;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CjkHeuristicTokenizerTest {
+
+    private final CjkHeuristicTokenizer tokenizer = new CjkHeuristicTokenizer();
+
+    @Test
+    void countsCommonHanziAsOneTokenEach() {
+        assertEquals(0, tokenizer.count(""));
+        assertEquals(4, tokenizer.count("林晨拔剑"));
+        // 全角逗号、句号各 1 个
+        assertEquals(6, tokenizer.count("林晨，拔剑。"));
+    }
+
+    @Test
+    void mergesLatinWordsAndDigitGroups() {
+        assertEquals(2, tokenizer.count("hello world"));
+        assertEquals(2, tokenizer.count("12345"));
+        assertTrue(tokenizer.count("internationalization") > 1);
+    }
+
+    @Test
+    void prefixWithinNeverExceedsBudget() {
+        String text = "第12章：林晨在南疆黑市遇见了 old friend，二人对视良久……";
+        int total = tokenizer.count(text);
+        for (int budget = 0; budget <= total; budget++) {
+            int end = tokenizer.prefixWithin(text, budget);
+            assertTrue(tokenizer.count(text.substring(0, end)) <= budget, "budget=" + budget);
+        }
+        assertEquals(text.length(), tokenizer.prefixWithin(text, total));
+    }
+
+    @Test
+    void counterMemoizesLongTextsAndTruncatesToBudget() {
+        TokenCounter counter = new TokenCounter(tokenizer);
+        String text = "夜色如墨，".repeat(40);
+
+        int first = counter.count(text);
+        assertEquals(first, counter.count(text));
+        assertEquals(1L, counter.getStats().get("hits"));
+        assertEquals(1L, counter.getStats().get("misses"));
+
+        String truncated = counter.truncate(text, 50);
+        assertTrue(counter.count(truncated) <= 50);
+        assertTrue(text.startsWith(truncated));
+    }
+}
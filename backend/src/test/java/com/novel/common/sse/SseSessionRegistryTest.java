@@ -0,0 +1,59 @@
+package com.novel.common.sse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseSessionRegistryTest {
+
+    private SseSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SseSessionRegistry();
+        ReflectionTestUtils.setField(registry, "heartbeatIntervalMs", 200L);
+        ReflectionTestUtils.setField(registry, "tickMs", 10L);
+        ReflectionTestUtils.setField(registry, "dispatchThreads", 1);
+        registry.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void sendsHeartbeatForIdleSessionAndUnregistersOnComplete() throws Exception {
+        SseSession session = registry.open("idle", 0L);
+        assertEquals(1, registry.getStats().get("openSessions"));
+
+        waitFor(() -> (long) registry.getStats().get("heartbeatsSent") > 0);
+
+        session.complete();
+        assertTrue(session.isClosed());
+        assertEquals(0, registry.getStats().get("openSessions"));
+    }
+
+    @Test
+    void skipsHeartbeatWhileDataIsFlowing() throws Exception {
+        SseSession session = registry.open("busy", 0L);
+        long deadline = System.currentTimeMillis() + 600;
+        while (System.currentTimeMillis() < deadline) {
+            session.send("chunk");
+            Thread.sleep(50);
+        }
+        assertEquals(0L, registry.getStats().get("heartbeatsSent"));
+        assertTrue((long) registry.getStats().get("heartbeatsSkipped") > 0);
+        session.complete();
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
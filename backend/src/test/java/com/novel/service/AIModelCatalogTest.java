@@ -0,0 +1,55 @@
+package com.novel.service;
+
+import com.novel.domain.entity.AIModel;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AIModelCatalogTest {
+
+    @Test
+    void precomputedPriceMatchesOriginalFormula() {
+        for (String m : new String[]{"1", "0.5", "1.25", "2.333", "0.07"}) {
+            BigDecimal multiplier = new BigDecimal(m);
+            AIModelCatalog.PriceFactor price = new AIModelCatalog.PriceFactor(multiplier);
+            for (int input : new int[]{0, 1, 7, 15, 12345, 98765}) {
+                for (int output : new int[]{0, 3, 999, 3000}) {
+                    BigDecimal expected = new BigDecimal(input).divide(BigDecimal.TEN, 2, RoundingMode.HALF_UP)
+                        .add(new BigDecimal(output))
+                        .multiply(multiplier)
+                        .setScale(2, RoundingMode.HALF_UP);
+                    assertEquals(expected, price.cost(input, output), m + "/" + input + "/" + output);
+                }
+            }
+        }
+    }
+
+    @Test
+    void lookupSkipsUnavailableAndFallsBackToDefault() {
+        AIModel cheap = model("cheap", true, false, 0.1, "1");
+        AIModel preferred = model("preferred", true, true, 1.0, "2");
+        AIModel disabled = model("disabled", false, false, 0.01, "3");
+        AIModelCatalog catalog = new AIModelCatalog("v1", Arrays.asList(cheap, preferred, disabled), Collections.emptyMap());
+
+        assertSame(preferred, catalog.getDefaultModel());
+        assertSame(cheap, catalog.getModel("cheap"));
+        assertNull(catalog.getModel("disabled"));
+        assertEquals(new BigDecimal("2"), catalog.getPrice("disabled").getPerOutputChar());
+        assertEquals(2, catalog.getAvailableModels().size());
+    }
+
+    private static AIModel model(String id, boolean available, boolean isDefault, double costPer1k, String multiplier) {
+        AIModel model = new AIModel();
+        model.setModelId(id);
+        model.setAvailable(available);
+        model.setIsDefault(isDefault);
+        model.setCostPer1k(costPer1k);
+        model.setCostMultiplier(new BigDecimal(multiplier));
+        return model;
+    }
+}
@@ -22,6 +22,10 @@ interface GraphData {
   totalEvents: number
 }
 
+const STATE_SECTIONS = 'characterStates,relationshipStates,openQuests'
+const STATE_PAGE_SIZE = 2000
+const EVENT_PAGE_SIZE = 200
+
 const toNumber = (value: any): number | null => {
   if (typeof value === 'number' && Number.isFinite(value)) return value
   const n = typeof value === 'string' ? parseFloat(value) : NaN
@@ -42,6 +46,8 @@ const toStringArray = (value: any): string[] => {
 const GraphDataModal: React.FC<GraphDataModalProps> = ({ visible, novelId, novelTitle, onClose }) => {
   const [loading, setLoading] = useState(false)
   const [graphData, setGraphData] = useState<GraphData | null>(null)
+  const [eventCursor, setEventCursor] = useState<string | null>(null)
+  const [loadingMoreEvents, setLoadingMoreEvents] = useState(false)
   const [addCharacterModalVisible, setAddCharacterModalVisible] = useState(false)
   const [addRelationshipModalVisible, setAddRelationshipModalVisible] = useState(false)
   const [addQuestModalVisible, setAddQuestModalVisible] = useState(false)
@@ -61,25 +67,70 @@ const GraphDataModal: React.FC<GraphDataModalProps> = ({ visible, novelId, novel
     }
   }, [visible, novelId])
 
+  // 图谱导出接口按 (章节, id) 键集分页，nextCursor 为空表示该分区已导出完毕
+  const fetchExportPage = async (params: Record<string, any>) => {
+    const resp: any = await api.get(`/agentic/graph/export/${novelId}`, { params })
+    if (!resp || resp.status !== 'success') {
+      throw new Error(resp?.message || '获取图谱数据失败')
+    }
+    return resp
+  }
+
   const fetchGraphData = async () => {
     if (!novelId) return
 
     setLoading(true)
     try {
-      const resp: any = await api.get(`/agentic/graph/data/${novelId}`)
-      if (resp && resp.status === 'success') {
-        setGraphData(resp.data)
-      } else {
-        message.error(resp?.error || '获取图谱数据失败')
-      }
+      // 状态类数据量有限，逐页拉完
+      const states: Record<string, any[]> = { characterStates: [], relationshipStates: [], openQuests: [] }
+      let totals: Record<string, number> = {}
+      let cursor: string | null = null
+      do {
+        const page: any = await fetchExportPage({ types: STATE_SECTIONS, cursor, limit: STATE_PAGE_SIZE })
+        if (page.totals) totals = page.totals
+        Object.keys(states).forEach((key) => {
+          states[key].push(...(page.data?.[key] || []))
+        })
+        cursor = page.nextCursor
+      } while (cursor)
+
+      // 事件按章节倒序，只取首页，其余按需加载
+      const eventPage: any = await fetchExportPage({ types: 'events', order: 'desc', limit: EVENT_PAGE_SIZE })
+      setEventCursor(eventPage.nextCursor)
+      setGraphData({
+        characterStates: states.characterStates,
+        relationshipStates: states.relationshipStates,
+        openQuests: states.openQuests,
+        events: eventPage.data?.events || [],
+        totalCharacterStates: totals.characterStates ?? states.characterStates.length,
+        totalRelationshipStates: totals.relationshipStates ?? states.relationshipStates.length,
+        totalOpenQuests: totals.openQuests ?? states.openQuests.length,
+        totalEvents: eventPage.totals?.events ?? 0,
+      })
     } catch (error: any) {
       console.error('获取图谱数据失败:', error)
-      message.error('获取图谱数据失败')
+      message.error(error?.message || '获取图谱数据失败')
     } finally {
       setLoading(false)
     }
   }
 
+  const loadMoreEvents = async () => {
+    if (!novelId || !eventCursor) return
+
+    setLoadingMoreEvents(true)
+    try {
+      const page: any = await fetchExportPage({ types: 'events', order: 'desc', cursor: eventCursor, limit: EVENT_PAGE_SIZE })
+      setEventCursor(page.nextCursor)
+      setGraphData((prev) => prev ? { ...prev, events: [...prev.events, ...(page.data?.events || [])] } : prev)
+    } catch (error: any) {
+      console.error('加载更多事件失败:', error)
+      message.error(error?.message || '加载更多事件失败')
+    } finally {
+      setLoadingMoreEvents(false)
+    }
+  }
+
   const characterStateColumns = [
     {
       title: '角色名',
@@ -1037,6 +1088,13 @@ const GraphDataModal: React.FC<GraphDataModalProps> = ({ visible, novelId, novel
           ) : (
             <Empty description="暂无历史事件数据" />
           )}
+          {eventCursor && (
+            <div style={{ textAlign: 'center', marginTop: 12 }}>
+              <Button onClick={loadMoreEvents} loading={loadingMoreEvents}>
+                加载更多（已加载 {graphData?.events.length || 0} / {graphData?.totalEvents || 0}）
+              </Button>
+            </div>
+          )}
         </div>
       ),
     },